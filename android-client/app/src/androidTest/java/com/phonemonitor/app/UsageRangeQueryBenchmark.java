@@ -0,0 +1,169 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 逐天查询 vs 区间查询（30 / 90 / 365 天）
+ *
+ * 在独立库 usage_stats_bench.db 里造 400 天 × 40 个应用的数据，对比三组调用：
+ * - 日期序列：逐天 getDailySummary vs getRecentSummariesForRange
+ * - 分类日均：逐天 getDailyUsage 再累加 vs getCategoryAverages
+ * - 近期应用：逐天 getDailyUsage 再去重 vs getAppTotals
+ * 每组先校验两种写法结果一致，再各跑 ROUNDS 轮取中位数，结果写到 logcat（tag UsageRangeBench）：
+ *   ./gradlew :app:connectedDebugAndroidTest
+ *   adb logcat -s UsageRangeBench
+ */
+@RunWith(AndroidJUnit4.class)
+public class UsageRangeQueryBenchmark {
+    private static final String TAG = "UsageRangeBench";
+    private static final String DB_NAME = "usage_stats_bench.db";
+    private static final int HISTORY_DAYS = 400;
+    private static final int APPS = 40;
+    private static final int ROUNDS = 7;
+    private static final int[] RANGES = {30, 90, 365};
+    private static final String[] CATEGORIES = {"社交", "视频", "游戏", "工具", "阅读", ""};
+
+    private static Context context;
+    private static UsageStatsDb db;
+    private static int endDay;
+
+    @BeforeClass
+    public static void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = new UsageStatsDb(context, DB_NAME);
+        endDay = DayKeys.today();
+
+        for (int day = endDay - HISTORY_DAYS + 1; day <= endDay; day++) {
+            List<UsageStatsDb.AppUsageRecord> records = new ArrayList<>(APPS);
+            long total = 0;
+            for (int a = 0; a < APPS; a++) {
+                // 每天约 3/4 的应用有记录，时长随天和应用变化
+                if ((day * 31 + a * 17) % 4 == 0) continue;
+                long ms = ((day * 7L + a * 13L) % 120 + 1) * 60_000L;
+                records.add(new UsageStatsDb.AppUsageRecord(day, "com.bench.app" + a,
+                        "App " + a, CATEGORIES[a % CATEGORIES.length], ms));
+                total += ms;
+            }
+            db.saveDay(day, records, total, records.size(), "App 0", CATEGORIES[0]);
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        db.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void dailySeries() {
+        for (int days : RANGES) {
+            List<UsageStatsDb.DailySummary> loop = summariesPerDay(days);
+            List<UsageStatsDb.DailySummary> range = db.getRecentSummariesForRange(endDay, days);
+            assertEquals(loop.size(), range.size());
+            for (int i = 0; i < loop.size(); i++) {
+                assertEquals(loop.get(i).totalUsageMs, range.get(i).totalUsageMs);
+            }
+            report("日期序列", days,
+                    median(() -> summariesPerDay(days)),
+                    median(() -> db.getRecentSummariesForRange(endDay, days)));
+        }
+    }
+
+    @Test
+    public void categoryAverages() {
+        for (int days : RANGES) {
+            assertEquals(categoryAveragesPerDay(days), db.getCategoryAverages(endDay, days));
+            report("分类日均", days,
+                    median(() -> categoryAveragesPerDay(days)),
+                    median(() -> db.getCategoryAverages(endDay, days)));
+        }
+    }
+
+    @Test
+    public void recentApps() {
+        for (int days : RANGES) {
+            Set<String> fromRange = new HashSet<>();
+            for (UsageStatsDb.AppTotal t : db.getAppTotals(endDay - days + 1, endDay, Integer.MAX_VALUE)) {
+                fromRange.add(t.packageName);
+            }
+            assertEquals(appsPerDay(days), fromRange);
+            report("近期应用", days,
+                    median(() -> appsPerDay(days)),
+                    median(() -> db.getAppTotals(endDay - days + 1, endDay, Integer.MAX_VALUE)));
+        }
+    }
+
+    // ==================== 逐天写法（改造前的调用方式） ====================
+
+    private static List<UsageStatsDb.DailySummary> summariesPerDay(int days) {
+        List<UsageStatsDb.DailySummary> result = new ArrayList<>(days);
+        for (int day = endDay - days + 1; day <= endDay; day++) {
+            UsageStatsDb.DailySummary s = db.getDailySummary(day);
+            result.add(s != null ? s : new UsageStatsDb.DailySummary(day, 0, 0, "", ""));
+        }
+        return result;
+    }
+
+    private static Map<String, Long> categoryAveragesPerDay(int days) {
+        Map<String, Long> totals = new HashMap<>();
+        for (int day = endDay - days + 1; day <= endDay; day++) {
+            for (UsageStatsDb.AppUsageRecord r : db.getDailyUsage(day)) {
+                String cat = r.category != null && !r.category.isEmpty() ? r.category : "其他";
+                totals.put(cat, totals.getOrDefault(cat, 0L) + r.usageMs);
+            }
+        }
+        for (Map.Entry<String, Long> e : totals.entrySet()) {
+            e.setValue(e.getValue() / days);
+        }
+        return totals;
+    }
+
+    private static Set<String> appsPerDay(int days) {
+        Set<String> apps = new HashSet<>();
+        for (int day = endDay - days + 1; day <= endDay; day++) {
+            for (UsageStatsDb.AppUsageRecord r : db.getDailyUsage(day)) {
+                apps.add(r.packageName);
+            }
+        }
+        return apps;
+    }
+
+    // ==================== 计时 ====================
+
+    private static long median(Runnable task) {
+        task.run();  // 预热：页缓存 / 语句编译
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+
+    private static void report(String name, int days, long loopNs, long rangeNs) {
+        Log.i(TAG, String.format("📊 %s %3d 天: 逐天 %7.2f ms / 区间 %6.2f ms (%.1fx)",
+                name, days, loopNs / 1e6, rangeNs / 1e6, (double) loopNs / Math.max(rangeNs, 1)));
+    }
+}
@@ -87,6 +87,7 @@ public class AddContentDialog extends DialogFragment {
                     long id = db.insertContent(title, content, url, type, "manual", tags);
 
                     if (id > 0) {
+                        if (url != null) LinkEnrichmentJob.getInstance(requireContext()).enqueue(id);
                         Toast.makeText(getContext(), "✅ 已保存", Toast.LENGTH_SHORT).show();
                         if (listener != null) listener.onContentAdded(id);
                     } else {
@@ -0,0 +1,118 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 配置快照：从 SharedPreferences 一次解析成不可变对象
+ *
+ * 热路径（每条通知、每次发送、每次剪贴板变化）只读一个 volatile 引用，不再逐项查 prefs、
+ * 不再每次拆分 extra_webhooks，通知规则也只在变化时编译一次。配置项变化时由
+ * OnSharedPreferenceChangeListener 重建并整体替换；计数器等非配置键的变化不触发重建。
+ */
+public final class AppConfig {
+    private static final String TAG = "AppConfig";
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+
+    /** 参与快照的键；其它键（计数、状态）变化时不重建 */
+    private static final Set<String> KEYS = new HashSet<>(Arrays.asList(
+            "webhook_url", "extra_webhooks", "feishu_app_id", "feishu_app_secret", "feishu_sync_chat_id",
+            "notification_enabled", "notification_priority_only", "notification_rules",
+            "entertainment_alert_enabled", "entertainment_alert_threshold_min"));
+
+    // ==================== 发送目标 ====================
+
+    /** 一个已解析的发送目标 */
+    public static final class Target {
+        public final boolean isChat;     // true: oc_ 群聊 ID，走 Bot API；false: Webhook URL
+        public final String address;
+
+        Target(boolean isChat, String address) {
+            this.isChat = isChat;
+            this.address = address;
+        }
+    }
+
+    public final String webhookUrl;
+    public final List<Target> extraTargets;
+    public final String appId;
+    public final String appSecret;
+    public final String syncChatId;
+    public final boolean notificationEnabled;
+    public final boolean notificationPriorityOnly;
+    public final NotificationRules notificationRules;
+    public final boolean entertainmentAlertEnabled;
+    public final int entertainmentThresholdMin;
+
+    private AppConfig(SharedPreferences prefs) {
+        webhookUrl = prefs.getString("webhook_url", "").trim();
+        extraTargets = parseTargets(prefs.getString("extra_webhooks", ""));
+        appId = prefs.getString("feishu_app_id", "");
+        appSecret = prefs.getString("feishu_app_secret", "");
+        syncChatId = prefs.getString("feishu_sync_chat_id", "");
+        notificationEnabled = prefs.getBoolean("notification_enabled", false);
+        notificationPriorityOnly = prefs.getBoolean("notification_priority_only", true);
+        notificationRules = NotificationRules.compile(prefs.getString("notification_rules", ""));
+        entertainmentAlertEnabled = prefs.getBoolean("entertainment_alert_enabled", true);
+        entertainmentThresholdMin = prefs.getInt("entertainment_alert_threshold_min", 30);
+    }
+
+    public boolean hasBotCredentials() {
+        return !appId.isEmpty() && !appSecret.isEmpty();
+    }
+
+    /** 逗号或换行分隔；oc_ 开头为群聊，http 开头为 Webhook，其余忽略 */
+    private static List<Target> parseTargets(String raw) {
+        if (raw == null || raw.trim().isEmpty()) return Collections.emptyList();
+        List<Target> out = new ArrayList<>();
+        for (String t : raw.split("[,\\n]+")) {
+            t = t.trim();
+            if (t.startsWith("oc_")) {
+                out.add(new Target(true, t));
+            } else if (t.startsWith("http")) {
+                out.add(new Target(false, t));
+            } else if (!t.isEmpty()) {
+                Log.w(TAG, "无法识别的发送目标，忽略: " + t);
+            }
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    // ==================== 快照 ====================
+
+    private static volatile AppConfig current;
+    // SharedPreferences 只弱引用监听器，这里必须强引用
+    private static SharedPreferences.OnSharedPreferenceChangeListener changeListener;
+
+    /**
+     * 当前配置；首次调用时构建并开始监听变化
+     */
+    public static AppConfig get(Context context) {
+        AppConfig c = current;
+        if (c != null) return c;
+        return init(context);
+    }
+
+    private static synchronized AppConfig init(Context context) {
+        if (current != null) return current;
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        changeListener = (p, key) -> {
+            if (key == null || KEYS.contains(key)) {
+                current = new AppConfig(p);
+                Log.d(TAG, "🔧 配置已更新: " + key);
+            }
+        };
+        prefs.registerOnSharedPreferenceChangeListener(changeListener);
+        current = new AppConfig(prefs);
+        return current;
+    }
+}
@@ -1,11 +1,36 @@
 package com.phonemonitor.app;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 常见 App 包名 → 友好中文名 + 分类 + emoji
+ *
+ * 内置词典、下载的分类包（设置页填地址）、用户覆盖（设置页每行一条）三层合并（后者优先），编译成按 "." 分段的前缀树，
+ * 查找为最长分段前缀匹配。查找结果（含未命中）缓存在有界 memo 中。
+ * 词典整体不可变，变更时重建并通过 volatile 替换，热路径查找不加锁。
  */
 public class AppDictionary {
 
@@ -21,7 +46,20 @@ public class AppDictionary {
         }
     }
 
-    private static final Map<String, AppInfo> DICT = new HashMap<>();
+    private static final String TAG = "AppDictionary";
+    private static final String PACK_FILE = "category_pack.tsv.gz";
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+    static final String KEY_OVERRIDES = "app_overrides";
+    static final String KEY_PACK_URL = "category_pack_url";
+    private static final int MEMO_LIMIT = 2048;
+    private static final AppInfo MISS = new AppInfo("", "", "");
+
+    private static final Map<String, AppInfo> BUILTIN = new HashMap<>();
+    private static final Object WRITE_LOCK = new Object();
+    private static volatile Map<String, AppInfo> pack = Collections.emptyMap();
+    private static volatile Map<String, AppInfo> overrides = Collections.emptyMap();
+    private static volatile Snapshot snapshot;
+    private static volatile boolean loaded = false;
 
     static {
         // ===== 社交 =====
@@ -143,27 +181,78 @@ public class AppDictionary {
         put("com.Qunar",                      "去哪儿",    "出行", "✈️");
         put("ctrip.android.view",             "携程",      "出行", "✈️");
         put("com.didi.global.passenger",      "DiDi",      "出行", "🚗");
+
+        snapshot = new Snapshot();
     }
 
     private static void put(String pkg, String name, String category, String emoji) {
-        DICT.put(pkg, new AppInfo(name, category, emoji));
+        BUILTIN.put(pkg, new AppInfo(name, category, emoji));
+    }
+
+    // ==================== 前缀树 ====================
+
+    private static final class Node {
+        final HashMap<String, Node> children = new HashMap<>(4);
+        AppInfo info;
+    }
+
+    /** 某一时刻的完整词典，构建后只读 */
+    private static final class Snapshot {
+        final Node root = new Node();
+        final ConcurrentHashMap<String, AppInfo> memo = new ConcurrentHashMap<>();
+
+        Snapshot() {
+            insertAll(BUILTIN);
+            insertAll(pack);
+            insertAll(overrides);
+        }
+
+        private void insertAll(Map<String, AppInfo> entries) {
+            for (Map.Entry<String, AppInfo> e : entries.entrySet()) {
+                Node node = root;
+                for (String seg : e.getKey().split("\\.")) {
+                    Node child = node.children.get(seg);
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(seg, child);
+                    }
+                    node = child;
+                }
+                node.info = e.getValue();
+            }
+        }
+
+        /** 最长分段前缀匹配：com.ss.android.ugc.aweme.xxx → com.ss.android.ugc.aweme */
+        AppInfo longestPrefix(String packageName) {
+            Node node = root;
+            AppInfo best = null;
+            int from = 0;
+            while (true) {
+                int dot = packageName.indexOf('.', from);
+                String seg = dot < 0 ? packageName.substring(from) : packageName.substring(from, dot);
+                node = node.children.get(seg);
+                if (node == null) return best;
+                if (node.info != null) best = node.info;
+                if (dot < 0) return best;
+                from = dot + 1;
+            }
+        }
     }
 
     /**
      * 查找 App 信息，找不到返回 null
      */
     public static AppInfo lookup(String packageName) {
-        // 精确匹配
-        AppInfo info = DICT.get(packageName);
-        if (info != null) return info;
-
-        // 模糊匹配（处理变体包名）
-        for (Map.Entry<String, AppInfo> entry : DICT.entrySet()) {
-            if (packageName.startsWith(entry.getKey())) {
-                return entry.getValue();
-            }
-        }
-        return null;
+        if (packageName == null) return null;
+        Snapshot s = snapshot;
+        AppInfo cached = s.memo.get(packageName);
+        if (cached != null) return cached == MISS ? null : cached;
+
+        // 精确匹配或变体包名（最长分段前缀）
+        AppInfo info = s.longestPrefix(packageName);
+        if (s.memo.size() >= MEMO_LIMIT) s.memo.clear();
+        s.memo.put(packageName, info != null ? info : MISS);
+        return info;
     }
 
     /**
@@ -211,4 +300,132 @@ public class AppDictionary {
             default:     return "📦";
         }
     }
+
+    // ==================== 分类包 / 用户覆盖 ====================
+
+    /**
+     * 从磁盘加载分类包和用户覆盖，只在首次调用时生效；会读文件，需在后台线程调用
+     */
+    public static void ensureLoaded(Context context) {
+        if (loaded) return;
+        synchronized (WRITE_LOCK) {
+            if (loaded) return;
+            File dir = context.getApplicationContext().getFilesDir();
+            try {
+                File packFile = new File(dir, PACK_FILE);
+                if (packFile.exists()) {
+                    try (InputStream in = new FileInputStream(packFile)) {
+                        pack = readPack(in);
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "加载分类包失败: " + e.getMessage());
+            }
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            overrides = parseOverrides(prefs.getString(KEY_OVERRIDES, ""), new ArrayList<>());
+            snapshot = new Snapshot();
+            loaded = true;
+            Log.i(TAG, "📚 词典已加载: 分类包 " + pack.size() + " 条, 用户覆盖 " + overrides.size() + " 条");
+        }
+    }
+
+    /**
+     * 设置页保存后应用用户覆盖（文本已存入 prefs），优先级最高
+     * @return 无法解析的行，每条一个说明
+     */
+    public static List<String> applyOverrides(String text) {
+        List<String> errors = new ArrayList<>();
+        Map<String, AppInfo> parsed = parseOverrides(text, errors);
+        synchronized (WRITE_LOCK) {
+            overrides = parsed;
+            snapshot = new Snapshot();
+        }
+        Log.i(TAG, "✏️ 用户覆盖已更新: " + parsed.size() + " 条");
+        return errors;
+    }
+
+    /**
+     * 下载分类包（gzip 压缩的 TSV：每行 包名、名称、分类、emoji，Tab 分隔），同步执行
+     * @return 分类包条目数
+     */
+    public static int downloadCategoryPack(Context context, String packUrl) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL(packUrl).openConnection();
+        conn.setRequestProperty("User-Agent", "PhoneMonitor-Android");
+        conn.setConnectTimeout(10000);
+        conn.setReadTimeout(15000);
+        try {
+            if (conn.getResponseCode() != 200) {
+                throw new Exception("HTTP " + conn.getResponseCode());
+            }
+            try (InputStream in = conn.getInputStream()) {
+                return installCategoryPack(context, in);
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * 校验并安装分类包，解析失败时保留旧包
+     * @return 分类包条目数
+     */
+    private static int installCategoryPack(Context context, InputStream gzipped) throws Exception {
+        Map<String, AppInfo> parsed = readPack(gzipped);
+        synchronized (WRITE_LOCK) {
+            File dir = context.getApplicationContext().getFilesDir();
+            File tmp = new File(dir, PACK_FILE + ".tmp");
+            try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(tmp)), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, AppInfo> e : parsed.entrySet()) {
+                    AppInfo info = e.getValue();
+                    w.write(e.getKey() + "\t" + info.name + "\t" + info.category + "\t" + info.emoji + "\n");
+                }
+            }
+            if (!tmp.renameTo(new File(dir, PACK_FILE))) {
+                throw new Exception("写入分类包失败");
+            }
+            pack = parsed;
+            snapshot = new Snapshot();
+        }
+        Log.i(TAG, "📦 分类包已更新: " + parsed.size() + " 条");
+        return parsed.size();
+    }
+
+    private static Map<String, AppInfo> readPack(InputStream gzipped) throws Exception {
+        Map<String, AppInfo> entries = new HashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(gzipped), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] cols = line.split("\t", -1);
+            if (cols.length < 3 || cols[0].isEmpty()) {
+                throw new Exception("分类包格式错误: " + line);
+            }
+            String emoji = cols.length > 3 && !cols[3].isEmpty() ? cols[3] : getCategoryEmoji(cols[2]);
+            entries.put(cols[0], new AppInfo(cols[1], cols[2], emoji));
+        }
+        return entries;
+    }
+
+    /** 每行 "包名=名称,分类[,emoji]"，# 开头为注释 */
+    private static Map<String, AppInfo> parseOverrides(String text, List<String> errors) {
+        if (text == null || text.trim().isEmpty()) return Collections.emptyMap();
+        Map<String, AppInfo> entries = new HashMap<>();
+        String[] lines = text.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int eq = line.indexOf('=');
+            String[] cols = eq > 0 ? line.substring(eq + 1).split(",", -1) : new String[0];
+            if (cols.length < 2 || cols[0].trim().isEmpty() || cols[1].trim().isEmpty()) {
+                errors.add("第 " + (i + 1) + " 行格式错误（包名=名称,分类）: " + line);
+                continue;
+            }
+            String category = cols[1].trim();
+            String emoji = cols.length > 2 && !cols[2].trim().isEmpty() ? cols[2].trim() : getCategoryEmoji(category);
+            entries.put(line.substring(0, eq).trim(), new AppInfo(cols[0].trim(), category, emoji));
+        }
+        return entries;
+    }
 }
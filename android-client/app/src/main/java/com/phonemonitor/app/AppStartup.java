@@ -0,0 +1,205 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 启动阶段编排
+ *
+ * 每个组件注册为一个阶段，声明依赖和初始化策略：
+ *   ON_FIRST_USE — 只在 require() 时初始化（调用方线程）
+ *   BACKGROUND   — 主线程第一次空闲（首帧之后）在后台预热
+ *   DEFERRED     — 所有 BACKGROUND 阶段完成后再执行，用于联网检查这类不急的工作
+ * 依赖总是先于自身初始化，每个阶段只执行一次，并包在 Trace 区段里，systrace / Perfetto 中可见。
+ *
+ * 同时记录冷启动指标：进程启动 → 首帧、进程启动 → 服务就绪（全部 BACKGROUND 阶段完成）。
+ */
+public final class AppStartup {
+    private static final String TAG = "AppStartup";
+
+    public enum Policy { ON_FIRST_USE, BACKGROUND, DEFERRED }
+
+    public interface Initializer {
+        void init(Context context) throws Exception;
+    }
+
+    private static final class Stage {
+        final String name;
+        final Policy policy;
+        final String[] dependencies;
+        final Initializer body;
+        boolean done = false;
+        long costMs = -1;
+        String thread;
+
+        Stage(String name, Policy policy, String[] dependencies, Initializer body) {
+            this.name = name;
+            this.policy = policy;
+            this.dependencies = dependencies;
+            this.body = body;
+        }
+    }
+
+    private static final Map<String, Stage> stages = new LinkedHashMap<>();
+    private static final List<Runnable> readyCallbacks = new ArrayList<>();
+    private static Context appContext;
+    private static boolean started = false;
+    private static long processStartUptime = -1;
+    private static long firstFrameUptime = -1;
+    private static long servicesReadyUptime = -1;
+
+    private AppStartup() {}
+
+    /**
+     * 注册一个阶段（Application.onCreate 中调用，先于 start）
+     */
+    public static synchronized void register(String name, Policy policy, Initializer body, String... dependencies) {
+        stages.put(name, new Stage(name, policy, dependencies, body));
+    }
+
+    /**
+     * 开始编排：BACKGROUND 阶段等主线程第一次空闲后再提交，不和首帧抢 CPU
+     */
+    public static synchronized void start(Context context) {
+        if (started) return;
+        started = true;
+        appContext = context.getApplicationContext();
+        processStartUptime = Process.getStartUptimeMillis();
+        Looper.myQueue().addIdleHandler(() -> {
+            TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "startupWarm",
+                    AppStartup::warmUp);
+            return false;
+        });
+    }
+
+    /**
+     * 确保阶段（及其依赖）已初始化；已完成时立即返回
+     */
+    public static void require(String name) {
+        Stage stage;
+        synchronized (AppStartup.class) {
+            stage = stages.get(name);
+        }
+        if (stage == null) throw new IllegalArgumentException("未注册的启动阶段: " + name);
+        run(stage, new ArrayList<>());
+    }
+
+    private static void run(Stage stage, List<String> path) {
+        synchronized (stage) {
+            if (stage.done) return;
+            if (path.contains(stage.name)) {
+                throw new IllegalStateException("启动阶段循环依赖: " + path + " → " + stage.name);
+            }
+            path.add(stage.name);
+            for (String dep : stage.dependencies) {
+                Stage d;
+                synchronized (AppStartup.class) {
+                    d = stages.get(dep);
+                }
+                if (d != null) run(d, path);
+            }
+            path.remove(path.size() - 1);
+
+            long start = SystemClock.uptimeMillis();
+            Trace.beginSection("startup:" + stage.name);
+            try {
+                stage.body.init(appContext);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ 启动阶段 " + stage.name + " 失败: " + e.getMessage(), e);
+            } finally {
+                Trace.endSection();
+            }
+            stage.costMs = SystemClock.uptimeMillis() - start;
+            stage.thread = Thread.currentThread().getName();
+            stage.done = true;
+            Log.d(TAG, "⏱️ " + stage.name + " " + stage.costMs + "ms @" + stage.thread);
+        }
+    }
+
+    /** 后台线程：按注册顺序预热 BACKGROUND 阶段，随后提交 DEFERRED 阶段 */
+    private static void warmUp() {
+        for (Stage s : snapshot(Policy.BACKGROUND)) run(s, new ArrayList<>());
+
+        List<Runnable> callbacks;
+        synchronized (AppStartup.class) {
+            servicesReadyUptime = SystemClock.uptimeMillis();
+            callbacks = new ArrayList<>(readyCallbacks);
+            readyCallbacks.clear();
+        }
+        report();
+        for (Runnable r : callbacks) TaskScheduler.runOnMain(r);
+
+        for (Stage s : snapshot(Policy.DEFERRED)) {
+            TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "startup:" + s.name,
+                    () -> run(s, new ArrayList<>()));
+        }
+    }
+
+    private static synchronized List<Stage> snapshot(Policy policy) {
+        List<Stage> out = new ArrayList<>();
+        for (Stage s : stages.values()) {
+            if (s.policy == policy) out.add(s);
+        }
+        return out;
+    }
+
+    /**
+     * 服务就绪（BACKGROUND 阶段全部完成）后在主线程执行；已就绪时直接投递
+     */
+    public static void runWhenReady(Runnable r) {
+        synchronized (AppStartup.class) {
+            if (servicesReadyUptime < 0) {
+                readyCallbacks.add(r);
+                return;
+            }
+        }
+        TaskScheduler.runOnMain(r);
+    }
+
+    // ==================== 指标 ====================
+
+    /**
+     * 首个 Activity 画出第一帧时调用（只记第一次）
+     */
+    public static void markFirstFrame() {
+        synchronized (AppStartup.class) {
+            if (firstFrameUptime >= 0) return;
+            firstFrameUptime = SystemClock.uptimeMillis();
+        }
+        report();
+    }
+
+    /**
+     * 首帧、服务就绪两个指标都有了才输出一次；进程由广播或服务拉起时没有首帧，不输出
+     */
+    private static void report() {
+        String text;
+        synchronized (AppStartup.class) {
+            if (firstFrameUptime < 0 || servicesReadyUptime < 0 || processStartUptime < 0) return;
+            text = formatReport();
+            processStartUptime = -1;    // 只报告一次
+        }
+        Log.i(TAG, text);
+        LogBus.post(TAG, text);
+    }
+
+    /** 调用方持有锁 */
+    private static String formatReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("🚀 冷启动: 首帧 ").append(firstFrameUptime - processStartUptime).append("ms")
+                .append(", 服务就绪 ").append(servicesReadyUptime - processStartUptime).append("ms");
+        for (Stage s : stages.values()) {
+            if (s.costMs >= 0) sb.append("\n   ").append(s.name).append(' ').append(s.costMs).append("ms");
+        }
+        return sb.toString();
+    }
+}
@@ -53,7 +53,7 @@ public class AppUpdater {
     }
 
     private static void checkForUpdate(Activity activity, boolean manual) {
-        new Thread(() -> {
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, manual ? TaskScheduler.Lane.USER_VISIBLE : TaskScheduler.Lane.BACKGROUND, "checkUpdate", () -> {
             try {
                 HttpURLConnection conn = (HttpURLConnection) new URL(GITHUB_API).openConnection();
                 conn.setRequestProperty("Accept", "application/vnd.github.v3+json");
@@ -92,7 +92,7 @@ public class AppUpdater {
             } catch (Exception e) {
                 if (manual) showToast(activity, "❌ 检查更新失败: " + e.getMessage());
             }
-        }).start();
+        });
     }
 
     private static String findApkUrl(JSONObject release) {
@@ -138,7 +138,7 @@ public class AppUpdater {
 
         LogBus.post("UPDATE", "⬇️ 开始下载 v" + version);
 
-        new Thread(() -> {
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.USER_VISIBLE, "downloadApk", () -> {
             File apkFile = null;
             try {
                 // 清理旧 APK
@@ -194,7 +194,7 @@ public class AppUpdater {
                 showToast(activity, "❌ 下载失败: " + e.getMessage());
                 if (apkFile != null) apkFile.delete();
             }
-        }).start();
+        });
     }
 
     private static void installApk(Activity activity, File apkFile) {
@@ -0,0 +1,56 @@
+package com.phonemonitor.app;
+
+/**
+ * 通知存档全文索引的分词
+ *
+ * FTS4 自带的 simple 分词器按空白和标点切分，一整句中文会变成一个词，搜不到其中的片段。
+ * 写入索引前把中日韩字符逐字用空格隔开，查询时再把关键词同样切开并包成短语（要求各字相邻），
+ * 等价于按子串搜索，同时仍走倒排索引。
+ */
+final class ArchiveText {
+
+    private ArchiveText() {}
+
+    /**
+     * 写入索引的形式：小写，CJK 字符两侧加空格
+     */
+    static String segment(String s) {
+        if (s == null || s.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder(s.length() * 2);
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            if (isCjk(cp)) {
+                sb.append(' ').appendCodePoint(cp).append(' ');
+            } else {
+                sb.appendCodePoint(Character.toLowerCase(cp));
+            }
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 用户输入 → MATCH 表达式：按空白拆成多个词，每个词切分后作为一个短语，词之间为 AND；
+     * 没有可搜索的内容时返回 null
+     */
+    static String toMatchQuery(String query) {
+        if (query == null) return null;
+        StringBuilder sb = new StringBuilder();
+        for (String word : query.trim().split("\\s+")) {
+            // 去掉 FTS 语法字符，只留字面内容
+            String cleaned = segment(word).replaceAll("[\"*():^-]", " ").trim().replaceAll("\\s+", " ");
+            if (cleaned.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append('"').append(cleaned).append('"');
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
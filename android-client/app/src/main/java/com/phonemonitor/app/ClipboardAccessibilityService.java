@@ -12,7 +12,6 @@ import android.os.Looper;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 
-import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -42,7 +41,8 @@ public class ClipboardAccessibilityService extends AccessibilityService {
     private ClipboardManager.OnPrimaryClipChangedListener clipListener;
     
     // 共享去重状态
-    private static volatile String sharedLastClipHash = "";
+    private static long sharedLastClipFingerprint = 0;
+    private static boolean sharedHasLastClip = false;
     private static volatile long sharedLastClipTime = 0;
     private static final Object hashLock = new Object();
 
@@ -51,6 +51,8 @@ public class ClipboardAccessibilityService extends AccessibilityService {
     private Handler timerHandler;
     private Runnable timerRunnable;
 
+    private ForegroundTracker foregroundTracker;
+
     private final List<String> batchBuffer = new ArrayList<>();
     private final Handler batchHandler = new Handler(Looper.getMainLooper());
     private Runnable batchRunnable;
@@ -64,23 +66,25 @@ public class ClipboardAccessibilityService extends AccessibilityService {
     private static final Pattern SENSITIVE_DIGITS = Pattern.compile("^\\d{6,20}$");
 
     /**
-     * 共享去重：检查 hash 是否已处理，若未处理则更新
+     * 共享去重：检查内容指纹是否已处理，若未处理则更新
+     * 只认“与上一条相同”：剪贴板没变时轮询不会重复保存，隔了别的内容再复制同一段仍会保存。
      * 增加了 500ms 的全局防抖逻辑，防止多服务同时触发导致的重复
      * @return true 如果已处理过（重复），false 如果是新内容
      */
-    static boolean checkAndUpdateHash(String hash) {
+    static boolean checkAndUpdateHash(long fingerprint) {
         synchronized (hashLock) {
             long now = System.currentTimeMillis();
-            // 1. 如果内容哈希一致，判定为重复
-            if (hash.equals(sharedLastClipHash)) {
+            // 1. 如果内容指纹一致，判定为重复
+            if (sharedHasLastClip && fingerprint == sharedLastClipFingerprint) {
                 return true;
             }
             // 2. 如果距离上一次成功捕获小于 500ms，判定为可能的重复触发
             if (now - sharedLastClipTime < 500) {
                 return true;
             }
-            
-            sharedLastClipHash = hash;
+
+            sharedLastClipFingerprint = fingerprint;
+            sharedHasLastClip = true;
             sharedLastClipTime = now;
             return false;
         }
@@ -89,7 +93,6 @@ public class ClipboardAccessibilityService extends AccessibilityService {
     @Override
     public void onServiceConnected() {
         super.onServiceConnected();
-
         // 配置无障碍：监听所有事件类型
         AccessibilityServiceInfo info = getServiceInfo();
         if (info == null) info = new AccessibilityServiceInfo();
@@ -116,6 +119,11 @@ public class ClipboardAccessibilityService extends AccessibilityService {
         };
         timerHandler.postDelayed(timerRunnable, TIMER_POLL_MS);
 
+        // 窗口切换事件同时喂给前台追踪（替代 UsageEvents 轮询）
+        foregroundTracker = ForegroundTracker.getInstance(this);
+        foregroundTracker.start();
+        foregroundTracker.setAccessibilityFeed(true);
+
         Log.i(TAG, "✅ 剪贴板监听已启动（三重检测）");
         LogBus.post("✅", "剪贴板监听已启动");
     }
@@ -127,6 +135,11 @@ public class ClipboardAccessibilityService extends AccessibilityService {
     public void onAccessibilityEvent(AccessibilityEvent event) {
         if (event == null) return;
 
+        if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
+                && foregroundTracker != null) {
+            foregroundTracker.onWindowStateChanged(event.getPackageName());
+        }
+
         // 节流：最少间隔 1.5 秒检查一次
         long now = System.currentTimeMillis();
         if (now - lastPollTime < POLL_INTERVAL_MS) return;
@@ -153,9 +166,8 @@ public class ClipboardAccessibilityService extends AccessibilityService {
             String content = rawText.toString().trim();
             if (content.isEmpty() || content.length() < 2) return;
 
-            // MD5 去重（共享状态，与 ClipboardForegroundService 互斥）
-            String hash = md5(content);
-            if (checkAndUpdateHash(hash)) return;
+            // 指纹去重（共享状态，与 ClipboardForegroundService 互斥）
+            if (checkAndUpdateHash(Fingerprint.of(content))) return;
             lastClipTime = now;
 
             // 截断
@@ -205,6 +217,7 @@ public class ClipboardAccessibilityService extends AccessibilityService {
             long id = db.insertContent(title, content, url, type, "clipboard", null);
             if (id > 0) {
                 LogBus.post("📚", "已保存到知识库 #" + id);
+                if (url != null) LinkEnrichmentJob.getInstance(this).enqueue(id);
             }
         } catch (Exception e) {
             Log.e(TAG, "知识库保存失败: " + e.getMessage());
@@ -232,7 +245,7 @@ public class ClipboardAccessibilityService extends AccessibilityService {
     }
 
     private void sendBatch(List<String> items) {
-        new Thread(() -> {
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.BACKGROUND, "clipboardBatch", () -> {
             String time = new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date());
 
             StringBuilder sb = new StringBuilder();
@@ -273,7 +286,7 @@ public class ClipboardAccessibilityService extends AccessibilityService {
                 String preview = item.length() > 80 ? item.substring(0, 80) + "..." : item;
                 LogBus.post("📋", typeTag + " " + preview);
             }
-        }).start();
+        });
     }
 
     String detectContentType(String content) {
@@ -315,6 +328,7 @@ public class ClipboardAccessibilityService extends AccessibilityService {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        CounterStore.flush();
         if (clipboardManager != null && clipListener != null) {
             clipboardManager.removePrimaryClipChangedListener(clipListener);
         }
@@ -324,18 +338,10 @@ public class ClipboardAccessibilityService extends AccessibilityService {
         if (timerHandler != null && timerRunnable != null) {
             timerHandler.removeCallbacks(timerRunnable);
         }
-        Log.i(TAG, "无障碍服务已停止");
-    }
-
-    private String md5(String input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(input.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            return String.valueOf(input.hashCode());
+        if (foregroundTracker != null) {
+            foregroundTracker.setAccessibilityFeed(false);
+            foregroundTracker.stop();
         }
+        Log.i(TAG, "无障碍服务已停止");
     }
 }
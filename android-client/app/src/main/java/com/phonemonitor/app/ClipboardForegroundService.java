@@ -18,7 +18,6 @@ import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
 
-import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -32,7 +31,7 @@ import java.util.regex.Pattern;
  * Android 10+ 限制后台应用访问剪贴板，但前台服务不受此限制。
  * 此服务通过持久通知保持前台状态，确保剪贴板监听在后台也能正常工作。
  *
- * 与 ClipboardAccessibilityService 共享去重状态（static lastClipHash），
+ * 与 ClipboardAccessibilityService 共享去重状态（checkAndUpdateHash 的指纹窗口和防抖），
  * 避免同一内容被重复处理。
  */
 public class ClipboardForegroundService extends Service {
@@ -76,6 +75,9 @@ public class ClipboardForegroundService extends Service {
         createNotificationChannel();
         notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
         clipboardManager = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
+        ForegroundTracker.getInstance(this).start();
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "loadDictionary",
+                () -> AppDictionary.ensureLoaded(this));
     }
 
     @Override
@@ -134,9 +136,8 @@ public class ClipboardForegroundService extends Service {
             String content = rawText.toString().trim();
             if (content.isEmpty() || content.length() < 2) return;
 
-            // MD5 去重（与 ClipboardAccessibilityService 共享）
-            String hash = md5(content);
-            if (ClipboardAccessibilityService.checkAndUpdateHash(hash)) {
+            // 指纹去重（与 ClipboardAccessibilityService 共享）
+            if (ClipboardAccessibilityService.checkAndUpdateHash(Fingerprint.of(content))) {
                 return; // 已处理过
             }
 
@@ -193,6 +194,7 @@ public class ClipboardForegroundService extends Service {
             long id = db.insertContent(title, content, url, type, "clipboard", null);
             if (id > 0) {
                 LogBus.post("📚", "已保存到知识库 #" + id);
+                if (url != null) LinkEnrichmentJob.getInstance(this).enqueue(id);
             }
         } catch (Exception e) {
             Log.e(TAG, "知识库保存失败: " + e.getMessage());
@@ -220,7 +222,7 @@ public class ClipboardForegroundService extends Service {
     }
 
     private void sendBatch(List<String> items) {
-        new Thread(() -> {
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.BACKGROUND, "clipboardBatch", () -> {
             String time = new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date());
 
             StringBuilder sb = new StringBuilder();
@@ -260,7 +262,7 @@ public class ClipboardForegroundService extends Service {
                 String preview = item.length() > 80 ? item.substring(0, 80) + "..." : item;
                 LogBus.post("📋", typeTag + " " + preview);
             }
-        }).start();
+        });
     }
 
     private String detectContentType(String content) {
@@ -356,6 +358,8 @@ public class ClipboardForegroundService extends Service {
     public void onDestroy() {
         super.onDestroy();
         isRunning = false;
+        ForegroundTracker.getInstance(this).stop();
+        CounterStore.flush();
 
         if (clipboardManager != null && clipListener != null) {
             clipboardManager.removePrimaryClipChangedListener(clipListener);
@@ -380,16 +384,4 @@ public class ClipboardForegroundService extends Service {
         super.onTaskRemoved(rootIntent);
         Log.i(TAG, "任务被移除，尝试重启...");
     }
-
-    private String md5(String input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(input.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            return String.valueOf(input.hashCode());
-        }
-    }
 }
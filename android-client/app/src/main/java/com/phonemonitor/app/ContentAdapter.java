@@ -7,20 +7,29 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Locale;
+import java.util.Objects;
 
 /**
  * 知识库内容列表适配器
+ *
+ * 每行的显示文本在后台线程一次算好（Row），绑定时只 setText；
+ * 列表更新由 DiffUtil 在后台比对，只刷新变化的行。
  */
-public class ContentAdapter extends RecyclerView.Adapter<ContentAdapter.ViewHolder> {
+public class ContentAdapter extends ListAdapter<ContentAdapter.Row, ContentAdapter.ViewHolder> {
 
     public interface OnItemClickListener {
         void onClick(ContentItem item, int position);
@@ -28,33 +37,129 @@ public class ContentAdapter extends RecyclerView.Adapter<ContentAdapter.ViewHold
         void onFavoriteClick(ContentItem item, int position);
     }
 
-    private List<ContentItem> items = new ArrayList<>();
-    private final Set<Long> fetchingIds = new HashSet<>();
-    private OnItemClickListener listener;
+    private static final DateTimeFormatter DB_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.ROOT);
+    private static final DateTimeFormatter SHORT_DATE =
+            DateTimeFormatter.ofPattern("MM-dd", Locale.ROOT);
+    private static final String[] NO_TAGS = new String[0];
+
+    // ==================== 行模型 ====================
+
+    /** 一行的显示内容，不可变 */
+    public static final class Row {
+        public final ContentItem item;
+        final long id;
+        final String title;
+        final String preview;
+        final String summary;
+        final String meta;
+        final boolean favorite;
+        final String[] tags;
+
+        private Row(ContentItem item, long now, ZoneId zone) {
+            this.item = item;
+            this.id = item.id;
+            this.title = item.getTypeEmoji() + " " + displayTitle(item);
+            this.preview = item.content != null && !item.content.isEmpty() ? item.getPreview(100) : null;
+            this.summary = item.summary != null && !item.summary.isEmpty() ? "📄 " + item.summary : null;
+            this.favorite = item.isFavorite;
+            this.tags = splitTags(item.tags);
+
+            StringBuilder sb = new StringBuilder(64);
+            sb.append('#').append(item.id).append(" · ");
+            LocalDateTime created = parseTime(item.createdAt);
+            if (created != null) {
+                sb.append(relativeTime(created, now, zone)).append(" · ").append(DB_TIME.format(created));
+            } else if (item.createdAt != null) {
+                sb.append(item.createdAt).append(" · ").append(item.createdAt);
+            } else {
+                sb.append(" · ");
+            }
+            sb.append(' ').append(item.getSourceEmoji());
+            if (item.site != null) sb.append(" · ").append(item.site);
+            this.meta = sb.toString();
+        }
+
+        boolean sameContent(Row o) {
+            return favorite == o.favorite
+                    && title.equals(o.title)
+                    && meta.equals(o.meta)
+                    && Objects.equals(preview, o.preview)
+                    && Objects.equals(summary, o.summary)
+                    && Arrays.equals(tags, o.tags);
+        }
+    }
+
+    /**
+     * 在后台线程把查询结果转换成行模型
+     */
+    public static List<Row> buildRows(List<ContentItem> items) {
+        long now = System.currentTimeMillis();
+        ZoneId zone = ZoneId.systemDefault();
+        List<Row> rows = new ArrayList<>(items.size());
+        for (ContentItem item : items) rows.add(new Row(item, now, zone));
+        return rows;
+    }
+
+    public static Row buildRow(ContentItem item) {
+        return new Row(item, System.currentTimeMillis(), ZoneId.systemDefault());
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a.id == b.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a.sameContent(b);
+        }
+    };
+
+    // ==================== 适配器 ====================
+
+    private final OnItemClickListener listener;
 
     public ContentAdapter(OnItemClickListener listener) {
+        super(DIFF);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
-    public void setItems(List<ContentItem> newItems) {
-        this.items = newItems;
-        notifyDataSetChanged();
+    public ContentItem getContentItem(int position) {
+        return getItem(position).item;
     }
 
-    public void removeItem(int position) {
-        if (position >= 0 && position < items.size()) {
-            items.remove(position);
-            notifyItemRemoved(position);
-        }
+    /** 移除一行，返回被移除的行用于撤销 */
+    public Row removeRow(int position) {
+        List<Row> rows = new ArrayList<>(getCurrentList());
+        Row removed = rows.remove(position);
+        submitList(rows);
+        return removed;
     }
 
-    public void restoreItem(ContentItem item, int position) {
-        items.add(position, item);
-        notifyItemInserted(position);
+    public void restoreRow(Row row, int position) {
+        List<Row> rows = new ArrayList<>(getCurrentList());
+        rows.add(Math.min(position, rows.size()), row);
+        submitList(rows);
     }
 
-    public ContentItem getItem(int position) {
-        return items.get(position);
+    /** 单条内容变化后重建它的行 */
+    public void refreshItem(ContentItem item) {
+        List<Row> rows = new ArrayList<>(getCurrentList());
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).id == item.id) {
+                rows.set(i, buildRow(item));
+                submitList(rows);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
     }
 
     @NonNull
@@ -62,105 +167,120 @@ public class ContentAdapter extends RecyclerView.Adapter<ContentAdapter.ViewHold
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_content, parent, false);
-        return new ViewHolder(view);
+        ViewHolder holder = new ViewHolder(view);
+
+        // 点击回调按当前位置取行，不在每次绑定时重新创建
+        holder.itemView.setOnClickListener(v -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (listener != null && pos != RecyclerView.NO_POSITION) listener.onClick(getContentItem(pos), pos);
+        });
+        holder.itemView.setOnLongClickListener(v -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (listener != null && pos != RecyclerView.NO_POSITION) listener.onLongClick(getContentItem(pos), pos);
+            return true;
+        });
+        holder.ivFavorite.setOnClickListener(v -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (listener != null && pos != RecyclerView.NO_POSITION) listener.onFavoriteClick(getContentItem(pos), pos);
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        ContentItem item = items.get(position);
-
-        // Type emoji + title
-        String title = item.title != null && !item.title.isEmpty()
-                ? item.title : item.getPreview(40);
-        holder.tvTitle.setText(item.getTypeEmoji() + " " + title);
-
-        // 如果是链接且标题为空或是 URL，尝试异步获取标题（仅在未缓存且未请求中时）
-        boolean needsFetch = TitleFetcher.shouldFetchTitle(item.url)
-                && (item.title == null || item.title.isEmpty() || item.title.startsWith("http"))
-                && !fetchingIds.contains(item.id);
-        if (needsFetch) {
-            fetchingIds.add(item.id);
-            holder.tvTitle.setText(item.getTypeEmoji() + " 加载中…");
-            TitleFetcher.fetch(item.url, new TitleFetcher.Callback() {
-                @Override
-                public void onSuccess(String fetchedTitle) {
-                    item.title = fetchedTitle;
-                    fetchingIds.remove(item.id);
-                    int pos = holder.getAdapterPosition();
-                    if (pos != RecyclerView.NO_POSITION) {
-                        notifyItemChanged(pos);
-                    }
-                    new Thread(() -> {
-                        android.content.Context ctx = holder.itemView.getContext();
-                        KnowledgeDb.getInstance(ctx).updateTitle(item.id, fetchedTitle);
-                    }).start();
-                }
-
-                @Override
-                public void onError(String error) {
-                    fetchingIds.remove(item.id);
-                    String fallback = item.url != null && !item.url.isEmpty()
-                            ? item.url : item.getPreview(40);
-                    holder.tvTitle.setText(item.getTypeEmoji() + " " + fallback);
-                }
-            });
-        }
+        Row row = getItem(position);
 
-        // Preview
-        holder.tvPreview.setText(item.getPreview(100));
-        holder.tvPreview.setVisibility(
-                item.content != null && !item.content.isEmpty() ? View.VISIBLE : View.GONE);
-
-        // Summary
-        if (item.summary != null && !item.summary.isEmpty()) {
-            holder.tvSummary.setText("📄 " + item.summary);
-            holder.tvSummary.setVisibility(View.VISIBLE);
-        } else {
-            holder.tvSummary.setVisibility(View.GONE);
-        }
+        holder.tvTitle.setText(row.title);
 
-        // Time + source + ID
-        holder.tvMeta.setText("#" + item.id + " · " + item.getRelativeTime() + 
-                " · " + item.getFullTimestamp() + " " + item.getSourceEmoji());
+        holder.tvPreview.setText(row.preview);
+        holder.tvPreview.setVisibility(row.preview != null ? View.VISIBLE : View.GONE);
+
+        holder.tvSummary.setText(row.summary);
+        holder.tvSummary.setVisibility(row.summary != null ? View.VISIBLE : View.GONE);
+
+        holder.tvMeta.setText(row.meta);
 
-        // Favorite
         holder.ivFavorite.setImageResource(
-                item.isFavorite ? android.R.drawable.btn_star_big_on : android.R.drawable.btn_star_big_off);
-
-        // Tags
-        holder.chipGroupTags.removeAllViews();
-        if (item.tags != null && !item.tags.trim().isEmpty()) {
-            holder.chipGroupTags.setVisibility(View.VISIBLE);
-            for (String tag : item.tags.split(",")) {
-                tag = tag.trim();
-                if (tag.isEmpty()) continue;
-                Chip chip = new Chip(holder.chipGroupTags.getContext());
-                chip.setText(tag);
+                row.favorite ? android.R.drawable.btn_star_big_on : android.R.drawable.btn_star_big_off);
+
+        bindTags(holder.chipGroupTags, row.tags);
+    }
+
+    /** 复用已有的 Chip，只增删数量差 */
+    private static void bindTags(ChipGroup group, String[] tags) {
+        if (tags.length == 0) {
+            group.setVisibility(View.GONE);
+            return;
+        }
+        group.setVisibility(View.VISIBLE);
+        while (group.getChildCount() > tags.length) {
+            group.removeViewAt(group.getChildCount() - 1);
+        }
+        for (int i = 0; i < tags.length; i++) {
+            Chip chip;
+            if (i < group.getChildCount()) {
+                chip = (Chip) group.getChildAt(i);
+            } else {
+                chip = new Chip(group.getContext());
                 chip.setTextSize(10);
                 chip.setChipMinHeight(24);
                 chip.setClickable(false);
-                holder.chipGroupTags.addView(chip);
+                group.addView(chip);
             }
-        } else {
-            holder.chipGroupTags.setVisibility(View.GONE);
+            chip.setText(tags[i]);
         }
+    }
 
-        // Click listeners
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) listener.onClick(item, position);
-        });
-        holder.itemView.setOnLongClickListener(v -> {
-            if (listener != null) listener.onLongClick(item, position);
-            return true;
-        });
-        holder.ivFavorite.setOnClickListener(v -> {
-            if (listener != null) listener.onFavoriteClick(item, position);
-        });
+    // ==================== 显示文本 ====================
+
+    /**
+     * 标题为空或仍是 URL 时：分析中显示站点 + 加载中，分析失败显示 URL
+     */
+    private static String displayTitle(ContentItem item) {
+        boolean hasTitle = item.title != null && !item.title.isEmpty() && !item.title.startsWith("http");
+        if (hasTitle || !TitleFetcher.shouldFetchTitle(item.url)) {
+            return hasTitle ? item.title : item.getPreview(40);
+        }
+        if (item.enrichState == KnowledgeDb.ENRICH_PENDING) {
+            return (item.site != null ? item.site + " · " : "") + "加载中…";
+        }
+        return item.url;
     }
 
-    @Override
-    public int getItemCount() {
-        return items.size();
+    private static LocalDateTime parseTime(String s) {
+        if (s == null) return null;
+        try {
+            return LocalDateTime.parse(s, DB_TIME);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** 与 ContentItem.getRelativeTime 相同的分档 */
+    private static String relativeTime(LocalDateTime created, long now, ZoneId zone) {
+        long diff = now - created.atZone(zone).toInstant().toEpochMilli();
+        long seconds = diff / 1000;
+        long minutes = seconds / 60;
+        long hours = minutes / 60;
+        long days = hours / 24;
+
+        if (seconds < 60) return "刚刚";
+        if (minutes < 60) return minutes + "分钟前";
+        if (hours < 24) return hours + "小时前";
+        if (days == 1) return "昨天";
+        if (days < 7) return days + "天前";
+        if (days < 30) return (days / 7) + "周前";
+        return SHORT_DATE.format(created);
+    }
+
+    private static String[] splitTags(String tags) {
+        if (tags == null || tags.trim().isEmpty()) return NO_TAGS;
+        List<String> out = new ArrayList<>();
+        for (String tag : tags.split(",")) {
+            tag = tag.trim();
+            if (!tag.isEmpty()) out.add(tag);
+        }
+        return out.toArray(NO_TAGS);
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -1,5 +1,8 @@
 package com.phonemonitor.app;
 
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -14,6 +17,32 @@ public class ContentClassifier {
     private static final Pattern CODE_PATTERN = Pattern.compile(
             "(\\{[^}]*\\}|function\\s|def\\s|class\\s|import\\s|#include|var\\s|let\\s|const\\s|=>|\\);|\\};|public\\s|private\\s|static\\s)");
 
+    /** 域名后缀 → 站点名 */
+    private static final Map<String, String> SITES = new LinkedHashMap<>();
+    static {
+        SITES.put("douyin.com", "抖音");
+        SITES.put("iesdouyin.com", "抖音");
+        SITES.put("bilibili.com", "B站");
+        SITES.put("b23.tv", "B站");
+        SITES.put("xiaohongshu.com", "小红书");
+        SITES.put("xhslink.com", "小红书");
+        SITES.put("zhihu.com", "知乎");
+        SITES.put("weibo.com", "微博");
+        SITES.put("weibo.cn", "微博");
+        SITES.put("t.cn", "微博");
+        SITES.put("mp.weixin.qq.com", "公众号");
+        SITES.put("kuaishou.com", "快手");
+        SITES.put("toutiao.com", "头条");
+        SITES.put("youtube.com", "YouTube");
+        SITES.put("youtu.be", "YouTube");
+        SITES.put("github.com", "GitHub");
+        SITES.put("juejin.cn", "掘金");
+        SITES.put("csdn.net", "CSDN");
+        SITES.put("twitter.com", "X");
+        SITES.put("x.com", "X");
+        SITES.put("feishu.cn", "飞书");
+    }
+
     /**
      * 分类内容类型
      */
@@ -59,6 +88,23 @@ public class ContentClassifier {
         return m.find() ? m.group(1) : null;
     }
 
+    /**
+     * 按域名识别站点（抖音、B站、知乎…），未知站点返回去掉 www. 的域名
+     */
+    public static String classifySite(String url) {
+        if (url == null || url.isEmpty()) return null;
+        try {
+            String host = new java.net.URL(url).getHost().toLowerCase(Locale.ROOT);
+            for (Map.Entry<String, String> e : SITES.entrySet()) {
+                String suffix = e.getKey();
+                if (host.equals(suffix) || host.endsWith("." + suffix)) return e.getValue();
+            }
+            return host.replaceFirst("^www\\.", "");
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     /**
      * 自动生成标题
      */
@@ -10,6 +10,8 @@ public class ContentItem {
     public String title;
     public String content;
     public String url;
+    public String site;       // 站点名，入库时按域名识别
+    public String canonicalUrl;  // 跟随短链 / 跳转后的地址
     public String type;       // note/article/link/code/other
     public String source;     // clipboard/manual/notification
     public String summary;
@@ -18,6 +20,8 @@ public class ContentItem {
     public String createdAt;
     public String updatedAt;
     public boolean synced;
+    public int enrichState;   // KnowledgeDb.ENRICH_*
+    public int enrichAttempts;
 
     public ContentItem() {}
 
@@ -26,6 +30,8 @@ public class ContentItem {
         this.title = cursor.getString(cursor.getColumnIndexOrThrow("title"));
         this.content = cursor.getString(cursor.getColumnIndexOrThrow("content"));
         this.url = cursor.getString(cursor.getColumnIndexOrThrow("url"));
+        this.site = cursor.getString(cursor.getColumnIndexOrThrow("site"));
+        this.canonicalUrl = cursor.getString(cursor.getColumnIndexOrThrow("canonical_url"));
         this.type = cursor.getString(cursor.getColumnIndexOrThrow("type"));
         this.source = cursor.getString(cursor.getColumnIndexOrThrow("source"));
         this.summary = cursor.getString(cursor.getColumnIndexOrThrow("summary"));
@@ -34,6 +40,8 @@ public class ContentItem {
         this.createdAt = cursor.getString(cursor.getColumnIndexOrThrow("created_at"));
         this.updatedAt = cursor.getString(cursor.getColumnIndexOrThrow("updated_at"));
         this.synced = cursor.getInt(cursor.getColumnIndexOrThrow("synced")) == 1;
+        this.enrichState = cursor.getInt(cursor.getColumnIndexOrThrow("enrich_state"));
+        this.enrichAttempts = cursor.getInt(cursor.getColumnIndexOrThrow("enrich_attempts"));
     }
 
     public String getTypeEmoji() {
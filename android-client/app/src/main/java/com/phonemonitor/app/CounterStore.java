@@ -0,0 +1,82 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 发送计数器：自增只改内存，攒一段时间后一次 apply 写回 prefs
+ *
+ * 读取时返回已持久化的值加上尚未写回的增量，界面上看到的计数不会滞后。
+ * 连续自增时每次推迟写回，但从第一笔未写回的增量算起最多等 MAX_WAIT_MS；
+ * 服务销毁、进程进入后台时也会立即写回。
+ */
+public final class CounterStore {
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+    private static final long FLUSH_DELAY_MS = 2000;
+    private static final long MAX_WAIT_MS = 10000;
+
+    private static final Map<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static Context appContext;
+    private static final Runnable flushRunnable = CounterStore::flush;
+    private static long firstPendingAt = 0;              // 第一笔未写回增量的 uptime，0 = 没有
+
+    private CounterStore() {}
+
+    /**
+     * 计数 +1（任意线程）
+     */
+    public static void increment(Context context, String key) {
+        if (appContext == null) appContext = context.getApplicationContext();
+        pending.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        long now = SystemClock.uptimeMillis();
+        synchronized (CounterStore.class) {
+            if (firstPendingAt == 0) firstPendingAt = now;
+            long delay = Math.min(FLUSH_DELAY_MS, firstPendingAt + MAX_WAIT_MS - now);
+            mainHandler.removeCallbacks(flushRunnable);
+            mainHandler.postDelayed(flushRunnable, Math.max(delay, 0));
+        }
+    }
+
+    /**
+     * 当前计数 = 已写入值 + 未写回的增量
+     */
+    public static int get(Context context, String key) {
+        int stored = prefs(context).getInt(key, 0);
+        AtomicInteger delta = pending.get(key);
+        return delta != null ? stored + delta.get() : stored;
+    }
+
+    /**
+     * 把所有增量合并成一次 apply
+     */
+    public static synchronized void flush() {
+        firstPendingAt = 0;
+        mainHandler.removeCallbacks(flushRunnable);
+        if (appContext == null || pending.isEmpty()) return;
+        SharedPreferences prefs = prefs(appContext);
+        Map<String, Integer> deltas = new HashMap<>();
+        for (Map.Entry<String, AtomicInteger> e : pending.entrySet()) {
+            int d = e.getValue().getAndSet(0);
+            if (d != 0) deltas.put(e.getKey(), d);
+        }
+        if (deltas.isEmpty()) return;
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, Integer> e : deltas.entrySet()) {
+            editor.putInt(e.getKey(), prefs.getInt(e.getKey(), 0) + e.getValue());
+        }
+        editor.apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
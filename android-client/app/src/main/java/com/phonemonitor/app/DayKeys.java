@@ -0,0 +1,85 @@
+package com.phonemonitor.app;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 日期键工具（java.time 实现，线程安全）
+ * 统计表统一以 epoch-day 整数（1970-01-01 起的本地日序号）为日期键，
+ * 每次调用都取 ZoneId.systemDefault()，用户切换时区后立即生效。
+ */
+public final class DayKeys {
+    private static final DateTimeFormatter SHORT = DateTimeFormatter.ofPattern("MM-dd");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private DayKeys() {}
+
+    /** 今天的 epoch-day */
+    public static int today() {
+        return (int) LocalDate.now(ZoneId.systemDefault()).toEpochDay();
+    }
+
+    /** 时间戳所在本地日的 epoch-day */
+    public static int fromMillis(long millis) {
+        return (int) Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /** 解析 yyyy-MM-dd，格式不合法时抛 DateTimeParseException */
+    public static int parse(String isoDate) {
+        return (int) LocalDate.parse(isoDate).toEpochDay();
+    }
+
+    public static LocalDate toLocalDate(int day) {
+        return LocalDate.ofEpochDay(day);
+    }
+
+    /** yyyy-MM-dd */
+    public static String format(int day) {
+        return LocalDate.ofEpochDay(day).toString();
+    }
+
+    /** MM-dd，用于图表横轴等短标签 */
+    public static String shortLabel(int day) {
+        return LocalDate.ofEpochDay(day).format(SHORT);
+    }
+
+    /** 当天 00:00 的毫秒时间戳 */
+    public static long startOfDayMillis(int day) {
+        return LocalDate.ofEpochDay(day).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /** 当天最后一毫秒（次日 00:00 - 1，夏令时切换日同样准确） */
+    public static long endOfDayMillis(int day) {
+        return startOfDayMillis(day + 1) - 1;
+    }
+
+    /** 时间戳在本地日内的分钟数 0..1439 */
+    public static int minuteOfDay(long millis) {
+        ZonedDateTime t = Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault());
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    /** 所在周周一的 epoch-day（1970-01-01 为周四） */
+    public static int weekStart(int day) {
+        return day - Math.floorMod(day + 3, 7);
+    }
+
+    public static boolean isWeekend(int day) {
+        return Math.floorMod(day + 3, 7) >= 5;
+    }
+
+    /** 月份键 yyyyMM，如 202610 */
+    public static int monthKey(int day) {
+        LocalDate d = LocalDate.ofEpochDay(day);
+        return d.getYear() * 100 + d.getMonthValue();
+    }
+
+    /** 当前本地时间 yyyy-MM-dd HH:mm:ss（created_at 等文本列） */
+    public static String nowTimestamp() {
+        return LocalDateTime.now(ZoneId.systemDefault()).format(TIMESTAMP);
+    }
+}
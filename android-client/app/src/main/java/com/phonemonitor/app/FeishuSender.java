@@ -1,22 +1,16 @@
 package com.phonemonitor.app;
 
-import android.app.usage.UsageEvents;
 import android.app.usage.UsageStats;
-import android.app.usage.UsageStatsManager;
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
-import android.util.Log;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
 
 /**
  * 采集使用数据 → 通过飞书 Webhook 发送到群聊
@@ -30,32 +24,29 @@ public class FeishuSender {
     }
 
     public String collectAndSend() throws Exception {
-        String message = buildReport();
+        return collectAndSend(UsageSnapshot.capture(context));
+    }
+
+    /**
+     * 使用给定快照生成并发送日报（定时唤醒时与其他任务共用快照）
+     */
+    public String collectAndSend(UsageSnapshot snapshot) throws Exception {
+        String message = buildReport(snapshot);
         boolean ok = FeishuWebhook.sendText(context, message);
         if (!ok) throw new Exception("发送失败（已重试）");
         FeishuWebhook.incrementSendCount(context, "report_send_count");
         return "已发送到飞书群";
     }
 
-    private String buildReport() {
-        UsageStatsManager usm = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
-        PackageManager pm = context.getPackageManager();
+    private String buildReport(UsageSnapshot snapshot) {
+        PackageMetadataCache packageMeta = PackageMetadataCache.getInstance(context);
 
-        TimeZone tz = TimeZone.getTimeZone("Asia/Shanghai");
-        Calendar cal = Calendar.getInstance(tz);
-        String dateStr = new SimpleDateFormat("yyyy-MM-dd (E)", Locale.CHINA).format(cal.getTime());
+        String dateStr = new SimpleDateFormat("yyyy-MM-dd (E)", Locale.CHINA).format(new Date(snapshot.now));
 
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        long startTime = cal.getTimeInMillis();
-        long endTime = System.currentTimeMillis();
-
-        Map<String, UsageStats> statsMap = usm.queryAndAggregateUsageStats(startTime, endTime);
+        Map<String, UsageStats> statsMap = snapshot.getTodayStats();
 
         // 统计解锁次数
-        int unlockCount = countUnlocks(usm, startTime, endTime);
+        int unlockCount = snapshot.getUnlockCount();
 
         StringBuilder sb = new StringBuilder();
         sb.append("📱 手机使用日报\n");
@@ -90,13 +81,7 @@ public class FeishuSender {
                 appName = dictInfo.name;
                 emoji = dictInfo.emoji + " ";
             } else {
-                try {
-                    ApplicationInfo ai = pm.getApplicationInfo(pkg, 0);
-                    appName = pm.getApplicationLabel(ai).toString();
-                } catch (PackageManager.NameNotFoundException e) {
-                    String[] parts = pkg.split("\\.");
-                    appName = parts[parts.length - 1];
-                }
+                appName = packageMeta.getLabelOrShortName(pkg);
             }
 
             // 分类统计
@@ -127,7 +112,7 @@ public class FeishuSender {
         // 每小时时间线
         sb.append("\n━━━━━━━━━━━━━━━━━━\n");
         sb.append("🕐 每小时明细：\n");
-        buildHourlyTimeline(sb, usm, startTime);
+        buildHourlyTimeline(sb, snapshot);
 
         // 总计
         long totalHours = totalMs / 3600000;
@@ -155,60 +140,28 @@ public class FeishuSender {
     /**
      * 构建每小时使用明细时间线
      */
-    private void buildHourlyTimeline(StringBuilder sb, UsageStatsManager usm, long dayStart) {
-        Map<Integer, Map<String, Long>> hourly =
-                EntertainmentAlertReceiver.queryDailyHourlyBreakdown(usm, dayStart);
-
-        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("Asia/Shanghai"));
-        int currentHour = cal.get(Calendar.HOUR_OF_DAY);
+    private void buildHourlyTimeline(StringBuilder sb, UsageSnapshot snapshot) {
+        HourBucketer hourly = snapshot.getHourly();
+        int currentHour = DayKeys.minuteOfDay(snapshot.now) / 60;
 
         for (int h = 0; h <= currentHour; h++) {
-            Map<String, Long> apps = hourly.get(h);
-            if (apps == null || apps.isEmpty()) continue;
-
-            // Sort by usage desc
-            List<Map.Entry<String, Long>> sorted = new ArrayList<>(apps.entrySet());
-            sorted.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
-
             // Only show hours with >1min total usage
-            long hourTotal = 0;
-            for (Map.Entry<String, Long> e : sorted) hourTotal += e.getValue();
-            if (hourTotal < 60000) continue;
+            if (hourly.hourTotal(h) < 60000) continue;
 
             sb.append(String.format("  %02d:00-%02d:00: ", h, h + 1));
             int shown = 0;
-            for (Map.Entry<String, Long> entry : sorted) {
-                long min = entry.getValue() / 60000;
-                if (min < 1) continue;
+            for (int id : hourly.topInHour(h, 3)) { // Top 3 per hour
+                if (id < 0) break;
+                long min = hourly.get(h, id) / 60000;
+                if (min < 1) break;
                 if (shown > 0) sb.append(", ");
-                AppDictionary.AppInfo info = AppDictionary.lookup(entry.getKey());
-                String name = info != null ? info.name : entry.getKey();
+                String pkg = hourly.packageName(id);
+                AppDictionary.AppInfo info = AppDictionary.lookup(pkg);
+                String name = info != null ? info.name : pkg;
                 sb.append(name).append(" ").append(min).append("min");
                 shown++;
-                if (shown >= 3) break; // Top 3 per hour
             }
             sb.append("\n");
         }
     }
-
-    /**
-     * 统计今日解锁次数（通过 KEYGUARD_HIDDEN 事件）
-     */
-    private int countUnlocks(UsageStatsManager usm, long startTime, long endTime) {
-        try {
-            UsageEvents events = usm.queryEvents(startTime, endTime);
-            int count = 0;
-            UsageEvents.Event event = new UsageEvents.Event();
-            while (events.hasNextEvent()) {
-                events.getNextEvent(event);
-                if (event.getEventType() == UsageEvents.Event.KEYGUARD_HIDDEN) {
-                    count++;
-                }
-            }
-            return count;
-        } catch (Exception e) {
-            Log.w(TAG, "无法统计解锁次数: " + e.getMessage());
-            return -1;
-        }
-    }
 }
@@ -1,7 +1,6 @@
 package com.phonemonitor.app;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
 
 import org.json.JSONObject;
@@ -16,7 +15,6 @@ import java.nio.charset.StandardCharsets;
  */
 public class FeishuWebhook {
     private static final String TAG = "FeishuWebhook";
-    private static final String PREFS_NAME = "phone_monitor_prefs";
     private static final int MAX_RETRIES = 2;
     private static final int CONNECT_TIMEOUT = 10000;
     private static final int READ_TIMEOUT = 10000;
@@ -27,38 +25,27 @@ public class FeishuWebhook {
      * @return true if at least one sent successfully
      */
     public static boolean sendText(Context context, String text) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String webhookUrl = prefs.getString("webhook_url", "");
-        String extraWebhooks = prefs.getString("extra_webhooks", "");
-        String appId = prefs.getString("feishu_app_id", "");
-        String appSecret = prefs.getString("feishu_app_secret", "");
-
+        AppConfig config = AppConfig.get(context);
         boolean anyOk = false;
 
         // 主 webhook
-        if (!webhookUrl.isEmpty()) {
-            if (sendText(webhookUrl, text)) anyOk = true;
+        if (!config.webhookUrl.isEmpty()) {
+            if (sendText(config.webhookUrl, text)) anyOk = true;
         }
 
-        // 额外目标（逗号或换行分隔）
-        if (!extraWebhooks.isEmpty()) {
-            String[] targets = extraWebhooks.split("[,\\n]+");
-            for (String target : targets) {
-                target = target.trim();
-                if (target.isEmpty()) continue;
-
-                if (target.startsWith("oc_")) {
-                    // Bot API 发送到群聊
-                    if (!appId.isEmpty() && !appSecret.isEmpty()) {
-                        FeishuBotApi api = new FeishuBotApi(appId, appSecret);
-                        if (api.sendText(target, text)) anyOk = true;
-                    } else {
-                        Log.w(TAG, "Bot API 需要 App ID 和 App Secret，跳过: " + target);
-                    }
-                } else if (target.startsWith("http")) {
-                    // Webhook 发送
-                    if (sendText(target, text)) anyOk = true;
+        // 额外目标（已在配置快照中解析）
+        for (AppConfig.Target target : config.extraTargets) {
+            if (target.isChat) {
+                // Bot API 发送到群聊
+                if (config.hasBotCredentials()) {
+                    FeishuBotApi api = new FeishuBotApi(config.appId, config.appSecret);
+                    if (api.sendText(target.address, text)) anyOk = true;
+                } else {
+                    Log.w(TAG, "Bot API 需要 App ID 和 App Secret，跳过: " + target.address);
                 }
+            } else {
+                // Webhook 发送
+                if (sendText(target.address, text)) anyOk = true;
             }
         }
 
@@ -116,15 +103,13 @@ public class FeishuWebhook {
     }
 
     /**
-     * 更新发送计数器
+     * 更新发送计数器（内存累加，批量写回）
      */
     public static void incrementSendCount(Context context, String key) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        int count = prefs.getInt(key, 0);
-        prefs.edit().putInt(key, count + 1).apply();
+        CounterStore.increment(context, key);
     }
 
     public static int getSendCount(Context context, String key) {
-        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getInt(key, 0);
+        return CounterStore.get(context, key);
     }
 }
@@ -0,0 +1,43 @@
+package com.phonemonitor.app;
+
+/**
+ * 去重用的 64 位内容指纹
+ *
+ * 逐字符流式计算（FNV-1a 64 + murmur3 fmix64 收尾），不拼接字符串、不转 byte[]、不生成十六进制串，
+ * 一次调用零分配。字段之间混入长度标记（大于任何 char 值），"ab|c" 与 "a|bc" 不会相同。
+ * 只用于判重，不用于安全场景。
+ */
+final class Fingerprint {
+    private static final long OFFSET = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private Fingerprint() {}
+
+    static long of(CharSequence s) {
+        return finish(field(OFFSET, s));
+    }
+
+    static long of(CharSequence a, CharSequence b, CharSequence c) {
+        long h = field(OFFSET, a);
+        h = field(h, b);
+        h = field(h, c);
+        return finish(h);
+    }
+
+    private static long field(long h, CharSequence s) {
+        int n = s == null ? 0 : s.length();
+        for (int i = 0; i < n; i++) {
+            h = (h ^ s.charAt(i)) * PRIME;
+        }
+        return (h ^ (0x10000L + n)) * PRIME;
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,377 @@
+package com.phonemonitor.app;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.PowerManager;
+import android.util.Log;
+import android.view.inputmethod.InputMethodInfo;
+import android.view.inputmethod.InputMethodManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 实时前台应用追踪
+ *
+ * 前台切换来源：
+ * 1. ClipboardAccessibilityService 的 TYPE_WINDOW_STATE_CHANGED（主，零轮询）
+ * 2. 无障碍未开启时，亮屏期间每 POLL_INTERVAL_MS 用 queryEvents 增量拉取（兜底）
+ *
+ * 最近 60 分钟按分钟分桶累计各分类 / 各应用时长；娱乐类应用在前台时只挂一个
+ * "预计越线时刻" 的定时器，滚动窗口越过阈值立即提醒。熄屏后结束会话、停止轮询和定时器。
+ */
+public class ForegroundTracker {
+    private static final String TAG = "ForegroundTracker";
+    private static final int WINDOW_MINUTES = 60;
+    private static final long MINUTE_MS = 60000;
+    private static final long POLL_INTERVAL_MS = 10000;
+
+    /** 滚动窗口越过阈值时回调（在追踪线程上调用） */
+    public interface ThresholdListener {
+        void onThresholdCrossed(long windowMs, Map<String, Long> appWindowMs);
+    }
+
+    private static ForegroundTracker instance;
+
+    private final Context context;
+    private final Handler handler;
+    private final List<ThresholdListener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> ignoredPackages = new HashSet<>();
+    private int startCount = 0;
+    private boolean accessibilityFeed = false;
+    private boolean screenOn = true;
+
+    // 当前会话
+    private String currentPkg;
+    private String currentCategory;
+    private long sessionStart;
+    private long accruedUntil;
+    private long lastPollTs;
+
+    // 60 分钟环形分桶：slotMinute[i] 为该槽对应的 epoch 分钟
+    private final long[] slotMinute = new long[WINDOW_MINUTES];
+    private final Map<String, long[]> categorySlots = new HashMap<>();
+    private final Map<String, long[]> appSlots = new HashMap<>();
+
+    private final Runnable thresholdCheck = this::checkThreshold;
+    private final Runnable pollTick = new Runnable() {
+        @Override
+        public void run() {
+            pollUsageEvents();
+            if (shouldPoll()) handler.postDelayed(this, POLL_INTERVAL_MS);
+        }
+    };
+
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context ctx, Intent intent) {
+            if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
+                onScreenOff();
+            } else if (Intent.ACTION_SCREEN_ON.equals(intent.getAction())) {
+                onScreenOn();
+            }
+        }
+    };
+
+    public static synchronized ForegroundTracker getInstance(Context context) {
+        if (instance == null) {
+            instance = new ForegroundTracker(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ForegroundTracker(Context context) {
+        this.context = context;
+        HandlerThread thread = new HandlerThread("ForegroundTracker");
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+        ignoredPackages.add("com.android.systemui");
+        // 默认监听：越线即走娱乐提醒（与整点检查共用冷却）
+        listeners.add((windowMs, apps) -> TaskScheduler.execute(
+                TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.USER_VISIBLE, "realtimeAlert",
+                () -> EntertainmentAlertReceiver.raiseAlert(context, windowMs, apps, "实时")));
+    }
+
+    // ==================== 生命周期 ====================
+
+    /**
+     * 由常驻服务调用，可重复调用（引用计数）
+     */
+    public synchronized void start() {
+        if (startCount++ > 0) return;
+
+        loadInputMethods();
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        context.registerReceiver(screenReceiver, filter, null, handler);
+
+        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        screenOn = pm == null || pm.isInteractive();
+        lastPollTs = System.currentTimeMillis() - POLL_INTERVAL_MS;
+        if (screenOn) handler.post(pollTick);
+        Log.i(TAG, "✅ 前台追踪已启动");
+    }
+
+    public synchronized void stop() {
+        if (startCount == 0 || --startCount > 0) return;
+        try {
+            context.unregisterReceiver(screenReceiver);
+        } catch (Exception ignored) {}
+        handler.removeCallbacks(pollTick);
+        handler.removeCallbacks(thresholdCheck);
+        endSession(System.currentTimeMillis());
+        Log.i(TAG, "🛑 前台追踪已停止");
+    }
+
+    /**
+     * 无障碍服务连上 / 断开时调用：有窗口事件可用时不再轮询
+     */
+    public synchronized void setAccessibilityFeed(boolean enabled) {
+        accessibilityFeed = enabled;
+        handler.removeCallbacks(pollTick);
+        if (shouldPoll()) {
+            lastPollTs = System.currentTimeMillis() - POLL_INTERVAL_MS;
+            handler.post(pollTick);
+        }
+    }
+
+    public void addListener(ThresholdListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ThresholdListener listener) {
+        listeners.remove(listener);
+    }
+
+    // ==================== 事件输入 ====================
+
+    /**
+     * 无障碍 TYPE_WINDOW_STATE_CHANGED
+     */
+    public void onWindowStateChanged(CharSequence packageName) {
+        if (packageName == null) return;
+        String pkg = packageName.toString();
+        long ts = System.currentTimeMillis();
+        handler.post(() -> onForeground(pkg, ts));
+    }
+
+    private synchronized void onForeground(String pkg, long ts) {
+        if (!screenOn || ignoredPackages.contains(pkg) || pkg.equals(currentPkg)) return;
+        endSession(ts);
+        currentPkg = pkg;
+        currentCategory = AppDictionary.getCategory(pkg);
+        sessionStart = ts;
+        accruedUntil = ts;
+        scheduleThresholdCheck(ts);
+    }
+
+    private synchronized void onScreenOff() {
+        screenOn = false;
+        handler.removeCallbacks(pollTick);
+        handler.removeCallbacks(thresholdCheck);
+        endSession(System.currentTimeMillis());
+        Log.d(TAG, "熄屏，暂停追踪");
+    }
+
+    private synchronized void onScreenOn() {
+        screenOn = true;
+        lastPollTs = System.currentTimeMillis() - POLL_INTERVAL_MS;
+        // 亮屏先补拉一次，无障碍模式下也能立刻知道前台应用
+        handler.removeCallbacks(pollTick);
+        handler.post(pollTick);
+    }
+
+    private boolean shouldPoll() {
+        return screenOn && !accessibilityFeed && startCount > 0;
+    }
+
+    /**
+     * 兜底：拉取 (lastPollTs, now] 的 RESUMED 事件，按时间顺序喂给 onForeground
+     */
+    private void pollUsageEvents() {
+        UsageStatsManager usm = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        if (usm == null) return;
+        long now = System.currentTimeMillis();
+        try {
+            UsageEvents events = usm.queryEvents(lastPollTs, now);
+            UsageEvents.Event event = new UsageEvents.Event();
+            while (events.hasNextEvent()) {
+                events.getNextEvent(event);
+                if (event.getEventType() == UsageEvents.Event.ACTIVITY_RESUMED) {
+                    onForeground(event.getPackageName(), event.getTimeStamp());
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "轮询前台事件失败: " + e.getMessage());
+        }
+        lastPollTs = now;
+        synchronized (this) {
+            accrue(now);
+        }
+    }
+
+    // ==================== 分桶累计 ====================
+
+    private void endSession(long ts) {
+        if (currentPkg == null) return;
+        accrue(ts);
+        currentPkg = null;
+        currentCategory = null;
+        handler.removeCallbacks(thresholdCheck);
+    }
+
+    /**
+     * 把当前会话 [accruedUntil, now) 按分钟边界切开累加到环形分桶
+     */
+    private void accrue(long now) {
+        if (currentPkg == null || now <= accruedUntil) return;
+        long t = accruedUntil;
+        while (t < now) {
+            long minute = t / MINUTE_MS;
+            long next = Math.min((minute + 1) * MINUTE_MS, now);
+            int slot = slotFor(minute);
+            bucket(categorySlots, currentCategory)[slot] += next - t;
+            bucket(appSlots, currentPkg)[slot] += next - t;
+            t = next;
+        }
+        accruedUntil = now;
+    }
+
+    private int slotFor(long minute) {
+        int slot = (int) (minute % WINDOW_MINUTES);
+        if (slotMinute[slot] != minute) {
+            slotMinute[slot] = minute;
+            for (long[] slots : categorySlots.values()) slots[slot] = 0;
+            for (long[] slots : appSlots.values()) slots[slot] = 0;
+        }
+        return slot;
+    }
+
+    private static long[] bucket(Map<String, long[]> map, String key) {
+        long[] slots = map.get(key);
+        if (slots == null) {
+            slots = new long[WINDOW_MINUTES];
+            map.put(key, slots);
+        }
+        return slots;
+    }
+
+    private long windowSum(long[] slots, long nowMinute) {
+        long sum = 0;
+        for (int i = 0; i < WINDOW_MINUTES; i++) {
+            if (nowMinute - slotMinute[i] < WINDOW_MINUTES) sum += slots[i];
+        }
+        return sum;
+    }
+
+    // ==================== 阈值 ====================
+
+    private void scheduleThresholdCheck(long now) {
+        handler.removeCallbacks(thresholdCheck);
+        if (currentPkg == null || !EntertainmentAlertReceiver.isEntertainment(currentCategory)) return;
+
+        AppConfig config = AppConfig.get(context);
+        if (!config.entertainmentAlertEnabled) return;
+        long thresholdMs = config.entertainmentThresholdMin * MINUTE_MS;
+
+        long remaining = thresholdMs - entertainmentWindowMs(now);
+        // 窗口内旧数据会滑出，到点后重新计算；越线后每分钟复查一次（提醒本身有冷却）
+        handler.postDelayed(thresholdCheck, Math.max(remaining, MINUTE_MS));
+        if (remaining <= 0) fireThreshold(now);
+    }
+
+    private synchronized void checkThreshold() {
+        long now = System.currentTimeMillis();
+        accrue(now);
+        scheduleThresholdCheck(now);
+    }
+
+    private void fireThreshold(long now) {
+        long total = entertainmentWindowMs(now);
+        Map<String, Long> apps = new HashMap<>();
+        long nowMinute = now / MINUTE_MS;
+        for (Map.Entry<String, long[]> e : appSlots.entrySet()) {
+            if (!EntertainmentAlertReceiver.isEntertainment(AppDictionary.getCategory(e.getKey()))) continue;
+            long ms = windowSum(e.getValue(), nowMinute);
+            if (ms > 0) apps.put(e.getKey(), ms);
+        }
+        for (ThresholdListener l : listeners) {
+            l.onThresholdCrossed(total, apps);
+        }
+    }
+
+    private long entertainmentWindowMs(long now) {
+        accrue(now);
+        long nowMinute = now / MINUTE_MS;
+        long total = 0;
+        for (Map.Entry<String, long[]> e : categorySlots.entrySet()) {
+            if (EntertainmentAlertReceiver.isEntertainment(e.getKey())) {
+                total += windowSum(e.getValue(), nowMinute);
+            }
+        }
+        return total;
+    }
+
+    // ==================== 查询 ====================
+
+    public synchronized String getCurrentPackage() {
+        return currentPkg;
+    }
+
+    public synchronized long getSessionStart() {
+        return currentPkg != null ? sessionStart : 0;
+    }
+
+    /** 最近 60 分钟各分类时长 */
+    public synchronized Map<String, Long> getWindowUsageByCategory() {
+        return snapshot(categorySlots);
+    }
+
+    /** 最近 60 分钟各应用时长（顺带清理已滑出窗口的应用） */
+    public synchronized Map<String, Long> getWindowUsageByApp() {
+        Map<String, Long> result = snapshot(appSlots);
+        Iterator<Map.Entry<String, long[]>> it = appSlots.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, long[]> e = it.next();
+            if (!result.containsKey(e.getKey()) && !e.getKey().equals(currentPkg)) it.remove();
+        }
+        return result;
+    }
+
+    private Map<String, Long> snapshot(Map<String, long[]> map) {
+        long now = System.currentTimeMillis();
+        accrue(now);
+        long nowMinute = now / MINUTE_MS;
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, long[]> e : map.entrySet()) {
+            long ms = windowSum(e.getValue(), nowMinute);
+            if (ms > 0) result.put(e.getKey(), ms);
+        }
+        return result;
+    }
+
+    private void loadInputMethods() {
+        try {
+            InputMethodManager imm = (InputMethodManager) context.getSystemService(Context.INPUT_METHOD_SERVICE);
+            if (imm == null) return;
+            for (InputMethodInfo info : imm.getEnabledInputMethodList()) {
+                // 键盘弹出也会产生窗口事件，不应打断当前应用的会话
+                ignoredPackages.add(info.getPackageName());
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "读取输入法列表失败: " + e.getMessage());
+        }
+    }
+}
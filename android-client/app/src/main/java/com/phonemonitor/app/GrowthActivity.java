@@ -19,9 +19,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -42,6 +40,8 @@ public class GrowthActivity extends AppCompatActivity {
     private TextView tvGoalStatus, tvGoalDetail, tvTodaySummary;
     private LinearLayout layoutTips, layoutTrends, layoutGoals;
     private Button btnAddGoal;
+    private final TaskScheduler.Scope tasks = new TaskScheduler.Scope("GrowthActivity");
+    private GrowthEvaluator evaluator;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,7 +49,24 @@ public class GrowthActivity extends AppCompatActivity {
         setContentView(R.layout.activity_growth);
 
         initViews();
-        loadData();
+
+        // 只读后台评估发布的快照；没有内存快照时由 open() 从文件加载，过期才补算
+        evaluator = GrowthEvaluator.getInstance(this);
+        evaluator.setListener(this::onSnapshot);
+        GrowthAdvisor.AnalysisResult snapshot = evaluator.current();
+        if (snapshot != null) {
+            displayResult(snapshot);
+        } else {
+            progressBar.setVisibility(View.VISIBLE);
+        }
+        evaluator.open();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        evaluator.setListener(null);
+        tasks.cancel();
     }
 
     // PLACEHOLDER_INIT_VIEWS
@@ -71,16 +88,21 @@ public class GrowthActivity extends AppCompatActivity {
         btnAddGoal.setOnClickListener(v -> showAddGoalDialog());
     }
 
-    private void loadData() {
+    private void onSnapshot(GrowthAdvisor.AnalysisResult result) {
+        progressBar.setVisibility(View.GONE);
+        displayResult(result);
+    }
+
+    /**
+     * 在后台修改目标，完成后请求重新评估，新快照经监听器刷新界面
+     * 用户已确认的写入不挂在界面作用域上，离开页面也会写完
+     */
+    private void updateGoals(String name, Runnable change) {
         progressBar.setVisibility(View.VISIBLE);
-        new Thread(() -> {
-            GrowthAdvisor advisor = new GrowthAdvisor(this);
-            GrowthAdvisor.AnalysisResult result = advisor.analyze();
-            runOnUiThread(() -> {
-                progressBar.setVisibility(View.GONE);
-                displayResult(result);
-            });
-        }).start();
+        TaskScheduler.execute(TaskScheduler.Pool.DB_WRITE, TaskScheduler.Lane.USER_VISIBLE, name, () -> {
+            change.run();
+            evaluator.requestEvaluation();
+        });
     }
 
     private void displayResult(GrowthAdvisor.AnalysisResult result) {
@@ -100,7 +122,7 @@ public class GrowthActivity extends AppCompatActivity {
         displayTrends(result.trends);
 
         // Goals list
-        displayGoalsList();
+        displayGoalsList(result.goalProgresses);
     }
 
     // PLACEHOLDER_DISPLAY_METHODS
@@ -211,12 +233,11 @@ public class GrowthActivity extends AppCompatActivity {
         }
     }
 
-    private void displayGoalsList() {
+    private void displayGoalsList(List<GrowthAdvisor.GoalProgress> progresses) {
         layoutGoals.removeAllViews();
-        GrowthGoalDb db = GrowthGoalDb.getInstance(this);
-        List<GrowthGoalDb.Goal> goals = db.getActiveGoals();
 
-        for (GrowthGoalDb.Goal goal : goals) {
+        for (GrowthAdvisor.GoalProgress gp : progresses) {
+            GrowthGoalDb.Goal goal = gp.goal;
             LinearLayout row = new LinearLayout(this);
             row.setOrientation(LinearLayout.HORIZONTAL);
             row.setGravity(Gravity.CENTER_VERTICAL);
@@ -242,10 +263,8 @@ public class GrowthActivity extends AppCompatActivity {
             btnDel.setTextColor(COLOR_RED);
             btnDel.setTextSize(12f);
             btnDel.setPadding(dpToPx(8), 0, 0, 0);
-            btnDel.setOnClickListener(v -> {
-                db.deleteGoal(goal.id);
-                loadData();
-            });
+            btnDel.setOnClickListener(v -> updateGoals("deleteGoal",
+                    () -> GrowthGoalDb.getInstance(this).deleteGoal(goal.id)));
             row.addView(btnDel);
 
             layoutGoals.addView(row);
@@ -296,30 +315,21 @@ public class GrowthActivity extends AppCompatActivity {
     }
 
     private void showAppPickerDialog() {
-        new Thread(() -> {
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "appPicker", () -> {
             // Collect unique apps from last 7 days
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            Calendar cal = Calendar.getInstance();
             LinkedHashMap<String, String> appMap = new LinkedHashMap<>();
-            UsageStatsDb db = UsageStatsDb.getInstance(this);
-            for (int d = 0; d < 7; d++) {
-                String date = sdf.format(cal.getTime());
-                List<UsageStatsDb.AppUsageRecord> records = db.getDailyUsage(date);
-                for (UsageStatsDb.AppUsageRecord r : records) {
-                    if (!appMap.containsKey(r.packageName)) {
-                        AppDictionary.AppInfo info = AppDictionary.lookup(r.packageName);
-                        String label = info != null
-                                ? info.emoji + " " + info.name
-                                : "📦 " + r.appName;
-                        appMap.put(r.packageName, label);
-                    }
-                }
-                cal.add(Calendar.DAY_OF_YEAR, -1);
+            UsageAnalyticsCache cache = UsageAnalyticsCache.getInstance(this);
+            for (UsageStatsDb.AppTotal app : cache.getTopApps(DayKeys.today(), 7, Integer.MAX_VALUE)) {
+                AppDictionary.AppInfo info = AppDictionary.lookup(app.packageName);
+                String label = info != null
+                        ? info.emoji + " " + info.name
+                        : "📦 " + app.appName;
+                appMap.put(app.packageName, label);
             }
             List<String> pkgs = new ArrayList<>(appMap.keySet());
             List<String> labels = new ArrayList<>(appMap.values());
-            runOnUiThread(() -> showAppListDialog(pkgs, labels));
-        }).start();
+            tasks.postToMain(() -> showAppListDialog(pkgs, labels));
+        });
     }
 
     private void showAppListDialog(List<String> allPkgs, List<String> allLabels) {
@@ -416,14 +426,15 @@ public class GrowthActivity extends AppCompatActivity {
                             Toast.makeText(this, "请输入正整数", Toast.LENGTH_SHORT).show();
                             return;
                         }
-                        GrowthGoalDb db = GrowthGoalDb.getInstance(this);
-                        GrowthGoalDb.Goal existing = db.getGoalByType(goalType);
-                        if (existing != null) {
-                            db.updateGoal(existing.id, target);
-                        } else {
-                            db.insertGoal(goalType, target, "分钟");
-                        }
-                        loadData();
+                        updateGoals("saveGoal", () -> {
+                            GrowthGoalDb db = GrowthGoalDb.getInstance(this);
+                            GrowthGoalDb.Goal existing = db.getGoalByType(goalType);
+                            if (existing != null) {
+                                db.updateGoal(existing.id, target);
+                            } else {
+                                db.insertGoal(goalType, target, "分钟");
+                            }
+                        });
                     } catch (NumberFormatException e) {
                         Toast.makeText(this, "请输入有效数字", Toast.LENGTH_SHORT).show();
                     }
@@ -450,8 +461,7 @@ public class GrowthActivity extends AppCompatActivity {
                     try {
                         int target = Integer.parseInt(text);
                         if (target <= 0) return;
-                        GrowthGoalDb.getInstance(this).updateGoal(goal.id, target);
-                        loadData();
+                        updateGoals("editGoal", () -> GrowthGoalDb.getInstance(this).updateGoal(goal.id, target));
                     } catch (NumberFormatException ignored) {}
                 })
                 .setNegativeButton("取消", null)
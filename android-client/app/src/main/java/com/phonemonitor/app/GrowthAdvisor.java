@@ -2,35 +2,39 @@ package com.phonemonitor.app;
 
 import android.content.Context;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
+/**
+ * 成长建议分析：只读计算，不写库
+ *
+ * 目标的日结、今日进度落库和快照发布由 GrowthEvaluator 在后台完成，界面只读它发布的快照。
+ */
 public class GrowthAdvisor {
 
     private final Context context;
-    private final UsageStatsDb usageDb;
+    private final UsageAnalyticsCache usageCache;
     private final GrowthGoalDb goalDb;
-    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
 
     public GrowthAdvisor(Context context) {
         this.context = context;
-        this.usageDb = UsageStatsDb.getInstance(context);
+        this.usageCache = UsageAnalyticsCache.getInstance(context);
         this.goalDb = GrowthGoalDb.getInstance(context);
     }
 
     public AnalysisResult analyze() {
-        String today = sdf.format(Calendar.getInstance().getTime());
-        List<UsageStatsDb.AppUsageRecord> todayRecords = usageDb.getDailyUsage(today);
-        UsageStatsDb.DailySummary todaySummary = usageDb.getDailySummary(today);
+        return analyze(DayKeys.today(), goalDb.getActiveGoals());
+    }
+
+    public AnalysisResult analyze(int today, List<GrowthGoalDb.Goal> goals) {
+        List<UsageStatsDb.AppUsageRecord> todayRecords = usageCache.getDayRecords(today);
+        UsageStatsDb.DailySummary todaySummary = usageCache.getDaySummary(today);
 
         // 7-day averages
-        List<UsageStatsDb.DailySummary> recentSummaries = usageDb.getRecentSummariesForRange(today, 7);
+        List<UsageStatsDb.DailySummary> recentSummaries = usageCache.getDailySeries(today, 7);
         long avg7Day = 0;
         int validDays = 0;
         for (UsageStatsDb.DailySummary s : recentSummaries) {
@@ -47,11 +51,7 @@ public class GrowthAdvisor {
         }
 
         // Category breakdown for today
-        Map<String, Long> todayCategories = new HashMap<>();
-        for (UsageStatsDb.AppUsageRecord r : todayRecords) {
-            String cat = r.category != null && !r.category.isEmpty() ? r.category : "其他";
-            todayCategories.put(cat, todayCategories.getOrDefault(cat, 0L) + r.usageMs);
-        }
+        Map<String, Long> todayCategories = usageCache.getCategoryBreakdown(today);
 
         // 7-day category averages
         Map<String, Long> avg7Categories = computeAvgCategories(today, 7);
@@ -63,9 +63,11 @@ public class GrowthAdvisor {
         List<String> tips = generateTips(todayMs, avg7Day, todayCategories, trends, todayRecords);
 
         // Goal progress
-        List<GoalProgress> goalProgresses = computeGoalProgress(todayMs, todayCategories, todayRecords);
+        List<GoalProgress> goalProgresses = computeGoalProgress(goals, today, todayMs, todayCategories, todayRecords);
 
         AnalysisResult result = new AnalysisResult();
+        result.day = today;
+        result.computedAt = System.currentTimeMillis();
         result.todayMs = todayMs;
         result.avg7DayMs = avg7Day;
         result.todayCategories = todayCategories;
@@ -75,29 +77,8 @@ public class GrowthAdvisor {
         return result;
     }
 
-    private Map<String, Long> computeAvgCategories(String endDate, int days) {
-        Map<String, Long> totals = new HashMap<>();
-        Map<String, Integer> counts = new HashMap<>();
-        Calendar cal = Calendar.getInstance();
-        try { cal.setTime(sdf.parse(endDate)); } catch (Exception ignored) {}
-        cal.add(Calendar.DAY_OF_YEAR, -(days - 1));
-
-        for (int i = 0; i < days; i++) {
-            String date = sdf.format(cal.getTime());
-            List<UsageStatsDb.AppUsageRecord> records = usageDb.getDailyUsage(date);
-            for (UsageStatsDb.AppUsageRecord r : records) {
-                String cat = r.category != null && !r.category.isEmpty() ? r.category : "其他";
-                totals.put(cat, totals.getOrDefault(cat, 0L) + r.usageMs);
-                counts.put(cat, counts.getOrDefault(cat, 0) + 1);
-            }
-            cal.add(Calendar.DAY_OF_YEAR, 1);
-        }
-
-        Map<String, Long> avgs = new HashMap<>();
-        for (String cat : totals.keySet()) {
-            avgs.put(cat, totals.get(cat) / days);
-        }
-        return avgs;
+    private Map<String, Long> computeAvgCategories(int endDay, int days) {
+        return usageCache.getCategoryAverages(endDay, days);
     }
 
     private List<CategoryTrend> detectTrends(Map<String, Long> today, Map<String, Long> avg) {
@@ -181,46 +162,56 @@ public class GrowthAdvisor {
         return tips.subList(0, Math.min(tips.size(), 5));
     }
 
-    private List<GoalProgress> computeGoalProgress(long todayMs,
+    private List<GoalProgress> computeGoalProgress(List<GrowthGoalDb.Goal> goals, int today, long todayMs,
                                                      Map<String, Long> categories,
                                                      List<UsageStatsDb.AppUsageRecord> records) {
         List<GoalProgress> progresses = new ArrayList<>();
-        List<GrowthGoalDb.Goal> goals = goalDb.getActiveGoals();
-        String today = sdf.format(Calendar.getInstance().getTime());
-
         for (GrowthGoalDb.Goal goal : goals) {
-            int currentMinutes = 0;
-            if ("total_screen_time".equals(goal.goalType)) {
-                currentMinutes = (int) (todayMs / 60000);
-            } else if (goal.goalType.startsWith("category_limit:")) {
-                String cat = goal.goalType.substring("category_limit:".length());
-                Long catMs = categories.get(cat);
-                currentMinutes = catMs != null ? (int) (catMs / 60000) : 0;
-            } else if (goal.goalType.startsWith("app_limit:")) {
-                String pkg = goal.goalType.substring("app_limit:".length());
-                for (UsageStatsDb.AppUsageRecord r : records) {
-                    if (pkg.equals(r.packageName)) {
-                        currentMinutes = (int) (r.usageMs / 60000);
-                        break;
-                    }
-                }
-            }
-
-            goalDb.updateGoalCurrentValue(goal.id, currentMinutes);
+            int currentMinutes = goalMinutes(goal, todayMs, categories, records);
             boolean met = currentMinutes <= goal.targetValue;
-            goalDb.recordHistory(goal.id, today, currentMinutes, met);
 
             GoalProgress gp = new GoalProgress();
             gp.goal = goal;
             gp.currentMinutes = currentMinutes;
             gp.targetMinutes = goal.targetValue;
             gp.met = met;
-            gp.streak = goalDb.getStreakDays(goal.id);
+            gp.streak = GrowthGoalDb.liveStreak(goal, today, met);
             progresses.add(gp);
         }
         return progresses;
     }
 
+    /**
+     * 某个目标在某天的用量（分钟）；当天没有任何使用数据时返回 -1
+     */
+    public int goalMinutesOnDay(GrowthGoalDb.Goal goal, int day) {
+        long totalMs = usageCache.getDayTotal(day);
+        if (totalMs == 0) return -1;
+        if ("total_screen_time".equals(goal.goalType)) return (int) (totalMs / 60000);
+        if (goal.goalType.startsWith("category_limit:")) {
+            return goalMinutes(goal, totalMs, usageCache.getCategoryBreakdown(day), Collections.emptyList());
+        }
+        return goalMinutes(goal, totalMs, Collections.emptyMap(), usageCache.getDayRecords(day));
+    }
+
+    private static int goalMinutes(GrowthGoalDb.Goal goal, long totalMs,
+                                   Map<String, Long> categories,
+                                   List<UsageStatsDb.AppUsageRecord> records) {
+        if ("total_screen_time".equals(goal.goalType)) {
+            return (int) (totalMs / 60000);
+        } else if (goal.goalType.startsWith("category_limit:")) {
+            String cat = goal.goalType.substring("category_limit:".length());
+            Long catMs = categories.get(cat);
+            return catMs != null ? (int) (catMs / 60000) : 0;
+        } else if (goal.goalType.startsWith("app_limit:")) {
+            String pkg = goal.goalType.substring("app_limit:".length());
+            for (UsageStatsDb.AppUsageRecord r : records) {
+                if (pkg.equals(r.packageName)) return (int) (r.usageMs / 60000);
+            }
+        }
+        return 0;
+    }
+
     private String pct(double ratio) {
         return String.format(Locale.getDefault(), "%.0f%%", ratio * 100);
     }
@@ -236,6 +227,8 @@ public class GrowthAdvisor {
     // Data classes
 
     public static class AnalysisResult {
+        public int day;                 // epoch-day
+        public long computedAt;
         public long todayMs;
         public long avg7DayMs;
         public Map<String, Long> todayCategories;
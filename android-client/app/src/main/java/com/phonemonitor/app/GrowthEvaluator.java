@@ -0,0 +1,313 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 成长目标的后台评估
+ *
+ * 使用数据写入后（采集器每次落库、每小时唤醒）在 IO 线程评估一次：
+ * 把上次日结之后已经结束的日子按终版数据逐天日结（连续达标计数 O(1) 推进，修正旧日子时重算），记录今日暂时进度，
+ * 再用 GrowthAdvisor 生成分析结果，发布为快照并存到文件。成长页只读快照，打开时不做查询和写入。
+ * 多次请求合并：计算中再请求只会在结束后补算一次。
+ */
+public class GrowthEvaluator {
+    private static final String TAG = "GrowthEvaluator";
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+    private static final String SNAPSHOT_FILE = "growth_snapshot.json";
+    static final String KEY_GOALS_ACTIVE = "growth_goals_active";
+    /** 快照超过这个时间没更新，打开成长页时补算一次 */
+    private static final long STALE_MS = 30 * 60 * 1000;
+    /** 长时间没评估时最多补日结这么多天 */
+    private static final int MAX_CLOSE_DAYS = 30;
+
+    public interface Listener {
+        /** 主线程回调 */
+        void onSnapshot(GrowthAdvisor.AnalysisResult result);
+    }
+
+    private static GrowthEvaluator instance;
+    private final Context context;
+    private final GrowthGoalDb goalDb;
+    private volatile GrowthAdvisor.AnalysisResult current;
+    private volatile Listener listener;
+    private boolean loadedFromDisk = false;
+    private boolean computing = false;
+    private boolean dirty = false;
+
+    public static synchronized GrowthEvaluator getInstance(Context context) {
+        if (instance == null) {
+            instance = new GrowthEvaluator(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private GrowthEvaluator(Context context) {
+        this.context = context;
+        this.goalDb = GrowthGoalDb.getInstance(context);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 最近一次发布的快照，进程内尚未加载时为 null
+     */
+    public GrowthAdvisor.AnalysisResult current() {
+        return current;
+    }
+
+    /**
+     * 成长页打开时调用：没有内存快照先读文件发布，快照过期或跨天才重新评估
+     */
+    public void open() {
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "growthOpen", () -> {
+            GrowthAdvisor.AnalysisResult snapshot = ensureLoaded();
+            if (snapshot != null) publish(snapshot);
+            if (snapshot == null || snapshot.day != DayKeys.today()
+                    || System.currentTimeMillis() - snapshot.computedAt > STALE_MS) {
+                requestEvaluation();
+            }
+        });
+    }
+
+    /**
+     * 使用数据或目标变化后请求评估；正在计算时只标记一次补算
+     */
+    public synchronized void requestEvaluation() {
+        if (computing) {
+            dirty = true;
+            return;
+        }
+        computing = true;
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "growthEvaluate", this::evaluate);
+    }
+
+    private void evaluate() {
+        GrowthAdvisor.AnalysisResult result = null;
+        try {
+            long start = System.currentTimeMillis();
+            int today = DayKeys.today();
+            GrowthAdvisor advisor = new GrowthAdvisor(context);
+            List<GrowthGoalDb.Goal> goals = goalDb.getActiveGoals();
+            int closed = closePendingDays(advisor, goals, today);
+
+            result = advisor.analyze(today, goals);
+            for (GrowthAdvisor.GoalProgress gp : result.goalProgresses) {
+                goalDb.updateGoalCurrentValue(gp.goal.id, gp.currentMinutes);
+                goalDb.recordHistory(gp.goal.id, today, gp.currentMinutes, gp.met);
+            }
+            updateGoalsActive(!goals.isEmpty());
+            save(result);
+            Log.d(TAG, "🌱 评估完成: " + goals.size() + " 个目标, 日结 " + closed + " 天, "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            Log.e(TAG, "❌ 评估失败: " + e.getMessage(), e);
+        }
+        boolean again;
+        synchronized (this) {
+            computing = false;
+            again = dirty;
+            dirty = false;
+        }
+        if (result != null) publish(result);
+        if (again) requestEvaluation();
+    }
+
+    /**
+     * 把每个目标上次日结之后、今天之前的日子逐天日结。
+     * 只用终版数据：23:59 统计任务在当天收尾时写过的日子直接日结，其余日子（任务没跑、进程被杀）先整天重新采集；
+     * 仍没有使用数据的日子也日结，连续计数中断，不再每次评估重试。
+     * 已日结的日子被重新采集过时从那天起重新日结，连续计数随之修正
+     */
+    private int closePendingDays(GrowthAdvisor advisor, List<GrowthGoalDb.Goal> goals, int today) {
+        if (goals.isEmpty()) return 0;
+        int[] from = new int[goals.size()];
+        int earliest = today;
+        for (int i = 0; i < goals.size(); i++) {
+            GrowthGoalDb.Goal goal = goals.get(i);
+            from[i] = goal.streakDay >= 0 ? goal.streakDay + 1 : startDay(goal, today);
+            from[i] = Math.max(from[i], today - MAX_CLOSE_DAYS);
+            earliest = Math.min(earliest, from[i]);
+        }
+
+        UsageStatsCollector collector = null;
+        for (int day = earliest; day < today; day++) {
+            if (UsageStatsCollector.isFinal(context, day)) continue;
+            if (collector == null) collector = new UsageStatsCollector(context);
+            collector.collectStatsForDay(day);
+        }
+
+        int revisedFrom = UsageStatsCollector.takeRevisedFrom(context);
+        int closed = 0;
+        for (int i = 0; i < goals.size(); i++) {
+            GrowthGoalDb.Goal goal = goals.get(i);
+            int start = from[i];
+            if (revisedFrom >= 0) {
+                start = Math.min(start, Math.max(revisedFrom,
+                        Math.max(startDay(goal, today), today - MAX_CLOSE_DAYS)));
+            }
+            for (int day = start; day < today; day++) {
+                int minutes = advisor.goalMinutesOnDay(goal, day);
+                if (minutes < 0) {
+                    goalDb.closeDayWithoutData(goal, day);
+                } else {
+                    goalDb.closeDay(goal, day, minutes, minutes <= goal.targetValue);
+                }
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    private static int startDay(GrowthGoalDb.Goal goal, int today) {
+        try {
+            return DayKeys.parse(goal.startDate);
+        } catch (Exception e) {
+            return today;
+        }
+    }
+
+    /** 有没有目标决定是否需要每小时唤醒评估，变化时重排闹钟 */
+    private void updateGoalsActive(boolean active) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(KEY_GOALS_ACTIVE, false) == active) return;
+        prefs.edit().putBoolean(KEY_GOALS_ACTIVE, active).apply();
+        WakeupScheduler.reschedule(context);
+    }
+
+    private void publish(GrowthAdvisor.AnalysisResult result) {
+        current = result;
+        TaskScheduler.runOnMain(() -> {
+            Listener l = listener;
+            if (l != null && current == result) l.onSnapshot(result);
+        });
+    }
+
+    // ==================== 持久化 ====================
+
+    private synchronized GrowthAdvisor.AnalysisResult ensureLoaded() {
+        if (current != null || loadedFromDisk) return current;
+        loadedFromDisk = true;
+        try {
+            File file = new File(context.getFilesDir(), SNAPSHOT_FILE);
+            if (!file.exists()) return null;
+            StringBuilder sb = new StringBuilder();
+            try (FileReader reader = new FileReader(file)) {
+                char[] buf = new char[4096];
+                int len;
+                while ((len = reader.read(buf)) != -1) sb.append(buf, 0, len);
+            }
+            GrowthAdvisor.AnalysisResult result = fromJson(new JSONObject(sb.toString()));
+            if (current == null) current = result;
+            return current;
+        } catch (Exception e) {
+            Log.w(TAG, "加载成长快照失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(GrowthAdvisor.AnalysisResult result) {
+        try {
+            File file = new File(context.getFilesDir(), SNAPSHOT_FILE);
+            try (FileWriter writer = new FileWriter(file)) {
+                writer.write(toJson(result).toString());
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "保存成长快照失败: " + e.getMessage());
+        }
+    }
+
+    private static JSONObject toJson(GrowthAdvisor.AnalysisResult r) throws Exception {
+        JSONObject o = new JSONObject();
+        o.put("day", r.day);
+        o.put("computed_at", r.computedAt);
+        o.put("today_ms", r.todayMs);
+        o.put("avg7_ms", r.avg7DayMs);
+
+        JSONObject cats = new JSONObject();
+        for (Map.Entry<String, Long> e : r.todayCategories.entrySet()) cats.put(e.getKey(), e.getValue());
+        o.put("categories", cats);
+
+        JSONArray trends = new JSONArray();
+        for (GrowthAdvisor.CategoryTrend t : r.trends) {
+            trends.put(new JSONObject()
+                    .put("category", t.category)
+                    .put("direction", t.direction)
+                    .put("ratio", t.ratio)
+                    .put("today_ms", t.todayMs)
+                    .put("avg_ms", t.avgMs));
+        }
+        o.put("trends", trends);
+        o.put("tips", new JSONArray(r.tips));
+
+        JSONArray goals = new JSONArray();
+        for (GrowthAdvisor.GoalProgress gp : r.goalProgresses) {
+            goals.put(new JSONObject()
+                    .put("id", gp.goal.id)
+                    .put("type", gp.goal.goalType)
+                    .put("current", gp.currentMinutes)
+                    .put("target", gp.targetMinutes)
+                    .put("met", gp.met)
+                    .put("streak", gp.streak));
+        }
+        o.put("goals", goals);
+        return o;
+    }
+
+    private static GrowthAdvisor.AnalysisResult fromJson(JSONObject o) throws Exception {
+        GrowthAdvisor.AnalysisResult r = new GrowthAdvisor.AnalysisResult();
+        r.day = o.getInt("day");
+        r.computedAt = o.getLong("computed_at");
+        r.todayMs = o.getLong("today_ms");
+        r.avg7DayMs = o.getLong("avg7_ms");
+
+        r.todayCategories = new LinkedHashMap<>();
+        JSONObject cats = o.getJSONObject("categories");
+        Iterator<String> keys = cats.keys();
+        while (keys.hasNext()) {
+            String k = keys.next();
+            r.todayCategories.put(k, cats.getLong(k));
+        }
+
+        r.trends = new ArrayList<>();
+        JSONArray trends = o.getJSONArray("trends");
+        for (int i = 0; i < trends.length(); i++) {
+            JSONObject t = trends.getJSONObject(i);
+            r.trends.add(new GrowthAdvisor.CategoryTrend(t.getString("category"), t.getString("direction"),
+                    t.getDouble("ratio"), t.getLong("today_ms"), t.getLong("avg_ms")));
+        }
+
+        r.tips = new ArrayList<>();
+        JSONArray tips = o.getJSONArray("tips");
+        for (int i = 0; i < tips.length(); i++) r.tips.add(tips.getString(i));
+
+        r.goalProgresses = new ArrayList<>();
+        JSONArray goals = o.getJSONArray("goals");
+        for (int i = 0; i < goals.length(); i++) {
+            JSONObject g = goals.getJSONObject(i);
+            GrowthAdvisor.GoalProgress gp = new GrowthAdvisor.GoalProgress();
+            gp.goal = new GrowthGoalDb.Goal(g.getLong("id"), g.getString("type"), g.getInt("target"));
+            gp.currentMinutes = g.getInt("current");
+            gp.targetMinutes = g.getInt("target");
+            gp.met = g.getBoolean("met");
+            gp.streak = g.getInt("streak");
+            r.goalProgresses.add(gp);
+        }
+        return r;
+    }
+}
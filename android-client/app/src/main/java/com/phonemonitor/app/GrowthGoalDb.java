@@ -6,15 +6,12 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 public class GrowthGoalDb extends SQLiteOpenHelper {
     private static final String DB_NAME = "growth_goals.db";
-    private static final int DB_VERSION = 1;
+    private static final int DB_VERSION = 3;
 
     private static GrowthGoalDb instance;
 
@@ -40,23 +37,61 @@ public class GrowthGoalDb extends SQLiteOpenHelper {
                 "start_date TEXT," +
                 "end_date TEXT," +
                 "status TEXT DEFAULT 'active'," +
-                "created_at TEXT DEFAULT (datetime('now','localtime')))");
+                "created_at TEXT DEFAULT (datetime('now','localtime'))," +
+                "streak INTEGER DEFAULT 0," +
+                "streak_day INTEGER DEFAULT -1)");
 
+        createHistoryTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // goal_history: 文本日期 → epoch-day
+            db.execSQL("ALTER TABLE goal_history RENAME TO goal_history_old");
+            createHistoryTable(db);
+            db.execSQL("INSERT OR REPLACE INTO goal_history (goal_id, day, value, met) " +
+                    "SELECT goal_id, CAST(julianday(date) - 2440587.5 AS INTEGER), value, met " +
+                    "FROM goal_history_old WHERE julianday(date) IS NOT NULL");
+            db.execSQL("DROP TABLE goal_history_old");
+        }
+        if (oldVersion < 3) {
+            // 连续达标天数改为随日结递增的计数，旧数据按历史回放一次
+            db.execSQL("ALTER TABLE goals ADD COLUMN streak INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE goals ADD COLUMN streak_day INTEGER DEFAULT -1");
+            backfillStreaks(db);
+        }
+    }
+
+    private void backfillStreaks(SQLiteDatabase db) {
+        int today = DayKeys.today();
+        Cursor goals = db.rawQuery("SELECT id FROM goals", null);
+        while (goals.moveToNext()) {
+            long id = goals.getLong(0);
+            int[] streak = streakFromHistory(db, id, today - 1);
+            ContentValues cv = new ContentValues();
+            cv.put("streak", streak[0]);
+            cv.put("streak_day", streak[1]);
+            db.update("goals", cv, "id = ?", new String[]{String.valueOf(id)});
+        }
+        goals.close();
+    }
+
+    /**
+     * 目标每日达成记录，day 为 epoch-day（见 DayKeys）
+     */
+    private void createHistoryTable(SQLiteDatabase db) {
         db.execSQL("CREATE TABLE goal_history (" +
                 "id INTEGER PRIMARY KEY AUTOINCREMENT," +
                 "goal_id INTEGER NOT NULL," +
-                "date TEXT NOT NULL," +
+                "day INTEGER NOT NULL," +
                 "value INTEGER DEFAULT 0," +
                 "met INTEGER DEFAULT 0," +
-                "UNIQUE(goal_id, date))");
-    }
-
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+                "UNIQUE(goal_id, day))");
     }
 
     private String today() {
-        return new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+        return DayKeys.format(DayKeys.today());
     }
 
     public long insertGoal(String goalType, int targetValue, String unit) {
@@ -115,11 +150,11 @@ public class GrowthGoalDb extends SQLiteOpenHelper {
         return goal;
     }
 
-    public void recordHistory(long goalId, String date, int value, boolean met) {
+    public void recordHistory(long goalId, int day, int value, boolean met) {
         SQLiteDatabase db = getWritableDatabase();
         ContentValues cv = new ContentValues();
         cv.put("goal_id", goalId);
-        cv.put("date", date);
+        cv.put("day", day);
         cv.put("value", value);
         cv.put("met", met ? 1 : 0);
         db.insertWithOnConflict("goal_history", null, cv, SQLiteDatabase.CONFLICT_REPLACE);
@@ -129,7 +164,7 @@ public class GrowthGoalDb extends SQLiteOpenHelper {
         List<GoalHistory> list = new ArrayList<>();
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.rawQuery(
-                "SELECT * FROM goal_history WHERE goal_id = ? ORDER BY date DESC LIMIT ?",
+                "SELECT * FROM goal_history WHERE goal_id = ? ORDER BY day DESC LIMIT ?",
                 new String[]{String.valueOf(goalId), String.valueOf(days)});
         while (cursor.moveToNext()) {
             list.add(new GoalHistory(cursor));
@@ -138,14 +173,98 @@ public class GrowthGoalDb extends SQLiteOpenHelper {
         return list;
     }
 
-    public int getStreakDays(long goalId) {
-        List<GoalHistory> history = getGoalHistory(goalId, 30);
-        int streak = 0;
-        for (GoalHistory h : history) {
-            if (h.met) streak++;
-            else break;
+    // ==================== 连续达标 ====================
+
+    /**
+     * 日结：写入某天的最终值并推进连续达标计数
+     * 比上次日结更晚的日子 O(1) 推进；已日结的日子被修正且达标与否变了时，按历史重算连续计数
+     */
+    public void closeDay(Goal goal, int day, int value, boolean met) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (day > goal.streakDay) {
+                recordHistory(goal.id, day, value, met);
+                goal.streak = nextStreak(goal.streak, goal.streakDay, day, met);
+                goal.streakDay = day;
+                saveStreak(db, goal);
+            } else {
+                Cursor c = db.rawQuery("SELECT met FROM goal_history WHERE goal_id = ? AND day = ?",
+                        new String[]{String.valueOf(goal.id), String.valueOf(day)});
+                boolean changed = !c.moveToFirst() || (c.getInt(0) == 1) != met;
+                c.close();
+                recordHistory(goal.id, day, value, met);
+                if (changed) recomputeStreak(db, goal);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
-        return streak;
+    }
+
+    /**
+     * 没有使用数据的日子同样日结：连续计数中断，删掉当天的暂时记录，之后不再重试
+     */
+    public void closeDayWithoutData(Goal goal, int day) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int removed = db.delete("goal_history", "goal_id = ? AND day = ?",
+                    new String[]{String.valueOf(goal.id), String.valueOf(day)});
+            if (day > goal.streakDay) {
+                goal.streak = 0;
+                goal.streakDay = day;
+                saveStreak(db, goal);
+            } else if (removed > 0) {
+                recomputeStreak(db, goal);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** 按截至 streakDay 的历史重算连续计数；历史里缺的日子（没有数据）视为中断 */
+    private void recomputeStreak(SQLiteDatabase db, Goal goal) {
+        int[] streak = streakFromHistory(db, goal.id, goal.streakDay);
+        goal.streak = streak[1] == goal.streakDay ? streak[0] : 0;
+        saveStreak(db, goal);
+    }
+
+    private void saveStreak(SQLiteDatabase db, Goal goal) {
+        ContentValues cv = new ContentValues();
+        cv.put("streak", goal.streak);
+        cv.put("streak_day", goal.streakDay);
+        db.update("goals", cv, "id = ?", new String[]{String.valueOf(goal.id)});
+    }
+
+    /** @return {截至 lastDay（含）的连续达标天数, 最后一条历史的日子，没有时 -1} */
+    private static int[] streakFromHistory(SQLiteDatabase db, long goalId, int lastDay) {
+        int streak = 0, streakDay = -1;
+        Cursor h = db.rawQuery("SELECT day, met FROM goal_history WHERE goal_id = ? AND day <= ? ORDER BY day",
+                new String[]{String.valueOf(goalId), String.valueOf(lastDay)});
+        while (h.moveToNext()) {
+            int day = h.getInt(0);
+            boolean met = h.getInt(1) == 1;
+            streak = nextStreak(streak, streakDay, day, met);
+            streakDay = day;
+        }
+        h.close();
+        return new int[]{streak, streakDay};
+    }
+
+    /** 接着上次日结（lastDay）推进到 day；中间有没日结的日子时从头计 */
+    private static int nextStreak(int streak, int lastDay, int day, boolean met) {
+        if (!met) return 0;
+        return lastDay >= 0 && day == lastDay + 1 ? streak + 1 : 1;
+    }
+
+    /**
+     * 截至 today 的连续达标天数：已日结的计数（须截止到昨天）加上今天是否暂时达标
+     */
+    public static int liveStreak(Goal goal, int today, boolean metToday) {
+        int closed = goal.streakDay == today - 1 ? goal.streak : 0;
+        return metToday ? closed + 1 : closed;
     }
 
     public static class Goal {
@@ -157,6 +276,8 @@ public class GrowthGoalDb extends SQLiteOpenHelper {
         public String startDate;
         public String endDate;
         public String status;
+        public int streak;        // 截至 streakDay 的连续达标天数
+        public int streakDay;     // 最近一次日结的 epoch-day，-1 表示尚未日结
 
         public Goal(Cursor cursor) {
             this.id = cursor.getLong(cursor.getColumnIndexOrThrow("id"));
@@ -167,20 +288,29 @@ public class GrowthGoalDb extends SQLiteOpenHelper {
             this.startDate = cursor.getString(cursor.getColumnIndexOrThrow("start_date"));
             this.endDate = cursor.getString(cursor.getColumnIndexOrThrow("end_date"));
             this.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
+            this.streak = cursor.getInt(cursor.getColumnIndexOrThrow("streak"));
+            this.streakDay = cursor.getInt(cursor.getColumnIndexOrThrow("streak_day"));
+        }
+
+        /** 从分析快照恢复，只带展示需要的字段 */
+        Goal(long id, String goalType, int targetValue) {
+            this.id = id;
+            this.goalType = goalType;
+            this.targetValue = targetValue;
         }
     }
 
     public static class GoalHistory {
         public long id;
         public long goalId;
-        public String date;
+        public int day;           // epoch-day
         public int value;
         public boolean met;
 
         public GoalHistory(Cursor cursor) {
             this.id = cursor.getLong(cursor.getColumnIndexOrThrow("id"));
             this.goalId = cursor.getLong(cursor.getColumnIndexOrThrow("goal_id"));
-            this.date = cursor.getString(cursor.getColumnIndexOrThrow("date"));
+            this.day = cursor.getInt(cursor.getColumnIndexOrThrow("day"));
             this.value = cursor.getInt(cursor.getColumnIndexOrThrow("value"));
             this.met = cursor.getInt(cursor.getColumnIndexOrThrow("met")) == 1;
         }
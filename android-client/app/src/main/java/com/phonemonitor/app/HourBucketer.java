@@ -0,0 +1,276 @@
+package com.phonemonitor.app;
+
+import android.app.usage.UsageEvents;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单日按小时切分使用会话
+ *
+ * 构造时用时区规则一次性算出当天所有整点边界（夏令时切换日为 23 / 25 个区间），
+ * 之后切分会话只做整数比较和加法，不再创建 Calendar。
+ * 结果累加进稠密矩阵 long[24][包名 id]，包名在本实例内驻留为 int id，分类判定按 id 只做一次。
+ */
+public class HourBucketer {
+
+    /** 按分类筛选要统计的应用 */
+    public interface CategoryFilter {
+        boolean accept(String category);
+    }
+
+    private static final byte UNKNOWN = 0;
+    private static final byte ACCEPTED = 1;
+    private static final byte REJECTED = 2;
+
+    // resumedAt 的特殊值：本次回放还没见过该包的事件 / 见过但当前不在前台
+    private static final long NOT_SEEN = -2;
+    private static final long IDLE = -1;
+
+    private final long dayStart;
+    private final long dayEnd;
+    private final long[] boundaries;  // boundaries[i] 为第 i 个区间起点，最后一个元素为次日 00:00
+    private final int[] slotHour;     // 区间 → 当地小时 0..23
+    private long replayStart;         // 事件查询起点，之前就已在前台的会话从这里算起
+
+    private final Map<String, Integer> pkgIndex = new HashMap<>();
+    private final List<String> pkgNames = new ArrayList<>();
+    private byte[] accepted = new byte[64];
+    private long[] resumedAt = new long[64];
+    private long[][] matrix = new long[24][64];
+
+    // 回放得到的原始会话，用于任意时间窗口的统计
+    private int[] sessionId = new int[256];
+    private long[] sessionStart = new long[256];
+    private long[] sessionEnd = new long[256];
+    private int sessionCount = 0;
+
+    /**
+     * @param anyMillis 当天任意时刻
+     */
+    public HourBucketer(long anyMillis, ZoneId zone) {
+        ZonedDateTime start = Instant.ofEpochMilli(anyMillis).atZone(zone).toLocalDate().atStartOfDay(zone);
+        ZonedDateTime next = start.plusDays(1);
+        dayStart = start.toInstant().toEpochMilli();
+        dayEnd = next.toInstant().toEpochMilli();
+
+        List<ZonedDateTime> starts = new ArrayList<>(26);
+        for (ZonedDateTime t = start; t.isBefore(next); t = t.plusHours(1)) {
+            starts.add(t);
+        }
+        boundaries = new long[starts.size() + 1];
+        slotHour = new int[starts.size()];
+        for (int i = 0; i < starts.size(); i++) {
+            boundaries[i] = starts.get(i).toInstant().toEpochMilli();
+            slotHour[i] = starts.get(i).getHour();
+        }
+        boundaries[starts.size()] = dayEnd;
+        replayStart = dayStart;
+    }
+
+    public long getDayStart() {
+        return dayStart;
+    }
+
+    /**
+     * 事件不是从当天 00:00 开始查询时设置：某包的第一条事件是 PAUSED，说明它在查询起点前就已在前台，
+     * 会话从这里算起（默认为当天 00:00，即跨午夜的会话）
+     */
+    public void startReplayAt(long start) {
+        replayStart = start;
+    }
+
+    // ==================== 写入 ====================
+
+    /** 包名 → 本实例内的 id */
+    public int intern(String pkg) {
+        Integer idx = pkgIndex.get(pkg);
+        if (idx != null) return idx;
+        int id = pkgNames.size();
+        pkgNames.add(pkg);
+        pkgIndex.put(pkg, id);
+        if (id == accepted.length) grow(id * 2);
+        resumedAt[id] = NOT_SEEN;
+        return id;
+    }
+
+    /**
+     * 累加一段会话，跨整点时按边界切开；超出当天的部分丢弃
+     */
+    public void addSession(int pkgId, long start, long end) {
+        if (start < dayStart) start = dayStart;
+        if (end > dayEnd) end = dayEnd;
+        if (start >= end) return;
+
+        int slot = slotOf(start);
+        long cursor = start;
+        while (cursor < end) {
+            long slotEnd = Math.min(boundaries[slot + 1], end);
+            matrix[slotHour[slot]][pkgId] += slotEnd - cursor;
+            cursor = slotEnd;
+            slot++;
+        }
+    }
+
+    /**
+     * 回放 UsageEvents：RESUMED / PAUSED 配对成会话，结束时仍在前台的记到 end
+     */
+    public void replay(UsageEvents events, CategoryFilter filter, long end) {
+        UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            accept(event, filter);
+        }
+        finish(end);
+    }
+
+    /**
+     * 逐条喂入事件，调用方自己遍历时用（可顺带统计其他事件类型），最后需调用 {@link #finish}
+     */
+    public void accept(UsageEvents.Event event, CategoryFilter filter) {
+        int type = event.getEventType();
+        if (type != UsageEvents.Event.ACTIVITY_RESUMED && type != UsageEvents.Event.ACTIVITY_PAUSED) {
+            return;
+        }
+        int id = intern(event.getPackageName());
+        if (!accepts(id, filter)) return;
+
+        if (type == UsageEvents.Event.ACTIVITY_RESUMED) {
+            resumedAt[id] = event.getTimeStamp();
+        } else {
+            if (resumedAt[id] >= 0) {
+                recordSession(id, resumedAt[id], event.getTimeStamp());
+            } else if (resumedAt[id] == NOT_SEEN) {
+                recordSession(id, replayStart, event.getTimeStamp());
+            }
+            resumedAt[id] = IDLE;
+        }
+    }
+
+    /** 结束回放：仍在前台的应用记到 end */
+    public void finish(long end) {
+        for (int id = 0; id < pkgNames.size(); id++) {
+            if (resumedAt[id] >= 0) {
+                recordSession(id, resumedAt[id], end);
+                resumedAt[id] = IDLE;
+            }
+        }
+    }
+
+    private void recordSession(int id, long start, long end) {
+        addSession(id, start, end);
+        if (sessionCount == sessionStart.length) {
+            int cap = sessionCount * 2;
+            sessionId = Arrays.copyOf(sessionId, cap);
+            sessionStart = Arrays.copyOf(sessionStart, cap);
+            sessionEnd = Arrays.copyOf(sessionEnd, cap);
+        }
+        sessionId[sessionCount] = id;
+        sessionStart[sessionCount] = start;
+        sessionEnd[sessionCount] = end;
+        sessionCount++;
+    }
+
+    // ==================== 读取 ====================
+
+    public int packageCount() {
+        return pkgNames.size();
+    }
+
+    public String packageName(int id) {
+        return pkgNames.get(id);
+    }
+
+    public long get(int hour, int pkgId) {
+        return matrix[hour][pkgId];
+    }
+
+    public long hourTotal(int hour) {
+        long total = 0;
+        long[] row = matrix[hour];
+        for (int id = 0, n = pkgNames.size(); id < n; id++) total += row[id];
+        return total;
+    }
+
+    /**
+     * 某小时时长最高的前 K 个包 id（降序，不足 K 个时后面为 -1）
+     */
+    public int[] topInHour(int hour, int k) {
+        int[] top = new int[k];
+        Arrays.fill(top, -1);
+        long[] row = matrix[hour];
+        for (int id = 0, n = pkgNames.size(); id < n; id++) {
+            if (row[id] == 0) continue;
+            int pos = k;
+            while (pos > 0 && (top[pos - 1] < 0 || row[top[pos - 1]] < row[id])) pos--;
+            if (pos >= k) continue;
+            System.arraycopy(top, pos, top, pos + 1, k - pos - 1);
+            top[pos] = id;
+        }
+        return top;
+    }
+
+    /** 全天各包总时长（只含有时长的包） */
+    public Map<String, Long> totalsByPackage() {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (int id = 0, n = pkgNames.size(); id < n; id++) {
+            long sum = 0;
+            for (int h = 0; h < 24; h++) sum += matrix[h][id];
+            if (sum > 0) totals.put(pkgNames.get(id), sum);
+        }
+        return totals;
+    }
+
+    /**
+     * 任意时间窗口 [from, to) 内各包时长（按回放得到的会话裁剪，不受整点限制）
+     */
+    public Map<String, Long> totalsInWindow(long from, long to, CategoryFilter filter) {
+        long[] sums = new long[pkgNames.size()];
+        for (int i = 0; i < sessionCount; i++) {
+            long start = Math.max(sessionStart[i], from);
+            long end = Math.min(sessionEnd[i], to);
+            if (end > start) sums[sessionId[i]] += end - start;
+        }
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (int id = 0; id < sums.length; id++) {
+            if (sums[id] == 0) continue;
+            String pkg = pkgNames.get(id);
+            if (filter.accept(AppDictionary.getCategory(pkg))) totals.put(pkg, sums[id]);
+        }
+        return totals;
+    }
+
+    // ==================== 内部 ====================
+
+    private boolean accepts(int id, CategoryFilter filter) {
+        if (accepted[id] == UNKNOWN) {
+            accepted[id] = filter.accept(AppDictionary.getCategory(pkgNames.get(id))) ? ACCEPTED : REJECTED;
+        }
+        return accepted[id] == ACCEPTED;
+    }
+
+    private int slotOf(long t) {
+        int lo = 0, hi = slotHour.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (boundaries[mid] <= t) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private void grow(int cap) {
+        accepted = Arrays.copyOf(accepted, cap);
+        resumedAt = Arrays.copyOf(resumedAt, cap);
+        for (int h = 0; h < 24; h++) {
+            matrix[h] = Arrays.copyOf(matrix[h], cap);
+        }
+    }
+}
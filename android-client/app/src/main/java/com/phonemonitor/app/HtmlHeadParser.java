@@ -0,0 +1,551 @@
+package com.phonemonitor.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 流式解析网页头部：title、og:* / twitter:* / description 元信息、第一个非空 &lt;p&gt;
+ *
+ * 直接在字节流上扫描标签（HTML 标记都是 ASCII，兼容 UTF-8 / GBK 等），每个字节只扫一遍；
+ * 拿到所需内容或遇到 &lt;/head&gt; 后立即停止读取。命中的文本只记偏移，最后按检测出的编码
+ * （BOM → Content-Type → &lt;meta charset&gt; → UTF-8）一次性解码，实体解码与空白折叠在同一遍完成。
+ */
+public final class HtmlHeadParser {
+    private static final int INITIAL_BUFFER = 8192;
+    private static final int MAX_ATTRS = 16;
+
+    /** 解析结果 */
+    public static final class Result {
+        public String title;
+        public String description;      // <meta name="description">
+        public String firstParagraph;
+        public String charset;
+        /** og:* 与 twitter:* 元信息，key 为小写 */
+        public final Map<String, String> properties = new HashMap<>();
+
+        /** title → og:title → twitter:title */
+        public String bestTitle() {
+            return firstNonEmpty(title, properties.get("og:title"), properties.get("twitter:title"));
+        }
+
+        /** og:description → twitter:description → meta description → 第一个 <p> */
+        public String bestSummary() {
+            return firstNonEmpty(properties.get("og:description"), properties.get("twitter:description"),
+                    description, firstParagraph);
+        }
+    }
+
+    private HtmlHeadParser() {}
+
+    /**
+     * @param contentType  HTTP Content-Type 头，可为 null
+     * @param maxBytes     最多读取的字节数
+     * @param wantSummary  false 时拿到标题即停止
+     */
+    public static Result parse(InputStream in, String contentType, int maxBytes, boolean wantSummary)
+            throws IOException {
+        Scanner scanner = new Scanner(wantSummary);
+        scanner.headerCharset = charsetFromContentType(contentType);
+
+        byte[] buf = new byte[Math.min(INITIAL_BUFFER, maxBytes)];
+        int len = 0;
+        boolean eof = false;
+        while (len < maxBytes) {
+            if (len == buf.length) buf = Arrays.copyOf(buf, Math.min(buf.length * 2, maxBytes));
+            int n = in.read(buf, len, buf.length - len);
+            if (n < 0) {
+                eof = true;
+                break;
+            }
+            len += n;
+            if (scanner.bomLength < 0) {
+                if (len < 3 && !eof) continue;
+                scanner.detectBom(buf, len);
+                if (scanner.utf16 != null) {
+                    return parseUtf16(buf, len, in, maxBytes, scanner.utf16, wantSummary);
+                }
+                scanner.pos = scanner.bomLength;
+            }
+            scanner.scan(buf, len, false);
+            if (scanner.done) break;
+        }
+        if (scanner.bomLength < 0) scanner.detectBom(buf, len);
+        if (!scanner.done) scanner.scan(buf, len, true);
+        return scanner.finish(buf);
+    }
+
+    /** UTF-16 页面极少见：整体转成 UTF-8 再走字节扫描 */
+    private static Result parseUtf16(byte[] head, int len, InputStream in, int maxBytes,
+                                     Charset utf16, boolean wantSummary) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(len, 1024));
+        out.write(head, 0, len);
+        byte[] chunk = new byte[INITIAL_BUFFER];
+        int n;
+        while (out.size() < maxBytes && (n = in.read(chunk)) > 0) out.write(chunk, 0, n);
+        byte[] utf8 = new String(out.toByteArray(), 2, out.size() - 2, utf16).getBytes(StandardCharsets.UTF_8);
+        return parse(new java.io.ByteArrayInputStream(utf8), "text/html; charset=utf-8", utf8.length, wantSummary);
+    }
+
+    // ==================== 扫描 ====================
+
+    private static final class Scanner {
+        final boolean wantSummary;
+        Charset headerCharset;
+        Charset metaCharset;
+        Charset utf16;
+        int bomLength = -1;
+        int pos = 0;
+        boolean done = false;
+
+        boolean headEnded = false;
+        String rawTextTag;              // 在 script / style 内部
+
+        int titleStart = -1, titleEnd = -1;
+        boolean inTitle = false;
+        int pStart = -1, pEnd = -1;
+        boolean inP = false;
+
+        // 元信息只记 key 和值的偏移，结束时再解码
+        final Map<String, int[]> metaRanges = new HashMap<>();
+
+        final int[] attrNameStart = new int[MAX_ATTRS];
+        final int[] attrNameEnd = new int[MAX_ATTRS];
+        final int[] attrValueStart = new int[MAX_ATTRS];
+        final int[] attrValueEnd = new int[MAX_ATTRS];
+        int attrCount;
+
+        Scanner(boolean wantSummary) {
+            this.wantSummary = wantSummary;
+        }
+
+        void detectBom(byte[] b, int len) {
+            bomLength = 0;
+            if (len >= 3 && (b[0] & 0xFF) == 0xEF && (b[1] & 0xFF) == 0xBB && (b[2] & 0xFF) == 0xBF) {
+                bomLength = 3;
+                headerCharset = StandardCharsets.UTF_8;
+            } else if (len >= 2 && (b[0] & 0xFF) == 0xFE && (b[1] & 0xFF) == 0xFF) {
+                utf16 = StandardCharsets.UTF_16BE;
+            } else if (len >= 2 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xFE) {
+                utf16 = StandardCharsets.UTF_16LE;
+            }
+        }
+
+        void scan(byte[] b, int len, boolean eof) {
+            while (pos < len && !done) {
+                int lt = indexOf(b, (byte) '<', pos, len);
+                if (lt < 0) {
+                    pos = len;
+                    return;
+                }
+                pos = lt;
+                if (len - lt < 4 && !eof) return;   // 可能是被截断的 "<!--" 或结束标签
+
+                if (rawTextTag != null) {
+                    // script / style 内只认对应的结束标签
+                    if (lt + 1 < len && b[lt + 1] == '/'
+                            && regionMatches(b, lt + 2, len, rawTextTag)) {
+                        int gt = indexOf(b, (byte) '>', lt + 2, len);
+                        if (gt < 0) {
+                            if (!eof) return;
+                            pos = len;
+                            return;
+                        }
+                        rawTextTag = null;
+                        pos = gt + 1;
+                    } else if (lt + 2 + rawTextTag.length() > len && !eof) {
+                        return;
+                    } else {
+                        pos = lt + 1;
+                    }
+                    continue;
+                }
+
+                if (regionMatches(b, lt + 1, len, "!--")) {
+                    int end = indexOf(b, "-->", lt + 4, len);
+                    if (end < 0) {
+                        if (!eof) return;
+                        pos = len;
+                        return;
+                    }
+                    pos = end + 3;
+                    continue;
+                }
+
+                int gt = findTagEnd(b, lt + 1, len);
+                if (gt < 0) {
+                    if (!eof) return;
+                    pos = len;
+                    return;
+                }
+                handleTag(b, lt, gt);
+                pos = gt + 1;
+            }
+        }
+
+        private void handleTag(byte[] b, int lt, int gt) {
+            int i = lt + 1;
+            boolean closing = b[i] == '/';
+            if (closing) i++;
+            int nameStart = i;
+            while (i < gt && isNameChar(b[i])) i++;
+            int nameEnd = i;
+            if (nameEnd == nameStart) return;   // "<" 后不是标签名，当文本处理
+
+            if (closing) {
+                if (inTitle && nameIs(b, nameStart, nameEnd, "title")) {
+                    titleEnd = lt;
+                    inTitle = false;
+                } else if (inP && nameIs(b, nameStart, nameEnd, "p")) {
+                    inP = false;
+                    if (hasText(b, pStart, lt)) {
+                        pEnd = lt;
+                    } else {
+                        pStart = -1;
+                    }
+                } else if (nameIs(b, nameStart, nameEnd, "head")) {
+                    headEnded = true;
+                }
+                checkDone();
+                return;
+            }
+
+            if (nameIs(b, nameStart, nameEnd, "title")) {
+                if (titleStart < 0) {
+                    titleStart = gt + 1;
+                    inTitle = true;
+                }
+            } else if (nameIs(b, nameStart, nameEnd, "meta")) {
+                parseAttributes(b, nameEnd, gt);
+                handleMeta(b);
+            } else if (nameIs(b, nameStart, nameEnd, "script") || nameIs(b, nameStart, nameEnd, "style")) {
+                if (b[gt - 1] != '/') {
+                    rawTextTag = new String(b, nameStart, nameEnd - nameStart, StandardCharsets.ISO_8859_1)
+                            .toLowerCase(Locale.ROOT);
+                }
+            } else if (nameIs(b, nameStart, nameEnd, "body")) {
+                headEnded = true;
+            } else if (wantSummary && nameIs(b, nameStart, nameEnd, "p")) {
+                if (pEnd < 0 && !inP) {
+                    pStart = gt + 1;
+                    inP = true;
+                }
+            }
+            checkDone();
+        }
+
+        private void handleMeta(byte[] b) {
+            int key = -1, content = -1, charset = -1, httpEquiv = -1;
+            for (int a = 0; a < attrCount; a++) {
+                if (attrIs(b, a, "property") || attrIs(b, a, "name")) {
+                    if (key < 0 || attrValueEnd[key] == attrValueStart[key]) key = a;
+                } else if (attrIs(b, a, "content")) {
+                    content = a;
+                } else if (attrIs(b, a, "charset")) {
+                    charset = a;
+                } else if (attrIs(b, a, "http-equiv")) {
+                    httpEquiv = a;
+                }
+            }
+            if (metaCharset == null) {
+                if (charset >= 0) {
+                    metaCharset = lookupCharset(ascii(b, attrValueStart[charset], attrValueEnd[charset]));
+                } else if (httpEquiv >= 0 && content >= 0
+                        && "content-type".equalsIgnoreCase(ascii(b, attrValueStart[httpEquiv], attrValueEnd[httpEquiv]))) {
+                    metaCharset = charsetFromContentType(ascii(b, attrValueStart[content], attrValueEnd[content]));
+                }
+            }
+            if (key < 0 || content < 0) return;
+
+            String k = ascii(b, attrValueStart[key], attrValueEnd[key]).trim().toLowerCase(Locale.ROOT);
+            if (k.startsWith("og:") || k.startsWith("twitter:") || k.equals("description")) {
+                if (!metaRanges.containsKey(k)) {
+                    metaRanges.put(k, new int[]{attrValueStart[content], attrValueEnd[content]});
+                }
+            }
+        }
+
+        private void checkDone() {
+            boolean titleKnown = titleEnd >= 0 || headEnded;
+            if (!wantSummary) {
+                done = titleKnown;
+                return;
+            }
+            boolean haveDescription = metaRanges.containsKey("og:description")
+                    || metaRanges.containsKey("twitter:description")
+                    || metaRanges.containsKey("description");
+            done = titleKnown && (haveDescription || pEnd >= 0);
+        }
+
+        /** 解析 [from, gt) 内的属性，结果写入 attr* 数组 */
+        private void parseAttributes(byte[] b, int from, int gt) {
+            attrCount = 0;
+            int i = from;
+            while (i < gt && attrCount < MAX_ATTRS) {
+                while (i < gt && (isSpace(b[i]) || b[i] == '/')) i++;
+                int ns = i;
+                while (i < gt && !isSpace(b[i]) && b[i] != '=' && b[i] != '/') i++;
+                if (i == ns) break;
+                int ne = i;
+                while (i < gt && isSpace(b[i])) i++;
+                int vs = i, ve = i;
+                if (i < gt && b[i] == '=') {
+                    i++;
+                    while (i < gt && isSpace(b[i])) i++;
+                    if (i < gt && (b[i] == '"' || b[i] == '\'')) {
+                        byte quote = b[i++];
+                        vs = i;
+                        while (i < gt && b[i] != quote) i++;
+                        ve = i;
+                        if (i < gt) i++;
+                    } else {
+                        vs = i;
+                        while (i < gt && !isSpace(b[i])) i++;
+                        ve = i;
+                    }
+                }
+                attrNameStart[attrCount] = ns;
+                attrNameEnd[attrCount] = ne;
+                attrValueStart[attrCount] = vs;
+                attrValueEnd[attrCount] = ve;
+                attrCount++;
+            }
+        }
+
+        private boolean attrIs(byte[] b, int a, String name) {
+            return nameIs(b, attrNameStart[a], attrNameEnd[a], name);
+        }
+
+        Result finish(byte[] b) {
+            Charset cs = headerCharset != null ? headerCharset
+                    : metaCharset != null ? metaCharset : StandardCharsets.UTF_8;
+            Result r = new Result();
+            r.charset = cs.name();
+            if (titleStart >= 0 && titleEnd > titleStart) {
+                r.title = emptyToNull(textContent(new String(b, titleStart, titleEnd - titleStart, cs), false));
+            }
+            for (Map.Entry<String, int[]> e : metaRanges.entrySet()) {
+                int[] range = e.getValue();
+                String value = emptyToNull(textContent(new String(b, range[0], range[1] - range[0], cs), false));
+                if (value == null) continue;
+                if (e.getKey().equals("description")) {
+                    r.description = value;
+                } else {
+                    r.properties.put(e.getKey(), value);
+                }
+            }
+            if (pStart >= 0 && pEnd > pStart) {
+                r.firstParagraph = emptyToNull(textContent(new String(b, pStart, pEnd - pStart, cs), true));
+            }
+            return r;
+        }
+    }
+
+    // ==================== 文本 ====================
+
+    /**
+     * 单遍完成：可选去标签、实体解码、空白折叠、去首尾空白
+     */
+    static String textContent(String s, boolean stripTags) {
+        StringBuilder out = new StringBuilder(s.length());
+        boolean pendingSpace = false;
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (stripTags && c == '<') {
+                int end = tagEnd(s, i + 1);
+                if (end < 0) break;
+                i = end;
+                pendingSpace = out.length() > 0;
+                continue;
+            }
+            if (c == '&') {
+                int semi = s.indexOf(';', i + 1);
+                if (semi > i + 1 && semi - i <= 10) {
+                    int decoded = decodeEntity(s, i + 1, semi);
+                    if (decoded >= 0) {
+                        i = semi;
+                        if (decoded == ' ' || decoded == 0xA0) {
+                            pendingSpace = out.length() > 0;
+                            continue;
+                        }
+                        if (pendingSpace) out.append(' ');
+                        pendingSpace = false;
+                        out.appendCodePoint(decoded);
+                        continue;
+                    }
+                }
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = out.length() > 0;
+                continue;
+            }
+            if (pendingSpace) out.append(' ');
+            pendingSpace = false;
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    /** 字符串中标签结束的 '>'，跳过引号内的内容 */
+    private static int tagEnd(String s, int from) {
+        char quote = 0;
+        for (int i = from; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** 实体名 s[from, to)，无法识别返回 -1 */
+    private static int decodeEntity(String s, int from, int to) {
+        if (s.charAt(from) == '#') {
+            try {
+                boolean hex = to - from > 1 && (s.charAt(from + 1) == 'x' || s.charAt(from + 1) == 'X');
+                int cp = hex ? Integer.parseInt(s.substring(from + 2, to), 16)
+                        : Integer.parseInt(s.substring(from + 1, to));
+                return Character.isValidCodePoint(cp) ? cp : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        switch (s.substring(from, to)) {
+            case "amp": return '&';
+            case "lt": return '<';
+            case "gt": return '>';
+            case "quot": return '"';
+            case "apos": return '\'';
+            case "nbsp": return 0xA0;
+            case "hellip": return '…';
+            case "mdash": return '—';
+            case "ndash": return '–';
+            case "middot": return '·';
+            case "ldquo": return '“';
+            case "rdquo": return '”';
+            case "lsquo": return '‘';
+            case "rsquo": return '’';
+            case "copy": return '©';
+            case "reg": return '®';
+            default: return -1;
+        }
+    }
+
+    // ==================== 编码 ====================
+
+    static Charset charsetFromContentType(String contentType) {
+        if (contentType == null) return null;
+        int idx = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (idx < 0) return null;
+        String name = contentType.substring(idx + 8).trim();
+        int end = 0;
+        while (end < name.length() && name.charAt(end) != ';' && !Character.isWhitespace(name.charAt(end))) end++;
+        return lookupCharset(name.substring(0, end).replace("\"", "").replace("'", ""));
+    }
+
+    private static Charset lookupCharset(String name) {
+        String n = name.trim().toLowerCase(Locale.ROOT);
+        if (n.isEmpty()) return null;
+        // GB2312 / GBK 页面常混用扩展字符，统一按超集 GB18030 解码
+        if (n.equals("gb2312") || n.equals("gbk")) n = "gb18030";
+        try {
+            return Charset.isSupported(n) ? Charset.forName(n) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // ==================== 字节工具 ====================
+
+    private static int indexOf(byte[] b, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == target) return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] b, String target, int from, int to) {
+        outer:
+        for (int i = from; i <= to - target.length(); i++) {
+            for (int j = 0; j < target.length(); j++) {
+                if (b[i + j] != target.charAt(j)) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /** 标签结束的 '>'，跳过引号内的内容 */
+    private static int findTagEnd(byte[] b, int from, int to) {
+        byte quote = 0;
+        for (int i = from; i < to; i++) {
+            byte c = b[i];
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** 忽略大小写比较 ASCII 名称 */
+    private static boolean regionMatches(byte[] b, int from, int to, String name) {
+        if (to - from < name.length()) return false;
+        for (int j = 0; j < name.length(); j++) {
+            if (Character.toLowerCase((char) b[from + j]) != name.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private static boolean nameIs(byte[] b, int from, int to, String name) {
+        return to - from == name.length() && regionMatches(b, from, to, name);
+    }
+
+    private static boolean hasText(byte[] b, int from, int to) {
+        boolean inTag = false;
+        for (int i = from; i < to; i++) {
+            byte c = b[i];
+            if (c == '<') inTag = true;
+            else if (c == '>') inTag = false;
+            else if (!inTag && !isSpace(c)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isNameChar(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == ':';
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+
+    private static String ascii(byte[] b, int from, int to) {
+        return new String(b, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String emptyToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+
+    private static String firstNonEmpty(String... values) {
+        for (String v : values) {
+            if (v != null && !v.isEmpty()) return v;
+        }
+        return null;
+    }
+}
@@ -4,7 +4,6 @@ import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -39,12 +38,16 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
     private SwipeRefreshLayout swipeRefresh;
     private LinearLayout layoutEmpty;
     private TextView tvCount;
+    private int pendingDuplicates = 0;
     private TextInputEditText etSearch;
     private ChipGroup chipGroupFilter;
 
     private String currentFilter = "all";  // all/note/article/link/code/fav
     private String currentSearch = "";
 
+    private final TaskScheduler.Scope tasks = new TaskScheduler.Scope("KnowledgeActivity");
+    private int loadGeneration = 0;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -75,6 +78,9 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
             } else if (id == R.id.action_analyze_urls) {
                 analyzeUrlItems();
                 return true;
+            } else if (id == R.id.action_notification_archive) {
+                startActivity(new android.content.Intent(this, NotificationArchiveActivity.class));
+                return true;
             } else if (id == R.id.action_auto_sync) {
                 boolean newState = !item.isChecked();
                 item.setChecked(newState);
@@ -93,6 +99,7 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
         swipeRefresh = findViewById(R.id.swipe_refresh);
         layoutEmpty = findViewById(R.id.layout_empty);
         tvCount = findViewById(R.id.tv_count);
+        tvCount.setOnClickListener(v -> confirmMergeDuplicates());
         etSearch = findViewById(R.id.et_search);
         chipGroupFilter = findViewById(R.id.chip_group_filter);
 
@@ -111,19 +118,23 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
             @Override
             public void onSwiped(RecyclerView.ViewHolder vh, int direction) {
                 int pos = vh.getAdapterPosition();
-                ContentItem item = adapter.getItem(pos);
-                adapter.removeItem(pos);
+                ContentItem item = adapter.getContentItem(pos);
+                ContentAdapter.Row row = adapter.removeRow(pos);
 
                 Snackbar.make(rvContents, "已删除: " + item.getPreview(20), Snackbar.LENGTH_LONG)
                         .setAction("撤销", v -> {
-                            adapter.restoreItem(item, pos);
+                            adapter.restoreRow(row, pos);
                             updateCount();
                         })
                         .addCallback(new Snackbar.Callback() {
                             @Override
                             public void onDismissed(Snackbar snackbar, int event) {
                                 if (event != DISMISS_EVENT_ACTION) {
-                                    db.deleteContent(item.id);
+                                    TaskScheduler.execute(TaskScheduler.Pool.DB_WRITE, TaskScheduler.Lane.USER_VISIBLE,
+                                            "deleteContent", () -> {
+                                                db.deleteContent(item.id);
+                                                tasks.postToMain(this::updateCount);
+                                            });
                                 }
                             }
                         })
@@ -180,32 +191,91 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
     protected void onResume() {
         super.onResume();
         loadContents();
+        LinkEnrichmentJob job = LinkEnrichmentJob.getInstance(this);
+        job.setListener(enrichListener);
+        job.resumeIfInterrupted();
     }
 
-    private void loadContents() {
-        List<ContentItem> items;
-
-        if (!currentSearch.isEmpty()) {
-            items = db.searchContents(currentSearch);
-        } else if ("fav".equals(currentFilter)) {
-            items = db.getAllContents(500, 0);
-            items.removeIf(item -> !item.isFavorite);
-        } else if (!"all".equals(currentFilter)) {
-            items = db.getContentsByType(currentFilter);
-        } else {
-            items = db.getAllContents(500, 0);
-        }
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        tasks.cancel();
+    }
 
-        adapter.setItems(items);
-        updateCount();
+    @Override
+    protected void onPause() {
+        super.onPause();
+        LinkEnrichmentJob.getInstance(this).setListener(null);
+    }
 
-        layoutEmpty.setVisibility(items.isEmpty() ? View.VISIBLE : View.GONE);
-        rvContents.setVisibility(items.isEmpty() ? View.GONE : View.VISIBLE);
+    /**
+     * 后台查询并生成行模型，主线程只提交给 DiffUtil；较早发起的加载结果直接丢弃
+     */
+    private void loadContents() {
+        int generation = ++loadGeneration;
+        String search = currentSearch;
+        String filter = currentFilter;
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "loadContents", () -> {
+            List<ContentItem> items;
+            if (!search.isEmpty()) {
+                items = db.searchContents(search);
+            } else if ("fav".equals(filter)) {
+                items = db.getAllContents(500, 0);
+                items.removeIf(item -> !item.isFavorite);
+            } else if (!"all".equals(filter)) {
+                items = db.getContentsByType(filter);
+            } else {
+                items = db.getAllContents(500, 0);
+            }
+            List<ContentAdapter.Row> rows = ContentAdapter.buildRows(items);
+            int duplicates = db.getDuplicateCount();
+            int total = db.getContentCount() - duplicates;
+
+            tasks.postToMain(() -> {
+                if (generation != loadGeneration) return;
+                adapter.submitList(rows);
+                pendingDuplicates = duplicates;
+                tvCount.setText(countText(total, duplicates));
+                layoutEmpty.setVisibility(rows.isEmpty() ? View.VISIBLE : View.GONE);
+                rvContents.setVisibility(rows.isEmpty() ? View.GONE : View.VISIBLE);
+            });
+        });
     }
 
     private void updateCount() {
-        int total = db.getContentCount();
-        tvCount.setText("共 " + total + " 条");
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "contentCount", () -> {
+            int duplicates = db.getDuplicateCount();
+            int total = db.getContentCount() - duplicates;
+            tasks.postToMain(() -> {
+                pendingDuplicates = duplicates;
+                tvCount.setText(countText(total, duplicates));
+            });
+        });
+    }
+
+    private static String countText(int total, int duplicates) {
+        return "共 " + total + " 条" + (duplicates > 0 ? " · 🔗 " + duplicates + " 条重复待合并（点此处理）" : "");
+    }
+
+    /**
+     * 链接分析发现的重复采集不自动删除，点计数行由用户确认后合并进最早那条
+     */
+    private void confirmMergeDuplicates() {
+        if (pendingDuplicates <= 0) return;
+        new MaterialAlertDialogBuilder(this, R.style.Theme_PhoneMonitor_Dialog)
+                .setTitle("合并重复链接？")
+                .setMessage("有 " + pendingDuplicates + " 条内容与更早保存的链接指向同一地址。"
+                        + "合并后标签和收藏并入最早那条，重复条目删除。")
+                .setPositiveButton("合并", (d, w) ->
+                        TaskScheduler.execute(TaskScheduler.Pool.DB_WRITE, TaskScheduler.Lane.USER_VISIBLE, "mergeDuplicates", () -> {
+                            int merged = db.mergeDuplicates();
+                            tasks.postToMain(() -> {
+                                Toast.makeText(this, "🔗 已合并 " + merged + " 条", Toast.LENGTH_SHORT).show();
+                                loadContents();
+                            });
+                        }))
+                .setNegativeButton("取消", null)
+                .show();
     }
 
     // ==================== Item Click Handlers ====================
@@ -266,9 +336,14 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
                         .setTitle("确认删除？")
                         .setMessage("确定要删除这条内容吗？此操作无法撤销。")
                         .setPositiveButton("删除", (d, w) -> {
-                            db.deleteContent(item.id);
-                            loadContents(); // Reload to refresh list
-                            Toast.makeText(this, "🗑️ 已删除", Toast.LENGTH_SHORT).show();
+                            TaskScheduler.execute(TaskScheduler.Pool.DB_WRITE, TaskScheduler.Lane.USER_VISIBLE,
+                                    "deleteContent", () -> {
+                                        db.deleteContent(item.id);
+                                        tasks.postToMain(() -> {
+                                            loadContents(); // Reload to refresh list
+                                            Toast.makeText(this, "🗑️ 已删除", Toast.LENGTH_SHORT).show();
+                                        });
+                                    });
                         })
                         .setNegativeButton("取消", null)
                         .show();
@@ -283,40 +358,39 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
     public void onFavoriteClick(ContentItem item, int position) {
         db.toggleFavorite(item.id);
         item.isFavorite = !item.isFavorite;
-        adapter.notifyItemChanged(position);
+        adapter.refreshItem(item);
     }
 
     // ==================== URL Analysis ====================
 
     private void analyzeUrlItems() {
-        List<ContentItem> urlItems = db.getUrlItemsWithoutSummary();
-        if (urlItems.isEmpty()) {
-            Toast.makeText(this, "没有需要分析的网址", Toast.LENGTH_SHORT).show();
+        LinkEnrichmentJob job = LinkEnrichmentJob.getInstance(this);
+        if (job.isRunning()) {
+            Toast.makeText(this, "链接分析进行中…", Toast.LENGTH_SHORT).show();
             return;
         }
+        Toast.makeText(this, "🔗 开始后台分析网址…", Toast.LENGTH_SHORT).show();
+        job.start();
+    }
 
-        Toast.makeText(this, "正在分析 " + urlItems.size() + " 个网址...", Toast.LENGTH_SHORT).show();
+    /** 后台分析进度：每完成 BATCH 条刷新一次列表 */
+    private final LinkEnrichmentJob.Listener enrichListener = new LinkEnrichmentJob.Listener() {
+        @Override
+        public void onProgress(int done, int total, int ok, int failed) {
+            tvCount.setText("分析中 " + done + "/" + total);
+        }
 
-        new Thread(() -> {
-            int success = 0;
-            for (ContentItem item : urlItems) {
-                try {
-                    TitleFetcher.TitleAndSummary result = TitleFetcher.fetchSyncWithSummary(item.url);
-                    String title = result.title != null ? result.title : item.title;
-                    db.updateTitleAndSummary(item.id, title, result.summary);
-                    success++;
-                } catch (Exception e) {
-                    Log.e("KnowledgeActivity", "分析失败: " + item.url, e);
-                }
+        @Override
+        public void onFinished(int total, int ok, int failed) {
+            if (total == 0) {
+                Toast.makeText(KnowledgeActivity.this, "没有需要分析的网址", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(KnowledgeActivity.this, "✅ 分析完成，成功 " + ok + "/" + total,
+                        Toast.LENGTH_SHORT).show();
             }
-
-            final int s = success;
-            runOnUiThread(() -> {
-                Toast.makeText(this, "✅ 分析完成，成功 " + s + "/" + urlItems.size(), Toast.LENGTH_SHORT).show();
-                loadContents();
-            });
-        }).start();
-    }
+            loadContents();
+        }
+    };
 
     // ==================== Feishu Sync ====================
 
@@ -343,7 +417,7 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
 
         Toast.makeText(this, "📤 同步 " + unsynced.size() + " 条到飞书…", Toast.LENGTH_SHORT).show();
 
-        new Thread(() -> {
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.USER_VISIBLE, "syncToFeishu", () -> {
             FeishuBotApi api = new FeishuBotApi(appId, appSecret);
             int success = 0;
             int fail = 0;
@@ -379,6 +453,6 @@ public class KnowledgeActivity extends AppCompatActivity implements ContentAdapt
                 }
                 loadContents();
             });
-        }).start();
+        });
     }
 }
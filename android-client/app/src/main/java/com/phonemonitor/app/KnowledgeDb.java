@@ -5,13 +5,16 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * 知识库 SQLite 数据库
@@ -19,7 +22,13 @@ import java.util.Locale;
 public class KnowledgeDb extends SQLiteOpenHelper {
     private static final String TAG = "KnowledgeDb";
     private static final String DB_NAME = "knowledge.db";
-    private static final int DB_VERSION = 2;
+    private static final int DB_VERSION = 9;
+
+    // 链接分析状态（contents.enrich_state）
+    public static final int ENRICH_PENDING = 0;
+    public static final int ENRICH_OK = 1;
+    public static final int ENRICH_FAILED = 2;        // 可重试，enrich_retry_at 之后再试
+    public static final int ENRICH_GAVE_UP = 3;       // 永久失败，不再自动重试
 
     private static KnowledgeDb instance;
 
@@ -48,7 +57,14 @@ public class KnowledgeDb extends SQLiteOpenHelper {
                 "is_favorite INTEGER DEFAULT 0," +
                 "created_at TEXT DEFAULT (datetime('now','localtime'))," +
                 "updated_at TEXT DEFAULT (datetime('now','localtime'))," +
-                "synced INTEGER DEFAULT 0)");
+                "synced INTEGER DEFAULT 0," +
+                "enrich_state INTEGER DEFAULT 0," +
+                "enrich_attempts INTEGER DEFAULT 0," +
+                "enrich_retry_at INTEGER DEFAULT 0," +
+                "enrich_error TEXT," +
+                "site TEXT," +
+                "canonical_url TEXT," +
+                "duplicate_of INTEGER)");
 
         db.execSQL("CREATE TABLE tags (" +
                 "id INTEGER PRIMARY KEY AUTOINCREMENT," +
@@ -60,6 +76,9 @@ public class KnowledgeDb extends SQLiteOpenHelper {
         db.execSQL("CREATE INDEX idx_contents_type ON contents(type)");
         db.execSQL("CREATE INDEX idx_contents_created ON contents(created_at DESC)");
         db.execSQL("CREATE INDEX idx_contents_synced ON contents(synced)");
+        db.execSQL("CREATE INDEX idx_contents_enrich ON contents(enrich_state, enrich_retry_at)");
+        db.execSQL("CREATE INDEX idx_contents_canonical ON contents(canonical_url)");
+        db.execSQL("CREATE INDEX idx_contents_duplicate ON contents(duplicate_of)");
 
         // Usage stats table (v2)
         db.execSQL("CREATE TABLE usage_stats (" +
@@ -74,6 +93,10 @@ public class KnowledgeDb extends SQLiteOpenHelper {
 
         db.execSQL("CREATE INDEX idx_usage_date ON usage_stats(date DESC)");
         db.execSQL("CREATE INDEX idx_usage_package ON usage_stats(package_name)");
+
+        createCountTriggers(db);
+        createNotificationArchive(db);
+        createDuplicateCounter(db);
     }
 
     @Override
@@ -94,6 +117,106 @@ public class KnowledgeDb extends SQLiteOpenHelper {
             db.execSQL("CREATE INDEX IF NOT EXISTS idx_usage_package ON usage_stats(package_name)");
             Log.i(TAG, "✅ Database upgraded to v2: usage_stats table added");
         }
+        if (oldVersion < 3) {
+            db.execSQL("ALTER TABLE contents ADD COLUMN enrich_state INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE contents ADD COLUMN enrich_attempts INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE contents ADD COLUMN enrich_retry_at INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE contents ADD COLUMN enrich_error TEXT");
+            // 已有摘要的视为分析完成
+            db.execSQL("UPDATE contents SET enrich_state = " + ENRICH_OK +
+                    " WHERE summary IS NOT NULL AND summary != ''");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_contents_enrich ON contents(enrich_state, enrich_retry_at)");
+            Log.i(TAG, "✅ Database upgraded to v3: enrichment state columns added");
+        }
+        if (oldVersion < 4) {
+            db.execSQL("ALTER TABLE contents ADD COLUMN site TEXT");
+            Cursor c = db.rawQuery("SELECT id, url FROM contents WHERE url IS NOT NULL AND url != ''", null);
+            while (c.moveToNext()) {
+                ContentValues cv = new ContentValues();
+                cv.put("site", ContentClassifier.classifySite(c.getString(1)));
+                db.update("contents", cv, "id = ?", new String[]{String.valueOf(c.getLong(0))});
+            }
+            c.close();
+            Log.i(TAG, "✅ Database upgraded to v4: site column added");
+        }
+        if (oldVersion < 5) {
+            db.execSQL("ALTER TABLE contents ADD COLUMN canonical_url TEXT");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_contents_canonical ON contents(canonical_url)");
+            Log.i(TAG, "✅ Database upgraded to v5: canonical_url column added");
+        }
+        if (oldVersion < 6) {
+            createCountTriggers(db);
+            Log.i(TAG, "✅ Database upgraded to v6: meta_counts table added");
+        }
+        if (oldVersion < 7) {
+            createNotificationArchive(db);
+            Log.i(TAG, "✅ Database upgraded to v7: notification archive added");
+        }
+        if (oldVersion < 8) {
+            db.execSQL("ALTER TABLE contents ADD COLUMN duplicate_of INTEGER");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_contents_duplicate ON contents(duplicate_of)");
+            Log.i(TAG, "✅ Database upgraded to v8: duplicate_of column added");
+        }
+        if (oldVersion < 9) {
+            createDuplicateCounter(db);
+            Log.i(TAG, "✅ Database upgraded to v9: duplicate counter added");
+        }
+    }
+
+    /**
+     * 计数表（v6）：contents 的行数由触发器随增删维护，读总数不再全表 COUNT(*)
+     */
+    private void createCountTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS meta_counts (" +
+                "name TEXT PRIMARY KEY," +
+                "value INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT OR REPLACE INTO meta_counts (name, value) " +
+                "SELECT 'contents', COUNT(*) FROM contents");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_contents_count_insert AFTER INSERT ON contents " +
+                "BEGIN UPDATE meta_counts SET value = value + 1 WHERE name = 'contents'; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_contents_count_delete AFTER DELETE ON contents " +
+                "BEGIN UPDATE meta_counts SET value = value - 1 WHERE name = 'contents'; END");
+    }
+
+    /**
+     * 通知存档（v7）：只追加的 notifications 表 + 全文索引 notifications_fts（docid = notifications.id）
+     * 索引只有时间和包名两个；行数同样由触发器记在 meta_counts
+     */
+    private void createNotificationArchive(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS notifications (" +
+                "id INTEGER PRIMARY KEY," +
+                "package TEXT NOT NULL," +
+                "channel TEXT," +
+                "conversation TEXT," +
+                "title TEXT," +
+                "text TEXT," +
+                "posted_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_notifications_posted ON notifications(posted_at)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_notifications_package ON notifications(package, posted_at)");
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS notifications_fts USING fts4(body)");
+        db.execSQL("INSERT OR IGNORE INTO meta_counts (name, value) VALUES ('notifications', 0)");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_notifications_count_insert AFTER INSERT ON notifications " +
+                "BEGIN UPDATE meta_counts SET value = value + 1 WHERE name = 'notifications'; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_notifications_count_delete AFTER DELETE ON notifications " +
+                "BEGIN UPDATE meta_counts SET value = value - 1 WHERE name = 'notifications'; END");
+    }
+
+    /**
+     * 待合并重复数（v9）：同样记在 meta_counts，由 duplicate_of 的标记 / 取消 / 删除触发器维护
+     */
+    private void createDuplicateCounter(SQLiteDatabase db) {
+        db.execSQL("INSERT OR REPLACE INTO meta_counts (name, value) " +
+                "SELECT 'duplicates', COUNT(*) FROM contents WHERE duplicate_of IS NOT NULL");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_duplicates_count_insert AFTER INSERT ON contents " +
+                "WHEN NEW.duplicate_of IS NOT NULL " +
+                "BEGIN UPDATE meta_counts SET value = value + 1 WHERE name = 'duplicates'; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_duplicates_count_update AFTER UPDATE OF duplicate_of ON contents " +
+                "WHEN (OLD.duplicate_of IS NULL) != (NEW.duplicate_of IS NULL) " +
+                "BEGIN UPDATE meta_counts SET value = value + " +
+                "(CASE WHEN NEW.duplicate_of IS NULL THEN -1 ELSE 1 END) WHERE name = 'duplicates'; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_duplicates_count_delete AFTER DELETE ON contents " +
+                "WHEN OLD.duplicate_of IS NOT NULL " +
+                "BEGIN UPDATE meta_counts SET value = value - 1 WHERE name = 'duplicates'; END");
     }
 
     private String now() {
@@ -112,6 +235,7 @@ public class KnowledgeDb extends SQLiteOpenHelper {
         cv.put("title", title);
         cv.put("content", content);
         cv.put("url", url);
+        cv.put("site", ContentClassifier.classifySite(url));
         cv.put("type", type != null ? type : "note");
         cv.put("source", source != null ? source : "clipboard");
         cv.put("tags", tags);
@@ -121,7 +245,7 @@ public class KnowledgeDb extends SQLiteOpenHelper {
         long id = db.insert("contents", null, cv);
         if (id > 0) {
             Log.i(TAG, "✅ 内容已保存 #" + id + " [" + type + "]");
-            updateTagCounts(tags);
+            updateTagCounts(db, tags);
         }
         return id;
     }
@@ -131,7 +255,7 @@ public class KnowledgeDb extends SQLiteOpenHelper {
      */
     public List<ContentItem> getAllContents(int limit, int offset) {
         return queryContents(
-                "SELECT * FROM contents ORDER BY created_at DESC LIMIT ? OFFSET ?",
+                "SELECT * FROM contents WHERE duplicate_of IS NULL ORDER BY created_at DESC LIMIT ? OFFSET ?",
                 new String[]{String.valueOf(limit), String.valueOf(offset)});
     }
 
@@ -141,7 +265,8 @@ public class KnowledgeDb extends SQLiteOpenHelper {
     public List<ContentItem> searchContents(String query) {
         String like = "%" + query + "%";
         return queryContents(
-                "SELECT * FROM contents WHERE title LIKE ? OR content LIKE ? OR tags LIKE ? ORDER BY created_at DESC",
+                "SELECT * FROM contents WHERE duplicate_of IS NULL AND (title LIKE ? OR content LIKE ? OR tags LIKE ?)" +
+                        " ORDER BY created_at DESC",
                 new String[]{like, like, like});
     }
 
@@ -191,13 +316,194 @@ public class KnowledgeDb extends SQLiteOpenHelper {
         return db.update("contents", cv, "id = ?", new String[]{String.valueOf(id)}) > 0;
     }
 
+    // ==================== Link Enrichment ====================
+
+    /** 一条链接分析结果，error 非空表示失败 */
+    public static class EnrichmentResult {
+        public final long id;
+        public final String title;
+        public final String summary;
+        public final String canonicalUrl;
+        public final String error;
+        public final boolean permanent;
+        public final long retryAt;
+
+        private EnrichmentResult(long id, String title, String summary, String canonicalUrl, String error,
+                                 boolean permanent, long retryAt) {
+            this.id = id;
+            this.title = title;
+            this.summary = summary;
+            this.canonicalUrl = canonicalUrl;
+            this.error = error;
+            this.permanent = permanent;
+            this.retryAt = retryAt;
+        }
+
+        public static EnrichmentResult ok(long id, String title, String summary, String canonicalUrl) {
+            return new EnrichmentResult(id, title, summary, canonicalUrl, null, false, 0);
+        }
+
+        public static EnrichmentResult failed(long id, String error, long retryAt) {
+            return new EnrichmentResult(id, null, null, null, error, false, retryAt);
+        }
+
+        public static EnrichmentResult gaveUp(long id, String error) {
+            return new EnrichmentResult(id, null, null, null, error, true, 0);
+        }
+    }
+
     /**
-     * 获取有 URL 但没有摘要的内容
+     * 待分析的链接：未分析过的，以及重试时间已到的失败项
      */
-    public List<ContentItem> getUrlItemsWithoutSummary() {
+    public List<ContentItem> getEnrichmentCandidates(long now) {
         return queryContents(
-                "SELECT * FROM contents WHERE url IS NOT NULL AND url != '' AND (summary IS NULL OR summary = '') ORDER BY created_at DESC",
-                null);
+                "SELECT * FROM contents WHERE url IS NOT NULL AND url != '' AND (summary IS NULL OR summary = '')" +
+                        " AND (enrich_state = " + ENRICH_PENDING +
+                        " OR (enrich_state = " + ENRICH_FAILED + " AND enrich_retry_at <= ?))" +
+                        " ORDER BY created_at DESC",
+                new String[]{String.valueOf(now)});
+    }
+
+    /**
+     * 批量写入分析结果，一个事务
+     * 只有一个链接的内容若与已有条目指向同一最终地址，视为重复采集：照常写入结果，
+     * 并用 duplicate_of 标记为最早那条的重复（列表中隐藏），由用户确认后再合并
+     * @return 新标记的重复条目数
+     */
+    public int applyEnrichmentResults(List<EnrichmentResult> results) {
+        if (results.isEmpty()) return 0;
+        SQLiteDatabase db = getWritableDatabase();
+        String ts = now();
+        int marked = 0;
+        db.beginTransaction();
+        try {
+            for (EnrichmentResult r : results) {
+                ContentValues cv = new ContentValues();
+                if (r.error == null) {
+                    long original = r.canonicalUrl != null ? findDuplicateOf(db, r.id, r.canonicalUrl) : -1;
+                    if (original > 0) {
+                        cv.put("duplicate_of", original);
+                        marked++;
+                    }
+                    if (r.title != null) cv.put("title", r.title);
+                    cv.put("summary", r.summary);
+                    if (r.canonicalUrl != null) {
+                        cv.put("canonical_url", r.canonicalUrl);
+                        cv.put("site", ContentClassifier.classifySite(r.canonicalUrl));
+                    }
+                    cv.put("enrich_state", ENRICH_OK);
+                    cv.putNull("enrich_error");
+                    cv.put("updated_at", ts);
+                    db.update("contents", cv, "id = ?", new String[]{String.valueOf(r.id)});
+                } else {
+                    cv.put("enrich_state", r.permanent ? ENRICH_GAVE_UP : ENRICH_FAILED);
+                    cv.put("enrich_retry_at", r.retryAt);
+                    cv.put("enrich_error", r.error);
+                    db.update("contents", cv, "id = ?", new String[]{String.valueOf(r.id)});
+                    db.execSQL("UPDATE contents SET enrich_attempts = enrich_attempts + 1 WHERE id = ?",
+                            new Object[]{r.id});
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (marked > 0) Log.i(TAG, "🔗 发现重复链接 " + marked + " 条，待确认合并");
+        return marked;
+    }
+
+    /**
+     * 该条内容只是一个链接，且更早的条目已有相同最终地址时，返回最早那条的 id，否则 -1
+     */
+    private long findDuplicateOf(SQLiteDatabase db, long id, String canonicalUrl) {
+        Cursor c = db.rawQuery("SELECT a.content, a.url," +
+                        " (SELECT MIN(b.id) FROM contents b WHERE b.canonical_url = ? AND b.id < a.id)" +
+                        " FROM contents a WHERE a.id = ?",
+                new String[]{canonicalUrl, String.valueOf(id)});
+        long original = -1;
+        if (c.moveToFirst() && !c.isNull(2)) {
+            String content = c.getString(0);
+            String url = c.getString(1);
+            if (content != null && url != null && content.trim().equals(url.trim())) original = c.getLong(2);
+        }
+        c.close();
+        return original;
+    }
+
+    /**
+     * 标记为重复、等待用户确认合并的条目数（读计数表，单行主键查询）
+     */
+    public int getDuplicateCount() {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor c = db.rawQuery("SELECT value FROM meta_counts WHERE name = 'duplicates'", null);
+        int count = 0;
+        if (c.moveToFirst()) count = c.getInt(0);
+        c.close();
+        return count;
+    }
+
+    /**
+     * 用户确认后合并全部重复条目：标签并入最早那条、收藏取或，再删除重复条目；一个事务。
+     * 最早那条已被删除时取消标记，让重复条目重新出现在列表里
+     * @return 合并的条目数
+     */
+    public int mergeDuplicates() {
+        SQLiteDatabase db = getWritableDatabase();
+        String ts = now();
+        int merged = 0;
+        db.beginTransaction();
+        try {
+            // 先读出全部待合并对，再逐条改表，避免边遍历游标边删除
+            List<Object[]> pairs = new ArrayList<>();
+            Cursor c = db.rawQuery("SELECT d.id, d.tags, d.is_favorite, o.id FROM contents d" +
+                    " LEFT JOIN contents o ON o.id = d.duplicate_of WHERE d.duplicate_of IS NOT NULL", null);
+            while (c.moveToNext()) {
+                pairs.add(new Object[]{c.getLong(0), c.getString(1), c.getInt(2) == 1,
+                        c.isNull(3) ? null : c.getLong(3)});
+            }
+            c.close();
+
+            for (Object[] pair : pairs) {
+                long id = (Long) pair[0];
+                if (pair[3] == null) {
+                    db.execSQL("UPDATE contents SET duplicate_of = NULL WHERE id = ?", new Object[]{id});
+                    continue;
+                }
+                long original = (Long) pair[3];
+
+                Set<String> union = splitTags(getTags(db, original));
+                union.addAll(splitTags((String) pair[1]));
+
+                ContentValues cv = new ContentValues();
+                cv.put("tags", union.isEmpty() ? null : String.join(",", union));
+                if ((Boolean) pair[2]) cv.put("is_favorite", 1);
+                cv.put("updated_at", ts);
+                db.update("contents", cv, "id = ?", new String[]{String.valueOf(original)});
+                db.delete("contents", "id = ?", new String[]{String.valueOf(id)});
+                merged++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (merged > 0) Log.i(TAG, "🔗 合并重复链接 " + merged + " 条");
+        return merged;
+    }
+
+    /**
+     * 各分析状态的链接数
+     */
+    public int[] getEnrichmentCounts() {
+        int[] counts = new int[4];
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor c = db.rawQuery("SELECT enrich_state, COUNT(*) FROM contents" +
+                " WHERE url IS NOT NULL AND url != '' GROUP BY enrich_state", null);
+        while (c.moveToNext()) {
+            int state = c.getInt(0);
+            if (state >= 0 && state < counts.length) counts[state] = c.getInt(1);
+        }
+        c.close();
+        return counts;
     }
 
     /**
@@ -219,11 +525,11 @@ public class KnowledgeDb extends SQLiteOpenHelper {
     }
 
     /**
-     * 内容总数
+     * 内容总数（读计数表，单行主键查询）
      */
     public int getContentCount() {
         SQLiteDatabase db = getReadableDatabase();
-        Cursor c = db.rawQuery("SELECT COUNT(*) FROM contents", null);
+        Cursor c = db.rawQuery("SELECT value FROM meta_counts WHERE name = 'contents'", null);
         int count = 0;
         if (c.moveToFirst()) count = c.getInt(0);
         c.close();
@@ -235,7 +541,7 @@ public class KnowledgeDb extends SQLiteOpenHelper {
      */
     public List<ContentItem> getRecentContents(int limit) {
         return queryContents(
-                "SELECT * FROM contents ORDER BY created_at DESC LIMIT ?",
+                "SELECT * FROM contents WHERE duplicate_of IS NULL ORDER BY created_at DESC LIMIT ?",
                 new String[]{String.valueOf(limit)});
     }
 
@@ -244,7 +550,7 @@ public class KnowledgeDb extends SQLiteOpenHelper {
      */
     public List<ContentItem> getContentsByType(String type) {
         return queryContents(
-                "SELECT * FROM contents WHERE type = ? ORDER BY created_at DESC",
+                "SELECT * FROM contents WHERE type = ? AND duplicate_of IS NULL ORDER BY created_at DESC",
                 new String[]{type});
     }
 
@@ -253,7 +559,7 @@ public class KnowledgeDb extends SQLiteOpenHelper {
      */
     public List<ContentItem> getUnsyncedContents() {
         return queryContents(
-                "SELECT * FROM contents WHERE synced = 0 ORDER BY created_at ASC",
+                "SELECT * FROM contents WHERE synced = 0 AND duplicate_of IS NULL ORDER BY created_at ASC",
                 null);
     }
 
@@ -280,17 +586,136 @@ public class KnowledgeDb extends SQLiteOpenHelper {
         return items;
     }
 
-    private void updateTagCounts(String tags) {
-        if (tags == null || tags.trim().isEmpty()) return;
-        SQLiteDatabase db = getWritableDatabase();
-        for (String tag : tags.split(",")) {
-            tag = tag.trim();
-            if (tag.isEmpty()) continue;
+    private void updateTagCounts(SQLiteDatabase db, String tags) {
+        for (String tag : splitTags(tags)) {
             db.execSQL("INSERT OR IGNORE INTO tags (name, count) VALUES (?, 0)", new Object[]{tag});
             db.execSQL("UPDATE tags SET count = count + 1 WHERE name = ?", new Object[]{tag});
         }
     }
 
+    private static Set<String> splitTags(String tags) {
+        Set<String> out = new LinkedHashSet<>();
+        if (tags == null) return out;
+        for (String tag : tags.split(",")) {
+            tag = tag.trim();
+            if (!tag.isEmpty()) out.add(tag);
+        }
+        return out;
+    }
+
+    private String getTags(SQLiteDatabase db, long id) {
+        Cursor c = db.rawQuery("SELECT tags FROM contents WHERE id = ?", new String[]{String.valueOf(id)});
+        String tags = c.moveToFirst() ? c.getString(0) : null;
+        c.close();
+        return tags;
+    }
+
+    // ==================== Notification Archive ====================
+
+    /**
+     * 批量追加通知，一个事务、一条预编译语句；全文索引同步写入
+     */
+    public void insertNotifications(List<ArchivedNotification> batch) {
+        if (batch.isEmpty()) return;
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement row = db.compileStatement(
+                "INSERT INTO notifications (package, channel, conversation, title, text, posted_at) VALUES (?, ?, ?, ?, ?, ?)");
+        SQLiteStatement fts = db.compileStatement("INSERT INTO notifications_fts (docid, body) VALUES (?, ?)");
+        db.beginTransaction();
+        try {
+            for (ArchivedNotification n : batch) {
+                row.clearBindings();
+                row.bindString(1, n.packageName);
+                bindNullable(row, 2, n.channel);
+                bindNullable(row, 3, n.conversation);
+                bindNullable(row, 4, n.title);
+                bindNullable(row, 5, n.text);
+                row.bindLong(6, n.postedAt);
+                long id = row.executeInsert();
+                if (id < 0) continue;
+                fts.clearBindings();
+                fts.bindLong(1, id);
+                fts.bindString(2, ArchiveText.segment(n.title) + "\n" + ArchiveText.segment(n.text));
+                fts.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            row.close();
+            fts.close();
+        }
+    }
+
+    /**
+     * 最近的通知，按时间倒序；query 非空时走全文索引；beforeId > 0 时取更早的一页
+     */
+    public List<ArchivedNotification> queryNotifications(String query, long beforeId, int limit) {
+        String before = beforeId > 0 ? String.valueOf(beforeId) : String.valueOf(Long.MAX_VALUE);
+        String match = ArchiveText.toMatchQuery(query);
+        String sql;
+        String[] args;
+        if (match == null) {
+            sql = "SELECT * FROM notifications WHERE id < ? ORDER BY id DESC LIMIT ?";
+            args = new String[]{before, String.valueOf(limit)};
+        } else {
+            sql = "SELECT n.* FROM notifications n JOIN (" +
+                    "SELECT docid FROM notifications_fts WHERE body MATCH ? AND docid < ? ORDER BY docid DESC LIMIT ?" +
+                    ") f ON n.id = f.docid ORDER BY n.id DESC";
+            args = new String[]{match, before, String.valueOf(limit)};
+        }
+        List<ArchivedNotification> out = new ArrayList<>();
+        Cursor c = getReadableDatabase().rawQuery(sql, args);
+        while (c.moveToNext()) out.add(new ArchivedNotification(c));
+        c.close();
+        return out;
+    }
+
+    public int getNotificationCount() {
+        Cursor c = getReadableDatabase().rawQuery("SELECT value FROM meta_counts WHERE name = 'notifications'", null);
+        int count = 0;
+        if (c.moveToFirst()) count = c.getInt(0);
+        c.close();
+        return count;
+    }
+
+    /**
+     * 保留策略：删掉早于 cutoff 的（按 posted_at 走 idx_notifications_posted，posted_at 不一定随 id 递增），
+     * 以及超出 maxRows 的最旧部分（按 id 区间）；全文索引同步删除，然后合并索引段
+     * @return 删除的行数
+     */
+    public int compactNotifications(long cutoff, int maxRows) {
+        SQLiteDatabase db = getWritableDatabase();
+        int deleted;
+        db.beginTransaction();
+        try {
+            String[] expired = {String.valueOf(cutoff)};
+            db.execSQL("DELETE FROM notifications_fts WHERE docid IN" +
+                    " (SELECT id FROM notifications WHERE posted_at < ?)", expired);
+            deleted = db.delete("notifications", "posted_at < ?", expired);
+
+            long upTo = -1;
+            Cursor c = db.rawQuery("SELECT id FROM notifications ORDER BY id DESC LIMIT 1 OFFSET ?",
+                    new String[]{String.valueOf(maxRows)});
+            if (c.moveToFirst()) upTo = c.getLong(0);
+            c.close();
+            if (upTo >= 0) {
+                String[] overflow = {String.valueOf(upTo)};
+                db.delete("notifications_fts", "docid <= ?", overflow);
+                deleted += db.delete("notifications", "id <= ?", overflow);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (deleted > 0) db.execSQL("INSERT INTO notifications_fts (notifications_fts) VALUES ('optimize')");
+        return deleted;
+    }
+
+    private static void bindNullable(SQLiteStatement st, int index, String value) {
+        if (value == null) st.bindNull(index);
+        else st.bindString(index, value);
+    }
+
     // ==================== Usage Stats ====================
 
     /**
@@ -398,6 +823,38 @@ public class KnowledgeDb extends SQLiteOpenHelper {
 
     // ==================== Helper Classes ====================
 
+    /** 一条存档的通知 */
+    public static class ArchivedNotification {
+        public final long id;
+        public final String packageName;
+        public final String channel;
+        public final String conversation;
+        public final String title;
+        public final String text;
+        public final long postedAt;
+
+        public ArchivedNotification(String packageName, String channel, String conversation,
+                                    String title, String text, long postedAt) {
+            this.id = 0;
+            this.packageName = packageName;
+            this.channel = channel;
+            this.conversation = conversation;
+            this.title = title;
+            this.text = text;
+            this.postedAt = postedAt;
+        }
+
+        ArchivedNotification(Cursor c) {
+            id = c.getLong(c.getColumnIndexOrThrow("id"));
+            packageName = c.getString(c.getColumnIndexOrThrow("package"));
+            channel = c.getString(c.getColumnIndexOrThrow("channel"));
+            conversation = c.getString(c.getColumnIndexOrThrow("conversation"));
+            title = c.getString(c.getColumnIndexOrThrow("title"));
+            text = c.getString(c.getColumnIndexOrThrow("text"));
+            postedAt = c.getLong(c.getColumnIndexOrThrow("posted_at"));
+        }
+    }
+
     public static class UsageStatItem {
         public long id;
         public String date;
@@ -0,0 +1,234 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.os.BatteryManager;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 后台批量分析链接（标题 + 摘要）
+ *
+ * 进程级单例，不随 Activity 销毁。同时最多 MAX_IN_FLIGHT 个请求，经 LinkPreviewService
+ * 排队，每个域名同时最多 2 个。结果攒够 BATCH_SIZE 条一个事务写入 KnowledgeDb，
+ * 每条链接的状态（待分析 / 成功 / 失败待重试 / 放弃）都记在库里，中断后下次启动从剩余的继续。
+ *
+ * 新采集的链接入库后立即 enqueue，列表只读库里已算好的字段。自动触发的分析只在不计流量的网络
+ * 或充电时进行，否则留在待分析状态，等下次唤醒 / 打开知识库时再补。
+ */
+public class LinkEnrichmentJob {
+    private static final String TAG = "LinkEnrichmentJob";
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+    private static final String KEY_ACTIVE = "enrich_job_active";
+    private static final int MAX_IN_FLIGHT = 6;
+    private static final int BATCH_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_BASE_MS = 3600 * 1000;   // 不短于预览服务的失败缓存时间
+
+    /** 进度回调，在主线程调用 */
+    public interface Listener {
+        void onProgress(int done, int total, int ok, int failed);
+        void onFinished(int total, int ok, int failed);
+    }
+
+    private static LinkEnrichmentJob instance;
+    private final KnowledgeDb db;
+    private final LinkPreviewService previews;
+    private final SharedPreferences prefs;
+
+    private final Context context;
+    private final ArrayDeque<ContentItem> queue = new ArrayDeque<>();
+    private final Set<Long> queuedIds = new HashSet<>();
+    private final List<KnowledgeDb.EnrichmentResult> pendingWrites = new ArrayList<>();
+    private boolean running = false;
+    private boolean loading = false;
+    private int inFlight, total, done, ok, failed;
+    private volatile Listener listener;
+
+    public static synchronized LinkEnrichmentJob getInstance(Context context) {
+        if (instance == null) {
+            instance = new LinkEnrichmentJob(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private LinkEnrichmentJob(Context context) {
+        this.context = context;
+        this.db = KnowledgeDb.getInstance(context);
+        this.previews = LinkPreviewService.getInstance(context);
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 开始分析所有待处理链接；已在运行时忽略
+     */
+    public synchronized void start() {
+        if (running) return;
+        begin();
+        loading = true;
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "loadEnrichQueue", () -> {
+            List<ContentItem> candidates = db.getEnrichmentCandidates(System.currentTimeMillis());
+            synchronized (this) {
+                loading = false;
+                for (ContentItem item : candidates) offer(item);
+                Log.i(TAG, "🔗 待分析链接 " + total + " 个");
+                pump();
+            }
+        });
+    }
+
+    /**
+     * 上次分析被打断或因网络条件推迟时继续；仅在不计流量或充电时自动进行
+     */
+    public void resumeIfInterrupted() {
+        if (prefs.getBoolean(KEY_ACTIVE, false) && !isRunning() && canRunInBackground()) {
+            Log.i(TAG, "🔄 继续未完成的链接分析");
+            start();
+        }
+    }
+
+    /**
+     * 采集入库后调用：加入分析队列，不阻塞采集；网络条件不合适时留待之后补
+     */
+    public void enqueue(long contentId) {
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "enqueueEnrich", () -> {
+            ContentItem item = db.getContentById(contentId);
+            if (item == null || !TitleFetcher.shouldFetchTitle(item.url)) return;
+            if (!canRunInBackground()) {
+                prefs.edit().putBoolean(KEY_ACTIVE, true).apply();
+                Log.d(TAG, "⏸️ 计费网络且未充电，#" + contentId + " 稍后分析");
+                return;
+            }
+            synchronized (this) {
+                if (!running) begin();
+                offer(item);
+                pump();
+            }
+        });
+    }
+
+    /** 调用方持有锁 */
+    private void begin() {
+        running = true;
+        total = done = ok = failed = 0;
+        prefs.edit().putBoolean(KEY_ACTIVE, true).apply();
+    }
+
+    /** 调用方持有锁；同一条不重复入队 */
+    private void offer(ContentItem item) {
+        if (queuedIds.add(item.id)) {
+            queue.add(item);
+            total++;
+        }
+    }
+
+    /** 不计流量的网络，或正在充电 */
+    private boolean canRunInBackground() {
+        try {
+            BatteryManager bm = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+            if (bm != null && bm.isCharging()) return true;
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (cm == null) return false;
+            NetworkCapabilities caps = cm.getNetworkCapabilities(cm.getActiveNetwork());
+            return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // ==================== 调度 ====================
+
+    /** 调用方持有锁 */
+    private void pump() {
+        while (inFlight < MAX_IN_FLIGHT && !queue.isEmpty()) {
+            ContentItem item = queue.poll();
+            inFlight++;
+            previews.request(item.url, TaskScheduler.Lane.BACKGROUND, preview -> onResult(item, preview));
+        }
+        if (inFlight == 0 && queue.isEmpty() && !loading) {
+            finish();
+        }
+    }
+
+    private synchronized void onResult(ContentItem item, LinkPreviewService.Preview preview) {
+        inFlight--;
+        queuedIds.remove(item.id);
+        done++;
+        if (!preview.isFailure()) {
+            ok++;
+            String title = preview.title != null ? preview.title : item.title;
+            pendingWrites.add(KnowledgeDb.EnrichmentResult.ok(item.id, title, preview.summary, preview.url));
+        } else {
+            failed++;
+            int attempts = item.enrichAttempts + 1;
+            if (attempts >= MAX_ATTEMPTS || isPermanent(preview.error)) {
+                pendingWrites.add(KnowledgeDb.EnrichmentResult.gaveUp(item.id, preview.error));
+            } else {
+                long backoff = RETRY_BASE_MS << (attempts - 1);
+                pendingWrites.add(KnowledgeDb.EnrichmentResult.failed(item.id, preview.error,
+                        System.currentTimeMillis() + backoff));
+            }
+        }
+        if (pendingWrites.size() >= BATCH_SIZE) flush();
+
+        Listener l = listener;
+        if (l != null) {
+            int d = done, t = total, o = ok, f = failed;
+            TaskScheduler.runOnMain(() -> l.onProgress(d, t, o, f));
+        }
+        pump();
+    }
+
+    /** 调用方持有锁 */
+    private void finish() {
+        flush();
+        running = false;
+        prefs.edit().putBoolean(KEY_ACTIVE, false).apply();
+        Log.i(TAG, "✅ 链接分析完成: 成功 " + ok + "/" + total + ", 失败 " + failed);
+        // 排在最后一批写入之后，回调时列表能读到最新结果
+        int t = total, o = ok, f = failed;
+        TaskScheduler.execute(TaskScheduler.Pool.DB_WRITE, TaskScheduler.Lane.BACKGROUND, "enrichFinished", () -> {
+            Listener l = listener;
+            if (l != null) TaskScheduler.runOnMain(() -> l.onFinished(t, o, f));
+        });
+    }
+
+    /** 调用方持有锁；交给 DB_WRITE 线程一个事务写入 */
+    private void flush() {
+        if (pendingWrites.isEmpty()) return;
+        List<KnowledgeDb.EnrichmentResult> batch = new ArrayList<>(pendingWrites);
+        pendingWrites.clear();
+        TaskScheduler.execute(TaskScheduler.Pool.DB_WRITE, TaskScheduler.Lane.BACKGROUND, "writeEnrichment", () -> {
+            try {
+                int duplicates = db.applyEnrichmentResults(batch);
+                Log.d(TAG, "💾 写入分析结果 " + batch.size() + " 条" + (duplicates > 0 ? "，重复待合并 " + duplicates : ""));
+            } catch (Exception e) {
+                Log.e(TAG, "❌ 写入分析结果失败: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /** 4xx（408 / 429 除外）与格式错误的链接不再重试 */
+    private static boolean isPermanent(String error) {
+        if (error == null) return false;
+        if (error.startsWith("HTTP 4")) {
+            return !error.equals("HTTP 408") && !error.equals("HTTP 429");
+        }
+        return error.startsWith("no protocol") || error.startsWith("unknown protocol");
+    }
+}
@@ -0,0 +1,389 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 链接预览（标题 + 摘要）服务
+ *
+ * 同一规范化 URL 的并发请求合并为一次抓取；每个域名同时最多 PER_HOST_LIMIT 个请求，
+ * 总并发受 NETWORK 线程池限制。结果先进内存 LRU，再落到 cacheDir 下每个 URL 一个小文件，
+ * 成功结果保留 TTL_MS，失败结果保留 FAILURE_TTL_MS，避免反复请求打不开的链接。
+ */
+public class LinkPreviewService {
+    private static final String TAG = "LinkPreviewService";
+    private static final String CACHE_DIR = "link_preview";
+    private static final int MEMORY_LIMIT = 256;
+    private static final int DISK_LIMIT = 2000;
+    private static final int TRIM_EVERY_WRITES = 50;
+    private static final int PER_HOST_LIMIT = 2;
+    private static final long TTL_MS = 7L * 24 * 3600 * 1000;
+    private static final long FAILURE_TTL_MS = 3600 * 1000;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** 预览结果；error 非空表示抓取失败 */
+    public static class Preview {
+        public final String url;        // 跟随短链 / 跳转后的规范化地址
+        public final String title;
+        public final String summary;
+        public final String error;
+        public final long fetchedAt;
+
+        Preview(String url, String title, String summary, String error, long fetchedAt) {
+            this.url = url;
+            this.title = title;
+            this.summary = summary;
+            this.error = error;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public boolean isFailure() {
+            return error != null;
+        }
+
+        boolean isFresh(long now) {
+            return now - fetchedAt < (isFailure() ? FAILURE_TTL_MS : TTL_MS);
+        }
+    }
+
+    /** 结果回调，在工作线程上调用 */
+    public interface Listener {
+        void onResult(Preview preview);
+    }
+
+    /** 正在排队或抓取中的一个规范化 URL */
+    private static final class InFlight {
+        final String key;
+        final String host;
+        final TaskScheduler.Lane lane;
+        final List<Listener> waiters = new ArrayList<>(2);
+
+        InFlight(String key, String host, TaskScheduler.Lane lane) {
+            this.key = key;
+            this.host = host;
+            this.lane = lane;
+        }
+    }
+
+    private static final class HostQueue {
+        int running;
+        final ArrayDeque<InFlight> pending = new ArrayDeque<>();
+    }
+
+    private static LinkPreviewService instance;
+    private final File cacheDir;
+    private final ShortLinkResolver resolver;
+    private final LinkedHashMap<String, Preview> memory = new LinkedHashMap<String, Preview>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Preview> eldest) {
+            return size() > MEMORY_LIMIT;
+        }
+    };
+    private final Map<String, InFlight> inFlight = new HashMap<>();
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final AtomicInteger writesSinceTrim = new AtomicInteger();
+
+    public static synchronized LinkPreviewService getInstance(Context context) {
+        if (instance == null) {
+            instance = new LinkPreviewService(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private LinkPreviewService(Context context) {
+        this.cacheDir = new File(context.getCacheDir(), CACHE_DIR);
+        this.resolver = ShortLinkResolver.getInstance(context);
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 请求预览；结果总是异步回调（磁盘缓存命中也在工作线程上）。
+     * 相同 URL 已在排队或抓取中时直接加入等待，不会重复请求。
+     */
+    public synchronized void request(String url, TaskScheduler.Lane lane, Listener listener) {
+        String key = normalize(url);
+        InFlight request = inFlight.get(key);
+        if (request == null) {
+            request = new InFlight(key, hostOf(key), lane);
+            inFlight.put(key, request);
+            HostQueue queue = hosts.get(request.host);
+            if (queue == null) {
+                queue = new HostQueue();
+                hosts.put(request.host, queue);
+            }
+            if (queue.running < PER_HOST_LIMIT) {
+                start(request, queue);
+            } else {
+                queue.pending.add(request);
+            }
+        }
+        request.waiters.add(listener);
+    }
+
+    // ==================== 调度 ====================
+
+    /** 调用方持有锁 */
+    private void start(InFlight request, HostQueue queue) {
+        queue.running++;
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, request.lane, "linkPreview", () -> {
+            Preview p = null;
+            try {
+                p = obtain(request.key);
+            } catch (Exception e) {
+                Log.e(TAG, "预览请求异常: " + request.key + " " + e.getMessage(), e);
+                p = failure(request.key, e);
+            } finally {
+                // 等待者总会收到结果，调用方靠回调收尾（计数、状态）
+                if (p == null) p = new Preview(request.key, null, null, "预览中断", System.currentTimeMillis());
+                finish(request, p);
+            }
+        });
+    }
+
+    private void finish(InFlight request, Preview p) {
+        List<Listener> waiters;
+        synchronized (this) {
+            inFlight.remove(request.key);
+            waiters = new ArrayList<>(request.waiters);
+            request.waiters.clear();
+            HostQueue queue = hosts.get(request.host);
+            queue.running--;
+            InFlight next = queue.pending.poll();
+            if (next != null) {
+                start(next, queue);
+            } else if (queue.running == 0) {
+                hosts.remove(request.host);
+            }
+        }
+        for (Listener l : waiters) {
+            try {
+                l.onResult(p);
+            } catch (Exception e) {
+                Log.e(TAG, "预览回调异常: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 内存 / 磁盘缓存 → 解析短链后按最终地址再查缓存 → 抓取；经过跳转的结果按原地址和最终地址各存一份，
+     * 同一篇文章从不同短链进来只抓一次
+     */
+    private Preview obtain(String key) {
+        Preview p = cached(key);
+        if (p == null) p = load(key);
+        if (p != null) return p;
+
+        String resolved = resolver.resolve(key);
+        String resolvedKey = normalize(resolved);
+        if (!resolvedKey.equals(key)) {
+            p = cached(resolvedKey);
+            if (p == null) p = load(resolvedKey);
+            if (p != null) {
+                remember(key, p);
+                return p;
+            }
+        }
+
+        p = download(resolved);
+        if (!p.isFailure() && !p.url.equals(key)) {
+            resolver.record(key, p.url);
+            remember(p.url, p);
+        }
+        remember(key, p);
+        return p;
+    }
+
+    private Preview download(String url) {
+        long now = System.currentTimeMillis();
+        try {
+            TitleFetcher.TitleAndSummary result = TitleFetcher.fetchSyncWithSummary(url);
+            Log.d(TAG, "🔗 " + url + " → " + result.title);
+            String canonical = normalize(result.finalUrl != null ? result.finalUrl : url);
+            return new Preview(canonical, result.title, result.summary, null, now);
+        } catch (Exception e) {
+            Log.w(TAG, "获取预览失败: " + url + " " + e.getMessage());
+            return failure(url, e);
+        }
+    }
+
+    private static Preview failure(String url, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return new Preview(url, null, null, error, System.currentTimeMillis());
+    }
+
+    // ==================== 缓存 ====================
+
+    /** 内存中未过期的预览，没有则返回 null */
+    private synchronized Preview cached(String key) {
+        Preview p = memory.get(key);
+        if (p == null) return null;
+        if (!p.isFresh(System.currentTimeMillis())) {
+            memory.remove(key);
+            return null;
+        }
+        return p;
+    }
+
+    private void remember(String key, Preview p) {
+        synchronized (this) {
+            memory.put(key, p);
+        }
+        store(key, p);
+    }
+
+    /** 磁盘中未过期的预览，顺带放入内存 */
+    private Preview load(String key) {
+        File file = cacheFile(key);
+        if (!file.exists()) return null;
+        try {
+            StringBuilder sb = new StringBuilder();
+            try (FileReader reader = new FileReader(file)) {
+                char[] buf = new char[1024];
+                int len;
+                while ((len = reader.read(buf)) != -1) sb.append(buf, 0, len);
+            }
+            JSONObject o = new JSONObject(sb.toString());
+            Preview p = new Preview(o.optString("canonical", key),
+                    o.isNull("title") ? null : o.optString("title", null),
+                    o.isNull("summary") ? null : o.optString("summary", null),
+                    o.isNull("error") ? null : o.optString("error", null),
+                    o.optLong("fetched_at", 0));
+            if (!p.isFresh(System.currentTimeMillis())) {
+                file.delete();
+                return null;
+            }
+            synchronized (this) {
+                memory.put(key, p);
+            }
+            return p;
+        } catch (Exception e) {
+            Log.w(TAG, "读取预览缓存失败: " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private void store(String key, Preview p) {
+        try {
+            if (!cacheDir.exists() && !cacheDir.mkdirs()) return;
+            JSONObject o = new JSONObject();
+            o.put("url", key);
+            o.put("canonical", p.url);
+            if (p.title != null) o.put("title", p.title);
+            if (p.summary != null) o.put("summary", p.summary);
+            if (p.error != null) o.put("error", p.error);
+            o.put("fetched_at", p.fetchedAt);
+            try (FileWriter writer = new FileWriter(cacheFile(key))) {
+                writer.write(o.toString());
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "写入预览缓存失败: " + e.getMessage());
+            return;
+        }
+        if (writesSinceTrim.incrementAndGet() >= TRIM_EVERY_WRITES) {
+            writesSinceTrim.set(0);
+            TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND,
+                    "trimLinkPreview", this::trimDisk);
+        }
+    }
+
+    /** 超过 DISK_LIMIT 时删掉最旧的文件 */
+    private void trimDisk() {
+        File[] files = cacheDir.listFiles();
+        if (files == null || files.length <= DISK_LIMIT) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        int excess = files.length - DISK_LIMIT;
+        for (int i = 0; i < excess; i++) files[i].delete();
+        Log.d(TAG, "🧹 清理预览缓存 " + excess + " 个");
+    }
+
+    private File cacheFile(String key) {
+        return new File(cacheDir, sha1(key) + ".json");
+    }
+
+    // ==================== URL ====================
+
+    /**
+     * 规范化 URL 作为缓存键：scheme / host 小写，去掉默认端口、fragment 和 utm_* 等跟踪参数
+     */
+    static String normalize(String url) {
+        if (url == null) return "";
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase(Locale.ROOT);
+            String host = uri.getHost();
+            if (host == null) return trimmed;
+            int port = uri.getPort();
+            if ((port == 80 && scheme.equals("http")) || (port == 443 && scheme.equals("https"))) port = -1;
+
+            StringBuilder sb = new StringBuilder(trimmed.length());
+            sb.append(scheme).append("://").append(host.toLowerCase(Locale.ROOT));
+            if (port != -1) sb.append(':').append(port);
+            String path = uri.getRawPath();
+            sb.append(path == null || path.isEmpty() ? "/" : path);
+
+            String query = uri.getRawQuery();
+            if (query != null) {
+                StringBuilder kept = new StringBuilder();
+                for (String param : query.split("&")) {
+                    if (param.isEmpty() || isTrackingParam(param)) continue;
+                    if (kept.length() > 0) kept.append('&');
+                    kept.append(param);
+                }
+                if (kept.length() > 0) sb.append('?').append(kept);
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return trimmed;
+        }
+    }
+
+    private static boolean isTrackingParam(String param) {
+        String name = param.toLowerCase(Locale.ROOT);
+        return name.startsWith("utm_") || name.startsWith("spm=") || name.startsWith("share_source=")
+                || name.startsWith("share_medium=");
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = new URI(url).getHost();
+            return host != null ? host : "";
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static String sha1(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            char[] out = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                out[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                out[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(out);
+        } catch (Exception e) {
+            return Integer.toHexString(s.hashCode());
+        }
+    }
+}
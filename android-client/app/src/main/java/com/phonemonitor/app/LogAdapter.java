@@ -0,0 +1,122 @@
+package com.phonemonitor.app;
+
+import android.graphics.Typeface;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 首页日志列表：只绑定可见的几行，最多保留 MAX_LINES 条
+ */
+public class LogAdapter extends RecyclerView.Adapter<LogAdapter.ViewHolder> {
+    private static final int MAX_LINES = 512;
+
+    private final ArrayDeque<LogBus.Entry> entries = new ArrayDeque<>();
+    private final List<LogBus.Entry> index = new ArrayList<>();   // entries 的随机访问视图
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+    private final Date date = new Date();
+    private long firstSeq = Long.MAX_VALUE;
+    private long lastSeq = Long.MIN_VALUE;
+
+    /**
+     * 追加一批日志，已显示过的序号跳过；比已显示的都旧的（上次运行的日志块）插到最前面。
+     * 返回实际新增条数
+     */
+    public int append(List<LogBus.Entry> batch) {
+        int start = entries.size();
+        List<LogBus.Entry> older = new ArrayList<>();
+        int added = 0;
+        for (LogBus.Entry e : batch) {
+            if (e.seq > lastSeq) {
+                entries.addLast(e);
+                lastSeq = e.seq;
+                firstSeq = Math.min(firstSeq, e.seq);
+                added++;
+            } else if (e.seq < firstSeq) {
+                older.add(e);
+            }
+        }
+        for (int i = older.size() - 1; i >= 0; i--) {
+            entries.addFirst(older.get(i));
+        }
+        int prepended = older.size();
+        if (prepended > 0) firstSeq = older.get(0).seq;
+        if (added == 0 && prepended == 0) return 0;
+
+        int removed = 0;
+        while (entries.size() > MAX_LINES) {
+            entries.removeFirst();
+            removed++;
+        }
+        index.clear();
+        index.addAll(entries);
+        if (removed > 0 && (prepended > 0 || removed >= start)) {
+            notifyDataSetChanged();              // 一批就超过上限或头尾同时变动，整体刷新
+        } else if (removed > 0) {
+            notifyItemRangeRemoved(0, removed);
+            notifyItemRangeInserted(start - removed, added);
+        } else {
+            if (prepended > 0) notifyItemRangeInserted(0, prepended);
+            if (added > 0) notifyItemRangeInserted(start + prepended, added);
+        }
+        return added + prepended;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        TextView tv = new TextView(parent.getContext());
+        tv.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        tv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
+        tv.setTypeface(Typeface.MONOSPACE);
+        tv.setLineSpacing(0, 1.2f);
+        int pad = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 3,
+                parent.getResources().getDisplayMetrics());
+        tv.setPadding(0, pad, 0, pad);
+        return new ViewHolder(tv);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        LogBus.Entry e = index.get(position);
+        date.setTime(e.time);
+        String prefix = "[" + timeFormat.format(date) + "] ";
+        holder.text.setText(e.tag.isEmpty() ? prefix + e.message : prefix + e.tag + " " + e.message);
+        holder.text.setTextColor(ContextCompat.getColor(holder.text.getContext(), colorOf(e.level)));
+    }
+
+    @Override
+    public int getItemCount() {
+        return index.size();
+    }
+
+    private static int colorOf(LogBus.Level level) {
+        switch (level) {
+            case DEBUG: return R.color.log_debug;
+            case WARN:  return R.color.log_warn;
+            case ERROR: return R.color.log_error;
+            default:    return R.color.log_info;
+        }
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        ViewHolder(@NonNull TextView itemView) {
+            super(itemView);
+            text = itemView;
+        }
+    }
+}
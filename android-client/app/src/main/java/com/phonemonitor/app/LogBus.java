@@ -1,46 +1,256 @@
 package com.phonemonitor.app;
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
 
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * 简单的日志事件总线：后台服务 → UI 日志显示
+ * 日志事件总线：后台服务 → UI 日志显示
+ *
+ * 最近 CAPACITY 条保存在无锁环形缓冲里，写入方只做一次原子自增和一次数组写。
+ * UI 回调按帧合并：无论一帧内来多少条，主线程最多收到一次批量回调。
+ * 可选把日志同时写入 mmap 的磁盘环（log_ring.bin），重启后仍能看到之前的日志尾部。
+ * 上次运行的日志单独成块，序号取 ≤ 0（比本次所有日志都旧），末尾带一条分隔行。
  */
 public class LogBus {
+    private static final String TAG = "LogBus";
+    private static final int CAPACITY = 512;             // 2 的幂
+    private static final int MASK = CAPACITY - 1;
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    /** 一条日志 */
+    public static final class Entry {
+        public final long seq;
+        public final long time;
+        public final Level level;
+        public final String tag;
+        public final String message;
+
+        Entry(long seq, long time, Level level, String tag, String message) {
+            this.seq = seq;
+            this.time = time;
+            this.level = level;
+            this.tag = tag;
+            this.message = message;
+        }
+    }
+
     public interface LogListener {
-        void onLog(String tag, String message);
+        /** 主线程批量回调，按序号递增 */
+        void onLogs(List<Entry> entries);
     }
 
-    private static final List<LogListener> listeners = new ArrayList<>();
+    private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong nextSeq = new AtomicLong(1);
+    private static final List<LogListener> listeners = new CopyOnWriteArrayList<>();
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final AtomicBoolean frameScheduled = new AtomicBoolean(false);
+    private static long deliveredSeq = 0;                // 仅主线程访问
+    private static boolean previousDelivered = false;    // 仅主线程访问
+    private static volatile DiskRing disk;
+    private static volatile List<Entry> previous = Collections.emptyList();
 
     public static void register(LogListener listener) {
-        synchronized (listeners) {
-            if (!listeners.contains(listener)) {
-                listeners.add(listener);
-            }
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
         }
     }
 
     public static void unregister(LogListener listener) {
-        synchronized (listeners) {
-            listeners.remove(listener);
-        }
+        listeners.remove(listener);
     }
 
     /**
-     * 发送日志（可从任意线程调用，自动切到主线程）
+     * 发送日志（可从任意线程调用）
      */
     public static void post(String tag, String message) {
-        mainHandler.post(() -> {
-            synchronized (listeners) {
-                for (LogListener l : listeners) {
-                    l.onLog(tag, message);
+        post(Level.INFO, tag, message);
+    }
+
+    public static void post(Level level, String tag, String message) {
+        long seq = nextSeq.getAndIncrement();
+        Entry e = new Entry(seq, System.currentTimeMillis(), level, tag != null ? tag : "",
+                message != null ? message : "");
+        ring.set((int) (seq & MASK), e);
+        DiskRing d = disk;
+        if (d != null) d.write(e);
+        scheduleFrame();
+    }
+
+    private static void scheduleFrame() {
+        if (!listeners.isEmpty() && frameScheduled.compareAndSet(false, true)) {
+            mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(frame -> deliver()));
+        }
+    }
+
+    /**
+     * 上次运行的日志块 + 环中现存的全部日志，按序号递增
+     */
+    public static List<Entry> snapshot() {
+        List<Entry> live = since(0);
+        List<Entry> restored = previous;
+        if (restored.isEmpty()) return live;
+        List<Entry> out = new ArrayList<>(restored.size() + live.size());
+        out.addAll(restored);
+        out.addAll(live);
+        return out;
+    }
+
+    /**
+     * 序号大于 afterSeq 的日志；被覆盖的旧条目自然跳过。
+     * 遇到已分配序号但写入方还没放进环的槽位就停下，后面的留给下一次取，不会越过漏掉
+     */
+    public static List<Entry> since(long afterSeq) {
+        long end = nextSeq.get();
+        long start = Math.max(afterSeq + 1, end - CAPACITY);
+        List<Entry> out = new ArrayList<>((int) Math.max(0, end - start));
+        for (long s = start; s < end; s++) {
+            Entry e = ring.get((int) (s & MASK));
+            if (e == null || e.seq < s) break;
+            if (e.seq == s) out.add(e);
+        }
+        return out;
+    }
+
+    private static void deliver() {
+        frameScheduled.set(false);
+        List<Entry> batch = since(deliveredSeq);
+        if (!batch.isEmpty()) deliveredSeq = batch.get(batch.size() - 1).seq;
+        // 这一批停在未发布的槽位上时，下一帧接着投递
+        if (deliveredSeq < nextSeq.get() - 1) scheduleFrame();
+        // 上次运行的日志块只投递一次，放在本批最前面（序号更小，由列表插到已有日志之前）
+        List<Entry> restored = previous;
+        if (!previousDelivered && !restored.isEmpty()) {
+            previousDelivered = true;
+            batch.addAll(0, restored);
+        }
+        if (batch.isEmpty()) return;
+        List<Entry> view = Collections.unmodifiableList(batch);
+        for (LogListener l : listeners) {
+            l.onLogs(view);
+        }
+    }
+
+    // ==================== 磁盘环 ====================
+
+    /**
+     * 打开磁盘日志环，并读出上次进程留下的日志尾部；重复调用无副作用。
+     * 会建文件、mmap，由启动阶段在首帧后调用，这时本次已有日志，
+     * 所以旧日志不进内存环，而是编成序号 ≤ 0 的单独一块，排在本次日志之前
+     */
+    public static synchronized void enablePersistence(Context context) {
+        if (disk != null) return;
+        try {
+            DiskRing d = new DiskRing(new File(context.getApplicationContext().getFilesDir(), "log_ring.bin"));
+            List<Entry> old = d.readAll();
+            if (!old.isEmpty()) {
+                List<Entry> restored = new ArrayList<>(old.size() + 1);
+                long seq = -old.size();
+                for (Entry e : old) {
+                    restored.add(new Entry(seq++, e.time, e.level, e.tag, e.message));
                 }
+                restored.add(new Entry(0, old.get(old.size() - 1).time, Level.DEBUG, "",
+                        "──── 以上为上次运行的日志 ────"));
+                previous = Collections.unmodifiableList(restored);
+            }
+            disk = d;
+            Log.i(TAG, "📂 恢复磁盘日志 " + old.size() + " 条");
+            if (!old.isEmpty()) scheduleFrame();
+        } catch (Exception e) {
+            Log.w(TAG, "磁盘日志不可用: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 定长槽位的 mmap 环：槽位 = 序号 % SLOTS；写入时先清序号、再写内容、最后写序号，读到的都是完整记录
+     */
+    private static final class DiskRing {
+        private static final int MAGIC = 0x4C4F4752;     // "LOGR"
+        private static final int HEADER = 16;
+        private static final int SLOT_SIZE = 256;
+        private static final int SLOTS = 1024;
+        // 槽位：seq(8) time(8) level(1) tagLen(1) msgLen(2) 正文
+        private static final int BODY = SLOT_SIZE - 20;
+
+        private final MappedByteBuffer buf;
+        private final AtomicLong diskSeq = new AtomicLong(1);
+
+        DiskRing(File file) throws Exception {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                long size = HEADER + (long) SLOT_SIZE * SLOTS;
+                if (raf.length() != size) raf.setLength(size);
+                buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            if (buf.getInt(0) != MAGIC) {
+                for (int i = 0; i < SLOTS; i++) buf.putLong(HEADER + i * SLOT_SIZE, 0);
+                buf.putInt(0, MAGIC);
+            }
+        }
+
+        List<Entry> readAll() {
+            List<Entry> out = new ArrayList<>();
+            long maxSeq = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                int off = HEADER + i * SLOT_SIZE;
+                long seq = buf.getLong(off);
+                if (seq <= 0) continue;
+                long time = buf.getLong(off + 8);
+                int level = buf.get(off + 16);
+                int tagLen = buf.get(off + 17) & 0xFF;
+                int msgLen = buf.getShort(off + 18) & 0xFFFF;
+                if (tagLen + msgLen > BODY || level < 0 || level >= Level.values().length) continue;
+                byte[] bytes = new byte[tagLen + msgLen];
+                for (int j = 0; j < bytes.length; j++) bytes[j] = buf.get(off + 20 + j);
+                out.add(new Entry(seq, time, Level.values()[level],
+                        new String(bytes, 0, tagLen, StandardCharsets.UTF_8),
+                        new String(bytes, tagLen, msgLen, StandardCharsets.UTF_8)));
+                maxSeq = Math.max(maxSeq, seq);
             }
-        });
+            Collections.sort(out, (a, b) -> Long.compare(a.seq, b.seq));
+            diskSeq.set(maxSeq + 1);
+            int keep = Math.min(out.size(), CAPACITY);
+            return new ArrayList<>(out.subList(out.size() - keep, out.size()));
+        }
+
+        void write(Entry e) {
+            long seq = diskSeq.getAndIncrement();
+            int off = HEADER + (int) (seq % SLOTS) * SLOT_SIZE;
+            byte[] tag = truncate(e.tag.getBytes(StandardCharsets.UTF_8), 32);
+            byte[] msg = truncate(e.message.getBytes(StandardCharsets.UTF_8), BODY - tag.length);
+            buf.putLong(off, 0);
+            buf.putLong(off + 8, e.time);
+            buf.put(off + 16, (byte) e.level.ordinal());
+            buf.put(off + 17, (byte) tag.length);
+            buf.putShort(off + 18, (short) msg.length);
+            for (int j = 0; j < tag.length; j++) buf.put(off + 20 + j, tag[j]);
+            for (int j = 0; j < msg.length; j++) buf.put(off + 20 + tag.length + j, msg[j]);
+            buf.putLong(off, seq);
+        }
+
+        /** 按字节截断，退到 UTF-8 字符边界 */
+        private static byte[] truncate(byte[] bytes, int max) {
+            if (bytes.length <= max) return bytes;
+            int end = max;
+            while (end > 0 && (bytes[end] & 0xC0) == 0x80) end--;
+            byte[] out = new byte[end];
+            System.arraycopy(bytes, 0, out, 0, end);
+            return out;
+        }
     }
 }
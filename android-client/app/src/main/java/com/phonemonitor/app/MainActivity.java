@@ -1,64 +1,65 @@
 package com.phonemonitor.app;
 
-import android.accessibilityservice.AccessibilityServiceInfo;
-import android.app.AppOpsManager;
 import android.app.usage.UsageStats;
 import android.app.usage.UsageStatsManager;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.provider.Settings;
 import android.view.View;
-import android.view.accessibility.AccessibilityManager;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.LinearLayout;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
 
 import com.google.android.material.switchmaterial.SwitchMaterial;
 
 public class MainActivity extends AppCompatActivity implements LogBus.LogListener {
     static final String PREFS_NAME = "phone_monitor_prefs";
 
-    private EditText etWebhookUrl, etExtraWebhooks, etAppId, etAppSecret, etSyncChatId;
+    private EditText etWebhookUrl, etExtraWebhooks, etAppId, etAppSecret, etSyncChatId, etNotificationRules;
+    private EditText etAppOverrides, etCategoryPackUrl;
     private Button btnSave, btnTest, btnGrant, btnSendNow, btnKnowledge, btnDashboard, btnGrowth, btnCheckUpdate;
     private SwitchMaterial btnClipboard, btnClipService, btnNotification, btnEntertainmentAlert;
-    private TextView tvStatus, tvLog, tvWebhookHeader;
+    private TextView tvStatus, tvWebhookHeader;
     private LinearLayout layoutWebhook;
-    private ScrollView scrollLog;
+    private RecyclerView rvLog;
+    private LinearLayoutManager logLayout;
+    private final LogAdapter logAdapter = new LogAdapter();
     private boolean webhookExpanded = false;
+    private boolean fullyDrawnReported = false;
+    private final TaskScheduler.Scope tasks = new TaskScheduler.Scope("MainActivity");
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        markFirstFrame();
 
         etWebhookUrl = findViewById(R.id.et_webhook_url);
         etExtraWebhooks = findViewById(R.id.et_extra_webhooks);
         etAppId = findViewById(R.id.et_app_id);
         etAppSecret = findViewById(R.id.et_app_secret);
         etSyncChatId = findViewById(R.id.et_sync_chat_id);
+        etNotificationRules = findViewById(R.id.et_notification_rules);
+        etAppOverrides = findViewById(R.id.et_app_overrides);
+        etCategoryPackUrl = findViewById(R.id.et_category_pack_url);
         btnSave = findViewById(R.id.btn_save);
         btnTest = findViewById(R.id.btn_test);
         btnGrant = findViewById(R.id.btn_grant_permission);
@@ -72,30 +73,24 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
         btnGrowth = findViewById(R.id.btn_growth);
         btnCheckUpdate = findViewById(R.id.btn_check_update);
         tvStatus = findViewById(R.id.tv_status);
-        tvLog = findViewById(R.id.tv_log);
         tvWebhookHeader = findViewById(R.id.tv_webhook_header);
         layoutWebhook = findViewById(R.id.layout_webhook);
-        scrollLog = findViewById(R.id.scroll_log);
+        rvLog = findViewById(R.id.rv_log);
+        logLayout = new LinearLayoutManager(this);
+        logLayout.setStackFromEnd(true);
+        rvLog.setLayoutManager(logLayout);
+        rvLog.setItemAnimator(null);
+        rvLog.setAdapter(logAdapter);
+        appendLogs(LogBus.snapshot());
 
         loadPrefs();
 
-        // 初始化消息队列
-        MessageQueue.getInstance(this);
-
-        // 始终调度定时任务
-        DailyAlarmReceiver.scheduleDailyReport(this);
-        DailyAlarmReceiver.scheduleStatsCollection(this);
-
-        // 调度娱乐提醒（如果启用）
-        SharedPreferences alertPrefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        if (alertPrefs.getBoolean("entertainment_alert_enabled", true)) {
-            EntertainmentAlertReceiver.scheduleNextCheck(this);
-        }
+        // 消息队列、词典、数据库、定时唤醒由 PhoneMonitorApp 注册的启动阶段在首帧后预热
 
         // 如果是首次运行或数据库为空，尝试采集最近 7 天数据
-        new Thread(() -> {
+        TaskScheduler.execute(TaskScheduler.Pool.DB_WRITE, TaskScheduler.Lane.BACKGROUND, "collectHistory", () -> {
             UsageStatsDb db = UsageStatsDb.getInstance(this);
-            if (db.getRecentSummaries(1).isEmpty() && hasUsagePermission()) {
+            if (db.getRecentSummaries(1).isEmpty() && StatusSnapshotProvider.hasUsagePermission(this)) {
                 appendLog("🔍 首次运行，正在采集历史数据...");
                 UsageStatsCollector collector = new UsageStatsCollector(this);
                 collector.collectRecentHistory(7);
@@ -104,7 +99,7 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
                     updateStatus();
                 });
             }
-        }).start();
+        });
 
         // 预填 Webhook
         SharedPreferences initPrefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
@@ -128,35 +123,40 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
                 startActivity(new Intent(Settings.ACTION_USAGE_ACCESS_SETTINGS)));
 
         btnSave.setOnClickListener(v -> {
+            String oldPackUrl = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+                    .getString(AppDictionary.KEY_PACK_URL, "");
             savePrefs();
-            DailyAlarmReceiver.scheduleDailyReport(this);
-            DailyAlarmReceiver.scheduleStatsCollection(this);
+            WakeupScheduler.reschedule(this);
             Toast.makeText(this, "✅ 已保存", Toast.LENGTH_SHORT).show();
             appendLog("💾 配置已保存");
+            for (String err : NotificationRules.compile(etNotificationRules.getText().toString()).getErrors()) {
+                appendLog("⚠️ 通知规则" + err);
+            }
+            applyDictionarySettings(oldPackUrl);
             updateStatus();
         });
 
         btnTest.setOnClickListener(v -> {
-            if (!hasUsagePermission()) {
+            if (!StatusSnapshotProvider.hasUsagePermission(this)) {
                 Toast.makeText(this, "⚠️ 请先授权", Toast.LENGTH_SHORT).show();
                 return;
             }
             appendLog("📊 采集中...");
-            new Thread(() -> {
+            tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "previewReport", () -> {
                 String result = collectAndFormat();
-                runOnUiThread(() -> appendLog(result));
-            }).start();
+                tasks.postToMain(() -> appendLog(result));
+            });
         });
 
         btnSendNow.setOnClickListener(v -> {
-            if (!hasUsagePermission()) {
+            if (!StatusSnapshotProvider.hasUsagePermission(this)) {
                 Toast.makeText(this, "⚠️ 请先授权", Toast.LENGTH_SHORT).show();
                 return;
             }
             savePrefs();
             btnSendNow.setEnabled(false);
             appendLog("📤 发送中...");
-            new Thread(() -> {
+            TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.USER_VISIBLE, "sendReport", () -> {
                 try {
                     FeishuSender sender = new FeishuSender(this);
                     String result = sender.collectAndSend();
@@ -171,11 +171,11 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
                         btnSendNow.setEnabled(true);
                     });
                 }
-            }).start();
+            });
         });
 
         btnClipboard.setOnClickListener(v -> {
-            if (isAccessibilityEnabled()) {
+            if (StatusSnapshotProvider.isAccessibilityEnabled(this)) {
                 appendLog("ℹ️ 跳转到无障碍设置");
             } else {
                 appendLog("ℹ️ 请找到「手机监控」并开启");
@@ -208,7 +208,7 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
 
         btnNotification.setOnClickListener(v -> {
             SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-            if (isNotificationListenerEnabled()) {
+            if (StatusSnapshotProvider.isNotificationListenerEnabled(this)) {
                 // 已有权限，切换开关
                 boolean current = prefs.getBoolean("notification_enabled", false);
                 prefs.edit().putBoolean("notification_enabled", !current).apply();
@@ -221,17 +221,22 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
             updateStatus();
         });
 
+        // 长按查看各条通知规则的命中次数
+        btnNotification.setOnLongClickListener(v -> {
+            appendLog(AppConfig.get(this).notificationRules.formatStats());
+            return true;
+        });
+
         btnEntertainmentAlert.setOnClickListener(v -> {
             SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
             boolean current = prefs.getBoolean("entertainment_alert_enabled", true);
             boolean newVal = !current;
             prefs.edit().putBoolean("entertainment_alert_enabled", newVal).apply();
+            WakeupScheduler.reschedule(this);
             if (newVal) {
-                EntertainmentAlertReceiver.scheduleNextCheck(this);
                 appendLog("🎮 娱乐提醒已开启 (阈值: " +
                         prefs.getInt("entertainment_alert_threshold_min", 30) + "分钟/小时)");
             } else {
-                EntertainmentAlertReceiver.cancelCheck(this);
                 appendLog("🎮 娱乐提醒已关闭");
             }
             updateStatus();
@@ -254,83 +259,84 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
             AppUpdater.checkForUpdateManual(this);
         });
 
-        // 自动检查更新（静默）
-        AppUpdater.checkForUpdate(this);
+        // 自动检查更新（静默），等启动阶段预热完再联网
+        AppStartup.runWhenReady(() -> {
+            if (!isFinishing() && !isDestroyed()) AppUpdater.checkForUpdate(this);
+        });
+    }
+
+    /**
+     * 第一帧画完后记录首帧时间（下一条主线程消息时绘制已结束）
+     */
+    private void markFirstFrame() {
+        View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decor.getViewTreeObserver().removeOnPreDrawListener(this);
+                decor.post(AppStartup::markFirstFrame);
+                return true;
+            }
+        });
     }
 
     @Override
     protected void onResume() {
         super.onResume();
         LogBus.register(this);
-        updateStatus();
+        appendLogs(LogBus.snapshot());
+        StatusSnapshotProvider status = StatusSnapshotProvider.getInstance(this);
+        status.setListener(this::renderStatus);
+        StatusSnapshotProvider.Snapshot last = status.current();
+        if (last != null) renderStatus(last);
+        status.refresh();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
         LogBus.unregister(this);
+        StatusSnapshotProvider.getInstance(this).setListener(null);
     }
 
     @Override
-    public void onLog(String tag, String message) {
-        appendLog(tag + " " + message);
-        updateStatus();
-    }
-
-    private boolean isAccessibilityEnabled() {
-        AccessibilityManager am = (AccessibilityManager) getSystemService(Context.ACCESSIBILITY_SERVICE);
-        List<AccessibilityServiceInfo> services = am.getEnabledAccessibilityServiceList(
-                AccessibilityServiceInfo.FEEDBACK_GENERIC);
-        for (AccessibilityServiceInfo info : services) {
-            if (info.getResolveInfo().serviceInfo.packageName.equals(getPackageName())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean isNotificationListenerEnabled() {
-        ComponentName cn = new ComponentName(this, NotificationMonitorService.class);
-        String flat = Settings.Secure.getString(getContentResolver(),
-                "enabled_notification_listeners");
-        return flat != null && flat.contains(cn.flattenToString());
+    protected void onDestroy() {
+        super.onDestroy();
+        tasks.cancel();
     }
 
-    private boolean hasUsagePermission() {
-        AppOpsManager appOps = (AppOpsManager) getSystemService(Context.APP_OPS_SERVICE);
-        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
-                android.os.Process.myUid(), getPackageName());
-        return mode == AppOpsManager.MODE_ALLOWED;
+    @Override
+    public void onLogs(List<LogBus.Entry> entries) {
+        appendLogs(entries);
+        updateStatus();
     }
 
+    /**
+     * 请求后台重新计算状态，结果由 renderStatus 渲染
+     */
     private void updateStatus() {
-        boolean hasPerm = hasUsagePermission();
-        boolean clipEnabled = isAccessibilityEnabled();
-        boolean notifPermission = isNotificationListenerEnabled();
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        String url = prefs.getString("webhook_url", "");
-        boolean notifEnabled = prefs.getBoolean("notification_enabled", false) && notifPermission;
+        StatusSnapshotProvider.getInstance(this).refresh();
+    }
 
+    private void renderStatus(StatusSnapshotProvider.Snapshot s) {
+        if (!fullyDrawnReported) {
+            fullyDrawnReported = true;
+            reportFullyDrawn();            // 状态区有了真实内容，供启动耗时统计
+        }
         StringBuilder sb = new StringBuilder();
 
         // 权限行
-        sb.append(hasPerm ? "✅" : "❌").append(" 使用统计  ");
-        sb.append(url.isEmpty() ? "❌" : "✅").append(" Webhook");
-        String extra = prefs.getString("extra_webhooks", "");
-        if (!extra.trim().isEmpty()) {
-            int count = extra.trim().split("[,\\n]+").length;
-            sb.append(" +").append(count);
-        }
+        sb.append(s.usagePermission ? "✅" : "❌").append(" 使用统计  ");
+        sb.append(s.webhookConfigured ? "✅" : "❌").append(" Webhook");
+        if (s.extraWebhookCount > 0) sb.append(" +").append(s.extraWebhookCount);
         sb.append("\n");
 
         // 剪贴板
-        if (clipEnabled) {
-            int clipCount = FeishuWebhook.getSendCount(this, "clipboard_send_count");
+        if (s.accessibilityEnabled) {
             sb.append("✅ 剪贴板(无障碍)");
-            if (clipCount > 0) sb.append(" · ").append(clipCount).append("条");
-            String lastClip = prefs.getString("clipboard_last_content", "");
-            if (!lastClip.isEmpty()) {
-                sb.append("\n   📝 ").append(lastClip);
+            if (s.clipboardSendCount > 0) sb.append(" · ").append(s.clipboardSendCount).append("条");
+            if (!s.lastClipboard.isEmpty()) {
+                sb.append("\n   📝 ").append(s.lastClipboard);
             }
         } else {
             sb.append("❌ 剪贴板(无障碍)未开启");
@@ -338,8 +344,7 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
         sb.append("\n");
 
         // 前台剪贴板服务
-        boolean clipSvcRunning = ClipboardForegroundService.isServiceRunning();
-        if (clipSvcRunning) {
+        if (s.clipServiceRunning) {
             sb.append("✅ 后台剪贴板服务运行中");
         } else {
             sb.append("⏹ 后台剪贴板服务未启动");
@@ -347,11 +352,10 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
         sb.append("\n");
 
         // 通知
-        if (notifEnabled) {
-            int notifCount = FeishuWebhook.getSendCount(this, "notification_send_count");
+        if (s.notificationEnabled) {
             sb.append("✅ 通知同步");
-            if (notifCount > 0) sb.append(" · ").append(notifCount).append("条");
-        } else if (notifPermission) {
+            if (s.notificationSendCount > 0) sb.append(" · ").append(s.notificationSendCount).append("条");
+        } else if (s.notificationPermission) {
             sb.append("⏸ 通知同步已暂停");
         } else {
             sb.append("❌ 通知同步未授权");
@@ -359,71 +363,49 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
         sb.append("\n");
 
         // 娱乐提醒
-        boolean entertainmentEnabled = prefs.getBoolean("entertainment_alert_enabled", true);
-        int threshold = prefs.getInt("entertainment_alert_threshold_min", 30);
-        sb.append(entertainmentEnabled ? "✅" : "⏸").append(" 娱乐提醒");
-        if (entertainmentEnabled) sb.append(" · ").append(threshold).append("分钟/小时");
+        sb.append(s.entertainmentAlertEnabled ? "✅" : "⏸").append(" 娱乐提醒");
+        if (s.entertainmentAlertEnabled) sb.append(" · ").append(s.entertainmentThresholdMin).append("分钟/小时");
         sb.append("\n");
 
         // 下次日报
-        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("Asia/Shanghai"));
-        cal.set(Calendar.HOUR_OF_DAY, 19);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        if (cal.getTimeInMillis() <= System.currentTimeMillis()) {
-            cal.add(Calendar.DAY_OF_YEAR, 1);
-        }
-        String nextTime = new SimpleDateFormat("MM-dd HH:mm", Locale.getDefault()).format(cal.getTime());
+        String nextTime = new SimpleDateFormat("MM-dd HH:mm", Locale.getDefault()).format(new Date(s.nextReportAt));
         sb.append("⏰ 日报: ").append(nextTime);
-        int reportCount = FeishuWebhook.getSendCount(this, "report_send_count");
-        if (reportCount > 0) sb.append(" · 累计").append(reportCount).append("次");
+        if (s.reportSendCount > 0) sb.append(" · 累计").append(s.reportSendCount).append("次");
         sb.append("\n");
 
         // 知识库
-        try {
-            int knowledgeCount = KnowledgeDb.getInstance(this).getContentCount();
-            sb.append("📚 知识库 · ").append(knowledgeCount).append("条");
-        } catch (Exception e) {
-            sb.append("📚 知识库");
-        }
+        sb.append("📚 知识库");
+        if (s.knowledgeCount >= 0) sb.append(" · ").append(s.knowledgeCount).append("条");
 
         tvStatus.setText(sb.toString());
-        btnGrant.setVisibility(hasPerm ? View.GONE : View.VISIBLE);
+        btnGrant.setVisibility(s.usagePermission ? View.GONE : View.VISIBLE);
 
         // 剪贴板按钮
-        btnClipboard.setChecked(clipEnabled);
-        btnClipboard.setText(clipEnabled ? "✅ 无障碍监听中" : "📋 开启无障碍监听");
+        btnClipboard.setChecked(s.accessibilityEnabled);
+        btnClipboard.setText(s.accessibilityEnabled ? "✅ 无障碍监听中" : "📋 开启无障碍监听");
 
         // 前台剪贴板服务按钮
-        boolean clipSvcRunning2 = ClipboardForegroundService.isServiceRunning();
-        btnClipService.setChecked(clipSvcRunning2);
-        btnClipService.setText(clipSvcRunning2 ? "✅ 后台剪贴板运行中" : "🔄 启动后台剪贴板服务");
+        btnClipService.setChecked(s.clipServiceRunning);
+        btnClipService.setText(s.clipServiceRunning ? "✅ 后台剪贴板运行中" : "🔄 启动后台剪贴板服务");
 
         // 通知按钮
-        btnNotification.setChecked(notifEnabled);
-        if (notifEnabled) {
+        btnNotification.setChecked(s.notificationEnabled);
+        if (s.notificationEnabled) {
             btnNotification.setText("✅ 通知同步中（点击暂停）");
-        } else if (notifPermission) {
+        } else if (s.notificationPermission) {
             btnNotification.setText("⏸ 通知同步已暂停（点击开启）");
         } else {
             btnNotification.setText("🔔 开启通知同步");
         }
 
         // 娱乐提醒按钮
-        boolean entAlertOn = prefs.getBoolean("entertainment_alert_enabled", true);
-        int entThreshold = prefs.getInt("entertainment_alert_threshold_min", 30);
-        btnEntertainmentAlert.setChecked(entAlertOn);
-        btnEntertainmentAlert.setText(entAlertOn
-                ? "🎮 娱乐提醒 (" + entThreshold + "分钟/小时)"
+        btnEntertainmentAlert.setChecked(s.entertainmentAlertEnabled);
+        btnEntertainmentAlert.setText(s.entertainmentAlertEnabled
+                ? "🎮 娱乐提醒 (" + s.entertainmentThresholdMin + "分钟/小时)"
                 : "🎮 娱乐提醒已关闭");
 
         // 知识库按钮
-        try {
-            int kCount = KnowledgeDb.getInstance(this).getContentCount();
-            btnKnowledge.setText("📚 知识库" + (kCount > 0 ? " · " + kCount + "条" : ""));
-        } catch (Exception e) {
-            btnKnowledge.setText("📚 知识库");
-        }
+        btnKnowledge.setText("📚 知识库" + (s.knowledgeCount > 0 ? " · " + s.knowledgeCount + "条" : ""));
     }
 
     private void loadPrefs() {
@@ -433,6 +415,9 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
         etAppId.setText(prefs.getString("feishu_app_id", ""));
         etAppSecret.setText(prefs.getString("feishu_app_secret", ""));
         etSyncChatId.setText(prefs.getString("feishu_sync_chat_id", ""));
+        etNotificationRules.setText(prefs.getString("notification_rules", ""));
+        etAppOverrides.setText(prefs.getString(AppDictionary.KEY_OVERRIDES, ""));
+        etCategoryPackUrl.setText(prefs.getString(AppDictionary.KEY_PACK_URL, ""));
     }
 
     private void savePrefs() {
@@ -442,20 +427,47 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
                 .putString("feishu_app_id", etAppId.getText().toString().trim())
                 .putString("feishu_app_secret", etAppSecret.getText().toString().trim())
                 .putString("feishu_sync_chat_id", etSyncChatId.getText().toString().trim())
+                .putString("notification_rules", etNotificationRules.getText().toString().trim())
+                .putString(AppDictionary.KEY_OVERRIDES, etAppOverrides.getText().toString().trim())
+                .putString(AppDictionary.KEY_PACK_URL, etCategoryPackUrl.getText().toString().trim())
                 .apply();
     }
 
+    /**
+     * 应用 App 名称覆盖；分类包地址变化时重新下载
+     * 保存设置后的生效工作不挂在界面作用域上，离开页面也会完成，只有结果日志随界面丢弃
+     */
+    private void applyDictionarySettings(String oldPackUrl) {
+        Context app = getApplicationContext();
+        String overridesText = etAppOverrides.getText().toString();
+        String packUrl = etCategoryPackUrl.getText().toString().trim();
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "applyOverrides", () -> {
+            AppDictionary.ensureLoaded(app);
+            List<String> errors = AppDictionary.applyOverrides(overridesText);
+            tasks.postToMain(() -> {
+                for (String err : errors) appendLog("⚠️ 名称覆盖" + err);
+            });
+        });
+        if (packUrl.isEmpty() || packUrl.equals(oldPackUrl)) return;
+        appendLog("📦 下载分类包...");
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.USER_VISIBLE, "downloadCategoryPack", () -> {
+            String result;
+            try {
+                result = "📦 分类包已更新: " + AppDictionary.downloadCategoryPack(app, packUrl) + " 条";
+            } catch (Exception e) {
+                result = "❌ 分类包下载失败: " + e.getMessage();
+            }
+            String msg = result;
+            tasks.postToMain(() -> appendLog(msg));
+        });
+    }
+
     private String collectAndFormat() {
         try {
             UsageStatsManager usm = (UsageStatsManager) getSystemService(Context.USAGE_STATS_SERVICE);
-            PackageManager pm = getPackageManager();
-
-            Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("Asia/Shanghai"));
-            cal.set(Calendar.HOUR_OF_DAY, 0);
-            cal.set(Calendar.MINUTE, 0);
-            cal.set(Calendar.SECOND, 0);
-            cal.set(Calendar.MILLISECOND, 0);
-            long startTime = cal.getTimeInMillis();
+            PackageMetadataCache packageMeta = PackageMetadataCache.getInstance(this);
+
+            long startTime = DayKeys.startOfDayMillis(DayKeys.today());
             long endTime = System.currentTimeMillis();
 
             Map<String, UsageStats> statsMap = usm.queryAndAggregateUsageStats(startTime, endTime);
@@ -484,13 +496,7 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
                 if (dictInfo != null) {
                     appName = dictInfo.emoji + " " + dictInfo.name;
                 } else {
-                    try {
-                        ApplicationInfo ai = pm.getApplicationInfo(pkg, 0);
-                        appName = pm.getApplicationLabel(ai).toString();
-                    } catch (PackageManager.NameNotFoundException e) {
-                        String[] parts = pkg.split("\\.");
-                        appName = parts[parts.length - 1];
-                    }
+                    appName = packageMeta.getLabelOrShortName(pkg);
                 }
 
                 sb.append(String.format("• %s: %s\n", appName, formatMs(fg)));
@@ -514,9 +520,15 @@ public class MainActivity extends AppCompatActivity implements LogBus.LogListene
     }
 
     private void appendLog(String text) {
-        String time = new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date());
-        tvLog.append("[" + time + "] " + text + "\n\n");
-        new Handler(Looper.getMainLooper()).post(() ->
-                scrollLog.fullScroll(View.FOCUS_DOWN));
+        LogBus.post("", text);
+    }
+
+    /** 追加到日志列表；原本停在底部时跟随滚动，用户往上翻看时不打断 */
+    private void appendLogs(List<LogBus.Entry> entries) {
+        int count = logAdapter.getItemCount();
+        boolean atBottom = count == 0 || logLayout.findLastVisibleItemPosition() >= count - 1;
+        if (logAdapter.append(entries) > 0 && atBottom) {
+            rvLog.scrollToPosition(logAdapter.getItemCount() - 1);
+        }
     }
 }
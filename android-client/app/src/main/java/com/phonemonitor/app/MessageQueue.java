@@ -48,12 +48,12 @@ public class MessageQueue {
      */
     public void send(String text) {
         if (networkAvailable) {
-            new Thread(() -> {
+            TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.BACKGROUND, "send", () -> {
                 boolean ok = FeishuWebhook.sendText(context, text);
                 if (!ok) {
                     enqueue(text);
                 }
-            }).start();
+            });
         } else {
             enqueue(text);
             Log.i(TAG, "📴 无网络，已入队 (队列: " + queue.size() + ")");
@@ -75,7 +75,7 @@ public class MessageQueue {
         if (draining || queue.isEmpty()) return;
         draining = true;
 
-        new Thread(() -> {
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.BACKGROUND, "drainQueue", () -> {
             Log.i(TAG, "📶 网络恢复，发送 " + queue.size() + " 条缓存消息");
             List<String> toSend;
             synchronized (this) {
@@ -97,7 +97,7 @@ public class MessageQueue {
 
             Log.i(TAG, "✅ 已发送 " + success + "/" + toSend.size());
             draining = false;
-        }).start();
+        });
     }
 
     private void registerNetworkCallback() {
@@ -0,0 +1,97 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 通知存档写入：收到的通知先攒在内存，满 BATCH_SIZE 条或 FLUSH_DELAY_MS 后一个事务写进 KnowledgeDb
+ *
+ * 每天最多做一次保留整理：删除 RETENTION_DAYS 天前的和超过 MAX_ROWS 的最旧记录。
+ * 表只追加、按 id 区间删除，写入成本不随存档变大而上升。
+ */
+public class NotificationArchive {
+    private static final String TAG = "NotificationArchive";
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+    private static final String KEY_COMPACTED_AT = "notification_archive_compacted_at";
+    private static final int BATCH_SIZE = 50;
+    private static final long FLUSH_DELAY_MS = 5000;
+    private static final long COMPACT_INTERVAL_MS = 24 * 3600 * 1000L;
+    private static final int RETENTION_DAYS = 90;
+    private static final int MAX_ROWS = 100_000;
+
+    private static NotificationArchive instance;
+    private final KnowledgeDb db;
+    private final SharedPreferences prefs;
+    private final List<KnowledgeDb.ArchivedNotification> pending = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+
+    public static synchronized NotificationArchive getInstance(Context context) {
+        if (instance == null) {
+            instance = new NotificationArchive(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NotificationArchive(Context context) {
+        this.db = KnowledgeDb.getInstance(context);
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 追加一条通知（任意线程，不阻塞）
+     */
+    public void append(String pkg, String channel, String conversation, String title, String text, long postedAt) {
+        boolean full;
+        synchronized (this) {
+            pending.add(new KnowledgeDb.ArchivedNotification(pkg, channel, conversation, title, text, postedAt));
+            full = pending.size() >= BATCH_SIZE;
+        }
+        mainHandler.removeCallbacks(flushRunnable);
+        if (full) {
+            flush();
+        } else {
+            mainHandler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
+    }
+
+    /**
+     * 把内存中的通知交给 DB_WRITE 线程写入
+     */
+    public void flush() {
+        List<KnowledgeDb.ArchivedNotification> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        TaskScheduler.execute(TaskScheduler.Pool.DB_WRITE, TaskScheduler.Lane.BACKGROUND, "archiveNotifications", () -> {
+            try {
+                db.insertNotifications(batch);
+                Log.d(TAG, "💾 存档通知 " + batch.size() + " 条");
+            } catch (Exception e) {
+                Log.e(TAG, "❌ 存档通知失败: " + e.getMessage(), e);
+            }
+            compactIfDue();
+        });
+    }
+
+    /** DB_WRITE 线程 */
+    private void compactIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - prefs.getLong(KEY_COMPACTED_AT, 0) < COMPACT_INTERVAL_MS) return;
+        prefs.edit().putLong(KEY_COMPACTED_AT, now).apply();
+        try {
+            int deleted = db.compactNotifications(now - RETENTION_DAYS * 24 * 3600 * 1000L, MAX_ROWS);
+            Log.i(TAG, "🧹 通知存档整理: 删除 " + deleted + " 条, 剩余 " + db.getNotificationCount() + " 条");
+        } catch (Exception e) {
+            Log.e(TAG, "❌ 通知存档整理失败: " + e.getMessage(), e);
+        }
+    }
+}
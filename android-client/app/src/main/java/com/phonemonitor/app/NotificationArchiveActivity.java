@@ -0,0 +1,120 @@
+package com.phonemonitor.app;
+
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.appbar.MaterialToolbar;
+import com.google.android.material.textfield.TextInputEditText;
+
+import java.util.List;
+
+/**
+ * 通知存档浏览：按时间倒序分页，支持全文搜索
+ */
+public class NotificationArchiveActivity extends AppCompatActivity {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_ROWS = 10;
+
+    private KnowledgeDb db;
+    private NotificationArchiveAdapter adapter;
+    private RecyclerView rvNotifications;
+    private TextView tvCount;
+    private TextView tvEmpty;
+
+    private String currentSearch = "";
+    private final TaskScheduler.Scope tasks = new TaskScheduler.Scope("NotificationArchiveActivity");
+    private int loadGeneration = 0;
+    private boolean loading = false;
+    private boolean reachedEnd = false;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_notification_archive);
+
+        db = KnowledgeDb.getInstance(this);
+
+        MaterialToolbar toolbar = findViewById(R.id.toolbar_notification_archive);
+        toolbar.setNavigationOnClickListener(v -> finish());
+
+        tvCount = findViewById(R.id.tv_notif_count);
+        tvEmpty = findViewById(R.id.tv_notif_empty);
+        rvNotifications = findViewById(R.id.rv_notifications);
+
+        adapter = new NotificationArchiveAdapter();
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rvNotifications.setLayoutManager(layoutManager);
+        rvNotifications.setAdapter(adapter);
+
+        // 快到底部时加载下一页
+        rvNotifications.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0 || loading || reachedEnd) return;
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_ROWS) {
+                    loadPage(false);
+                }
+            }
+        });
+
+        TextInputEditText etSearch = findViewById(R.id.et_notif_search);
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
+            @Override
+            public void afterTextChanged(Editable s) {
+                currentSearch = s.toString().trim();
+                loadPage(true);
+            }
+        });
+
+        // 先把内存里还没落盘的通知写进去
+        NotificationArchive.getInstance(this).flush();
+        loadPage(true);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        tasks.cancel();
+    }
+
+    /**
+     * @param reset true: 从最新一条重新开始（新搜索）；false: 接着当前最后一条往下翻
+     */
+    private void loadPage(boolean reset) {
+        int generation = reset ? ++loadGeneration : loadGeneration;
+        long beforeId = reset ? 0 : adapter.lastId();
+        String search = currentSearch;
+        loading = true;
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "loadNotifications", () -> {
+            List<KnowledgeDb.ArchivedNotification> items = db.queryNotifications(search, beforeId, PAGE_SIZE);
+            List<NotificationArchiveAdapter.Row> rows = NotificationArchiveAdapter.buildRows(this, items);
+            int total = reset ? db.getNotificationCount() : -1;
+
+            tasks.postToMain(() -> {
+                if (generation != loadGeneration) return;
+                loading = false;
+                reachedEnd = items.size() < PAGE_SIZE;
+                if (reset) {
+                    adapter.submitList(rows);
+                    tvCount.setText("共 " + total + " 条通知" + (search.isEmpty() ? "" : " · 搜索: " + search));
+                    boolean empty = rows.isEmpty();
+                    tvEmpty.setVisibility(empty ? View.VISIBLE : View.GONE);
+                    rvNotifications.setVisibility(empty ? View.GONE : View.VISIBLE);
+                } else {
+                    adapter.appendRows(rows);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,126 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 通知存档列表适配器，行模型同样在后台线程构建
+ */
+public class NotificationArchiveAdapter extends ListAdapter<NotificationArchiveAdapter.Row, NotificationArchiveAdapter.ViewHolder> {
+
+    // ==================== 行模型 ====================
+
+    public static final class Row {
+        public final long id;
+        final String app;
+        final String title;
+        final String text;
+        final String time;
+
+        private Row(KnowledgeDb.ArchivedNotification n, String appName, SimpleDateFormat format) {
+            this.id = n.id;
+            this.app = appName;
+            this.title = n.title != null ? n.title : "";
+            this.text = n.text != null ? n.text : "";
+            this.time = format.format(new Date(n.postedAt));
+        }
+    }
+
+    /**
+     * 在后台线程把查询结果转换成行模型（应用名在这里解析）
+     */
+    public static List<Row> buildRows(Context context, List<KnowledgeDb.ArchivedNotification> items) {
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm", Locale.getDefault());
+        PackageMetadataCache packages = PackageMetadataCache.getInstance(context);
+        List<Row> rows = new ArrayList<>(items.size());
+        for (KnowledgeDb.ArchivedNotification n : items) {
+            AppDictionary.AppInfo info = AppDictionary.lookup(n.packageName);
+            String app = info != null ? info.emoji + " " + info.name : packages.getLabelOrShortName(n.packageName);
+            rows.add(new Row(n, app, format));
+        }
+        return rows;
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a.id == b.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row a, @NonNull Row b) {
+            // 存档只追加不修改
+            return true;
+        }
+    };
+
+    // ==================== 适配器 ====================
+
+    public NotificationArchiveAdapter() {
+        super(DIFF);
+        setHasStableIds(true);
+    }
+
+    /** 当前最后一行的 id，作为下一页的游标 */
+    public long lastId() {
+        List<Row> rows = getCurrentList();
+        return rows.isEmpty() ? 0 : rows.get(rows.size() - 1).id;
+    }
+
+    /** 追加下一页 */
+    public void appendRows(List<Row> more) {
+        List<Row> rows = new ArrayList<>(getCurrentList());
+        rows.addAll(more);
+        submitList(rows);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_notification, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Row row = getItem(position);
+        holder.tvApp.setText(row.app);
+        holder.tvTime.setText(row.time);
+        holder.tvTitle.setText(row.title);
+        holder.tvTitle.setVisibility(row.title.isEmpty() ? View.GONE : View.VISIBLE);
+        holder.tvText.setText(row.text);
+        holder.tvText.setVisibility(row.text.isEmpty() ? View.GONE : View.VISIBLE);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvApp, tvTime, tvTitle, tvText;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvApp = itemView.findViewById(R.id.tv_notif_app);
+            tvTime = itemView.findViewById(R.id.tv_notif_time);
+            tvTitle = itemView.findViewById(R.id.tv_notif_title);
+            tvText = itemView.findViewById(R.id.tv_notif_text);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 通知聚合：同一应用同一会话的通知在窗口内合并成一条摘要再发送
+ *
+ * 会话键 = 包名 + 会话（shortcut id，没有时用标题）。每来一条通知滑动窗口顺延 QUIET_MS，
+ * 但从第一条起最多等 MAX_WAIT_MS；到期后发一条摘要：条数、时间段和全部内容。
+ * 一个窗口攒满 MAX_LINES 条时提前发出，后续通知另起窗口，不丢内容。
+ * 摘要每行保留完整原文，整条超过 MAX_MESSAGE_CHARS 时按行拆成几条依次发送（标注 1/n），超长的单行再按长度切开。
+ * 优先应用用短窗口，来电等即时类通知不进窗口直接发送。所有方法在主线程调用。
+ *
+ * 未发出的窗口定期写到 filesDir 下的 notification_digest.json（节流，最多滞后 SAVE_DELAY_MS），
+ * 进程被杀后下次启动时读回并立即发出。
+ */
+public class NotificationDigester {
+    private static final String TAG = "NotifDigester";
+    private static final String COUNT_KEY = "notification_send_count";
+
+    private static final long QUIET_MS = 60 * 1000;
+    private static final long MAX_WAIT_MS = 5 * 60 * 1000;
+    private static final long PRIORITY_QUIET_MS = 5 * 1000;
+    private static final long PRIORITY_MAX_WAIT_MS = 30 * 1000;
+    private static final int MAX_LINES = 50;
+    private static final int MAX_MESSAGE_CHARS = 4000;
+    private static final int MAX_SINGLE_CHARS = 500;
+    private static final String PENDING_FILE = "notification_digest.json";
+    private static final long SAVE_DELAY_MS = 1000;
+
+    /** 一个会话窗口内攒下的通知 */
+    private static final class Bucket {
+        final String appName;
+        final String title;
+        final boolean priority;
+        final long firstAt;             // uptime
+        final long firstWallTime;
+        long deadline;                  // uptime
+        long lastWallTime;
+        int count = 0;
+        final ArrayDeque<String[]> lines = new ArrayDeque<>();   // {时间, 内容}
+
+        Bucket(String appName, String title, boolean priority, long now, long wallTime) {
+            this.appName = appName;
+            this.title = title;
+            this.priority = priority;
+            this.firstAt = now;
+            this.firstWallTime = wallTime;
+        }
+    }
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>();
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+    private final SimpleDateFormat shortTimeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
+    private final Runnable tick = this::flushDue;
+    private final Runnable save = this::persist;
+    private long scheduledAt = Long.MAX_VALUE;
+    private int received = 0, sent = 0;
+    private boolean restored = false;
+    private boolean saveScheduled = false;
+    private volatile String pendingJson;
+
+    public NotificationDigester(Context context) {
+        this.context = context.getApplicationContext();
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "restoreDigest", () -> {
+            List<Bucket> previous = readPending();
+            handler.post(() -> {
+                for (Bucket b : previous) emit(b);
+                if (!previous.isEmpty()) Log.i(TAG, "📂 补发上次未发出的通知窗口 " + previous.size() + " 个");
+                restored = true;
+                persist();
+            });
+        });
+    }
+
+    /**
+     * 收下一条通知
+     * @param conversation 会话标识，同键的通知合并
+     * @param immediate    即时类通知（来电等），不等待直接发送
+     */
+    public void offer(String pkg, String appName, String conversation, String title, String content,
+                      boolean priority, boolean immediate) {
+        received++;
+        long now = SystemClock.uptimeMillis();
+        long wall = System.currentTimeMillis();
+
+        String key = pkg + "|" + conversation;
+        Bucket b = buckets.get(key);
+        if (b == null) {
+            b = new Bucket(appName, title, priority, now, wall);
+            buckets.put(key, b);
+        }
+        b.count++;
+        b.lastWallTime = wall;
+        b.lines.addLast(new String[]{timeFormat.format(new Date(wall)), content});
+
+        // 即时类或已攒满：提前发出，后续同会话的通知另起窗口
+        if (immediate || b.lines.size() >= MAX_LINES) {
+            buckets.remove(key);
+            emit(b);
+            scheduleSave();
+            return;
+        }
+        long quiet = priority ? PRIORITY_QUIET_MS : QUIET_MS;
+        long maxWait = priority ? PRIORITY_MAX_WAIT_MS : MAX_WAIT_MS;
+        b.deadline = Math.min(now + quiet, b.firstAt + maxWait);
+        schedule(b.deadline);
+        scheduleSave();
+    }
+
+    /**
+     * 立即发出所有未到期的窗口（服务断开时调用，不丢内容）
+     */
+    public void flushAll() {
+        handler.removeCallbacks(tick);
+        scheduledAt = Long.MAX_VALUE;
+        List<Bucket> all = new ArrayList<>(buckets.values());
+        buckets.clear();
+        for (Bucket b : all) emit(b);
+        if (restored) persist();
+    }
+
+    private void schedule(long at) {
+        if (at >= scheduledAt) return;
+        handler.removeCallbacks(tick);
+        scheduledAt = at;
+        handler.postAtTime(tick, at);
+    }
+
+    private void flushDue() {
+        scheduledAt = Long.MAX_VALUE;
+        long now = SystemClock.uptimeMillis();
+        long next = Long.MAX_VALUE;
+        List<Bucket> due = new ArrayList<>();
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket b = it.next();
+            if (b.deadline <= now) {
+                due.add(b);
+                it.remove();
+            } else {
+                next = Math.min(next, b.deadline);
+            }
+        }
+        for (Bucket b : due) emit(b);
+        if (next != Long.MAX_VALUE) schedule(next);
+        if (!due.isEmpty()) scheduleSave();
+    }
+
+    // ==================== 发送 ====================
+
+    private void emit(Bucket b) {
+        List<String> parts = b.count == 1 ? Collections.singletonList(formatSingle(b)) : formatDigest(b);
+        sent++;
+        if (b.count > 1) {
+            Log.i(TAG, "📦 " + b.appName + " · " + b.title + " 合并 " + b.count + " 条 (累计 " + received + " → " + sent + ")");
+        }
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.BACKGROUND, "forwardNotification", () -> {
+            for (String text : parts) {
+                MessageQueue.getInstance(context).send(text);
+                FeishuWebhook.incrementSendCount(context, COUNT_KEY);
+            }
+        });
+    }
+
+    private StringBuilder header(Bucket b) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("🔔 通知同步\n");
+        sb.append("⏰ ").append(timeFormat.format(new Date(b.lastWallTime)))
+                .append(" · ").append(DeviceNames.get()).append("\n");
+        sb.append("━━━━━━━━━━━━━━━━━━\n\n");
+        sb.append("📱 ").append(b.appName);
+        if (b.priority) sb.append(" ⭐");
+        sb.append("\n");
+        return sb;
+    }
+
+    /** 窗口内只有一条：与逐条转发时格式相同 */
+    private String formatSingle(Bucket b) {
+        StringBuilder sb = header(b);
+        if (!b.title.isEmpty()) {
+            sb.append("📌 ").append(b.title).append("\n");
+        }
+        String content = b.lines.getLast()[1];
+        if (content.length() > MAX_SINGLE_CHARS) {
+            content = content.substring(0, MAX_SINGLE_CHARS) + "...";
+        }
+        sb.append(content);
+        return sb.toString();
+    }
+
+    /**
+     * 多条：标题行 + 每条一行完整原文；超过 MAX_MESSAGE_CHARS 时按行拆成几条，每条都带标题行
+     */
+    private List<String> formatDigest(Bucket b) {
+        StringBuilder head = header(b);
+        head.append("📌 ");
+        if (!b.title.isEmpty()) head.append(b.title).append(" · ");
+        head.append(b.count).append(" 条 (")
+                .append(shortTimeFormat.format(new Date(b.firstWallTime))).append("–")
+                .append(shortTimeFormat.format(new Date(b.lastWallTime))).append(")");
+        // 留出 " (i/n)" 的位置
+        int budget = Math.max(MAX_MESSAGE_CHARS - head.length() - 16, 200);
+
+        List<StringBuilder> bodies = new ArrayList<>();
+        StringBuilder body = new StringBuilder();
+        for (String[] line : b.lines) {
+            String text = "\n[" + line[0] + "] " + line[1];
+            // 单行本身超长：切成几段，各占一条
+            for (int start = 0, end; start < text.length(); start = end) {
+                end = Math.min(text.length(), start + budget);
+                if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) end--;
+                String piece = text.substring(start, end);
+                if (body.length() > 0 && body.length() + piece.length() > budget) {
+                    bodies.add(body);
+                    body = new StringBuilder();
+                }
+                body.append(piece);
+            }
+        }
+        if (body.length() > 0) bodies.add(body);
+
+        List<String> parts = new ArrayList<>(bodies.size());
+        for (int i = 0; i < bodies.size(); i++) {
+            StringBuilder sb = new StringBuilder(head);
+            if (bodies.size() > 1) sb.append(" (").append(i + 1).append("/").append(bodies.size()).append(")");
+            sb.append("\n").append(bodies.get(i));
+            parts.add(sb.toString());
+        }
+        return parts;
+    }
+
+    // ==================== 持久化 ====================
+
+    /** 节流而不是防抖：持续来通知时也每 SAVE_DELAY_MS 落一次盘 */
+    private void scheduleSave() {
+        if (!restored || saveScheduled) return;
+        saveScheduled = true;
+        handler.postDelayed(save, SAVE_DELAY_MS);
+    }
+
+    /** 主线程把当前窗口序列化，IO 线程写最新的一份 */
+    private void persist() {
+        handler.removeCallbacks(save);
+        saveScheduled = false;
+        try {
+            JSONArray arr = new JSONArray();
+            for (Bucket b : buckets.values()) {
+                JSONArray lines = new JSONArray();
+                for (String[] line : b.lines) lines.put(new JSONArray().put(line[0]).put(line[1]));
+                arr.put(new JSONObject()
+                        .put("app", b.appName)
+                        .put("title", b.title)
+                        .put("priority", b.priority)
+                        .put("first", b.firstWallTime)
+                        .put("last", b.lastWallTime)
+                        .put("count", b.count)
+                        .put("lines", lines));
+            }
+            pendingJson = arr.length() == 0 ? "" : arr.toString();
+        } catch (Exception e) {
+            Log.w(TAG, "序列化通知窗口失败: " + e.getMessage());
+            return;
+        }
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "saveDigest", this::writePending);
+    }
+
+    private synchronized void writePending() {
+        String json = pendingJson;
+        if (json == null) return;
+        pendingJson = null;
+        File file = new File(context.getFilesDir(), PENDING_FILE);
+        if (json.isEmpty()) {
+            file.delete();
+            return;
+        }
+        File tmp = new File(context.getFilesDir(), PENDING_FILE + ".tmp");
+        try {
+            try (FileWriter writer = new FileWriter(tmp)) {
+                writer.write(json);
+            }
+            if (!tmp.renameTo(file)) Log.w(TAG, "保存通知窗口失败: rename");
+        } catch (Exception e) {
+            Log.w(TAG, "保存通知窗口失败: " + e.getMessage());
+        }
+    }
+
+    private List<Bucket> readPending() {
+        List<Bucket> out = new ArrayList<>();
+        File file = new File(context.getFilesDir(), PENDING_FILE);
+        if (!file.exists()) return out;
+        try {
+            StringBuilder sb = new StringBuilder();
+            try (FileReader reader = new FileReader(file)) {
+                char[] buf = new char[4096];
+                int len;
+                while ((len = reader.read(buf)) != -1) sb.append(buf, 0, len);
+            }
+            JSONArray arr = new JSONArray(sb.toString());
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject o = arr.getJSONObject(i);
+                Bucket b = new Bucket(o.getString("app"), o.getString("title"), o.getBoolean("priority"),
+                        0, o.getLong("first"));
+                b.lastWallTime = o.getLong("last");
+                b.count = o.getInt("count");
+                JSONArray lines = o.getJSONArray("lines");
+                for (int j = 0; j < lines.length(); j++) {
+                    JSONArray line = lines.getJSONArray(j);
+                    b.lines.addLast(new String[]{line.getString(0), line.getString(1)});
+                }
+                if (!b.lines.isEmpty()) out.add(b);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "读取未发出的通知窗口失败: " + e.getMessage());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,399 @@
+package com.phonemonitor.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 通知过滤规则（编译后的匹配器）
+ *
+ * 每行一条规则，# 开头为注释：
+ *   动作 条件 [@HH:mm-HH:mm]
+ * 动作：allow / deny / priority；条件：
+ *   pkg:包名        channel:渠道ID      kw:关键词（标题或正文包含，不区分大小写）      re:正则（标题或正文）
+ * 例：deny kw:验证码 / priority pkg:com.tencent.mm @09:00-18:00 / allow re:^\[\d+条\]
+ *
+ * 按行序取第一条命中的规则；用户规则之后追加内置规则（系统通知忽略、常用通讯应用优先）。
+ * 包名和渠道走哈希表，关键词合成一个 Aho-Corasick 自动机一遍扫完，正则只在前面都没有更靠前的命中时才跑。
+ * 命中计数按规则文本累计，重新编译后延续。
+ */
+public final class NotificationRules {
+
+    public enum Action { ALLOW, DENY, PRIORITY }
+
+    private static final String[] BUILTIN = {
+            "deny pkg:com.android.systemui",
+            "deny pkg:com.android.providers.downloads",
+            "deny pkg:android",
+            "deny pkg:com.android.vending",
+            "deny pkg:com.google.android.gms",
+            "deny pkg:com.google.android.gsf",
+            "deny pkg:com.android.settings",
+            "deny pkg:com.phonemonitor.app",
+            "priority pkg:com.tencent.mm",
+            "priority pkg:com.tencent.mobileqq",
+            "priority pkg:org.telegram.messenger",
+            "priority pkg:com.whatsapp",
+            "priority pkg:com.ss.android.lark",
+            "priority pkg:com.alibaba.android.rimet",
+            "priority pkg:com.tencent.wework",
+            "priority pkg:com.google.android.gm",
+            "priority pkg:com.android.phone",
+            "priority pkg:com.android.mms",
+            "priority pkg:com.google.android.apps.messaging",
+    };
+
+    private static final Pattern LINE = Pattern.compile(
+            "^(allow|deny|priority)\\s+(pkg|channel|kw|re):(.+?)(?:\\s+@(\\d{1,2}):(\\d{2})-(\\d{1,2}):(\\d{2}))?$",
+            Pattern.CASE_INSENSITIVE);
+
+    /** 命中计数：规则文本 → 次数，跨重新编译保留 */
+    private static final Map<String, AtomicLong> HITS = new ConcurrentHashMap<>();
+    private static final AtomicLong NO_MATCH = new AtomicLong();
+
+    /** 一条已编译的规则 */
+    public static final class Rule {
+        public final int index;
+        public final Action action;
+        public final String source;
+        public final boolean builtin;
+        final int startMin, endMin;       // -1 表示全天
+        final Pattern regex;
+        final AtomicLong hits;
+
+        Rule(int index, Action action, String source, boolean builtin, int startMin, int endMin, Pattern regex) {
+            this.index = index;
+            this.action = action;
+            this.source = source;
+            this.builtin = builtin;
+            this.startMin = startMin;
+            this.endMin = endMin;
+            this.regex = regex;
+            this.hits = HITS.computeIfAbsent(source, k -> new AtomicLong());
+        }
+
+        boolean activeAt(int minute) {
+            if (startMin < 0) return true;
+            return startMin <= endMin
+                    ? minute >= startMin && minute < endMin
+                    : minute >= startMin || minute < endMin;     // 跨午夜
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, int[]> byPackage = new HashMap<>();
+    private final Map<String, int[]> byChannel = new HashMap<>();
+    private final List<Rule> regexRules = new ArrayList<>();
+    private final KeywordAutomaton keywords;
+    private final int firstKeywordRule;
+    private final boolean hasWindows;
+    private final List<String> errors;
+
+    private NotificationRules(String text) {
+        List<String> errs = new ArrayList<>();
+        Map<String, List<Integer>> pkg = new HashMap<>();
+        Map<String, List<Integer>> channel = new HashMap<>();
+        List<String> kwWords = new ArrayList<>();
+        List<Integer> kwRules = new ArrayList<>();
+        boolean windows = false;
+
+        List<String> lines = new ArrayList<>();
+        if (text != null) lines.addAll(Arrays.asList(text.split("\\n")));
+        int userCount = lines.size();
+        lines.addAll(Arrays.asList(BUILTIN));
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            Matcher m = LINE.matcher(line);
+            if (!m.matches()) {
+                errs.add("第 " + (i + 1) + " 行无法解析: " + line);
+                continue;
+            }
+            Action action = Action.valueOf(m.group(1).toUpperCase(Locale.ROOT));
+            String kind = m.group(2).toLowerCase(Locale.ROOT);
+            String value = m.group(3).trim();
+            int start = -1, end = -1;
+            if (m.group(4) != null) {
+                start = minuteOf(m.group(4), m.group(5));
+                end = minuteOf(m.group(6), m.group(7));
+                if (start < 0 || end < 0) {
+                    errs.add("第 " + (i + 1) + " 行时间段错误（小时 0-23，分钟 0-59）: " + line);
+                    continue;
+                }
+                windows = true;
+            }
+            Pattern regex = null;
+            if (kind.equals("re")) {
+                try {
+                    regex = Pattern.compile(value);
+                } catch (PatternSyntaxException e) {
+                    errs.add("第 " + (i + 1) + " 行正则错误: " + e.getDescription());
+                    continue;
+                }
+            }
+            int index = rules.size();
+            Rule rule = new Rule(index, action, line, i >= userCount, start, end, regex);
+            rules.add(rule);
+            switch (kind) {
+                case "pkg":     pkg.computeIfAbsent(value, k -> new ArrayList<>()).add(index); break;
+                case "channel": channel.computeIfAbsent(value, k -> new ArrayList<>()).add(index); break;
+                case "kw":      kwWords.add(value.toLowerCase(Locale.ROOT)); kwRules.add(index); break;
+                default:        regexRules.add(rule); break;
+            }
+        }
+        for (Map.Entry<String, List<Integer>> e : pkg.entrySet()) byPackage.put(e.getKey(), toArray(e.getValue()));
+        for (Map.Entry<String, List<Integer>> e : channel.entrySet()) byChannel.put(e.getKey(), toArray(e.getValue()));
+        keywords = kwWords.isEmpty() ? null : new KeywordAutomaton(kwWords, toArray(kwRules));
+        firstKeywordRule = kwRules.isEmpty() ? Integer.MAX_VALUE : kwRules.get(0);
+        hasWindows = windows;
+        errors = Collections.unmodifiableList(errs);
+    }
+
+    /** HH:MM → 当天第几分钟，越界返回 -1 */
+    private static int minuteOf(String hour, String minute) {
+        int h = Integer.parseInt(hour), m = Integer.parseInt(minute);
+        return h <= 23 && m <= 59 ? h * 60 + m : -1;
+    }
+
+    /**
+     * 编译规则文本；无法解析的行跳过并记入 getErrors()
+     */
+    public static NotificationRules compile(String text) {
+        return new NotificationRules(text);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    // ==================== 匹配 ====================
+
+    /**
+     * 第一条命中的规则，没有命中返回 null；命中计数在这里累加
+     */
+    public Rule match(String pkg, String channelId, String title, String text) {
+        int minute = hasWindows ? minuteOfDay() : 0;
+        int best = Integer.MAX_VALUE;
+
+        best = firstActive(byPackage.get(pkg), minute, best);
+        if (channelId != null) best = firstActive(byChannel.get(channelId), minute, best);
+
+        if (keywords != null && firstKeywordRule < best) {
+            best = keywords.firstMatch(title, minute, best);
+            best = keywords.firstMatch(text, minute, best);
+        }
+        for (Rule r : regexRules) {
+            if (r.index >= best) break;
+            if (!r.activeAt(minute)) continue;
+            if ((title != null && r.regex.matcher(title).find())
+                    || (text != null && r.regex.matcher(text).find())) {
+                best = r.index;
+                break;
+            }
+        }
+
+        if (best == Integer.MAX_VALUE) {
+            NO_MATCH.incrementAndGet();
+            return null;
+        }
+        Rule rule = rules.get(best);
+        rule.hits.incrementAndGet();
+        return rule;
+    }
+
+    private int firstActive(int[] candidates, int minute, int best) {
+        if (candidates == null) return best;
+        for (int idx : candidates) {
+            if (idx >= best) break;
+            if (rules.get(idx).activeAt(minute)) return idx;
+        }
+        return best;
+    }
+
+    private static int minuteOfDay() {
+        long now = System.currentTimeMillis();
+        long local = now + TimeZone.getDefault().getOffset(now);
+        return (int) ((local / 60000) % 1440);
+    }
+
+    // ==================== 统计 ====================
+
+    /**
+     * 各规则命中次数，按次数降序；未命中任何规则的单独一行
+     */
+    public String formatStats() {
+        List<Rule> sorted = new ArrayList<>(rules);
+        Collections.sort(sorted, (a, b) -> Long.compare(b.hits.get(), a.hits.get()));
+        StringBuilder sb = new StringBuilder("📊 通知规则命中:");
+        for (Rule r : sorted) {
+            long n = r.hits.get();
+            if (n == 0 && r.builtin) continue;
+            sb.append("\n   ").append(n).append(" · ").append(r.source);
+            if (r.builtin) sb.append(" (内置)");
+        }
+        sb.append("\n   ").append(NO_MATCH.get()).append(" · 未命中规则");
+        return sb.toString();
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] out = new int[list.size()];
+        for (int i = 0; i < out.length; i++) out[i] = list.get(i);
+        return out;
+    }
+
+    // ==================== Aho-Corasick ====================
+
+    /**
+     * 多关键词自动机：一遍扫描文本，找出所有出现的关键词对应的规则
+     */
+    private final class KeywordAutomaton {
+        private final Map<Long, Integer> edges = new HashMap<>();    // 构建用：(节点 << 16 | 字符) → 子节点
+        private final List<Integer> fail = new ArrayList<>();
+        private final List<int[]> outputs = new ArrayList<>();       // 节点 → 规则序号（含 fail 链上的），升序
+        // 扫描用的紧凑表示：每个节点的出边字符有序数组 + 对应子节点，二分查找，不装箱
+        private char[][] nodeChars;
+        private int[][] nodeNext;
+        private int[] failArr;
+        private int[][] outArr;
+
+        KeywordAutomaton(List<String> words, int[] ruleIndexes) {
+            newNode();
+            for (int w = 0; w < words.size(); w++) {
+                String word = words.get(w);
+                int node = 0;
+                for (int i = 0; i < word.length(); i++) {
+                    long key = edgeKey(node, word.charAt(i));
+                    Integer next = edges.get(key);
+                    if (next == null) {
+                        next = newNode();
+                        edges.put(key, next);
+                    }
+                    node = next;
+                }
+                outputs.set(node, merge(outputs.get(node), new int[]{ruleIndexes[w]}));
+            }
+            buildFailLinks();
+            compact();
+        }
+
+        private void compact() {
+            int n = fail.size();
+            nodeChars = new char[n][];
+            nodeNext = new int[n][];
+            failArr = new int[n];
+            outArr = outputs.toArray(new int[0][]);
+            Map<Integer, List<long[]>> byNode = new HashMap<>();
+            for (Map.Entry<Long, Integer> e : edges.entrySet()) {
+                byNode.computeIfAbsent((int) (e.getKey() >>> 16), k -> new ArrayList<>())
+                        .add(new long[]{e.getKey() & 0xFFFF, e.getValue()});
+            }
+            for (int i = 0; i < n; i++) {
+                failArr[i] = fail.get(i);
+                List<long[]> out = byNode.getOrDefault(i, Collections.emptyList());
+                Collections.sort(out, (a, b) -> Long.compare(a[0], b[0]));
+                nodeChars[i] = new char[out.size()];
+                nodeNext[i] = new int[out.size()];
+                for (int j = 0; j < out.size(); j++) {
+                    nodeChars[i][j] = (char) out.get(j)[0];
+                    nodeNext[i][j] = (int) out.get(j)[1];
+                }
+            }
+            edges.clear();
+        }
+
+        private int step(int node, char c) {
+            int j = Arrays.binarySearch(nodeChars[node], c);
+            return j >= 0 ? nodeNext[node][j] : -1;
+        }
+
+        private int newNode() {
+            fail.add(0);
+            outputs.add(new int[0]);
+            return fail.size() - 1;
+        }
+
+        private void buildFailLinks() {
+            // 按层 BFS；子节点的 fail = 父节点 fail 链上第一个有同字符边的节点
+            Map<Integer, List<long[]>> children = new HashMap<>();
+            for (Map.Entry<Long, Integer> e : edges.entrySet()) {
+                int parent = (int) (e.getKey() >>> 16);
+                char c = (char) (e.getKey() & 0xFFFF);
+                children.computeIfAbsent(parent, k -> new ArrayList<>()).add(new long[]{c, e.getValue()});
+            }
+            List<Integer> queue = new ArrayList<>();
+            queue.add(0);
+            for (int qi = 0; qi < queue.size(); qi++) {
+                int node = queue.get(qi);
+                List<long[]> kids = children.get(node);
+                if (kids == null) continue;
+                for (long[] kid : kids) {
+                    char c = (char) kid[0];
+                    int child = (int) kid[1];
+                    int f = 0;
+                    if (node != 0) {
+                        int n = fail.get(node);
+                        while (true) {
+                            Integer t = edges.get(edgeKey(n, c));
+                            if (t != null) { f = t; break; }
+                            if (n == 0) break;
+                            n = fail.get(n);
+                        }
+                    }
+                    fail.set(child, f);
+                    outputs.set(child, merge(outputs.get(child), outputs.get(f)));
+                    queue.add(child);
+                }
+            }
+        }
+
+        /**
+         * 文本中命中的、在 minute 时生效的、序号小于 best 的最小规则序号
+         */
+        int firstMatch(String text, int minute, int best) {
+            if (text == null || text.isEmpty()) return best;
+            int node = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = Character.toLowerCase(text.charAt(i));
+                while (true) {
+                    int next = step(node, c);
+                    if (next >= 0) { node = next; break; }
+                    if (node == 0) break;
+                    node = failArr[node];
+                }
+                for (int idx : outArr[node]) {
+                    if (idx >= best) break;
+                    if (rules.get(idx).activeAt(minute)) {
+                        best = idx;
+                        break;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private long edgeKey(int node, char c) {
+            return ((long) node << 16) | c;
+        }
+
+        private int[] merge(int[] a, int[] b) {
+            if (b.length == 0) return a;
+            if (a.length == 0) return b;
+            int[] out = new int[a.length + b.length];
+            System.arraycopy(a, 0, out, 0, a.length);
+            System.arraycopy(b, 0, out, a.length, b.length);
+            Arrays.sort(out);
+            return out;
+        }
+    }
+}
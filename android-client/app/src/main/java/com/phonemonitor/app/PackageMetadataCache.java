@@ -0,0 +1,293 @@
+package com.phonemonitor.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 包信息缓存：应用名、系统应用标记、安装来源
+ *
+ * 避免每次都走 PackageManager 的 binder 调用。内存 + 磁盘两级，首次查询时才向系统取；
+ * 应用安装 / 卸载 / 更新时按广播失效，进程不在期间的变更在启动时用 getChangedPackages 补齐。
+ * 构造时读磁盘、注册广播，由启动阶段在后台预热。
+ */
+public class PackageMetadataCache {
+    private static final String TAG = "PackageMetaCache";
+    private static final String CACHE_FILE = "package_meta.json";
+    private static final long SAVE_DELAY_MS = 5000;
+
+    /** 单个包的元数据；installed=false 表示查询时未安装 */
+    public static class PackageMeta {
+        public final boolean installed;
+        public final String label;
+        public final boolean system;
+        public final boolean updatedSystem;
+        public final String installer;
+
+        PackageMeta(boolean installed, String label, boolean system, boolean updatedSystem, String installer) {
+            this.installed = installed;
+            this.label = label;
+            this.system = system;
+            this.updatedSystem = updatedSystem;
+            this.installer = installer;
+        }
+    }
+
+    private static final PackageMeta NOT_INSTALLED = new PackageMeta(false, null, false, false, null);
+
+    private static PackageMetadataCache instance;
+    private final Context context;
+    private final PackageManager pm;
+    private final ConcurrentHashMap<String, PackageMeta> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable saveRunnable = () -> TaskScheduler.execute(
+            TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "savePackageMeta", this::save);
+    /** 每次失效加一；查询期间有失效时丢弃查询结果，避免旧结果覆盖失效 */
+    private final AtomicLong generation = new AtomicLong();
+    private volatile int sequenceNumber = 0;
+    private int bootCount = -1;
+
+    public static synchronized PackageMetadataCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new PackageMetadataCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private PackageMetadataCache(Context context) {
+        this.context = context;
+        this.pm = context.getPackageManager();
+        load();
+        registerPackageReceiver();
+    }
+
+    // ==================== 查询 ====================
+
+    public PackageMeta get(String packageName) {
+        PackageMeta meta = entries.get(packageName);
+        if (meta != null) {
+            hits.incrementAndGet();
+            return meta;
+        }
+        misses.incrementAndGet();
+        long gen = generation.get();
+        meta = query(packageName);
+        entries.put(packageName, meta);
+        // 失效先加代数再删条目：put 之后代数未变，说明这次查询之后没有失效
+        if (generation.get() != gen) {
+            entries.remove(packageName, meta);
+        } else {
+            scheduleSave();
+        }
+        return meta;
+    }
+
+    /**
+     * 系统中的应用名，未安装时返回 null
+     */
+    public String getLabel(String packageName) {
+        PackageMeta meta = get(packageName);
+        return meta.installed ? meta.label : null;
+    }
+
+    /**
+     * 应用名，未安装时取包名最后一段
+     */
+    public String getLabelOrShortName(String packageName) {
+        String label = getLabel(packageName);
+        if (label != null) return label;
+        String[] parts = packageName.split("\\.");
+        return parts[parts.length - 1];
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** 命中率 0..1，尚无查询时为 0 */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void invalidate(String packageName) {
+        generation.incrementAndGet();
+        if (entries.remove(packageName) != null) {
+            Log.d(TAG, "包信息失效: " + packageName);
+            scheduleSave();
+        }
+    }
+
+    private PackageMeta query(String packageName) {
+        try {
+            ApplicationInfo info = pm.getApplicationInfo(packageName, 0);
+            String installer = null;
+            try {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                    installer = pm.getInstallSourceInfo(packageName).getInstallingPackageName();
+                } else {
+                    installer = pm.getInstallerPackageName(packageName);
+                }
+            } catch (Exception ignored) {}
+            return new PackageMeta(true,
+                    pm.getApplicationLabel(info).toString(),
+                    (info.flags & ApplicationInfo.FLAG_SYSTEM) != 0,
+                    (info.flags & ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) != 0,
+                    installer);
+        } catch (PackageManager.NameNotFoundException e) {
+            return NOT_INSTALLED;
+        }
+    }
+
+    // ==================== 失效 ====================
+
+    private void registerPackageReceiver() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context ctx, Intent intent) {
+                Uri data = intent.getData();
+                if (data != null) invalidate(data.getSchemeSpecificPart());
+            }
+        }, filter);
+    }
+
+    /**
+     * 进程未运行期间安装/更新/卸载的包，按系统变更序号补做失效
+     */
+    private void applyChangedPackages() {
+        try {
+            ChangedPackages changed = pm.getChangedPackages(sequenceNumber);
+            if (changed == null) return;
+            generation.incrementAndGet();
+            for (String pkg : changed.getPackageNames()) {
+                entries.remove(pkg);
+            }
+            sequenceNumber = changed.getSequenceNumber();
+            Log.i(TAG, "🔄 启动时失效 " + changed.getPackageNames().size() + " 个已变更的包");
+        } catch (Exception e) {
+            Log.w(TAG, "获取变更包失败，清空缓存: " + e.getMessage());
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    // ==================== 持久化 ====================
+
+    private void load() {
+        try {
+            File file = new File(context.getFilesDir(), CACHE_FILE);
+            if (file.exists()) {
+                StringBuilder sb = new StringBuilder();
+                try (FileReader reader = new FileReader(file)) {
+                    char[] buf = new char[4096];
+                    int len;
+                    while ((len = reader.read(buf)) != -1) sb.append(buf, 0, len);
+                }
+                JSONObject root = new JSONObject(sb.toString());
+                // 变更序号每次开机重置，重启后从 0 取本次开机以来的全部变更
+                if (root.optInt("boot", -1) == currentBootCount()) {
+                    sequenceNumber = root.optInt("seq", 0);
+                }
+                JSONObject items = root.getJSONObject("entries");
+                Iterator<String> keys = items.keys();
+                while (keys.hasNext()) {
+                    String pkg = keys.next();
+                    JSONObject o = items.getJSONObject(pkg);
+                    if (!o.optBoolean("installed", true)) {
+                        entries.put(pkg, NOT_INSTALLED);
+                        continue;
+                    }
+                    entries.put(pkg, new PackageMeta(true,
+                            o.optString("label", pkg),
+                            o.optBoolean("system", false),
+                            o.optBoolean("updated_system", false),
+                            o.isNull("installer") ? null : o.optString("installer", null)));
+                }
+                Log.i(TAG, "📂 加载包信息缓存 " + entries.size() + " 条");
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "加载包信息缓存失败: " + e.getMessage());
+            entries.clear();
+            sequenceNumber = 0;
+        }
+        bootCount = currentBootCount();
+        applyChangedPackages();
+    }
+
+    private int currentBootCount() {
+        return Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT, -1);
+    }
+
+    private void scheduleSave() {
+        mainHandler.removeCallbacks(saveRunnable);
+        mainHandler.postDelayed(saveRunnable, SAVE_DELAY_MS);
+    }
+
+    private synchronized void save() {
+        try {
+            JSONObject items = new JSONObject();
+            for (Map.Entry<String, PackageMeta> e : entries.entrySet()) {
+                PackageMeta meta = e.getValue();
+                JSONObject o = new JSONObject();
+                if (!meta.installed) {
+                    o.put("installed", false);
+                } else {
+                    o.put("label", meta.label);
+                    o.put("system", meta.system);
+                    o.put("updated_system", meta.updatedSystem);
+                    if (meta.installer != null) o.put("installer", meta.installer);
+                }
+                items.put(e.getKey(), o);
+            }
+            JSONObject root = new JSONObject();
+            root.put("boot", bootCount);
+            root.put("seq", sequenceNumber);
+            root.put("entries", items);
+
+            File file = new File(context.getFilesDir(), CACHE_FILE);
+            try (FileWriter writer = new FileWriter(file)) {
+                writer.write(root.toString());
+            }
+            Log.d(TAG, String.format("💾 包信息缓存已保存: %d 条, 命中率 %.1f%% (%d/%d)",
+                    entries.size(), getHitRate() * 100, hits.get(), hits.get() + misses.get()));
+        } catch (Exception e) {
+            Log.w(TAG, "保存包信息缓存失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.phonemonitor.app;
+
+import android.app.Application;
+
+/**
+ * 进程入口：只注册启动阶段，不在主线程做任何磁盘或网络工作
+ */
+public class PhoneMonitorApp extends Application {
+    public static final String STAGE_LOGS = "logs";
+    public static final String STAGE_CONFIG = "config";
+    public static final String STAGE_DICTIONARY = "dictionary";
+    public static final String STAGE_PACKAGE_META = "packageMeta";
+    public static final String STAGE_DATABASES = "databases";
+    public static final String STAGE_MESSAGE_QUEUE = "messageQueue";
+    public static final String STAGE_WAKEUP = "wakeup";
+    public static final String STAGE_ENRICH_RESUME = "enrichResume";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // 磁盘日志环：mmap 文件并恢复上次的日志尾部；服务进程启动时同样生效
+        AppStartup.register(STAGE_LOGS, AppStartup.Policy.BACKGROUND, LogBus::enablePersistence);
+
+        // 配置快照：之后通知 / 发送热路径只读 volatile 引用
+        AppStartup.register(STAGE_CONFIG, AppStartup.Policy.BACKGROUND, AppConfig::get);
+
+        // 内置词典的静态表 + 分类包文件 + 设置页的用户覆盖
+        AppStartup.register(STAGE_DICTIONARY, AppStartup.Policy.BACKGROUND,
+                AppDictionary::ensureLoaded);
+
+        // 包信息缓存：读缓存文件、注册安装卸载广播，通知服务主线程取应用名时不再碰磁盘
+        AppStartup.register(STAGE_PACKAGE_META, AppStartup.Policy.BACKGROUND,
+                PackageMetadataCache::getInstance);
+
+        // 三个库首次 getWritableDatabase 会建表 / 升级，提前在后台打开
+        AppStartup.register(STAGE_DATABASES, AppStartup.Policy.BACKGROUND, ctx -> {
+            KnowledgeDb.getInstance(ctx).getWritableDatabase();
+            UsageStatsDb.getInstance(ctx).getWritableDatabase();
+            GrowthGoalDb.getInstance(ctx).getWritableDatabase();
+        });
+
+        // 读离线队列文件并注册网络回调
+        AppStartup.register(STAGE_MESSAGE_QUEUE, AppStartup.Policy.BACKGROUND,
+                MessageQueue::getInstance);
+
+        AppStartup.register(STAGE_WAKEUP, AppStartup.Policy.BACKGROUND,
+                WakeupScheduler::reschedule);
+
+        AppStartup.register(STAGE_ENRICH_RESUME, AppStartup.Policy.DEFERRED,
+                ctx -> LinkEnrichmentJob.getInstance(ctx).resumeIfInterrupted(), STAGE_DATABASES);
+
+        AppStartup.start(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 界面不可见或进程可能被回收：未写回的发送计数先落盘
+        if (level >= TRIM_MEMORY_UI_HIDDEN) CounterStore.flush();
+    }
+}
@@ -0,0 +1,141 @@
+package com.phonemonitor.app;
+
+/**
+ * 最近见过的指纹：带时间窗口的 LRU 集合，全部用基本类型数组，不装箱
+ *
+ * 条目存在固定大小的数组里，用 prev/next 串成 LRU 链（head 最旧，tail 最新）；
+ * 查找用开放寻址表（线性探测，删除时回移）。超过 windowMs 没再出现的条目过期，
+ * 满了淘汰最久未出现的一条，不会像整体清空那样让刚见过的内容立刻又被当成新的。
+ */
+final class RecentFingerprints {
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final long windowMs;
+
+    // 条目
+    private final long[] keys;
+    private final long[] seenAt;
+    private final int[] prev;
+    private final int[] next;
+    private final int[] free;
+    private int freeTop;
+    private int head = NONE, tail = NONE;
+
+    // 指纹 → 条目下标 + 1（0 为空槽）
+    private final int[] table;
+    private final int mask;
+
+    RecentFingerprints(int capacity, long windowMs) {
+        this.capacity = capacity;
+        this.windowMs = windowMs;
+        keys = new long[capacity];
+        seenAt = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        free = new int[capacity];
+        for (int i = 0; i < capacity; i++) free[i] = capacity - 1 - i;
+        freeTop = capacity;
+        int size = Integer.highestOneBit(capacity * 2 - 1) << 1;   // 负载 ≤ 0.5
+        table = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * 记录一次出现
+     * @return true 如果窗口内已经见过（重复）；无论是否重复都刷新为最新
+     */
+    synchronized boolean checkAndAdd(long fp, long now) {
+        boolean seen = contains(fp, now);
+        add(fp, now);
+        return seen;
+    }
+
+    /**
+     * 窗口内是否见过，不改变记录
+     */
+    synchronized boolean contains(long fp, long now) {
+        expire(now);
+        return table[find(fp)] != 0;
+    }
+
+    /**
+     * 记录一次出现：已有则刷新为最新，没有则插入（满了淘汰最久未出现的一条）
+     */
+    synchronized void add(long fp, long now) {
+        expire(now);
+        int slot = find(fp);
+        if (table[slot] != 0) {
+            int e = table[slot] - 1;
+            seenAt[e] = now;
+            unlink(e);
+            linkLast(e);
+            return;
+        }
+
+        if (freeTop == 0) remove(head);
+        int e = free[--freeTop];
+        keys[e] = fp;
+        seenAt[e] = now;
+        linkLast(e);
+        table[find(fp)] = e + 1;
+    }
+
+    synchronized int size() {
+        return capacity - freeTop;
+    }
+
+    // ==================== 内部 ====================
+
+    private void expire(long now) {
+        while (head != NONE && now - seenAt[head] >= windowMs) {
+            remove(head);
+        }
+    }
+
+    /** 指纹所在的槽，不存在时返回应插入的空槽 */
+    private int find(long fp) {
+        int i = spread(fp) & mask;
+        while (table[i] != 0 && keys[table[i] - 1] != fp) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private static int spread(long fp) {
+        return (int) (fp ^ (fp >>> 32));
+    }
+
+    private void remove(int e) {
+        unlink(e);
+        free[freeTop++] = e;
+
+        // 线性探测的删除：把后面同一簇里可以前移的条目回移，保持查找链不断
+        int hole = find(keys[e]);
+        table[hole] = 0;
+        int i = (hole + 1) & mask;
+        while (table[i] != 0) {
+            int home = spread(keys[table[i] - 1]) & mask;
+            // home 不在 (hole, i] 区间内时，该条目可以挪到 hole
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                table[i] = 0;
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void unlink(int e) {
+        int p = prev[e], n = next[e];
+        if (p != NONE) next[p] = n; else head = n;
+        if (n != NONE) prev[n] = p; else tail = p;
+    }
+
+    private void linkLast(int e) {
+        prev[e] = tail;
+        next[e] = NONE;
+        if (tail != NONE) next[tail] = e; else head = e;
+        tail = e;
+    }
+}
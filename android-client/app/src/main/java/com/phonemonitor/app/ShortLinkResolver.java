@@ -0,0 +1,240 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 短链接解析：沿 3xx 跳转链找到最终地址
+ *
+ * 已知短链域名（抖音、b23.tv、t.cn、xhslink 等）在抓取前先用 HEAD 逐跳解析，服务端不支持 HEAD 时退回 GET；
+ * 其它链接抓取时遇到的跳转也记录下来。解析结果持久化到 short_links.json，同一短链不再重复请求。
+ */
+public class ShortLinkResolver {
+    private static final String TAG = "ShortLinkResolver";
+    private static final String CACHE_FILE = "short_links.json";
+    private static final int MAX_HOPS = 8;
+    private static final int CACHE_LIMIT = 2000;
+    private static final int TIMEOUT_MS = 5000;
+    private static final long TTL_MS = 30L * 24 * 3600 * 1000;
+    private static final long SAVE_DELAY_MS = 5000;
+    private static final String USER_AGENT = "Mozilla/5.0 (Linux; Android 10) AppleWebKit/537.36";
+
+    private static final String[] SHORTENER_HOSTS = {
+            "v.douyin.com", "b23.tv", "t.cn", "xhslink.com", "url.cn", "dwz.cn", "suo.im",
+            "m.tb.cn", "s.click.taobao.com", "v.kuaishou.com", "bit.ly", "t.co", "tinyurl.com",
+            "goo.gl", "ow.ly", "is.gd", "youtu.be", "sourl.cn"
+    };
+
+    /** 一条解析记录 */
+    private static final class Entry {
+        final String target;
+        final int hops;
+        final long resolvedAt;
+
+        Entry(String target, int hops, long resolvedAt) {
+            this.target = target;
+            this.hops = hops;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    private static ShortLinkResolver instance;
+    private final Context context;
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > CACHE_LIMIT;
+        }
+    };
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable saveRunnable = () -> TaskScheduler.execute(
+            TaskScheduler.Pool.IO, TaskScheduler.Lane.BACKGROUND, "saveShortLinks", this::save);
+
+    public static synchronized ShortLinkResolver getInstance(Context context) {
+        if (instance == null) {
+            instance = new ShortLinkResolver(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ShortLinkResolver(Context context) {
+        this.context = context;
+        load();
+    }
+
+    // ==================== 解析 ====================
+
+    /**
+     * 最终地址（在后台线程调用）：先查缓存，已知短链再走网络；非短链且无缓存时原样返回
+     */
+    public String resolve(String url) {
+        String cached = lookup(url);
+        if (cached != null) return cached;
+        if (!isShortener(url)) return url;
+
+        String current = url;
+        int hops = 0;
+        Set<String> seen = new HashSet<>();
+        seen.add(current);
+        try {
+            while (hops < MAX_HOPS) {
+                String next = nextHop(current);
+                if (next == null || !seen.add(next)) break;
+                current = next;
+                hops++;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "解析短链失败: " + url + " " + e.getMessage());
+            if (hops == 0) return url;   // 一跳都没拿到，不缓存
+        }
+        put(url, current, hops);
+        Log.d(TAG, "🔀 " + url + " → " + current + " (" + hops + " 跳)");
+        return current;
+    }
+
+    /**
+     * 缓存中未过期的最终地址，没有则返回 null
+     */
+    public synchronized String lookup(String url) {
+        Entry e = cache.get(url);
+        if (e == null) return null;
+        if (System.currentTimeMillis() - e.resolvedAt > TTL_MS) {
+            cache.remove(url);
+            return null;
+        }
+        return e.target;
+    }
+
+    /**
+     * 记录一条跳转结果（抓取页面时跟随的跳转也记在这里）
+     */
+    public void record(String from, String to) {
+        put(from, to, 1);
+    }
+
+    private void put(String from, String to, int hops) {
+        if (from == null || to == null || from.equals(to)) return;
+        synchronized (this) {
+            cache.put(from, new Entry(to, hops, System.currentTimeMillis()));
+        }
+        mainHandler.removeCallbacks(saveRunnable);
+        mainHandler.postDelayed(saveRunnable, SAVE_DELAY_MS);
+    }
+
+    public static boolean isShortener(String url) {
+        try {
+            String host = new URL(url).getHost().toLowerCase(Locale.ROOT);
+            for (String s : SHORTENER_HOSTS) {
+                if (host.equals(s)) return true;
+            }
+        } catch (Exception ignored) {}
+        return false;
+    }
+
+    /** 单跳：HEAD，不支持时退回 GET；非 3xx 返回 null */
+    private static String nextHop(String url) throws Exception {
+        HttpURLConnection conn = open(url, "HEAD");
+        try {
+            int code;
+            try {
+                code = conn.getResponseCode();
+            } catch (Exception e) {
+                code = -1;
+            }
+            if (code == -1 || code == 403 || code == 405 || code == 501) {
+                conn.disconnect();
+                conn = open(url, "GET");
+                code = conn.getResponseCode();
+            }
+            return redirectTarget(conn, url, code);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static HttpURLConnection open(String url, String method) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setInstanceFollowRedirects(false);
+        conn.setRequestProperty("User-Agent", USER_AGENT);
+        return conn;
+    }
+
+    /**
+     * 3xx 响应的跳转目标（相对地址按当前 URL 补全），否则返回 null
+     */
+    static String redirectTarget(HttpURLConnection conn, String base, int code) {
+        if (code < 300 || code >= 400 || code == 304) return null;
+        String location = conn.getHeaderField("Location");
+        if (location == null || location.isEmpty()) return null;
+        try {
+            return new URL(new URL(base), location).toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // ==================== 持久化 ====================
+
+    private synchronized void load() {
+        try {
+            File file = new File(context.getFilesDir(), CACHE_FILE);
+            if (!file.exists()) return;
+            StringBuilder sb = new StringBuilder();
+            try (FileReader reader = new FileReader(file)) {
+                char[] buf = new char[4096];
+                int len;
+                while ((len = reader.read(buf)) != -1) sb.append(buf, 0, len);
+            }
+            JSONObject root = new JSONObject(sb.toString());
+            Iterator<String> keys = root.keys();
+            while (keys.hasNext()) {
+                String from = keys.next();
+                JSONObject o = root.getJSONObject(from);
+                cache.put(from, new Entry(o.getString("to"), o.optInt("hops", 1), o.optLong("at", 0)));
+            }
+            Log.i(TAG, "📂 加载短链缓存 " + cache.size() + " 条");
+        } catch (Exception e) {
+            Log.w(TAG, "加载短链缓存失败: " + e.getMessage());
+            cache.clear();
+        }
+    }
+
+    private synchronized void save() {
+        try {
+            JSONObject root = new JSONObject();
+            for (Map.Entry<String, Entry> e : cache.entrySet()) {
+                JSONObject o = new JSONObject();
+                o.put("to", e.getValue().target);
+                o.put("hops", e.getValue().hops);
+                o.put("at", e.getValue().resolvedAt);
+                root.put(e.getKey(), o);
+            }
+            File file = new File(context.getFilesDir(), CACHE_FILE);
+            try (FileWriter writer = new FileWriter(file)) {
+                writer.write(root.toString());
+            }
+            Log.d(TAG, "💾 短链缓存已保存: " + cache.size() + " 条");
+        } catch (Exception e) {
+            Log.w(TAG, "保存短链缓存失败: " + e.getMessage());
+        }
+    }
+}
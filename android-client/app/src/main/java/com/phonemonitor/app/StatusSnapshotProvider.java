@@ -0,0 +1,173 @@
+package com.phonemonitor.app;
+
+import android.accessibilityservice.AccessibilityServiceInfo;
+import android.app.AppOpsManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.provider.Settings;
+import android.util.Log;
+import android.view.accessibility.AccessibilityManager;
+
+import java.util.List;
+
+/**
+ * 首页状态快照
+ *
+ * 权限检查（AppOps、无障碍服务枚举、通知监听）、SharedPreferences 与知识库计数都在 IO 线程一次算好，
+ * 发布成不可变的 Snapshot，主线程只负责渲染。多次 refresh 合并：计算中再请求只会在结束后补算一次。
+ */
+public class StatusSnapshotProvider {
+    private static final String TAG = "StatusSnapshot";
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+
+    /** 某一时刻的首页状态，不可变 */
+    public static final class Snapshot {
+        public final boolean usagePermission;
+        public final boolean accessibilityEnabled;
+        public final boolean notificationPermission;
+        public final boolean notificationEnabled;
+        public final boolean clipServiceRunning;
+        public final boolean webhookConfigured;
+        public final int extraWebhookCount;
+        public final String lastClipboard;
+        public final int clipboardSendCount;
+        public final int notificationSendCount;
+        public final int reportSendCount;
+        public final boolean entertainmentAlertEnabled;
+        public final int entertainmentThresholdMin;
+        public final long nextReportAt;
+        public final int knowledgeCount;          // -1 表示读取失败
+        public final long computedAt;
+
+        private Snapshot(Context context) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            AppConfig config = AppConfig.get(context);
+            usagePermission = hasUsagePermission(context);
+            accessibilityEnabled = isAccessibilityEnabled(context);
+            notificationPermission = isNotificationListenerEnabled(context);
+            notificationEnabled = notificationPermission && config.notificationEnabled;
+            clipServiceRunning = ClipboardForegroundService.isServiceRunning();
+
+            webhookConfigured = !config.webhookUrl.isEmpty();
+            extraWebhookCount = config.extraTargets.size();
+            lastClipboard = prefs.getString("clipboard_last_content", "");
+            clipboardSendCount = CounterStore.get(context, "clipboard_send_count");
+            notificationSendCount = CounterStore.get(context, "notification_send_count");
+            reportSendCount = CounterStore.get(context, "report_send_count");
+            entertainmentAlertEnabled = config.entertainmentAlertEnabled;
+            entertainmentThresholdMin = config.entertainmentThresholdMin;
+            nextReportAt = WakeupScheduler.Job.REPORT.occurrenceAtOrAfter(System.currentTimeMillis());
+
+            int count;
+            try {
+                count = KnowledgeDb.getInstance(context).getContentCount();
+            } catch (Exception e) {
+                Log.w(TAG, "读取知识库计数失败: " + e.getMessage());
+                count = -1;
+            }
+            knowledgeCount = count;
+            computedAt = System.currentTimeMillis();
+        }
+    }
+
+    public interface Listener {
+        /** 主线程回调 */
+        void onSnapshot(Snapshot snapshot);
+    }
+
+    private static StatusSnapshotProvider instance;
+    private final Context context;
+    private volatile Snapshot current;
+    private volatile Listener listener;
+    private boolean computing = false;
+    private boolean dirty = false;
+
+    public static synchronized StatusSnapshotProvider getInstance(Context context) {
+        if (instance == null) {
+            instance = new StatusSnapshotProvider(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private StatusSnapshotProvider(Context context) {
+        this.context = context;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 最近一次发布的快照，尚未算过时为 null
+     */
+    public Snapshot current() {
+        return current;
+    }
+
+    /**
+     * 在后台重新计算并发布；正在计算时只标记一次补算
+     */
+    public synchronized void refresh() {
+        if (computing) {
+            dirty = true;
+            return;
+        }
+        computing = true;
+        TaskScheduler.execute(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "statusSnapshot", this::compute);
+    }
+
+    private void compute() {
+        Snapshot snapshot = null;
+        try {
+            snapshot = new Snapshot(context);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ 计算状态失败: " + e.getMessage(), e);
+        }
+        boolean again;
+        synchronized (this) {
+            computing = false;
+            again = dirty;
+            dirty = false;
+        }
+        if (snapshot != null) {
+            current = snapshot;
+            Snapshot published = snapshot;
+            TaskScheduler.runOnMain(() -> {
+                Listener l = listener;
+                if (l != null && current == published) l.onSnapshot(published);
+            });
+        }
+        if (again) refresh();
+    }
+
+    // ==================== 检查项（MainActivity 点击时也直接调用） ====================
+
+    static boolean isAccessibilityEnabled(Context context) {
+        AccessibilityManager am = (AccessibilityManager) context.getSystemService(Context.ACCESSIBILITY_SERVICE);
+        if (am == null) return false;
+        List<AccessibilityServiceInfo> services = am.getEnabledAccessibilityServiceList(
+                AccessibilityServiceInfo.FEEDBACK_GENERIC);
+        for (AccessibilityServiceInfo info : services) {
+            if (info.getResolveInfo().serviceInfo.packageName.equals(context.getPackageName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isNotificationListenerEnabled(Context context) {
+        ComponentName cn = new ComponentName(context, NotificationMonitorService.class);
+        String flat = Settings.Secure.getString(context.getContentResolver(),
+                "enabled_notification_listeners");
+        return flat != null && flat.contains(cn.flattenToString());
+    }
+
+    static boolean hasUsagePermission(Context context) {
+        AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        if (appOps == null) return false;
+        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                android.os.Process.myUid(), context.getPackageName());
+        return mode == AppOpsManager.MODE_ALLOWED;
+    }
+}
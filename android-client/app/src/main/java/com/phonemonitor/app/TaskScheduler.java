@@ -0,0 +1,307 @@
+package com.phonemonitor.app;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统一的后台任务调度
+ *
+ * 按用途分四个有界线程池（IO / 网络 / CPU / 数据库写入），池内按通道排队：
+ * 用户可见的任务排在后台同步之前，同通道先进先出。
+ * 通过 {@link Scope} 把任务绑定到组件生命周期，组件销毁时统一取消。
+ * 取消是协作式的：未开始的任务直接丢弃，已开始的不打断（不 interrupt，避免 SQLite 写到一半），
+ * 所以用户确认过的写入要用 {@link #execute} 提交，不要挂在会随界面销毁的 Scope 上。
+ * 每个池记录排队深度、等待时长、执行时长。
+ */
+public final class TaskScheduler {
+    private static final String TAG = "TaskScheduler";
+    private static final long SLOW_WAIT_MS = 2000;
+
+    /** 线程池 */
+    public enum Pool {
+        IO("io", 3),
+        NETWORK("net", 4),
+        CPU("cpu", Math.max(2, Runtime.getRuntime().availableProcessors() - 1)),
+        DB_WRITE("db", 1);   // 单线程，写入天然串行
+
+        final String label;
+        final int threads;
+
+        Pool(String label, int threads) {
+            this.label = label;
+            this.threads = threads;
+        }
+    }
+
+    /** 优先级通道，序号小的先执行 */
+    public enum Lane {
+        USER_VISIBLE,
+        BACKGROUND
+    }
+
+    private static final Map<Pool, ThreadPoolExecutor> EXECUTORS = new EnumMap<>(Pool.class);
+    private static final Map<Pool, PoolStats> STATS = new EnumMap<>(Pool.class);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    static {
+        for (Pool pool : Pool.values()) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "pm-" + pool.label + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    pool.threads, pool.threads, 30, TimeUnit.SECONDS,
+                    new PriorityBlockingQueue<>(), factory);
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTORS.put(pool, executor);
+            STATS.put(pool, new PoolStats(pool));
+        }
+    }
+
+    private TaskScheduler() {}
+
+    // ==================== 提交 ====================
+
+    /**
+     * 提交任务（不绑定生命周期）
+     * @param name 任务名，用于日志和慢任务排查
+     */
+    public static Task execute(Pool pool, Lane lane, String name, Runnable body) {
+        return enqueue(pool, lane, name, body, null);
+    }
+
+    /** 在主线程执行 */
+    public static void runOnMain(Runnable r) {
+        MAIN.post(r);
+    }
+
+    private static Task enqueue(Pool pool, Lane lane, String name, Runnable body, Scope scope) {
+        Task task = new Task(pool, lane, name, body, scope);
+        if (scope != null && !scope.track(task)) {
+            task.cancelled = true;
+            return task;
+        }
+        STATS.get(pool).submitted.incrementAndGet();
+        EXECUTORS.get(pool).execute(task);
+        return task;
+    }
+
+    // ==================== 任务 ====================
+
+    /** 已提交的任务，可取消；未开始的直接丢弃，执行中的跑完为止 */
+    public static final class Task implements Runnable, Comparable<Task> {
+        final Pool pool;
+        final Lane lane;
+        final String name;
+        final long seq = SEQUENCE.incrementAndGet();
+        final long enqueuedAt = SystemClock.elapsedRealtime();
+        private final Runnable body;
+        private final Scope scope;
+        private volatile boolean cancelled = false;
+        private Thread runner;
+
+        Task(Pool pool, Lane lane, String name, Runnable body, Scope scope) {
+            this.pool = pool;
+            this.lane = lane;
+            this.name = name;
+            this.body = body;
+            this.scope = scope;
+        }
+
+        /**
+         * 标记取消；与 run() 开头的检查在同一把锁内，二者先后确定：要么任务不会开始，要么已经在 runner 上执行
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = lane.compareTo(o.lane);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+
+        @Override
+        public void run() {
+            PoolStats stats = STATS.get(pool);
+            long start = SystemClock.elapsedRealtime();
+            long waited = start - enqueuedAt;
+            boolean started;
+            synchronized (this) {
+                started = !cancelled;
+                if (started) runner = Thread.currentThread();
+            }
+            if (!started) {
+                stats.cancelled.incrementAndGet();
+                if (scope != null) scope.untrack(this);
+                return;
+            }
+            try {
+                stats.recordWait(waited);
+                if (waited > SLOW_WAIT_MS) {
+                    Log.w(TAG, "⏳ [" + pool.label + "] " + name + " 排队 " + waited + "ms");
+                }
+                Process.setThreadPriority(lane == Lane.USER_VISIBLE
+                        ? Process.THREAD_PRIORITY_DEFAULT : Process.THREAD_PRIORITY_BACKGROUND);
+                body.run();
+            } catch (Throwable e) {
+                stats.failed.incrementAndGet();
+                Log.e(TAG, "❌ [" + pool.label + "] " + name + " 失败: " + e.getMessage(), e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                stats.recordRun(SystemClock.elapsedRealtime() - start);
+                if (scope != null) scope.untrack(this);
+            }
+        }
+    }
+
+    // ==================== 生命周期 ====================
+
+    /**
+     * 任务作用域：Activity / Service 持有一个，onDestroy 时 cancel()，
+     * 之后提交的任务和 post 到主线程的回调都会被丢弃；正在执行的任务可用 {@link #isActive()} 自行提前结束
+     */
+    public static final class Scope {
+        private final String owner;
+        private final Set<Task> active = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        private volatile boolean cancelled = false;
+
+        public Scope(String owner) {
+            this.owner = owner;
+        }
+
+        public Task launch(Pool pool, Lane lane, String name, Runnable body) {
+            return enqueue(pool, lane, owner + "/" + name, body, this);
+        }
+
+        /** 回到主线程执行，作用域已取消则丢弃 */
+        public void postToMain(Runnable r) {
+            if (cancelled) return;
+            MAIN.post(() -> {
+                if (!cancelled) r.run();
+            });
+        }
+
+        public boolean isActive() {
+            return !cancelled;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            int n = 0;
+            for (Task t : active) {
+                t.cancel();
+                n++;
+            }
+            active.clear();
+            if (n > 0) Log.d(TAG, "🛑 " + owner + " 取消 " + n + " 个任务");
+        }
+
+        private boolean track(Task task) {
+            if (cancelled) return false;
+            active.add(task);
+            return true;
+        }
+
+        private void untrack(Task task) {
+            active.remove(task);
+        }
+    }
+
+    // ==================== 指标 ====================
+
+    /** 单个线程池的累计指标 */
+    public static final class PoolStats {
+        public final Pool pool;
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong totalWaitMs = new AtomicLong();
+        final AtomicLong maxWaitMs = new AtomicLong();
+        final AtomicLong totalRunMs = new AtomicLong();
+        final AtomicLong maxRunMs = new AtomicLong();
+
+        PoolStats(Pool pool) {
+            this.pool = pool;
+        }
+
+        void recordWait(long ms) {
+            totalWaitMs.addAndGet(ms);
+            maxWaitMs.accumulateAndGet(ms, Math::max);
+        }
+
+        void recordRun(long ms) {
+            completed.incrementAndGet();
+            totalRunMs.addAndGet(ms);
+            maxRunMs.accumulateAndGet(ms, Math::max);
+        }
+
+        public int getQueueDepth() {
+            return EXECUTORS.get(pool).getQueue().size();
+        }
+
+        public int getActiveCount() {
+            return EXECUTORS.get(pool).getActiveCount();
+        }
+
+        public long getSubmitted() { return submitted.get(); }
+        public long getCompleted() { return completed.get(); }
+        public long getCancelled() { return cancelled.get(); }
+        public long getFailed() { return failed.get(); }
+        public long getMaxWaitMs() { return maxWaitMs.get(); }
+        public long getMaxRunMs() { return maxRunMs.get(); }
+
+        public long getAvgWaitMs() {
+            long n = completed.get();
+            return n == 0 ? 0 : totalWaitMs.get() / n;
+        }
+
+        public long getAvgRunMs() {
+            long n = completed.get();
+            return n == 0 ? 0 : totalRunMs.get() / n;
+        }
+    }
+
+    public static List<PoolStats> getStats() {
+        return new ArrayList<>(STATS.values());
+    }
+
+    /** 各池指标的单行摘要，用于日志 / 状态页 */
+    public static String formatStats() {
+        StringBuilder sb = new StringBuilder();
+        for (PoolStats s : STATS.values()) {
+            if (sb.length() > 0) sb.append(" | ");
+            sb.append(String.format("%s 队列%d 运行%d 完成%d 等待%d/%dms 执行%d/%dms",
+                    s.pool.label, s.getQueueDepth(), s.getActiveCount(), s.getCompleted(),
+                    s.getAvgWaitMs(), s.getMaxWaitMs(), s.getAvgRunMs(), s.getMaxRunMs()));
+        }
+        return sb.toString();
+    }
+}
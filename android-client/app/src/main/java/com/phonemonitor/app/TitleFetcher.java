@@ -1,51 +1,19 @@
 package com.phonemonitor.app;
 
-import android.os.Handler;
-import android.os.Looper;
-import android.util.Log;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * 异步获取网页标题
+ * 抓取网页标题和摘要（同步，由 LinkPreviewService 在 NETWORK 线程调用）
  */
 public class TitleFetcher {
     private static final String TAG = "TitleFetcher";
-    private static final Pattern TITLE_PATTERN = Pattern.compile("<title[^>]*>([^<]+)</title>", Pattern.CASE_INSENSITIVE);
-    private static final Pattern OG_DESC_PATTERN = Pattern.compile("<meta[^>]+property=[\"']og:description[\"'][^>]+content=[\"']([^\"']+)[\"']", Pattern.CASE_INSENSITIVE);
-    private static final Pattern META_DESC_PATTERN = Pattern.compile("<meta[^>]+name=[\"']description[\"'][^>]+content=[\"']([^\"']+)[\"']", Pattern.CASE_INSENSITIVE);
-    private static final Pattern P_PATTERN = Pattern.compile("<p[^>]*>(.*?)</p>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern TITLE_SUFFIX_PATTERN = Pattern.compile("\\s*[-_|]\\s*(抖音|知乎|微博|bilibili|B站|YouTube).*$");
     private static final int TIMEOUT_MS = 5000;
-    private static final int MAX_READ_BYTES = 50000; // 只读前 50KB
-
-    public interface Callback {
-        void onSuccess(String title);
-        void onError(String error);
-    }
-
-    /**
-     * 异步获取 URL 的标题
-     */
-    public static void fetch(String url, Callback callback) {
-        new Thread(() -> {
-            try {
-                String title = fetchSync(url);
-                if (title != null && !title.isEmpty()) {
-                    new Handler(Looper.getMainLooper()).post(() -> callback.onSuccess(title));
-                } else {
-                    new Handler(Looper.getMainLooper()).post(() -> callback.onError("未找到标题"));
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "获取标题失败: " + url, e);
-                new Handler(Looper.getMainLooper()).post(() -> callback.onError(e.getMessage()));
-            }
-        }).start();
-    }
+    private static final int MAX_REDIRECTS = 5;
+    private static final int MAX_READ_BYTES = 50000; // 最多读 50KB，通常读完 <head> 即停
 
     /**
      * 标题 + 摘要结果
@@ -53,207 +21,82 @@ public class TitleFetcher {
     public static class TitleAndSummary {
         public final String title;
         public final String summary;
+        public final String finalUrl;   // 跟随跳转后的地址
 
-        public TitleAndSummary(String title, String summary) {
+        public TitleAndSummary(String title, String summary, String finalUrl) {
             this.title = title;
             this.summary = summary;
+            this.finalUrl = finalUrl;
         }
     }
 
-    public interface SummaryCallback {
-        void onSuccess(TitleAndSummary result);
-        void onError(String error);
-    }
-
-    /**
-     * 异步获取 URL 的标题和摘要
-     */
-    public static void fetchWithSummary(String url, SummaryCallback callback) {
-        new Thread(() -> {
-            try {
-                TitleAndSummary result = fetchSyncWithSummary(url);
-                new Handler(Looper.getMainLooper()).post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "获取摘要失败: " + url, e);
-                new Handler(Looper.getMainLooper()).post(() -> callback.onError(e.getMessage()));
-            }
-        }).start();
-    }
-
     /**
      * 同步获取标题和摘要（在后台线程调用）
      */
     public static TitleAndSummary fetchSyncWithSummary(String urlStr) throws Exception {
-        String html = fetchHtml(urlStr);
-
-        // 解析标题
-        String title = null;
-        Matcher titleMatcher = TITLE_PATTERN.matcher(html);
-        if (titleMatcher.find()) {
-            title = titleMatcher.group(1).trim();
-            title = title.replaceAll("\\s*[-_|]\\s*(抖音|知乎|微博|bilibili|B站|YouTube).*$", "");
-            if (title.length() > 100) {
-                title = title.substring(0, 100) + "…";
-            }
-        }
-
-        // 解析摘要: og:description → meta description → first <p>
-        String summary = null;
-
-        // 1. og:description
-        Matcher ogMatcher = OG_DESC_PATTERN.matcher(html);
-        if (ogMatcher.find()) {
-            summary = ogMatcher.group(1);
-        }
-
-        // 2. meta description
-        if (summary == null || summary.trim().isEmpty()) {
-            Matcher metaMatcher = META_DESC_PATTERN.matcher(html);
-            if (metaMatcher.find()) {
-                summary = metaMatcher.group(1);
-            }
-        }
-
-        // 3. first non-empty <p>
-        if (summary == null || summary.trim().isEmpty()) {
-            Matcher pMatcher = P_PATTERN.matcher(html);
-            while (pMatcher.find()) {
-                String pText = pMatcher.group(1).replaceAll("<[^>]+>", "").trim();
-                if (!pText.isEmpty()) {
-                    summary = pText;
-                    break;
-                }
-            }
-        }
-
-        // 清理和截断摘要
-        if (summary != null) {
-            summary = summary.replaceAll("<[^>]+>", "").trim();
-            summary = summary.replaceAll("&amp;", "&")
-                    .replaceAll("&lt;", "<")
-                    .replaceAll("&gt;", ">")
-                    .replaceAll("&quot;", "\"")
-                    .replaceAll("&#39;", "'")
-                    .replaceAll("&nbsp;", " ");
-            if (summary.length() > 200) {
-                summary = summary.substring(0, 200) + "…";
-            }
-            if (summary.isEmpty()) {
-                summary = null;
-            }
-        }
-
-        return new TitleAndSummary(title, summary);
+        Page page = fetchHead(urlStr);
+        return new TitleAndSummary(cleanTitle(page.head.bestTitle()), truncate(page.head.bestSummary(), 200),
+                page.url);
     }
 
-    /**
-     * 获取 HTML 内容（在后台线程调用）
-     */
-    private static String fetchHtml(String urlStr) throws Exception {
-        if (urlStr.contains("v.douyin.com")) {
-            urlStr = followRedirect(urlStr);
-        }
+    /** 最终地址 + 解析出的页面头部 */
+    private static final class Page {
+        final String url;
+        final HtmlHeadParser.Result head;
 
-        URL url = new URL(urlStr);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(TIMEOUT_MS);
-        conn.setReadTimeout(TIMEOUT_MS);
-        conn.setRequestProperty("User-Agent", "Mozilla/5.0 (Linux; Android 10) AppleWebKit/537.36");
-        conn.setInstanceFollowRedirects(true);
-
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200) {
-            throw new Exception("HTTP " + responseCode);
+        Page(String url, HtmlHeadParser.Result head) {
+            this.url = url;
+            this.head = head;
         }
-
-        StringBuilder html = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), "UTF-8"))) {
-            char[] buffer = new char[1024];
-            int read;
-            int totalRead = 0;
-            while ((read = reader.read(buffer)) != -1 && totalRead < MAX_READ_BYTES) {
-                html.append(buffer, 0, read);
-                totalRead += read;
-            }
-        }
-        return html.toString();
     }
 
     /**
-     * 同步获取标题（在后台线程调用）
+     * 打开连接并流式解析页面头部，拿到需要的字段即断开（在后台线程调用）
+     * 跳转自己跟随（HttpURLConnection 不跟随 http ↔ https 跳转），最多 MAX_REDIRECTS 次
      */
-    private static String fetchSync(String urlStr) throws Exception {
-        // 处理抖音短链接（需要跟随重定向）
-        if (urlStr.contains("v.douyin.com")) {
-            urlStr = followRedirect(urlStr);
-        }
-
-        URL url = new URL(urlStr);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(TIMEOUT_MS);
-        conn.setReadTimeout(TIMEOUT_MS);
-        conn.setRequestProperty("User-Agent", "Mozilla/5.0 (Linux; Android 10) AppleWebKit/537.36");
-        conn.setInstanceFollowRedirects(true);
-
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200) {
-            throw new Exception("HTTP " + responseCode);
-        }
-
-        // 读取 HTML（限制大小）
-        StringBuilder html = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), "UTF-8"))) {
-            char[] buffer = new char[1024];
-            int read;
-            int totalRead = 0;
-            while ((read = reader.read(buffer)) != -1 && totalRead < MAX_READ_BYTES) {
-                html.append(buffer, 0, read);
-                totalRead += read;
-                // 如果已经找到 </title>，提前退出
-                if (html.toString().contains("</title>")) {
-                    break;
+    private static Page fetchHead(String urlStr) throws Exception {
+        String current = urlStr;
+        for (int hop = 0; hop <= MAX_REDIRECTS; hop++) {
+            HttpURLConnection conn = (HttpURLConnection) new URL(current).openConnection();
+            try {
+                conn.setRequestMethod("GET");
+                conn.setConnectTimeout(TIMEOUT_MS);
+                conn.setReadTimeout(TIMEOUT_MS);
+                conn.setRequestProperty("User-Agent", "Mozilla/5.0 (Linux; Android 10) AppleWebKit/537.36");
+                conn.setInstanceFollowRedirects(false);
+
+                int responseCode = conn.getResponseCode();
+                String next = ShortLinkResolver.redirectTarget(conn, current, responseCode);
+                if (next != null) {
+                    current = next;
+                    continue;
+                }
+                if (responseCode != 200) {
+                    throw new Exception("HTTP " + responseCode);
                 }
-            }
-        }
 
-        // 解析标题
-        Matcher matcher = TITLE_PATTERN.matcher(html.toString());
-        if (matcher.find()) {
-            String title = matcher.group(1).trim();
-            // 清理常见后缀
-            title = title.replaceAll("\\s*[-_|]\\s*(抖音|知乎|微博|bilibili|B站|YouTube).*$", "");
-            // 限制长度
-            if (title.length() > 100) {
-                title = title.substring(0, 100) + "…";
+                try (InputStream in = conn.getInputStream()) {
+                    return new Page(current, HtmlHeadParser.parse(in, conn.getContentType(), MAX_READ_BYTES, true));
+                }
+            } finally {
+                conn.disconnect();
             }
-            return title;
         }
-
-        return null;
+        throw new Exception("跳转次数过多");
     }
 
     /**
-     * 跟随重定向获取最终 URL
+     * 清理常见站点后缀并限制长度
      */
-    private static String followRedirect(String urlStr) throws Exception {
-        URL url = new URL(urlStr);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(TIMEOUT_MS);
-        conn.setInstanceFollowRedirects(false);
-        conn.setRequestProperty("User-Agent", "Mozilla/5.0 (Linux; Android 10) AppleWebKit/537.36");
-
-        int responseCode = conn.getResponseCode();
-        if (responseCode == 301 || responseCode == 302) {
-            String location = conn.getHeaderField("Location");
-            if (location != null && !location.isEmpty()) {
-                return location;
-            }
-        }
+    private static String cleanTitle(String title) {
+        if (title == null) return null;
+        title = TITLE_SUFFIX_PATTERN.matcher(title).replaceFirst("");
+        return truncate(title, 100);
+    }
 
-        return urlStr;
+    private static String truncate(String s, int max) {
+        if (s == null || s.isEmpty()) return null;
+        return s.length() > max ? s.substring(0, max) + "…" : s;
     }
 
     /**
@@ -0,0 +1,360 @@
+package com.phonemonitor.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 进程级使用统计内存缓存（列式存储）
+ * 保存最近 MAX_DAYS 天的 daily_usage，按 日期升序 / 同日时长降序 排成四列原始数组：
+ * epochDay(int) / 包名索引(int) / 分类(byte) / 时长(long)。
+ * 看板、成长页的汇总、Top-K、趋势和分类占比都直接在数组上计算，不走 SQL；
+ * 采集器写完某天后调用 refreshDay，只替换该天的行。
+ * 早于窗口（windowStart）的日期不在数组里，这类查询回落到 UsageStatsDb 的 SQL 实现。
+ */
+public class UsageAnalyticsCache {
+    private static final String TAG = "UsageAnalyticsCache";
+    private static final int MAX_DAYS = 400;
+    private static final String DEFAULT_CATEGORY = "其他";
+    // 「其他」固定占 0 号；分类数到 byte 上限后新分类都记到这里
+    private static final int OTHER_CATEGORY_ID = 0;
+
+    private static UsageAnalyticsCache instance;
+    private final UsageStatsDb db;
+
+    // 列式数据
+    private int[] dayCol = new int[1024];
+    private int[] pkgCol = new int[1024];
+    private byte[] catCol = new byte[1024];
+    private long[] usageCol = new long[1024];
+    private int size;
+    private int windowStart;
+    private boolean loaded;
+
+    // 包名 / 分类字典（只增不减）
+    private final List<String> pkgNames = new ArrayList<>();
+    private final List<String> appNames = new ArrayList<>();
+    private final Map<String, Integer> pkgIndex = new HashMap<>();
+    private final List<String> catNames = new ArrayList<>();
+    private final Map<String, Integer> catIndex = new HashMap<>();
+
+    public static synchronized UsageAnalyticsCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new UsageAnalyticsCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private UsageAnalyticsCache(Context context) {
+        this.db = UsageStatsDb.getInstance(context);
+        internCategory(DEFAULT_CATEGORY);
+        for (String cat : AppDictionary.getAllCategories().keySet()) {
+            internCategory(cat);
+        }
+    }
+
+    // ==================== 加载 / 刷新 ====================
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        long start = System.currentTimeMillis();
+        windowStart = DayKeys.today() - MAX_DAYS + 1;
+        size = 0;
+
+        Cursor cursor = db.queryUsageRows(windowStart, Integer.MAX_VALUE);
+        while (cursor.moveToNext()) {
+            ensureCapacity(size + 1);
+            dayCol[size] = cursor.getInt(0);
+            pkgCol[size] = internPackage(cursor.getString(1), cursor, 2);
+            catCol[size] = (byte) internCategory(cursor.getString(3));
+            usageCol[size] = cursor.getLong(4);
+            size++;
+        }
+        cursor.close();
+        loaded = true;
+        Log.i(TAG, "📦 已加载 " + size + " 行使用记录, " + pkgNames.size() + " 个应用, 耗时 "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * 采集器写入某天后调用：仅在缓存已加载时重读该天并替换原有行
+     */
+    public synchronized void refreshDay(int day) {
+        if (!loaded || day < windowStart) return;
+
+        int n = 0;
+        int[] pkgs = new int[64];
+        byte[] cats = new byte[64];
+        long[] usages = new long[64];
+        Cursor cursor = db.queryUsageRows(day, day);
+        while (cursor.moveToNext()) {
+            if (n == pkgs.length) {
+                pkgs = Arrays.copyOf(pkgs, n * 2);
+                cats = Arrays.copyOf(cats, n * 2);
+                usages = Arrays.copyOf(usages, n * 2);
+            }
+            pkgs[n] = internPackage(cursor.getString(1), cursor, 2);
+            cats[n] = (byte) internCategory(cursor.getString(3));
+            usages[n] = cursor.getLong(4);
+            n++;
+        }
+        cursor.close();
+
+        int from = lowerBound(day);
+        int to = lowerBound(day + 1);
+        int tail = size - to;
+        ensureCapacity(from + n + tail);
+        System.arraycopy(dayCol, to, dayCol, from + n, tail);
+        System.arraycopy(pkgCol, to, pkgCol, from + n, tail);
+        System.arraycopy(catCol, to, catCol, from + n, tail);
+        System.arraycopy(usageCol, to, usageCol, from + n, tail);
+        for (int i = 0; i < n; i++) {
+            dayCol[from + i] = day;
+            pkgCol[from + i] = pkgs[i];
+            catCol[from + i] = cats[i];
+            usageCol[from + i] = usages[i];
+        }
+        size = from + n + tail;
+        Log.d(TAG, "🔄 已刷新 " + DayKeys.format(day) + ": " + n + " 行");
+    }
+
+    /** 丢弃缓存，下次访问时重新加载 */
+    public synchronized void invalidate() {
+        loaded = false;
+        size = 0;
+    }
+
+    // ==================== 查询 ====================
+
+    /** 某天总使用时长 */
+    public synchronized long getDayTotal(int day) {
+        ensureLoaded();
+        if (day < windowStart) {
+            UsageStatsDb.DailySummary s = db.getDailySummary(day);
+            return s != null ? s.totalUsageMs : 0;
+        }
+        long total = 0;
+        for (int i = lowerBound(day), end = lowerBound(day + 1); i < end; i++) {
+            total += usageCol[i];
+        }
+        return total;
+    }
+
+    /** 某天的应用明细（按时长降序），与 UsageStatsDb.getDailyUsage 结构一致 */
+    public synchronized List<UsageStatsDb.AppUsageRecord> getDayRecords(int day) {
+        ensureLoaded();
+        if (day < windowStart) return db.getDailyUsage(day);
+        int from = lowerBound(day);
+        int to = lowerBound(day + 1);
+        List<UsageStatsDb.AppUsageRecord> records = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            records.add(toRecord(i));
+        }
+        return records;
+    }
+
+    /** 某天汇总；无数据时返回 null */
+    public synchronized UsageStatsDb.DailySummary getDaySummary(int day) {
+        ensureLoaded();
+        if (day < windowStart) return db.getDailySummary(day);
+        int from = lowerBound(day);
+        int to = lowerBound(day + 1);
+        return from < to ? summarize(day, from, to, new long[catNames.size()]) : null;
+    }
+
+    /** 截至 endDay 的 N 天日总时长（稠密，缺数据的天为 0，升序） */
+    public synchronized long[] getDailyTotals(int endDay, int days) {
+        ensureLoaded();
+        long[] totals = new long[days];
+        int startDay = endDay - days + 1;
+        if (startDay < windowStart) {
+            List<UsageStatsDb.DailySummary> series = db.getRecentSummariesForRange(endDay, days);
+            for (int d = 0; d < days; d++) totals[d] = series.get(d).totalUsageMs;
+            return totals;
+        }
+        for (int i = lowerBound(startDay), end = lowerBound(startDay + days); i < end; i++) {
+            totals[dayCol[i] - startDay] += usageCol[i];
+        }
+        return totals;
+    }
+
+    /** 截至 endDay 的 N 天汇总序列（稠密补齐，与 getRecentSummariesForRange 结构一致） */
+    public synchronized List<UsageStatsDb.DailySummary> getDailySeries(int endDay, int days) {
+        ensureLoaded();
+        int startDay = endDay - days + 1;
+        if (startDay < windowStart) return db.getRecentSummariesForRange(endDay, days);
+        List<UsageStatsDb.DailySummary> result = new ArrayList<>(days);
+        long[] catScratch = new long[catNames.size()];
+        int i = lowerBound(startDay);
+        for (int d = 0; d < days; d++) {
+            int day = startDay + d;
+            int end = i;
+            while (end < size && dayCol[end] == day) end++;
+            result.add(i < end
+                    ? summarize(day, i, end, catScratch)
+                    : new UsageStatsDb.DailySummary(day, 0, 0, "", ""));
+            i = end;
+        }
+        return result;
+    }
+
+    /** 某天分类占比（分类 → 时长） */
+    public synchronized Map<String, Long> getCategoryBreakdown(int day) {
+        ensureLoaded();
+        if (day < windowStart) return db.getCategoryAverages(day, 1);
+        return categoryTotals(lowerBound(day), lowerBound(day + 1), 1);
+    }
+
+    /** 截至 endDay 的 N 天各分类日均时长（总时长 / N） */
+    public synchronized Map<String, Long> getCategoryAverages(int endDay, int days) {
+        ensureLoaded();
+        int startDay = endDay - days + 1;
+        if (startDay < windowStart) return db.getCategoryAverages(endDay, days);
+        return categoryTotals(lowerBound(startDay), lowerBound(startDay + days), days);
+    }
+
+    /** 截至 endDay 的 N 天内使用时长 Top-K 应用（降序） */
+    public synchronized List<UsageStatsDb.AppTotal> getTopApps(int endDay, int days, int k) {
+        ensureLoaded();
+        int startDay = endDay - days + 1;
+        if (startDay < windowStart) return db.getAppTotals(startDay, endDay, k);
+        int from = lowerBound(startDay);
+        int to = lowerBound(startDay + days);
+
+        long[] sums = new long[pkgNames.size()];
+        int[] dayCounts = new int[pkgNames.size()];
+        for (int i = from; i < to; i++) {
+            sums[pkgCol[i]] += usageCol[i];
+            dayCounts[pkgCol[i]]++;
+        }
+
+        // 插入式维护前 K 名
+        int[] top = new int[Math.max(0, Math.min(k, sums.length))];
+        if (top.length == 0) return new ArrayList<>();
+        int count = 0;
+        for (int p = 0; p < sums.length; p++) {
+            if (dayCounts[p] == 0) continue;
+            if (count == top.length && sums[p] <= sums[top[count - 1]]) continue;
+            int pos = count < top.length ? count++ : count - 1;
+            while (pos > 0 && sums[top[pos - 1]] < sums[p]) {
+                top[pos] = top[pos - 1];
+                pos--;
+            }
+            top[pos] = p;
+        }
+
+        List<UsageStatsDb.AppTotal> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int p = top[i];
+            result.add(new UsageStatsDb.AppTotal(pkgNames.get(p), appNames.get(p),
+                    lastCategoryOf(p, from, to), sums[p], dayCounts[p]));
+        }
+        return result;
+    }
+
+    /** 指定应用最近 N 条有数据的日记录（日期降序，与 UsageStatsDb.getAppTrend 一致） */
+    public synchronized List<UsageStatsDb.AppUsageRecord> getAppTrend(String packageName, int days) {
+        ensureLoaded();
+        List<UsageStatsDb.AppUsageRecord> records = new ArrayList<>();
+        Integer p = pkgIndex.get(packageName);
+        if (p == null) return db.getAppTrend(packageName, days);
+        for (int i = size - 1; i >= 0 && records.size() < days; i--) {
+            if (pkgCol[i] == p) {
+                records.add(toRecord(i));
+            }
+        }
+        // 窗口内不够 N 条时，更早的记录可能还在库里
+        if (records.size() < days) return db.getAppTrend(packageName, days);
+        return records;
+    }
+
+    // ==================== 内部 ====================
+
+    private UsageStatsDb.DailySummary summarize(int day, int from, int to, long[] catScratch) {
+        Arrays.fill(catScratch, 0);
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += usageCol[i];
+            catScratch[catCol[i]] += usageCol[i];
+        }
+        int topCat = 0;
+        for (int c = 1; c < catScratch.length; c++) {
+            if (catScratch[c] > catScratch[topCat]) topCat = c;
+        }
+        // 行已按时长降序，第一行即 Top App
+        return new UsageStatsDb.DailySummary(day, total, to - from,
+                appNames.get(pkgCol[from]), catNames.get(topCat));
+    }
+
+    private Map<String, Long> categoryTotals(int from, int to, int divisor) {
+        long[] sums = new long[catNames.size()];
+        for (int i = from; i < to; i++) {
+            sums[catCol[i]] += usageCol[i];
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int c = 0; c < sums.length; c++) {
+            if (sums[c] > 0) result.put(catNames.get(c), sums[c] / divisor);
+        }
+        return result;
+    }
+
+    private String lastCategoryOf(int p, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (pkgCol[i] == p) return catNames.get(catCol[i]);
+        }
+        return DEFAULT_CATEGORY;
+    }
+
+    private UsageStatsDb.AppUsageRecord toRecord(int i) {
+        int p = pkgCol[i];
+        return new UsageStatsDb.AppUsageRecord(dayCol[i], pkgNames.get(p), appNames.get(p),
+                catNames.get(catCol[i]), usageCol[i]);
+    }
+
+    /** 第一个 day >= 目标的行下标 */
+    private int lowerBound(int day) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dayCol[mid] < day) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int internPackage(String pkg, Cursor cursor, int appNameColumn) {
+        Integer idx = pkgIndex.get(pkg);
+        if (idx != null) return idx;
+        String appName = cursor.getString(appNameColumn);
+        pkgNames.add(pkg);
+        appNames.add(appName != null ? appName : pkg);
+        pkgIndex.put(pkg, pkgNames.size() - 1);
+        return pkgNames.size() - 1;
+    }
+
+    private int internCategory(String category) {
+        if (category == null || category.isEmpty()) category = DEFAULT_CATEGORY;
+        Integer idx = catIndex.get(category);
+        if (idx != null) return idx;
+        if (catNames.size() >= Byte.MAX_VALUE) return OTHER_CATEGORY_ID;
+        catNames.add(category);
+        catIndex.put(category, catNames.size() - 1);
+        return catNames.size() - 1;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= dayCol.length) return;
+        int cap = Math.max(needed, dayCol.length * 2);
+        dayCol = Arrays.copyOf(dayCol, cap);
+        pkgCol = Arrays.copyOf(pkgCol, cap);
+        catCol = Arrays.copyOf(catCol, cap);
+        usageCol = Arrays.copyOf(usageCol, cap);
+    }
+}
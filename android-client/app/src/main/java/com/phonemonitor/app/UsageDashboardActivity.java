@@ -30,12 +30,12 @@ import com.github.mikephil.charting.data.PieData;
 import com.github.mikephil.charting.data.PieDataSet;
 import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -60,22 +60,23 @@ public class UsageDashboardActivity extends AppCompatActivity {
 
     private LineChart lineChart;
     private PieChart pieChart;
-    private TextView tvSelectedDate, tvTotalTime, tvTotalApps;
+    private TextView tvSelectedDate, tvTotalTime, tvTotalApps, tvTrendTitle;
     private View cardTotalTime, cardTotalApps;
     private LinearLayout layoutTopApps;
     private FloatingActionButton fabRefresh;
     private ProgressBar progressBar;
 
-    private Calendar selectedDate;
-    private final SimpleDateFormat dbDateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-    private final SimpleDateFormat displayDateFormat = new SimpleDateFormat("MMM dd, yyyy (EEE)", Locale.getDefault());
+    private int selectedDay;  // epoch-day
+    private int trendDays = 7;  // 折线图区间：7 / 30 / 90 / 365 天
+    private final DateTimeFormatter displayDateFormat = DateTimeFormatter.ofPattern("MMM dd, yyyy (EEE)", Locale.getDefault());
+    private final TaskScheduler.Scope tasks = new TaskScheduler.Scope("UsageDashboard");
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_usage_dashboard);
 
-        selectedDate = Calendar.getInstance();
+        selectedDay = DayKeys.today();
 
         initViews();
         setupLineChart();
@@ -92,6 +93,12 @@ public class UsageDashboardActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        tasks.cancel();
+    }
+
     private void initViews() {
         lineChart = findViewById(R.id.line_chart);
         pieChart = findViewById(R.id.pie_chart);
@@ -103,6 +110,7 @@ public class UsageDashboardActivity extends AppCompatActivity {
         layoutTopApps = findViewById(R.id.layout_top_apps);
         fabRefresh = findViewById(R.id.fab_refresh);
         progressBar = findViewById(R.id.progress_bar);
+        tvTrendTitle = findViewById(R.id.tv_trend_title);
 
         ImageButton btnBack = findViewById(R.id.btn_back);
         ImageButton btnPrev = findViewById(R.id.btn_prev_day);
@@ -111,15 +119,14 @@ public class UsageDashboardActivity extends AppCompatActivity {
         btnBack.setOnClickListener(v -> finish());
 
         btnPrev.setOnClickListener(v -> {
-            selectedDate.add(Calendar.DAY_OF_YEAR, -1);
+            selectedDay--;
             updateDateDisplay();
             loadData();
         });
 
         btnNext.setOnClickListener(v -> {
-            Calendar today = Calendar.getInstance();
-            if (selectedDate.before(today)) {
-                selectedDate.add(Calendar.DAY_OF_YEAR, 1);
+            if (selectedDay < DayKeys.today()) {
+                selectedDay++;
                 updateDateDisplay();
                 loadData();
             }
@@ -133,6 +140,20 @@ public class UsageDashboardActivity extends AppCompatActivity {
             showAppBreakdown();
         });
 
+        findViewById(R.id.tv_long_trend).setOnClickListener(v -> showLongTermTrend());
+
+        ChipGroup chipGroupRange = findViewById(R.id.chip_group_range);
+        chipGroupRange.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            if (checkedIds.isEmpty()) return;
+            int id = checkedIds.get(0);
+            if (id == R.id.chip_range_30) trendDays = 30;
+            else if (id == R.id.chip_range_90) trendDays = 90;
+            else if (id == R.id.chip_range_365) trendDays = 365;
+            else trendDays = 7;
+            tvTrendTitle.setText(trendDays + "天趋势");
+            loadData();
+        });
+
         fabRefresh.setOnClickListener(v -> {
             fabRefresh.animate().rotation(fabRefresh.getRotation() + 360f).setDuration(600).start();
             loadData();
@@ -142,19 +163,13 @@ public class UsageDashboardActivity extends AppCompatActivity {
     }
 
     private void updateDateDisplay() {
-        Calendar today = Calendar.getInstance();
-        if (isSameDay(selectedDate, today)) {
+        if (selectedDay == DayKeys.today()) {
             tvSelectedDate.setText("今天");
         } else {
-            tvSelectedDate.setText(displayDateFormat.format(selectedDate.getTime()));
+            tvSelectedDate.setText(DayKeys.toLocalDate(selectedDay).format(displayDateFormat));
         }
     }
 
-    private boolean isSameDay(Calendar a, Calendar b) {
-        return a.get(Calendar.YEAR) == b.get(Calendar.YEAR)
-                && a.get(Calendar.DAY_OF_YEAR) == b.get(Calendar.DAY_OF_YEAR);
-    }
-
     private void setupLineChart() {
         lineChart.setBackgroundColor(Color.TRANSPARENT);
         lineChart.getDescription().setEnabled(false);
@@ -229,54 +244,52 @@ public class UsageDashboardActivity extends AppCompatActivity {
 
         showLoading(true);
 
-        new Thread(() -> {
-            UsageStatsDb db = UsageStatsDb.getInstance(this);
-            String dateStr = dbDateFormat.format(selectedDate.getTime());
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "loadDay", () -> {
+            UsageAnalyticsCache cache = UsageAnalyticsCache.getInstance(this);
+            int day = selectedDay;
+            int days = trendDays;
 
-            // Load 7-day summaries for line chart
-            List<UsageStatsDb.DailySummary> summaries = db.getRecentSummariesForRange(dateStr, 7);
+            // Load summaries for line chart (dense series, missing days filled with 0)
+            List<UsageStatsDb.DailySummary> summaries = cache.getDailySeries(day, days);
 
             // Load daily usage for selected date (pie chart + top apps)
-            List<UsageStatsDb.AppUsageRecord> records = db.getDailyUsage(dateStr);
+            List<UsageStatsDb.AppUsageRecord> records = cache.getDayRecords(day);
 
             // Load daily summary for selected date
-            UsageStatsDb.DailySummary todaySummary = db.getDailySummary(dateStr);
+            UsageStatsDb.DailySummary todaySummary = cache.getDaySummary(day);
 
             // If no data exists for today, collect it automatically
-            Calendar today = Calendar.getInstance();
-            if (isSameDay(selectedDate, today) && records.isEmpty()) {
+            if (day == DayKeys.today() && records.isEmpty()) {
                 UsageStatsCollector collector = new UsageStatsCollector(this);
                 collector.collectTodayStats();
 
-                // Reload data after collection
-                records = db.getDailyUsage(dateStr);
-                todaySummary = db.getDailySummary(dateStr);
-                summaries = db.getRecentSummaries(7);
-                Collections.reverse(summaries);
+                // Reload data after collection (collector refreshes the cache)
+                records = cache.getDayRecords(day);
+                todaySummary = cache.getDaySummary(day);
+                summaries = cache.getDailySeries(day, days);
             }
 
             final List<UsageStatsDb.DailySummary> finalSummaries = summaries;
             final List<UsageStatsDb.AppUsageRecord> finalRecords = records;
             final UsageStatsDb.DailySummary finalSummary = todaySummary;
 
-            runOnUiThread(() -> {
+            tasks.postToMain(() -> {
                 showLoading(false);
                 updateSummaryCards(finalSummary, finalRecords);
                 updateLineChart(finalSummaries);
                 updatePieChart(finalRecords);
                 updateTopApps(finalRecords);
             });
-        }).start();
+        });
     }
 
     private void showAppBreakdown() {
         showLoading(true);
-        new Thread(() -> {
-            UsageStatsDb db = UsageStatsDb.getInstance(this);
-            String dateStr = dbDateFormat.format(selectedDate.getTime());
-            List<UsageStatsDb.AppUsageRecord> records = db.getDailyUsage(dateStr);
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "appBreakdown", () -> {
+            UsageAnalyticsCache cache = UsageAnalyticsCache.getInstance(this);
+            List<UsageStatsDb.AppUsageRecord> records = cache.getDayRecords(selectedDay);
 
-            runOnUiThread(() -> {
+            tasks.postToMain(() -> {
                 showLoading(false);
                 if (records.isEmpty()) {
                     Toast.makeText(this, "暂无应用数据", Toast.LENGTH_SHORT).show();
@@ -306,17 +319,17 @@ public class UsageDashboardActivity extends AppCompatActivity {
                         .setPositiveButton("确定", null)
                         .show();
             });
-        }).start();
+        });
     }
 
     private void showAppTrend(String packageName, String appName) {
         showLoading(true);
-        new Thread(() -> {
-            UsageStatsDb db = UsageStatsDb.getInstance(this);
-            List<UsageStatsDb.AppUsageRecord> history = db.getAppTrend(packageName, 7);
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "appTrend", () -> {
+            UsageAnalyticsCache cache = UsageAnalyticsCache.getInstance(this);
+            List<UsageStatsDb.AppUsageRecord> history = cache.getAppTrend(packageName, 7);
             Collections.reverse(history);
 
-            runOnUiThread(() -> {
+            tasks.postToMain(() -> {
                 showLoading(false);
                 if (history.isEmpty()) {
                     Toast.makeText(this, "暂无历史趋势", Toast.LENGTH_SHORT).show();
@@ -325,7 +338,7 @@ public class UsageDashboardActivity extends AppCompatActivity {
 
                 StringBuilder sb = new StringBuilder();
                 for (UsageStatsDb.AppUsageRecord r : history) {
-                    String shortDate = r.date.length() >= 10 ? r.date.substring(5) : r.date;
+                    String shortDate = DayKeys.shortLabel(r.day);
                     sb.append(String.format("📅 %s: %s\n", shortDate, formatDuration(r.usageMs)));
                 }
 
@@ -335,17 +348,72 @@ public class UsageDashboardActivity extends AppCompatActivity {
                         .setPositiveButton("确定", null)
                         .show();
             });
-        }).start();
+        });
     }
 
-    private void showDailyUsageDetails() {
+    /**
+     * 周规律 + 近 4 / 12 周 + 近 12 个月：全部读 usage_rollup 汇总行，与历史天数无关
+     */
+    private void showLongTermTrend() {
         showLoading(true);
-        new Thread(() -> {
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "longTrend", () -> {
             UsageStatsDb db = UsageStatsDb.getInstance(this);
-            String dateStr = dbDateFormat.format(selectedDate.getTime());
-            List<UsageStatsDb.AppUsageRecord> records = db.getDailyUsage(dateStr);
+            UsageStatsDb.WeeklyPattern pattern = db.getWeeklyPattern();
+            List<UsageStatsDb.RollupPoint> fourWeeks = db.getWeeklyTrend(4);
+            List<UsageStatsDb.RollupPoint> weeks = db.getWeeklyTrend(12);
+            List<UsageStatsDb.RollupPoint> months = db.getMonthlyTrend(12);
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("📊 周规律\n");
+            sb.append("• 近7天日均: ").append(formatDuration(pattern.weekAvg)).append("\n");
+            sb.append("• 工作日日均: ").append(formatDuration(pattern.weekdayAvg))
+                    .append(" / 周末日均: ").append(formatDuration(pattern.weekendAvg)).append("\n");
+            if (pattern.peakUsage > 0) {
+                sb.append("• 峰值: ").append(DayKeys.shortLabel(pattern.peakDay))
+                        .append(" ").append(formatDuration(pattern.peakUsage)).append("\n");
+            }
+
+            sb.append("\n📅 近4周日均: ").append(formatDuration(averageDaily(fourWeeks)))
+                    .append("，近12周日均: ").append(formatDuration(averageDaily(weeks))).append("\n");
+            for (UsageStatsDb.RollupPoint p : weeks) {
+                sb.append("• ").append(DayKeys.shortLabel(p.bucket)).append(" 起: ")
+                        .append(formatDuration(p.avgDailyMs())).append("/天\n");
+            }
 
-            runOnUiThread(() -> {
+            sb.append("\n🗓 近12个月\n");
+            for (UsageStatsDb.RollupPoint p : months) {
+                sb.append(String.format(Locale.getDefault(), "• %d-%02d: %s/天\n",
+                        p.bucket / 100, p.bucket % 100, formatDuration(p.avgDailyMs())));
+            }
+
+            tasks.postToMain(() -> {
+                showLoading(false);
+                new MaterialAlertDialogBuilder(this, R.style.Theme_PhoneMonitor_Dialog)
+                        .setTitle("长期趋势")
+                        .setMessage(sb.toString())
+                        .setPositiveButton("确定", null)
+                        .show();
+            });
+        });
+    }
+
+    private static long averageDaily(List<UsageStatsDb.RollupPoint> points) {
+        long totalMs = 0;
+        int days = 0;
+        for (UsageStatsDb.RollupPoint p : points) {
+            totalMs += p.usageMs;
+            days += p.dayCount;
+        }
+        return days > 0 ? totalMs / days : 0;
+    }
+
+    private void showDailyUsageDetails() {
+        showLoading(true);
+        tasks.launch(TaskScheduler.Pool.IO, TaskScheduler.Lane.USER_VISIBLE, "dailyDetails", () -> {
+            UsageAnalyticsCache cache = UsageAnalyticsCache.getInstance(this);
+            List<UsageStatsDb.AppUsageRecord> records = cache.getDayRecords(selectedDay);
+
+            tasks.postToMain(() -> {
                 showLoading(false);
                 if (records.isEmpty()) {
                     Toast.makeText(this, "暂无详细数据", Toast.LENGTH_SHORT).show();
@@ -372,7 +440,7 @@ public class UsageDashboardActivity extends AppCompatActivity {
                         .setPositiveButton("确定", null)
                         .show();
             });
-        }).start();
+        });
     }
 
     private void updateSummaryCards(UsageStatsDb.DailySummary summary,
@@ -407,7 +475,7 @@ public class UsageDashboardActivity extends AppCompatActivity {
             float hours = s.totalUsageMs / 3600000f;
             entries.add(new Entry(i, hours));
             // Show short date label (MM/dd)
-            String label = s.date.length() >= 10 ? s.date.substring(5) : s.date;
+            String label = DayKeys.shortLabel(s.day);
             labels.add(label);
         }
 
@@ -418,7 +486,10 @@ public class UsageDashboardActivity extends AppCompatActivity {
         dataSet.setCircleRadius(4f);
         dataSet.setCircleHoleColor(COLOR_SURFACE);
         dataSet.setCircleHoleRadius(2f);
-        dataSet.setDrawValues(true);
+        // 30 天以上点太密，只画折线，数值看纵轴
+        boolean dense = summaries.size() > 31;
+        dataSet.setDrawCircles(!dense);
+        dataSet.setDrawValues(!dense);
         dataSet.setValueTextColor(COLOR_TEXT_DIM);
         dataSet.setValueTextSize(9f);
         dataSet.setValueFormatter(new ValueFormatter() {
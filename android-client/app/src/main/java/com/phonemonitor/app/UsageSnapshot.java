@@ -0,0 +1,126 @@
+package com.phonemonitor.app;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStats;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.util.Log;
+
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 某一时刻的今日使用数据快照
+ *
+ * 同一次唤醒里的多个任务（日报、统计收集、娱乐检查）共用一份，
+ * 聚合统计和事件回放都是首次用到时才查询，且只查一次。
+ */
+public class UsageSnapshot {
+    private static final String TAG = "UsageSnapshot";
+
+    public final int day;        // epoch-day
+    public final long dayStart;
+    public final long now;
+
+    private final UsageStatsManager usm;
+    private Map<String, UsageStats> todayStats;
+    private HourBucketer hourly;
+    private int unlockCount;
+
+    private UsageSnapshot(Context context) {
+        this.now = System.currentTimeMillis();
+        this.day = DayKeys.fromMillis(now);
+        this.dayStart = DayKeys.startOfDayMillis(day);
+        this.usm = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+    }
+
+    public static UsageSnapshot capture(Context context) {
+        return new UsageSnapshot(context.getApplicationContext());
+    }
+
+    /**
+     * 今日各包聚合统计（queryAndAggregateUsageStats），无权限或无数据时为空
+     */
+    public synchronized Map<String, UsageStats> getTodayStats() {
+        if (todayStats == null) {
+            Map<String, UsageStats> stats = null;
+            try {
+                if (usm != null) stats = usm.queryAndAggregateUsageStats(dayStart, now);
+            } catch (Exception e) {
+                Log.w(TAG, "查询聚合统计失败: " + e.getMessage());
+            }
+            todayStats = stats != null ? stats : Collections.emptyMap();
+        }
+        return todayStats;
+    }
+
+    /**
+     * 今日按小时分桶的前台时长（排除系统 / 其他分类），同一次遍历顺带统计解锁次数
+     */
+    public synchronized HourBucketer getHourly() {
+        if (hourly == null) {
+            HourBucketer bucketer = new HourBucketer(dayStart, ZoneId.systemDefault());
+            int unlocks = 0;
+            try {
+                if (usm != null) {
+                    HourBucketer.CategoryFilter filter = cat -> !"系统".equals(cat) && !"其他".equals(cat);
+                    UsageEvents events = usm.queryEvents(dayStart, now);
+                    UsageEvents.Event event = new UsageEvents.Event();
+                    while (events.hasNextEvent()) {
+                        events.getNextEvent(event);
+                        if (event.getEventType() == UsageEvents.Event.KEYGUARD_HIDDEN) {
+                            unlocks++;
+                        } else {
+                            bucketer.accept(event, filter);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "回放使用事件失败: " + e.getMessage());
+            }
+            bucketer.finish(now);
+            hourly = bucketer;
+            unlockCount = unlocks;
+        }
+        return hourly;
+    }
+
+    /** 今日解锁次数（KEYGUARD_HIDDEN 事件数） */
+    public synchronized int getUnlockCount() {
+        getHourly();
+        return unlockCount;
+    }
+
+    /**
+     * 最近一段时间内娱乐类应用的前台时长
+     * 窗口跨过今日 00:00 时（如 00:05 的检查），00:00 之前的部分另外回放前一天的事件补上
+     */
+    public Map<String, Long> getEntertainmentSince(long from) {
+        HourBucketer.CategoryFilter filter = EntertainmentAlertReceiver::isEntertainment;
+        Map<String, Long> totals = getHourly().totalsInWindow(Math.max(from, dayStart), now, filter);
+        if (from < dayStart) {
+            Map<String, Long> beforeMidnight = replayBefore(from, dayStart, filter).totalsInWindow(from, dayStart, filter);
+            for (Map.Entry<String, Long> e : beforeMidnight.entrySet()) {
+                totals.merge(e.getKey(), e.getValue(), Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * 回放 [from, end) 的事件（end 为某天 00:00），from 之前已在前台的会话从 from 算起，到 end 仍未结束的记到 end
+     */
+    private HourBucketer replayBefore(long from, long end, HourBucketer.CategoryFilter filter) {
+        HourBucketer bucketer = new HourBucketer(from, ZoneId.systemDefault());
+        bucketer.startReplayAt(from);
+        try {
+            if (usm != null) {
+                bucketer.replay(usm.queryEvents(from, end), filter, end);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "回放前一天使用事件失败: " + e.getMessage());
+        }
+        return bucketer;
+    }
+}
@@ -3,17 +3,12 @@ package com.phonemonitor.app;
 import android.app.usage.UsageStats;
 import android.app.usage.UsageStatsManager;
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
+import android.content.SharedPreferences;
 import android.util.Log;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -22,22 +17,64 @@ import java.util.Map;
  */
 public class UsageStatsCollector {
     private static final String TAG = "UsageStatsCollector";
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+    /** 23:59 统计任务最后一次在当天收尾窗口内写入的日子（epoch-day），那天的数据视为终版 */
+    private static final String KEY_FINAL_DAY = "usage_final_day";
+    /** 之后被整天重新采集过的最早日子，成长目标据此重新日结；-1 表示没有 */
+    private static final String KEY_REVISED_FROM = "usage_revised_from";
+    /** 统计任务可提前 10 分钟，留一点余量 */
+    private static final long FINAL_WINDOW_MS = 15 * 60 * 1000;
     private final Context context;
     private final UsageStatsDb db;
-    private final PackageManager pm;
+    private final PackageMetadataCache packageMeta;
 
     public UsageStatsCollector(Context context) {
         this.context = context.getApplicationContext();
         this.db = UsageStatsDb.getInstance(context);
-        this.pm = context.getPackageManager();
+        this.packageMeta = PackageMetadataCache.getInstance(context);
     }
 
     /**
      * 采集今天的使用统计
      */
     public void collectTodayStats() {
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
-        collectStatsForDate(today);
+        collectStatsForDay(DayKeys.today());
+    }
+
+    /**
+     * 用唤醒快照里已查好的聚合数据采集今天（与同次唤醒的日报共用，不重复查询）
+     */
+    public void collectTodayStats(UsageSnapshot snapshot) {
+        Log.i(TAG, "📊 开始采集使用统计: " + DayKeys.format(snapshot.day));
+        boolean stored = storeDay(snapshot.day, new ArrayList<>(snapshot.getTodayStats().values()));
+        // 当天最后一刻采到的数据（23:59 统计任务）即终版，成长目标零点后可直接日结
+        if (stored && System.currentTimeMillis() >= DayKeys.startOfDayMillis(snapshot.day + 1) - FINAL_WINDOW_MS) {
+            context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                    .putInt(KEY_FINAL_DAY, snapshot.day).apply();
+        }
+    }
+
+    /**
+     * 该日数据是否由 23:59 统计任务在当天收尾时写入
+     */
+    static boolean isFinal(Context context, int day) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getInt(KEY_FINAL_DAY, -1) == day;
+    }
+
+    /**
+     * 取走并清除“被重新采集过的最早日子”，没有时返回 -1
+     */
+    static synchronized int takeRevisedFrom(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int day = prefs.getInt(KEY_REVISED_FROM, -1);
+        if (day >= 0) prefs.edit().remove(KEY_REVISED_FROM).apply();
+        return day;
+    }
+
+    private static synchronized void markRevised(Context context, int day) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int from = prefs.getInt(KEY_REVISED_FROM, -1);
+        if (from < 0 || day < from) prefs.edit().putInt(KEY_REVISED_FROM, day).apply();
     }
 
     /**
@@ -45,43 +82,21 @@ public class UsageStatsCollector {
      */
     public void collectRecentHistory(int days) {
         Log.i(TAG, "📊 开始采集最近 " + days + " 天的历史数据");
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        Calendar cal = Calendar.getInstance();
-        
+        int today = DayKeys.today();
         for (int i = 0; i < days; i++) {
-            String date = sdf.format(cal.getTime());
-            collectStatsForDate(date);
-            cal.add(Calendar.DAY_OF_YEAR, -1);
+            collectStatsForDay(today - i);
         }
     }
 
     /**
-     * 采集指定日期的使用统计
+     * 采集指定日期（epoch-day）的使用统计
      */
-    public void collectStatsForDate(String date) {
-        Log.i(TAG, "📊 开始采集使用统计: " + date);
-
-        // 计算时间范围（当天 00:00 到 23:59）
-        Calendar cal = Calendar.getInstance();
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            cal.setTime(sdf.parse(date));
-        } catch (Exception e) {
-            Log.e(TAG, "日期解析失败: " + date, e);
-            return;
-        }
+    public void collectStatsForDay(int day) {
+        Log.i(TAG, "📊 开始采集使用统计: " + DayKeys.format(day));
 
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        long startTime = cal.getTimeInMillis();
-
-        cal.set(Calendar.HOUR_OF_DAY, 23);
-        cal.set(Calendar.MINUTE, 59);
-        cal.set(Calendar.SECOND, 59);
-        cal.set(Calendar.MILLISECOND, 999);
-        long endTime = cal.getTimeInMillis();
+        // 计算时间范围（当天 00:00 到 23:59:59.999）
+        long startTime = DayKeys.startOfDayMillis(day);
+        long endTime = DayKeys.endOfDayMillis(day);
 
         // 获取使用统计
         UsageStatsManager usm = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
@@ -92,8 +107,7 @@ public class UsageStatsCollector {
 
         // 针对“今天”使用更准确的聚合方法
         List<UsageStats> statsList;
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
-        if (date.equals(today)) {
+        if (day == DayKeys.today()) {
             Map<String, UsageStats> statsMap = usm.queryAndAggregateUsageStats(startTime, System.currentTimeMillis());
             statsList = new ArrayList<>(statsMap.values());
         } else {
@@ -104,9 +118,16 @@ public class UsageStatsCollector {
             );
         }
 
+        storeDay(day, statsList);
+    }
+
+    /**
+     * @return 是否写入了数据
+     */
+    private boolean storeDay(int day, List<UsageStats> statsList) {
         if (statsList == null || statsList.isEmpty()) {
             Log.w(TAG, "⚠️ 未获取到使用统计数据（可能缺少权限）");
-            return;
+            return false;
         }
 
         // 统计数据
@@ -115,6 +136,7 @@ public class UsageStatsCollector {
         int totalApps = 0;
         String topApp = "";
         long topAppUsage = 0;
+        List<UsageStatsDb.AppUsageRecord> records = new ArrayList<>();
 
         for (UsageStats stats : statsList) {
             String packageName = stats.getPackageName();
@@ -129,15 +151,8 @@ public class UsageStatsCollector {
             String appName = getAppName(packageName);
             String category = AppDictionary.getCategory(packageName);
 
-            // 保存到数据库
-            db.upsertDailyUsage(
-                    date,
-                    packageName,
-                    appName,
-                    category,
-                    usageMs,
-                    0 // launchCount 暂不统计
-            );
+            // launchCount 暂不统计
+            records.add(new UsageStatsDb.AppUsageRecord(day, packageName, appName, category, usageMs));
 
             // 累计统计
             totalUsageMs += usageMs;
@@ -169,10 +184,16 @@ public class UsageStatsCollector {
             }
         }
 
-        // 保存每日汇总
-        db.insertDailySummary(date, totalUsageMs, totalApps, topApp, topCategory);
+        // 明细和每日汇总一个事务写入
+        db.saveDay(day, records, totalUsageMs, totalApps, topApp, topCategory);
+        UsageAnalyticsCache.getInstance(context).refreshDay(day);
+        // 过去的日子整天重采：已日结的成长目标需要按新数据修正
+        if (day < DayKeys.today()) markRevised(context, day);
+        // 新的使用数据驱动成长目标评估（合并请求，后台执行）
+        GrowthEvaluator.getInstance(context).requestEvaluation();
 
         Log.i(TAG, "✅ 采集完成: " + totalApps + " 个应用, 总时长 " + (totalUsageMs / 60000) + " 分钟");
+        return true;
     }
 
     /**
@@ -183,12 +204,8 @@ public class UsageStatsCollector {
         AppDictionary.AppInfo dictInfo = AppDictionary.lookup(packageName);
         if (dictInfo != null) return dictInfo.name;
 
-        try {
-            ApplicationInfo info = pm.getApplicationInfo(packageName, 0);
-            return pm.getApplicationLabel(info).toString();
-        } catch (PackageManager.NameNotFoundException e) {
-            return packageName;
-        }
+        String label = packageMeta.getLabel(packageName);
+        return label != null ? label : packageName;
     }
 
     /**
@@ -200,21 +217,18 @@ public class UsageStatsCollector {
             return false;
         }
 
-        try {
-            ApplicationInfo info = pm.getApplicationInfo(packageName, 0);
-            // 排除大部分系统应用，但保留安装在 /data 分区的应用（用户安装的）
-            // 以及排除掉一些明显的系统组件
-            if (packageName.equals("android") || 
-                packageName.startsWith("com.android.systemui") ||
-                packageName.startsWith("com.google.android.permissioncontroller")) {
-                return true;
-            }
-            
-            return (info.flags & ApplicationInfo.FLAG_SYSTEM) != 0 && 
-                   (info.flags & ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) == 0;
-        } catch (PackageManager.NameNotFoundException e) {
-            return false;
+        PackageMetadataCache.PackageMeta meta = packageMeta.get(packageName);
+        if (!meta.installed) return false;
+
+        // 排除大部分系统应用，但保留安装在 /data 分区的应用（用户安装的）
+        // 以及排除掉一些明显的系统组件
+        if (packageName.equals("android") ||
+            packageName.startsWith("com.android.systemui") ||
+            packageName.startsWith("com.google.android.permissioncontroller")) {
+            return true;
         }
+
+        return meta.system && !meta.updatedSystem;
     }
 
     /**
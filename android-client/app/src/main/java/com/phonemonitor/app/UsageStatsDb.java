@@ -7,21 +7,37 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 
 /**
  * App 使用统计数据库
  * 保留所有历史数据，支持趋势分析和周规律统计
+ *
+ * usage_rollup 汇总表在每次写入日数据时增量更新（周 / 月 / 工作日-周末 × 总计 / 分类 / 应用），
+ * 长周期趋势查询只读取结果行本身，不随历史天数增长。
+ * 看板和成长页的短周期聚合由 UsageAnalyticsCache 在内存中计算。
+ *
+ * 日期键为 epoch-day 整数（见 DayKeys），范围查询都是整数比较，与本地时区一致。
  */
 public class UsageStatsDb extends SQLiteOpenHelper {
     private static final String TAG = "UsageStatsDb";
     private static final String DB_NAME = "usage_stats.db";
-    private static final int DB_VERSION = 1;
+    private static final int DB_VERSION = 6;
+
+    // 汇总粒度
+    public static final String GRAIN_WEEK = "week";
+    public static final String GRAIN_MONTH = "month";
+    public static final String GRAIN_WEEKDAY = "weekday";
+    public static final String GRAIN_WEEKEND = "weekend";
+
+    // 汇总维度
+    public static final String DIM_TOTAL = "total";
+    public static final String DIM_CATEGORY = "category";
+    public static final String DIM_APP = "app";
 
     private static UsageStatsDb instance;
 
@@ -33,90 +49,271 @@ public class UsageStatsDb extends SQLiteOpenHelper {
     }
 
     private UsageStatsDb(Context context) {
-        super(context, DB_NAME, null, DB_VERSION);
+        this(context, DB_NAME);
+    }
+
+    /**
+     * 指定库名，供 androidTest 基准测试在独立库里造数据，不碰用户的统计库
+     */
+    UsageStatsDb(Context context, String name) {
+        super(context, name, null, DB_VERSION);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        createDailyTables(db);
+        createRollupTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 4) {
+            // v2 汇总表 / v3 覆盖索引都基于文本日期，统一在整数日期键迁移中重建
+            migrateToEpochDays(db);
+            Log.i(TAG, "✅ Database upgraded to v4: epoch-day keys");
+        }
+        if (oldVersion < 6) {
+            // v5 曾删除汇总表；旧版文本日期的汇总行也不能复用，统一从日表重算
+            db.execSQL("DROP TABLE IF EXISTS usage_rollup");
+            createRollupTable(db);
+            rebuildRollups(db);
+            Log.i(TAG, "✅ Database upgraded to v6: usage rollups rebuilt");
+        }
+    }
+
+    /**
+     * 每日明细 + 每日汇总
+     * day: epoch-day；collected_min: 采集时刻在当天的分钟数（当天多次采集时可判断数据新旧）
+     */
+    private void createDailyTables(SQLiteDatabase db) {
         // 每日应用使用记录
         db.execSQL("CREATE TABLE daily_usage (" +
                 "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "date TEXT NOT NULL," +
+                "day INTEGER NOT NULL," +
                 "package_name TEXT NOT NULL," +
                 "app_name TEXT," +
                 "category TEXT," +
                 "usage_ms INTEGER DEFAULT 0," +
                 "launch_count INTEGER DEFAULT 0," +
+                "collected_min INTEGER DEFAULT 0," +
                 "created_at TEXT DEFAULT (datetime('now','localtime'))," +
-                "UNIQUE(date, package_name))");
+                "UNIQUE(day, package_name))");
 
-        // 每日汇总统计
+        // 每日汇总统计（day 即 rowid，无需额外索引）
         db.execSQL("CREATE TABLE daily_summary (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "date TEXT NOT NULL UNIQUE," +
+                "day INTEGER PRIMARY KEY," +
                 "total_usage_ms INTEGER DEFAULT 0," +
                 "total_apps INTEGER DEFAULT 0," +
                 "top_app TEXT," +
                 "top_category TEXT," +
+                "collected_min INTEGER DEFAULT 0," +
                 "created_at TEXT DEFAULT (datetime('now','localtime')))");
 
-        // 索引优化查询
-        db.execSQL("CREATE INDEX idx_daily_usage_date ON daily_usage(date DESC)");
-        db.execSQL("CREATE INDEX idx_daily_usage_package ON daily_usage(package_name)");
-        db.execSQL("CREATE INDEX idx_daily_summary_date ON daily_summary(date DESC)");
+        // 索引优化查询：按应用看趋势 / 按分类聚合 / 按日排名扫描（均为覆盖索引）
+        db.execSQL("CREATE INDEX idx_daily_usage_package ON daily_usage(package_name, day)");
+        db.execSQL("CREATE INDEX idx_daily_usage_day_category ON daily_usage(day, category, usage_ms)");
+        db.execSQL("CREATE INDEX idx_daily_usage_day_rank " +
+                "ON daily_usage(day, usage_ms DESC, package_name, app_name, category)");
     }
 
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Future migrations
+    /**
+     * 周 / 月 / 工作日-周末汇总表
+     * bucket: week/weekday/weekend 为所在周周一的 epoch-day，month 为 yyyyMM
+     * key: total 维度为空串，category 维度为分类名，app 维度为包名
+     * day_count: 贡献的日记录数（total 维度即有数据的天数）
+     */
+    private void createRollupTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS usage_rollup (" +
+                "grain TEXT NOT NULL," +
+                "dim TEXT NOT NULL," +
+                "bucket INTEGER NOT NULL," +
+                "key TEXT NOT NULL," +
+                "usage_ms INTEGER DEFAULT 0," +
+                "day_count INTEGER DEFAULT 0," +
+                "PRIMARY KEY (grain, dim, bucket, key)) WITHOUT ROWID");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_usage_rollup_key ON usage_rollup(grain, dim, key, bucket)");
     }
 
-    private String now() {
-        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+    /**
+     * 文本日期 → epoch-day：重建两张日表
+     * julianday('yyyy-MM-dd') - 2440587.5 恰为 epoch-day；collected_min 由 created_at 推出
+     */
+    private void migrateToEpochDays(SQLiteDatabase db) {
+        String[] oldIndexes = {"idx_daily_usage_date", "idx_daily_usage_package",
+                "idx_daily_summary_date", "idx_daily_usage_date_category",
+                "idx_daily_usage_date_package"};
+        for (String idx : oldIndexes) {
+            db.execSQL("DROP INDEX IF EXISTS " + idx);
+        }
+        db.execSQL("ALTER TABLE daily_usage RENAME TO daily_usage_old");
+        db.execSQL("ALTER TABLE daily_summary RENAME TO daily_summary_old");
+
+        createDailyTables(db);
+
+        String dayExpr = "CAST(julianday(date) - 2440587.5 AS INTEGER)";
+        String minuteExpr = "IFNULL(CAST(strftime('%H', created_at) AS INTEGER) * 60 + " +
+                "CAST(strftime('%M', created_at) AS INTEGER), 0)";
+        db.execSQL("INSERT OR REPLACE INTO daily_usage (day, package_name, app_name, category, " +
+                "usage_ms, launch_count, collected_min, created_at) " +
+                "SELECT " + dayExpr + ", package_name, app_name, category, usage_ms, launch_count, " +
+                minuteExpr + ", created_at FROM daily_usage_old WHERE julianday(date) IS NOT NULL");
+        db.execSQL("INSERT OR REPLACE INTO daily_summary (day, total_usage_ms, total_apps, top_app, " +
+                "top_category, collected_min, created_at) " +
+                "SELECT " + dayExpr + ", total_usage_ms, total_apps, top_app, top_category, " +
+                minuteExpr + ", created_at FROM daily_summary_old WHERE julianday(date) IS NOT NULL");
+        db.execSQL("DROP TABLE daily_usage_old");
+        db.execSQL("DROP TABLE daily_summary_old");
     }
 
-    private String today() {
-        return new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+    /**
+     * 从 daily_usage / daily_summary 全量重建汇总表（仅用于迁移）
+     * 1970-01-01 为周四：(day + 3) % 7 即周一起算的星期序号
+     */
+    private void rebuildRollups(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM usage_rollup");
+
+        String weekExpr = "(day - (day + 3) % 7)";
+        String monthExpr = "CAST(strftime('%Y%m', day * 86400, 'unixepoch') AS INTEGER)";
+        String dayTypeExpr = "CASE WHEN (day + 3) % 7 >= 5 " +
+                "THEN '" + GRAIN_WEEKEND + "' ELSE '" + GRAIN_WEEKDAY + "' END";
+        String[][] grains = {
+                {"'" + GRAIN_WEEK + "'", weekExpr},
+                {"'" + GRAIN_MONTH + "'", monthExpr},
+                {dayTypeExpr, weekExpr},
+        };
+        String categoryExpr = "CASE WHEN category IS NULL OR category = '' THEN '其他' ELSE category END";
+
+        for (String[] g : grains) {
+            db.execSQL("INSERT INTO usage_rollup (grain, dim, bucket, key, usage_ms, day_count) " +
+                    "SELECT " + g[0] + ", '" + DIM_CATEGORY + "', " + g[1] + ", " + categoryExpr +
+                    ", SUM(usage_ms), COUNT(*) FROM daily_usage GROUP BY 1, 3, 4");
+            db.execSQL("INSERT INTO usage_rollup (grain, dim, bucket, key, usage_ms, day_count) " +
+                    "SELECT " + g[0] + ", '" + DIM_APP + "', " + g[1] + ", package_name" +
+                    ", SUM(usage_ms), COUNT(*) FROM daily_usage GROUP BY 1, 3, 4");
+            db.execSQL("INSERT INTO usage_rollup (grain, dim, bucket, key, usage_ms, day_count) " +
+                    "SELECT " + g[0] + ", '" + DIM_TOTAL + "', " + g[1] + ", ''" +
+                    ", SUM(total_usage_ms), COUNT(*) FROM daily_summary GROUP BY 1, 3");
+        }
     }
 
     // ==================== 数据插入 ====================
 
     /**
-     * 插入或更新每日应用使用记录
+     * 写入某天的全部应用记录和当日汇总，一个事务内完成
+     * 先读出当天旧行，按 分类 / 应用 / 总计 合并出变化量，只把非零变化累加到汇总表：
+     * 当天重复采集时大部分应用时长不变，汇总表几乎不产生写入
      */
-    public void upsertDailyUsage(String date, String packageName, String appName,
-                                  String category, long usageMs, int launchCount) {
+    public void saveDay(int day, List<AppUsageRecord> records, long totalUsageMs, int totalApps,
+                        String topApp, String topCategory) {
         SQLiteDatabase db = getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put("date", date);
-        cv.put("package_name", packageName);
-        cv.put("app_name", appName);
-        cv.put("category", category);
-        cv.put("usage_ms", usageMs);
-        cv.put("launch_count", launchCount);
-        cv.put("created_at", now());
-
-        long result = db.insertWithOnConflict("daily_usage", null, cv, SQLiteDatabase.CONFLICT_REPLACE);
-        if (result > 0) {
-            Log.d(TAG, "✅ 已保存使用记录: " + date + " " + appName + " " + (usageMs / 60000) + "min");
+        int collectedMin = DayKeys.minuteOfDay(System.currentTimeMillis());
+        String createdAt = DayKeys.nowTimestamp();
+
+        db.beginTransaction();
+        try {
+            // 当天旧行：包名 → 分类 / 时长
+            Map<String, String> oldCategory = new HashMap<>();
+            Map<String, Long> oldUsage = new HashMap<>();
+            Cursor old = db.rawQuery(
+                    "SELECT package_name, category, usage_ms FROM daily_usage WHERE day = ?",
+                    new String[]{String.valueOf(day)});
+            while (old.moveToNext()) {
+                oldCategory.put(old.getString(0), normalizeCategory(old.getString(1)));
+                oldUsage.put(old.getString(0), old.getLong(2));
+            }
+            old.close();
+            Cursor oldSummary = db.rawQuery(
+                    "SELECT total_usage_ms FROM daily_summary WHERE day = ?",
+                    new String[]{String.valueOf(day)});
+            boolean summaryExisted = oldSummary.moveToFirst();
+            long oldTotalMs = summaryExisted ? oldSummary.getLong(0) : 0;
+            oldSummary.close();
+
+            // key → {Δusage_ms, Δday_count}
+            Map<String, long[]> categoryDelta = new HashMap<>();
+            Map<String, long[]> appDelta = new HashMap<>();
+
+            ContentValues cv = new ContentValues();
+            for (AppUsageRecord r : records) {
+                Long oldMs = oldUsage.get(r.packageName);
+                if (oldMs != null) {
+                    addDelta(categoryDelta, oldCategory.get(r.packageName), -oldMs, -1);
+                    addDelta(appDelta, r.packageName, -oldMs, -1);
+                }
+                addDelta(categoryDelta, normalizeCategory(r.category), r.usageMs, 1);
+                addDelta(appDelta, r.packageName, r.usageMs, 1);
+
+                cv.clear();
+                cv.put("day", day);
+                cv.put("package_name", r.packageName);
+                cv.put("app_name", r.appName);
+                cv.put("category", r.category);
+                cv.put("usage_ms", r.usageMs);
+                cv.put("launch_count", r.launchCount);
+                cv.put("collected_min", collectedMin);
+                cv.put("created_at", createdAt);
+                db.insertWithOnConflict("daily_usage", null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+
+            cv.clear();
+            cv.put("day", day);
+            cv.put("total_usage_ms", totalUsageMs);
+            cv.put("total_apps", totalApps);
+            cv.put("top_app", topApp);
+            cv.put("top_category", topCategory);
+            cv.put("collected_min", collectedMin);
+            cv.put("created_at", createdAt);
+            db.insertWithOnConflict("daily_summary", null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+
+            for (Map.Entry<String, long[]> e : categoryDelta.entrySet()) {
+                applyRollupDelta(db, day, DIM_CATEGORY, e.getKey(), e.getValue()[0], (int) e.getValue()[1]);
+            }
+            for (Map.Entry<String, long[]> e : appDelta.entrySet()) {
+                applyRollupDelta(db, day, DIM_APP, e.getKey(), e.getValue()[0], (int) e.getValue()[1]);
+            }
+            applyRollupDelta(db, day, DIM_TOTAL, "", totalUsageMs - oldTotalMs, summaryExisted ? 0 : 1);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "✅ 已保存使用记录: " + DayKeys.format(day) + " " + records.size() + " 个应用");
+    }
+
+    private static void addDelta(Map<String, long[]> deltas, String key, long deltaMs, int deltaDays) {
+        long[] d = deltas.get(key);
+        if (d == null) {
+            d = new long[2];
+            deltas.put(key, d);
         }
+        d[0] += deltaMs;
+        d[1] += deltaDays;
     }
 
     /**
-     * 插入每日汇总
+     * 将一条日数据的变化量累加到 周 / 月 / 工作日-周末 三个粒度
      */
-    public void insertDailySummary(String date, long totalUsageMs, int totalApps,
-                                    String topApp, String topCategory) {
-        SQLiteDatabase db = getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put("date", date);
-        cv.put("total_usage_ms", totalUsageMs);
-        cv.put("total_apps", totalApps);
-        cv.put("top_app", topApp);
-        cv.put("top_category", topCategory);
-        cv.put("created_at", now());
+    private void applyRollupDelta(SQLiteDatabase db, int day, String dim, String key,
+                                  long deltaMs, int deltaDays) {
+        if (deltaMs == 0 && deltaDays == 0) return;
+        int week = DayKeys.weekStart(day);
+        String dayType = DayKeys.isWeekend(day) ? GRAIN_WEEKEND : GRAIN_WEEKDAY;
+
+        addToRollup(db, GRAIN_WEEK, dim, week, key, deltaMs, deltaDays);
+        addToRollup(db, GRAIN_MONTH, dim, DayKeys.monthKey(day), key, deltaMs, deltaDays);
+        addToRollup(db, dayType, dim, week, key, deltaMs, deltaDays);
+    }
 
-        db.insertWithOnConflict("daily_summary", null, cv, SQLiteDatabase.CONFLICT_REPLACE);
+    private void addToRollup(SQLiteDatabase db, String grain, String dim, int bucket, String key,
+                             long deltaMs, int deltaDays) {
+        Object[] pk = {grain, dim, bucket, key};
+        db.execSQL("INSERT OR IGNORE INTO usage_rollup (grain, dim, bucket, key) VALUES (?, ?, ?, ?)", pk);
+        db.execSQL("UPDATE usage_rollup SET usage_ms = usage_ms + ?, day_count = day_count + ? " +
+                        "WHERE grain = ? AND dim = ? AND bucket = ? AND key = ?",
+                new Object[]{deltaMs, deltaDays, grain, dim, bucket, key});
+    }
+
+    private static String normalizeCategory(String category) {
+        return category != null && !category.isEmpty() ? category : "其他";
     }
 
     // ==================== 查询 ====================
@@ -124,12 +321,12 @@ public class UsageStatsDb extends SQLiteOpenHelper {
     /**
      * 获取指定日期的应用使用记录
      */
-    public List<AppUsageRecord> getDailyUsage(String date) {
+    public List<AppUsageRecord> getDailyUsage(int day) {
         List<AppUsageRecord> records = new ArrayList<>();
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.rawQuery(
-                "SELECT * FROM daily_usage WHERE date = ? ORDER BY usage_ms DESC",
-                new String[]{date});
+                "SELECT * FROM daily_usage WHERE day = ? ORDER BY usage_ms DESC",
+                new String[]{String.valueOf(day)});
 
         while (cursor.moveToNext()) {
             records.add(new AppUsageRecord(cursor));
@@ -141,11 +338,11 @@ public class UsageStatsDb extends SQLiteOpenHelper {
     /**
      * 获取指定日期的汇总统计
      */
-    public DailySummary getDailySummary(String date) {
+    public DailySummary getDailySummary(int day) {
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.rawQuery(
-                "SELECT * FROM daily_summary WHERE date = ?",
-                new String[]{date});
+                "SELECT * FROM daily_summary WHERE day = ?",
+                new String[]{String.valueOf(day)});
 
         DailySummary summary = null;
         if (cursor.moveToFirst()) {
@@ -162,7 +359,7 @@ public class UsageStatsDb extends SQLiteOpenHelper {
         List<DailySummary> summaries = new ArrayList<>();
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.rawQuery(
-                "SELECT * FROM daily_summary ORDER BY date DESC LIMIT ?",
+                "SELECT * FROM daily_summary ORDER BY day DESC LIMIT ?",
                 new String[]{String.valueOf(days)});
 
         while (cursor.moveToNext()) {
@@ -180,7 +377,7 @@ public class UsageStatsDb extends SQLiteOpenHelper {
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.rawQuery(
                 "SELECT * FROM daily_usage WHERE package_name = ? " +
-                        "ORDER BY date DESC LIMIT ?",
+                        "ORDER BY day DESC LIMIT ?",
                 new String[]{packageName, String.valueOf(days)});
 
         while (cursor.moveToNext()) {
@@ -191,22 +388,35 @@ public class UsageStatsDb extends SQLiteOpenHelper {
     }
 
     /**
-     * 获取指定分类的历史趋势（最近 N 天）
+     * 按 (日期升序, 时长降序) 扫描 [startDay, endDay] 的原始使用行，供 UsageAnalyticsCache 加载
+     * 列顺序: day, package_name, app_name, category, usage_ms；走 idx_daily_usage_day_rank 覆盖索引
+     * 调用方负责关闭 Cursor
+     */
+    public Cursor queryUsageRows(int startDay, int endDay) {
+        SQLiteDatabase db = getReadableDatabase();
+        return db.rawQuery(
+                "SELECT day, package_name, app_name, category, usage_ms FROM daily_usage " +
+                        "WHERE day BETWEEN ? AND ? ORDER BY day, usage_ms DESC",
+                new String[]{String.valueOf(startDay), String.valueOf(endDay)});
+    }
+
+    /**
+     * 获取指定分类的历史趋势（最近 N 天，按日期范围过滤，不截断分类）
      */
     public List<CategoryUsage> getCategoryTrend(int days) {
         List<CategoryUsage> trends = new ArrayList<>();
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.rawQuery(
-                "SELECT date, category, SUM(usage_ms) as total_ms " +
+                "SELECT day, category, SUM(usage_ms) as total_ms " +
                         "FROM daily_usage " +
-                        "GROUP BY date, category " +
-                        "ORDER BY date DESC, total_ms DESC " +
-                        "LIMIT ?",
-                new String[]{String.valueOf(days * 10)});
+                        "WHERE day >= ? " +
+                        "GROUP BY day, category " +
+                        "ORDER BY day DESC, total_ms DESC",
+                new String[]{String.valueOf(DayKeys.today() - days + 1)});
 
         while (cursor.moveToNext()) {
             trends.add(new CategoryUsage(
-                    cursor.getString(0),
+                    cursor.getInt(0),
                     cursor.getString(1),
                     cursor.getLong(2)
             ));
@@ -217,109 +427,255 @@ public class UsageStatsDb extends SQLiteOpenHelper {
 
     /**
      * 获取周规律统计（工作日 vs 周末）
+     * 最近 7 天均值 / 峰值取自 daily_summary 的 7 行，工作日 / 周末均值取自最近 5 周的汇总表
      */
     public WeeklyPattern getWeeklyPattern() {
         SQLiteDatabase db = getReadableDatabase();
-        
-        // 最近 7 天的平均使用时长
+        int today = DayKeys.today();
+
+        // 最近 7 天的平均使用时长 + 峰值日期
         Cursor cursor = db.rawQuery(
-                "SELECT AVG(total_usage_ms) FROM daily_summary " +
-                        "WHERE date >= date('now', '-7 days')",
-                null);
-        
-        long weekAvg = 0;
-        if (cursor.moveToFirst()) {
-            weekAvg = cursor.getLong(0);
+                "SELECT day, total_usage_ms FROM daily_summary " +
+                        "WHERE day >= ? ORDER BY total_usage_ms DESC",
+                new String[]{String.valueOf(today - 6)});
+
+        long weekTotal = 0;
+        int weekDays = 0;
+        int peakDay = 0;
+        long peakUsage = 0;
+        while (cursor.moveToNext()) {
+            if (weekDays == 0) {
+                peakDay = cursor.getInt(0);
+                peakUsage = cursor.getLong(1);
+            }
+            weekTotal += cursor.getLong(1);
+            weekDays++;
         }
         cursor.close();
+        long weekAvg = weekDays > 0 ? weekTotal / weekDays : 0;
 
-        // 工作日平均（周一到周五）
+        // 工作日 / 周末平均（最近 5 周）
         cursor = db.rawQuery(
-                "SELECT AVG(total_usage_ms) FROM daily_summary " +
-                        "WHERE date >= date('now', '-30 days') " +
-                        "AND CAST(strftime('%w', date) AS INTEGER) BETWEEN 1 AND 5",
-                null);
-        
+                "SELECT grain, SUM(usage_ms), SUM(day_count) FROM usage_rollup " +
+                        "WHERE grain IN (?, ?) AND dim = ? AND bucket >= ? GROUP BY grain",
+                new String[]{GRAIN_WEEKDAY, GRAIN_WEEKEND, DIM_TOTAL,
+                        String.valueOf(DayKeys.weekStart(today - 29))});
+
         long weekdayAvg = 0;
-        if (cursor.moveToFirst()) {
-            weekdayAvg = cursor.getLong(0);
+        long weekendAvg = 0;
+        while (cursor.moveToNext()) {
+            long days = cursor.getLong(2);
+            long avg = days > 0 ? cursor.getLong(1) / days : 0;
+            if (GRAIN_WEEKEND.equals(cursor.getString(0))) {
+                weekendAvg = avg;
+            } else {
+                weekdayAvg = avg;
+            }
         }
         cursor.close();
 
-        // 周末平均（周六周日）
-        cursor = db.rawQuery(
-                "SELECT AVG(total_usage_ms) FROM daily_summary " +
-                        "WHERE date >= date('now', '-30 days') " +
-                        "AND CAST(strftime('%w', date) AS INTEGER) IN (0, 6)",
-                null);
-        
-        long weekendAvg = 0;
-        if (cursor.moveToFirst()) {
-            weekendAvg = cursor.getLong(0);
+        return new WeeklyPattern(weekAvg, weekdayAvg, weekendAvg, peakDay, peakUsage);
+    }
+
+    // ==================== 汇总趋势 ====================
+
+    /**
+     * 最近 N 周（含本周）的总使用时长，缺失的周补 0，按时间升序（看板取 4 / 12 周）
+     */
+    public List<RollupPoint> getWeeklyTrend(int weeks) {
+        int start = DayKeys.weekStart(DayKeys.today()) - (weeks - 1) * 7;
+        List<RollupPoint> rows = queryRollup(GRAIN_WEEK, DIM_TOTAL, null, start);
+        int[] buckets = new int[weeks];
+        for (int i = 0; i < weeks; i++) {
+            buckets[i] = start + i * 7;
         }
-        cursor.close();
+        return fillBuckets(buckets, rows);
+    }
 
-        // 峰值日期
-        cursor = db.rawQuery(
-                "SELECT date, total_usage_ms FROM daily_summary " +
-                        "WHERE date >= date('now', '-7 days') " +
-                        "ORDER BY total_usage_ms DESC LIMIT 1",
-                null);
-        
-        String peakDate = "";
-        long peakUsage = 0;
-        if (cursor.moveToFirst()) {
-            peakDate = cursor.getString(0);
-            peakUsage = cursor.getLong(1);
+    /**
+     * 最近 N 个月（含本月）的总使用时长，缺失的月补 0，按时间升序（看板取 12 个月）
+     */
+    public List<RollupPoint> getMonthlyTrend(int months) {
+        LocalDate start = firstMonth(months);
+        int[] buckets = new int[months];
+        for (int i = 0; i < months; i++) {
+            buckets[i] = DayKeys.monthKey((int) start.plusMonths(i).toEpochDay());
         }
-        cursor.close();
+        List<RollupPoint> rows = queryRollup(GRAIN_MONTH, DIM_TOTAL, null, buckets[0]);
+        return fillBuckets(buckets, rows);
+    }
 
-        return new WeeklyPattern(weekAvg, weekdayAvg, weekendAvg, peakDate, peakUsage);
+    /**
+     * 最近 N 周各分类使用时长（按周升序，同周内按时长降序）
+     */
+    public List<RollupPoint> getCategoryWeeklyTrend(int weeks) {
+        int start = DayKeys.weekStart(DayKeys.today()) - (weeks - 1) * 7;
+        return queryRollup(GRAIN_WEEK, DIM_CATEGORY, null, start);
     }
 
     /**
-     * 获取指定日期之前的 N 天汇总统计（包含空缺日期，用 0 填充）
+     * 最近 N 个月各分类使用时长（按月升序，同月内按时长降序）
      */
-    public List<DailySummary> getRecentSummariesForRange(String endDateStr, int days) {
-        List<DailySummary> result = new ArrayList<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        Calendar cal = Calendar.getInstance();
-        try {
-            cal.setTime(sdf.parse(endDateStr));
-        } catch (Exception e) {
-            Log.e(TAG, "日期解析失败: " + endDateStr);
+    public List<RollupPoint> getCategoryMonthlyTrend(int months) {
+        return queryRollup(GRAIN_MONTH, DIM_CATEGORY, null, firstMonthKey(months));
+    }
+
+    /**
+     * 指定应用最近 N 周的使用时长（只返回有数据的周）
+     */
+    public List<RollupPoint> getAppWeeklyTrend(String packageName, int weeks) {
+        int start = DayKeys.weekStart(DayKeys.today()) - (weeks - 1) * 7;
+        return queryRollup(GRAIN_WEEK, DIM_APP, packageName, start);
+    }
+
+    /**
+     * 指定应用最近 N 个月的使用时长（只返回有数据的月）
+     */
+    public List<RollupPoint> getAppMonthlyTrend(String packageName, int months) {
+        return queryRollup(GRAIN_MONTH, DIM_APP, packageName, firstMonthKey(months));
+    }
+
+    private List<RollupPoint> queryRollup(String grain, String dim, String key, int fromBucket) {
+        List<RollupPoint> points = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor;
+        if (key != null) {
+            cursor = db.rawQuery(
+                    "SELECT bucket, key, usage_ms, day_count FROM usage_rollup " +
+                            "WHERE grain = ? AND dim = ? AND key = ? AND bucket >= ? " +
+                            "ORDER BY bucket",
+                    new String[]{grain, dim, key, String.valueOf(fromBucket)});
+        } else {
+            cursor = db.rawQuery(
+                    "SELECT bucket, key, usage_ms, day_count FROM usage_rollup " +
+                            "WHERE grain = ? AND dim = ? AND bucket >= ? " +
+                            "ORDER BY bucket, usage_ms DESC",
+                    new String[]{grain, dim, String.valueOf(fromBucket)});
+        }
+        while (cursor.moveToNext()) {
+            points.add(new RollupPoint(
+                    cursor.getInt(0),
+                    cursor.getString(1),
+                    cursor.getLong(2),
+                    cursor.getInt(3)));
+        }
+        cursor.close();
+        return points;
+    }
+
+    private List<RollupPoint> fillBuckets(int[] buckets, List<RollupPoint> rows) {
+        List<RollupPoint> result = new ArrayList<>();
+        int j = 0;
+        for (int bucket : buckets) {
+            while (j < rows.size() && rows.get(j).bucket < bucket) j++;
+            if (j < rows.size() && rows.get(j).bucket == bucket) {
+                result.add(rows.get(j++));
+            } else {
+                result.add(new RollupPoint(bucket, "", 0, 0));
+            }
         }
+        return result;
+    }
 
-        // 从 endDate 向前推 days-1 天
-        cal.add(Calendar.DAY_OF_YEAR, -(days - 1));
+    private static LocalDate firstMonth(int months) {
+        return DayKeys.toLocalDate(DayKeys.today()).withDayOfMonth(1).minusMonths(months - 1);
+    }
 
-        for (int i = 0; i < days; i++) {
-            String date = sdf.format(cal.getTime());
-            DailySummary summary = getDailySummary(date);
-            if (summary == null) {
+    private static int firstMonthKey(int months) {
+        return DayKeys.monthKey((int) firstMonth(months).toEpochDay());
+    }
+
+    /**
+     * 获取截至 endDay 的 N 天汇总统计（包含空缺日期，用 0 填充）
+     */
+    public List<DailySummary> getRecentSummariesForRange(int endDay, int days) {
+        List<DailySummary> result = new ArrayList<>();
+        int startDay = endDay - days + 1;
+
+        // 一次范围查询，再按日期顺序补齐缺失的天
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery(
+                "SELECT * FROM daily_summary WHERE day BETWEEN ? AND ? ORDER BY day",
+                new String[]{String.valueOf(startDay), String.valueOf(endDay)});
+
+        DailySummary next = cursor.moveToNext() ? new DailySummary(cursor) : null;
+        for (int day = startDay; day <= endDay; day++) {
+            if (next != null && next.day == day) {
+                result.add(next);
+                next = cursor.moveToNext() ? new DailySummary(cursor) : null;
+            } else {
                 // 创建一个空汇总
-                summary = new DailySummary(date, 0, 0, "", "");
+                result.add(new DailySummary(day, 0, 0, "", ""));
             }
-            result.add(summary);
-            cal.add(Calendar.DAY_OF_YEAR, 1);
         }
+        cursor.close();
         return result;
     }
 
+    /**
+     * 截至 endDay 的 N 天内各分类日均使用时长（总时长 / N，缺数据的天按 0 计）
+     */
+    public Map<String, Long> getCategoryAverages(int endDay, int days) {
+        Map<String, Long> avgs = new HashMap<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery(
+                "SELECT CASE WHEN category IS NULL OR category = '' THEN '其他' ELSE category END AS cat, " +
+                        "SUM(usage_ms) FROM daily_usage " +
+                        "WHERE day BETWEEN ? AND ? GROUP BY cat",
+                new String[]{String.valueOf(endDay - days + 1), String.valueOf(endDay)});
+        while (cursor.moveToNext()) {
+            avgs.put(cursor.getString(0), cursor.getLong(1) / days);
+        }
+        cursor.close();
+        return avgs;
+    }
+
+    /**
+     * [startDay, endDay] 内用过的应用，每个包一行，按区间总时长降序，最多 limit 个
+     */
+    public List<AppTotal> getAppTotals(int startDay, int endDay, int limit) {
+        List<AppTotal> apps = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery(
+                "SELECT package_name, MAX(app_name), MAX(category), SUM(usage_ms) AS total_ms, COUNT(*) " +
+                        "FROM daily_usage WHERE day BETWEEN ? AND ? " +
+                        "GROUP BY package_name ORDER BY total_ms DESC LIMIT ?",
+                new String[]{String.valueOf(startDay), String.valueOf(endDay), String.valueOf(limit)});
+        while (cursor.moveToNext()) {
+            apps.add(new AppTotal(
+                    cursor.getString(0),
+                    cursor.getString(1),
+                    cursor.getString(2),
+                    cursor.getLong(3),
+                    cursor.getInt(4)));
+        }
+        cursor.close();
+        return apps;
+    }
+
     // ==================== 数据模型 ====================
 
     public static class AppUsageRecord {
         public long id;
-        public String date;
+        public int day;           // epoch-day
         public String packageName;
         public String appName;
         public String category;
         public long usageMs;
         public int launchCount;
 
+        public AppUsageRecord(int day, String packageName, String appName,
+                              String category, long usageMs) {
+            this.day = day;
+            this.packageName = packageName;
+            this.appName = appName;
+            this.category = category;
+            this.usageMs = usageMs;
+        }
+
         public AppUsageRecord(Cursor cursor) {
             this.id = cursor.getLong(cursor.getColumnIndexOrThrow("id"));
-            this.date = cursor.getString(cursor.getColumnIndexOrThrow("date"));
+            this.day = cursor.getInt(cursor.getColumnIndexOrThrow("day"));
             this.packageName = cursor.getString(cursor.getColumnIndexOrThrow("package_name"));
             this.appName = cursor.getString(cursor.getColumnIndexOrThrow("app_name"));
             this.category = cursor.getString(cursor.getColumnIndexOrThrow("category"));
@@ -329,15 +685,14 @@ public class UsageStatsDb extends SQLiteOpenHelper {
     }
 
     public static class DailySummary {
-        public long id;
-        public String date;
+        public int day;           // epoch-day
         public long totalUsageMs;
         public int totalApps;
         public String topApp;
         public String topCategory;
 
-        public DailySummary(String date, long totalUsageMs, int totalApps, String topApp, String topCategory) {
-            this.date = date;
+        public DailySummary(int day, long totalUsageMs, int totalApps, String topApp, String topCategory) {
+            this.day = day;
             this.totalUsageMs = totalUsageMs;
             this.totalApps = totalApps;
             this.topApp = topApp;
@@ -345,8 +700,7 @@ public class UsageStatsDb extends SQLiteOpenHelper {
         }
 
         public DailySummary(Cursor cursor) {
-            this.id = cursor.getLong(cursor.getColumnIndexOrThrow("id"));
-            this.date = cursor.getString(cursor.getColumnIndexOrThrow("date"));
+            this.day = cursor.getInt(cursor.getColumnIndexOrThrow("day"));
             this.totalUsageMs = cursor.getLong(cursor.getColumnIndexOrThrow("total_usage_ms"));
             this.totalApps = cursor.getInt(cursor.getColumnIndexOrThrow("total_apps"));
             this.topApp = cursor.getString(cursor.getColumnIndexOrThrow("top_app"));
@@ -355,31 +709,68 @@ public class UsageStatsDb extends SQLiteOpenHelper {
     }
 
     public static class CategoryUsage {
-        public String date;
+        public int day;
         public String category;
         public long totalMs;
 
-        public CategoryUsage(String date, String category, long totalMs) {
-            this.date = date;
+        public CategoryUsage(int day, String category, long totalMs) {
+            this.day = day;
             this.category = category;
             this.totalMs = totalMs;
         }
     }
 
+    public static class RollupPoint {
+        public int bucket;        // 周一的 epoch-day 或 月份 yyyyMM
+        public String key;        // 分类名 / 包名，总计为空串
+        public long usageMs;
+        public int dayCount;
+
+        public RollupPoint(int bucket, String key, long usageMs, int dayCount) {
+            this.bucket = bucket;
+            this.key = key;
+            this.usageMs = usageMs;
+            this.dayCount = dayCount;
+        }
+
+        /**
+         * 该周期内有数据的日均时长（total / app 维度有意义）
+         */
+        public long avgDailyMs() {
+            return dayCount > 0 ? usageMs / dayCount : 0;
+        }
+    }
+
     public static class WeeklyPattern {
         public long weekAvg;
         public long weekdayAvg;
         public long weekendAvg;
-        public String peakDate;
+        public int peakDay;       // epoch-day，无数据时为 0
         public long peakUsage;
 
         public WeeklyPattern(long weekAvg, long weekdayAvg, long weekendAvg,
-                             String peakDate, long peakUsage) {
+                             int peakDay, long peakUsage) {
             this.weekAvg = weekAvg;
             this.weekdayAvg = weekdayAvg;
             this.weekendAvg = weekendAvg;
-            this.peakDate = peakDate;
+            this.peakDay = peakDay;
             this.peakUsage = peakUsage;
         }
     }
+
+    public static class AppTotal {
+        public String packageName;
+        public String appName;
+        public String category;
+        public long usageMs;
+        public int days;          // 区间内有使用记录的天数
+
+        public AppTotal(String packageName, String appName, String category, long usageMs, int days) {
+            this.packageName = packageName;
+            this.appName = appName;
+            this.category = category;
+            this.usageMs = usageMs;
+            this.days = days;
+        }
+    }
 }
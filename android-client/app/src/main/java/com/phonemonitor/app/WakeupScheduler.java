@@ -0,0 +1,304 @@
+package com.phonemonitor.app;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 统一的定时唤醒调度
+ *
+ * 日报、统计收集、娱乐整点检查、成长目标评估共用一个闹钟。每个任务有一个可接受的执行窗口，
+ * 闹钟定在最早截止的那个任务上；唤醒时所有窗口已开始的任务一起执行，共用一份 UsageSnapshot 和一个 WakeLock。
+ * 不需要准点的任务用 setWindow 交给系统批量唤醒。每个任务持锁时长累计到 prefs，用于评估耗电。
+ *
+ * 任务执行完才记为完成（wakeup_done_*）。开始时先记下 wakeup_started_*，进程在执行中被杀时，
+ * 锁超时后按原计划时刻重试（不受窗口限制，最多 MAX_ATTEMPTS 次）。
+ * 计划时刻按系统时区计算（19:00 即设备本地 19:00）。
+ */
+public class WakeupScheduler extends BroadcastReceiver {
+    private static final String TAG = "WakeupScheduler";
+    private static final String PREFS_NAME = "phone_monitor_prefs";
+    private static final String ACTION_WAKEUP = "com.phonemonitor.app.WAKEUP";
+    private static final int ALARM_CODE = 77700;
+    private static final long WAKELOCK_TIMEOUT_MS = 120000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** 周期任务 */
+    enum Job {
+        /** 19:00 日报，准点 */
+        REPORT("report", true, 0, 0),
+        /** 23:59 收集当日统计，可提前 10 分钟，必须在零点前 */
+        STATS("stats", true, 10, 0),
+        /** 每小时 :05 娱乐检查，前后 10 分钟内均可 */
+        ENTERTAINMENT("entertainment", false, 10, 10),
+        /** 每小时 :05 采集今日统计并评估成长目标，与娱乐检查同一窗口；没有目标时不调度 */
+        GROWTH("growth", false, 10, 10);
+
+        final String key;
+        final boolean exact;
+        final long earlyMs;
+        final long lateMs;
+
+        Job(String key, boolean exact, int earlyMin, int lateMin) {
+            this.key = key;
+            this.exact = exact;
+            this.earlyMs = earlyMin * 60000L;
+            this.lateMs = lateMin * 60000L;
+        }
+
+        /** t 之后（含）的第一个计划时刻 */
+        long occurrenceAtOrAfter(long t) {
+            ZonedDateTime at = Instant.ofEpochMilli(t).atZone(ZoneId.systemDefault());
+            ZonedDateTime next;
+            switch (this) {
+                case REPORT:
+                    next = at.with(LocalTime.of(19, 0));
+                    if (next.isBefore(at)) next = next.plusDays(1).with(LocalTime.of(19, 0));
+                    break;
+                case STATS:
+                    next = at.with(LocalTime.of(23, 59));
+                    if (next.isBefore(at)) next = next.plusDays(1).with(LocalTime.of(23, 59));
+                    break;
+                default:
+                    next = at.truncatedTo(ChronoUnit.HOURS).plusMinutes(5);
+                    if (next.isBefore(at)) next = next.plusHours(1);
+                    break;
+            }
+            return next.toInstant().toEpochMilli();
+        }
+
+        boolean isEnabled(SharedPreferences prefs) {
+            if (this == ENTERTAINMENT) return prefs.getBoolean("entertainment_alert_enabled", true);
+            if (this == GROWTH) return prefs.getBoolean(GrowthEvaluator.KEY_GOALS_ACTIVE, false);
+            return true;
+        }
+
+        void run(Context context, UsageSnapshot snapshot) throws Exception {
+            switch (this) {
+                case REPORT:
+                    Log.i(TAG, "✅ " + new FeishuSender(context).collectAndSend(snapshot));
+                    break;
+                case STATS:
+                    new UsageStatsCollector(context).collectTodayStats(snapshot);
+                    Log.i(TAG, "✅ 使用统计已收集");
+                    Log.i(TAG, "🧵 " + TaskScheduler.formatStats());
+                    break;
+                case GROWTH:
+                    // 落库后由采集器触发评估
+                    new UsageStatsCollector(context).collectTodayStats(snapshot);
+                    break;
+                default:
+                    EntertainmentAlertReceiver.checkAndAlert(context, snapshot);
+                    break;
+            }
+        }
+    }
+
+    // ==================== 唤醒 ====================
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context app = context.getApplicationContext();
+        SharedPreferences prefs = app.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long now = System.currentTimeMillis();
+
+        List<Job> due = new ArrayList<>();
+        List<Long> occurrences = new ArrayList<>();
+        for (Job job : Job.values()) {
+            if (!job.isEnabled(prefs)) continue;
+            Slot slot = nextSlot(prefs, job, now);
+            if (slot.earliest <= now) {
+                due.add(job);
+                occurrences.add(slot.occurrence);
+            }
+        }
+        // 记下开始时刻（同步写入，进程随时可能被杀），执行中的任务在锁超时前不会再被唤醒
+        SharedPreferences.Editor editor = prefs.edit();
+        for (int i = 0; i < due.size(); i++) {
+            String key = due.get(i).key;
+            long occurrence = occurrences.get(i);
+            int attempts = prefs.getLong("wakeup_started_" + key, 0) == occurrence
+                    ? prefs.getInt("wakeup_attempts_" + key, 0) + 1 : 1;
+            editor.putLong("wakeup_started_" + key, occurrence)
+                    .putLong("wakeup_started_at_" + key, now)
+                    .putInt("wakeup_attempts_" + key, attempts);
+        }
+        editor.commit();
+        reschedule(app);
+
+        if (due.isEmpty()) {
+            Log.d(TAG, "⏰ 唤醒时无到期任务");
+            return;
+        }
+        Log.i(TAG, "⏰ 合并唤醒: " + due);
+
+        // onReceive 返回后进程会被视为空闲，goAsync 让广播保持进行中直到任务跑完
+        PendingResult pending = goAsync();
+        PowerManager pm = (PowerManager) app.getSystemService(Context.POWER_SERVICE);
+        PowerManager.WakeLock wl = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "PhoneMonitor:Wakeup");
+        wl.acquire(WAKELOCK_TIMEOUT_MS);
+        long lockStart = SystemClock.elapsedRealtime();
+
+        TaskScheduler.execute(TaskScheduler.Pool.NETWORK, TaskScheduler.Lane.BACKGROUND, "wakeup", () -> {
+            try {
+                UsageSnapshot snapshot = UsageSnapshot.capture(app);
+                for (int i = 0; i < due.size(); i++) {
+                    Job job = due.get(i);
+                    long start = SystemClock.elapsedRealtime();
+                    try {
+                        job.run(app, snapshot);
+                    } catch (Exception e) {
+                        // 抛异常（如网络失败）也算执行过，不在同一窗口内反复唤醒；只有进程被杀才重试
+                        Log.e(TAG, "❌ " + job.key + ": " + e.getMessage(), e);
+                    }
+                    prefs.edit().putLong("wakeup_done_" + job.key, occurrences.get(i)).apply();
+                    recordHold(prefs, job, SystemClock.elapsedRealtime() - start);
+                }
+                // 顺带补上采集时因网络条件推迟的链接分析，不单独唤醒
+                LinkEnrichmentJob.getInstance(app).resumeIfInterrupted();
+            } finally {
+                reschedule(app);
+                if (wl.isHeld()) wl.release();
+                long held = SystemClock.elapsedRealtime() - lockStart;
+                prefs.edit()
+                        .putLong("wakeup_count", prefs.getLong("wakeup_count", 0) + 1)
+                        .putLong("wakeup_hold_ms", prefs.getLong("wakeup_hold_ms", 0) + held)
+                        .apply();
+                Log.i(TAG, "🔋 本次唤醒持锁 " + held + "ms, " + due.size() + " 个任务");
+                pending.finish();
+            }
+        });
+    }
+
+    // ==================== 调度 ====================
+
+    /**
+     * 重新计算并设置下一次唤醒；开关娱乐提醒、保存配置、开机后调用
+     */
+    public static void reschedule(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long now = System.currentTimeMillis();
+
+        Job first = null;
+        Slot firstSlot = null;
+        for (Job job : Job.values()) {
+            if (!job.isEnabled(prefs)) continue;
+            Slot slot = nextSlot(prefs, job, now);
+            if (first == null || slot.latest < firstSlot.latest) {
+                first = job;
+                firstSlot = slot;
+            }
+        }
+        PendingIntent pendingIntent = wakeupIntent(context);
+        if (first == null) {
+            alarmManager.cancel(pendingIntent);
+            return;
+        }
+
+        long latest = firstSlot.latest;
+        if (firstSlot.exact) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, latest, pendingIntent);
+        } else {
+            long windowStart = Math.max(now, firstSlot.earliest);
+            alarmManager.setWindow(AlarmManager.RTC_WAKEUP, windowStart,
+                    Math.max(0, latest - windowStart), pendingIntent);
+        }
+        Log.i(TAG, "⏰ 下次唤醒: " + first.key + " " + new Date(latest) + (firstSlot.exact ? "" : " (非精确)"));
+    }
+
+    /** 任务下一次执行：计划时刻 + 可执行窗口 [earliest, latest] */
+    private static final class Slot {
+        final long occurrence;
+        final long earliest;
+        final long latest;
+        final boolean exact;
+
+        Slot(long occurrence, long earliest, long latest, boolean exact) {
+            this.occurrence = occurrence;
+            this.earliest = earliest;
+            this.latest = latest;
+            this.exact = exact;
+        }
+    }
+
+    /**
+     * 上次开始后没有完成（执行中进程被杀）且还有重试次数：锁超时后准点重试原计划时刻；
+     * 否则取下一个计划时刻及其窗口
+     */
+    private static Slot nextSlot(SharedPreferences prefs, Job job, long now) {
+        long done = prefs.getLong("wakeup_done_" + job.key, 0);
+        long started = prefs.getLong("wakeup_started_" + job.key, 0);
+        if (started > done) {
+            if (prefs.getInt("wakeup_attempts_" + job.key, 0) < MAX_ATTEMPTS) {
+                long retryAt = prefs.getLong("wakeup_started_at_" + job.key, 0) + WAKELOCK_TIMEOUT_MS;
+                return new Slot(started, retryAt, retryAt, true);
+            }
+            // 连续多次没跑完（可能每次都把进程拖垮），放弃这一次，按已完成排下一次
+            done = started;
+        }
+        long occurrence = nextOccurrence(job, done, now);
+        return new Slot(occurrence, occurrence - job.earlyMs, occurrence + job.lateMs, job.exact);
+    }
+
+    /**
+     * 任务下一个待执行的计划时刻：上次完成之后的第一个；若它的窗口已过（如关机错过）则顺延到当前之后
+     */
+    private static long nextOccurrence(Job job, long done, long now) {
+        long occurrence = done > 0 ? job.occurrenceAtOrAfter(done + 1) : job.occurrenceAtOrAfter(now);
+        if (occurrence + job.lateMs < now) {
+            occurrence = job.occurrenceAtOrAfter(now);
+        }
+        return occurrence;
+    }
+
+    private static PendingIntent wakeupIntent(Context context) {
+        Intent intent = new Intent(context, WakeupScheduler.class);
+        intent.setAction(ACTION_WAKEUP);
+        return PendingIntent.getBroadcast(context, ALARM_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    // ==================== 耗电统计 ====================
+
+    private static void recordHold(SharedPreferences prefs, Job job, long ms) {
+        prefs.edit()
+                .putLong("wakeup_runs_" + job.key, prefs.getLong("wakeup_runs_" + job.key, 0) + 1)
+                .putLong("wakeup_job_ms_" + job.key, prefs.getLong("wakeup_job_ms_" + job.key, 0) + ms)
+                .apply();
+        Log.d(TAG, "🔋 " + job.key + " 持锁 " + ms + "ms");
+    }
+
+    /**
+     * 各任务累计执行次数与持锁时长
+     */
+    public static String formatWakeStats(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        StringBuilder sb = new StringBuilder();
+        sb.append("唤醒 ").append(prefs.getLong("wakeup_count", 0)).append(" 次, 持锁 ")
+                .append(prefs.getLong("wakeup_hold_ms", 0) / 1000).append("s");
+        for (Job job : Job.values()) {
+            long runs = prefs.getLong("wakeup_runs_" + job.key, 0);
+            long ms = prefs.getLong("wakeup_job_ms_" + job.key, 0);
+            sb.append(" | ").append(job.key).append(" ").append(runs).append("次/")
+                    .append(ms / 1000).append("s");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package com.phonemonitor.app;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 通知去重微基准：合成 100k 条通知（2000 种不同内容，按热度重复出现），对比
+ * - 旧写法：pkg + "|" + title + "|" + content 拼串 → MD5 → 逐字节 String.format 转十六进制，
+ *   存进满 50 条整体清空的 HashSet&lt;String&gt;
+ * - Fingerprint.of(pkg, title, content) 流式 64 位指纹 + RecentFingerprints(512, 10 分钟) LRU 窗口
+ * 先校验 2000 种内容的指纹互不相同，再各跑 ROUNDS 轮，输出 CPU 时间中位数、每轮分配字节数和判重条数：
+ *   ./gradlew :app:testDebugUnitTest --tests '*FingerprintBenchmark' -i
+ */
+public class FingerprintBenchmark {
+    private static final int EVENTS = 100_000;
+    private static final int DISTINCT = 2_000;
+    private static final int ROUNDS = 15;
+    private static final long WINDOW_MS = 10 * 60 * 1000L;
+
+    // 合成的通知：内容下标 + 到达时间（平均 200ms 一条）
+    private static final String[] PKG = new String[DISTINCT];
+    private static final String[] TITLE = new String[DISTINCT];
+    private static final String[] CONTENT = new String[DISTINCT];
+    private static final int[] eventIdx = new int[EVENTS];
+    private static final long[] eventAt = new long[EVENTS];
+
+    static {
+        Random random = new Random(42);
+        for (int i = 0; i < DISTINCT; i++) {
+            PKG[i] = "com.bench.app" + (i % 40);
+            TITLE[i] = "会话 " + (i % 300);
+            StringBuilder sb = new StringBuilder("消息内容 #" + i + " ");
+            int len = 20 + random.nextInt(120);
+            while (sb.length() < len) sb.append((char) ('一' + random.nextInt(2000)));
+            CONTENT[i] = sb.toString();
+        }
+        long t = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            // 平方分布：少数内容反复出现（群消息、进度通知），多数只出现几次
+            double r = random.nextDouble();
+            eventIdx[i] = (int) (r * r * DISTINCT);
+            t += random.nextInt(400);
+            eventAt[i] = t;
+        }
+    }
+
+    @Test
+    public void fingerprintBeatsMd5Hex() {
+        // 指纹互不相同
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < DISTINCT; i++) seen.add(Fingerprint.of(PKG[i], TITLE[i], CONTENT[i]));
+        assertEquals(DISTINCT, seen.size());
+
+        int legacyDup = runLegacy();
+        int fingerprintDup = runFingerprint();
+
+        long[] legacyCost = measure(FingerprintBenchmark::runLegacy);
+        long[] fingerprintCost = measure(FingerprintBenchmark::runFingerprint);
+        System.out.printf("📊 %d 条通知 / %d 种内容%n", EVENTS, DISTINCT);
+        System.out.printf("   MD5 + hex + HashSet(50):       %7.2f ms, %,12d B/轮, 判重 %d%n",
+                legacyCost[0] / 1e6, legacyCost[1], legacyDup);
+        System.out.printf("   Fingerprint + LRU(512, 10min): %7.2f ms, %,12d B/轮, 判重 %d%n",
+                fingerprintCost[0] / 1e6, fingerprintCost[1], fingerprintDup);
+        System.out.printf("   CPU %.1fx, 分配 %.1fx%n",
+                (double) legacyCost[0] / Math.max(fingerprintCost[0], 1),
+                (double) legacyCost[1] / Math.max(fingerprintCost[1], 1));
+    }
+
+    // ==================== 两种实现 ====================
+
+    private static int runLegacy() {
+        Set<String> recentHashes = new HashSet<>();
+        int duplicates = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            int k = eventIdx[i];
+            String hash = md5(PKG[k] + "|" + TITLE[k] + "|" + CONTENT[k]);
+            if (recentHashes.contains(hash)) {
+                duplicates++;
+                continue;
+            }
+            if (recentHashes.size() >= 50) recentHashes.clear();
+            recentHashes.add(hash);
+        }
+        return duplicates;
+    }
+
+    /** 改造前 NotificationMonitorService.md5 的写法 */
+    private static String md5(String input) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] digest = md.digest(input.getBytes());
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            return String.valueOf(input.hashCode());
+        }
+    }
+
+    private static int runFingerprint() {
+        RecentFingerprints recent = new RecentFingerprints(512, WINDOW_MS);
+        int duplicates = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            int k = eventIdx[i];
+            if (recent.checkAndAdd(Fingerprint.of(PKG[k], TITLE[k], CONTENT[k]), eventAt[i])) duplicates++;
+        }
+        return duplicates;
+    }
+
+    // ==================== 计时 / 分配 ====================
+
+    /** @return {CPU 时间中位数 ns, 每轮分配字节中位数} */
+    private static long[] measure(Runnable task) {
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        for (int i = 0; i < 5; i++) task.run();  // 预热 JIT
+
+        long[] cpu = new long[ROUNDS];
+        long[] bytes = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long alloc = mx.getThreadAllocatedBytes(tid);
+            long start = mx.getCurrentThreadCpuTime();
+            task.run();
+            cpu[i] = mx.getCurrentThreadCpuTime() - start;
+            bytes[i] = mx.getThreadAllocatedBytes(tid) - alloc;
+        }
+        Arrays.sort(cpu);
+        Arrays.sort(bytes);
+        return new long[]{cpu[ROUNDS / 2], bytes[ROUNDS / 2]};
+    }
+}
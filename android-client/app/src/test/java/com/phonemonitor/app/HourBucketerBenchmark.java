@@ -0,0 +1,134 @@
+package com.phonemonitor.app;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 整点切分微基准：合成一天 100k 条前台事件（50k 个会话，200 个应用），对比
+ * - 旧写法：每个会话 new Calendar 切整点，累加进 HashMap&lt;Integer, Map&lt;String, Long&gt;&gt;
+ * - HourBucketer：预算整点边界 + 包名驻留 id + long[24][id] 稠密矩阵
+ * 先校验两边每小时每个包的时长完全一致，再各跑 ROUNDS 轮，输出 CPU 时间中位数和每轮分配字节数：
+ *   ./gradlew :app:testDebugUnitTest --tests '*HourBucketerBenchmark' -i
+ */
+public class HourBucketerBenchmark {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final int EVENTS = 100_000;
+    private static final int APPS = 200;
+    private static final int ROUNDS = 15;
+
+    private static final long DAY_START = ZonedDateTime.of(2026, 10, 18, 0, 0, 0, 0, ZONE)
+            .toInstant().toEpochMilli();
+
+    // 合成的会话：起止时间 + 包名（同一个 String 实例复用，和回放时 getPackageName 的情况一致）
+    private static final String[] PACKAGES = new String[APPS];
+    private static final int[] sessionPkg = new int[EVENTS / 2];
+    private static final long[] sessionStart = new long[EVENTS / 2];
+    private static final long[] sessionEnd = new long[EVENTS / 2];
+
+    static {
+        for (int i = 0; i < APPS; i++) PACKAGES[i] = "com.bench.app" + i;
+        Random random = new Random(42);
+        long dayMs = 24 * 3600_000L;
+        for (int i = 0; i < sessionPkg.length; i++) {
+            sessionPkg[i] = random.nextInt(APPS);
+            // 大部分几秒到几分钟，少数跨多个整点
+            long length = random.nextInt(20) == 0 ? random.nextInt(3 * 3600_000) : random.nextInt(300_000);
+            sessionStart[i] = DAY_START + (long) (random.nextDouble() * (dayMs - length));
+            sessionEnd[i] = sessionStart[i] + length;
+        }
+    }
+
+    @Test
+    public void hourBucketingBeatsCalendarSplitting() {
+        // 结果一致
+        Map<Integer, Map<String, Long>> legacy = runLegacy();
+        HourBucketer bucketer = runBucketer();
+        for (int hour = 0; hour < 24; hour++) {
+            Map<String, Long> row = legacy.getOrDefault(hour, new HashMap<>());
+            for (int id = 0; id < bucketer.packageCount(); id++) {
+                long expected = row.getOrDefault(bucketer.packageName(id), 0L);
+                assertEquals("hour " + hour + " " + bucketer.packageName(id), expected, bucketer.get(hour, id));
+            }
+        }
+
+        long[] legacyCost = measure(HourBucketerBenchmark::runLegacy);
+        long[] bucketerCost = measure(HourBucketerBenchmark::runBucketer);
+        System.out.printf("📊 %d 事件 / %d 应用%n", EVENTS, APPS);
+        System.out.printf("   Calendar + HashMap: %7.2f ms, %,12d B/轮%n", legacyCost[0] / 1e6, legacyCost[1]);
+        System.out.printf("   HourBucketer:       %7.2f ms, %,12d B/轮%n", bucketerCost[0] / 1e6, bucketerCost[1]);
+        System.out.printf("   CPU %.1fx, 分配 %.1fx%n",
+                (double) legacyCost[0] / Math.max(bucketerCost[0], 1),
+                (double) legacyCost[1] / Math.max(bucketerCost[1], 1));
+    }
+
+    // ==================== 两种实现 ====================
+
+    private static Map<Integer, Map<String, Long>> runLegacy() {
+        Map<Integer, Map<String, Long>> hourly = new HashMap<>();
+        for (int i = 0; i < sessionPkg.length; i++) {
+            addToHourlyBucket(hourly, PACKAGES[sessionPkg[i]], sessionStart[i], sessionEnd[i]);
+        }
+        return hourly;
+    }
+
+    /** 改造前 EntertainmentAlertReceiver.addToHourlyBucket 的写法 */
+    private static void addToHourlyBucket(Map<Integer, Map<String, Long>> hourly,
+                                          String pkg, long start, long end) {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(ZONE));
+        long cursor = start;
+        while (cursor < end) {
+            cal.setTimeInMillis(cursor);
+            int hour = cal.get(Calendar.HOUR_OF_DAY);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            cal.add(Calendar.HOUR_OF_DAY, 1);
+            long hourEnd = Math.min(cal.getTimeInMillis(), end);
+            hourly.computeIfAbsent(hour, k -> new HashMap<>())
+                    .merge(pkg, hourEnd - cursor, Long::sum);
+            cursor = hourEnd;
+        }
+    }
+
+    private static HourBucketer runBucketer() {
+        HourBucketer bucketer = new HourBucketer(DAY_START, ZONE);
+        for (int i = 0; i < sessionPkg.length; i++) {
+            bucketer.addSession(bucketer.intern(PACKAGES[sessionPkg[i]]), sessionStart[i], sessionEnd[i]);
+        }
+        return bucketer;
+    }
+
+    // ==================== 计时 / 分配 ====================
+
+    /** @return {CPU 时间中位数 ns, 每轮分配字节中位数} */
+    private static long[] measure(Runnable task) {
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        for (int i = 0; i < 5; i++) task.run();  // 预热 JIT
+
+        long[] cpu = new long[ROUNDS];
+        long[] bytes = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long alloc = mx.getThreadAllocatedBytes(tid);
+            long start = mx.getCurrentThreadCpuTime();
+            task.run();
+            cpu[i] = mx.getCurrentThreadCpuTime() - start;
+            bytes[i] = mx.getThreadAllocatedBytes(tid) - alloc;
+        }
+        Arrays.sort(cpu);
+        Arrays.sort(bytes);
+        return new long[]{cpu[ROUNDS / 2], bytes[ROUNDS / 2]};
+    }
+}
@@ -0,0 +1,71 @@
+package com.phonemonitor.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * 冷启动基准：对比不编译与按 baseline-prof.txt 部分编译两种情况
+ *
+ * 每轮杀进程后从桌面冷启动 MainActivity，记录
+ * - timeToInitialDisplay（首帧）和 timeToFullDisplay（状态区渲染后 reportFullyDrawn）
+ * - AppStartup 各阶段的 Trace 区段 "startup:&lt;阶段名&gt;" 耗时
+ * 运行（需真机或 API 29+ 模拟器，app 以 benchmark 构建类型安装）：
+ *   ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+ * 每轮的 Perfetto trace 和汇总 JSON 在 macrobenchmark/build/outputs/connected_android_test_additional_output/ 下
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+    private static final String PACKAGE = "com.phonemonitor.app";
+    private static final int ITERATIONS = 10;
+    // 与 PhoneMonitorApp.STAGE_* 对应
+    private static final String[] STAGES = {
+            "logs", "config", "dictionary", "packageMeta", "databases", "messageQueue", "wakeup", "enrichResume"
+    };
+    // 后台阶段在主线程第一次空闲后才开始，多等一会儿让它们落进 trace
+    private static final long STAGE_SETTLE_MS = 2000;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void startupNoCompilation() {
+        measure(new CompilationMode.None());
+    }
+
+    @Test
+    public void startupBaselineProfile() {
+        measure(new CompilationMode.Partial());
+    }
+
+    private void measure(CompilationMode mode) {
+        List<Metric> metrics = new ArrayList<>();
+        metrics.add(new StartupTimingMetric());
+        for (String stage : STAGES) {
+            metrics.add(new TraceSectionMetric("startup:" + stage));
+        }
+        rule.measureRepeated(PACKAGE, metrics, mode, StartupMode.COLD, ITERATIONS, scope -> {
+            scope.pressHome();
+            scope.startActivityAndWait();
+            try {
+                Thread.sleep(STAGE_SETTLE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Unit.INSTANCE;
+        });
+    }
+}